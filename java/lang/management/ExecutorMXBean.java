@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.lang.management;
+
+/**
+ * The management interface for the task statistics of an executor,
+ * such as a {@link java.util.concurrent.ThreadPoolExecutor} or a
+ * {@link java.util.concurrent.ForkJoinPool}, for which statistics
+ * have been enabled.  The statistics include distributions of the
+ * time tasks spend queued before they start (the <em>queue wait
+ * time</em>) and of the time they take to run (the <em>execution
+ * time</em>), recorded by the worker threads of the executor.  All
+ * times are in nanoseconds, and percentiles are accurate to within
+ * 12.5%.
+ *
+ * <p> A class implementing this interface is an
+ * {@link javax.management.MXBean}.  An instance is obtained from the
+ * executor, for example with
+ * {@link java.util.concurrent.ThreadPoolExecutor#getStatistics}, and may
+ * be registered with the platform {@link javax.management.MBeanServer
+ * MBeanServer} under the {@link javax.management.ObjectName ObjectName}
+ * returned by {@link #getObjectName}, which takes the form:
+ * <pre>
+ *     java.util.concurrent:type=Executor,name=<i>executor name</i>
+ * </pre>
+ * where <em>executor name</em> is the {@link #getName name} of the
+ * executor.
+ *
+ * @see java.util.concurrent.ExecutorStatistics
+ * @since   1.8
+ */
+public interface ExecutorMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the name of the executor.
+     *
+     * @return the name of the executor
+     */
+    String getName();
+
+    /**
+     * Returns the number of tasks that completed since the statistics
+     * were enabled or last reset.
+     *
+     * @return the number of completed tasks
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * Returns the number of tasks that the executor rejected since the
+     * statistics were enabled or last reset.
+     *
+     * @return the number of rejected tasks
+     */
+    long getRejectedTaskCount();
+
+    /**
+     * Returns the mean queue wait time.
+     *
+     * @return the mean queue wait time, in nanoseconds
+     */
+    double getQueueWaitTimeMean();
+
+    /**
+     * Returns the median queue wait time.
+     *
+     * @return the median queue wait time, in nanoseconds
+     */
+    long getQueueWaitTimeMedian();
+
+    /**
+     * Returns the 99th percentile of the queue wait time.
+     *
+     * @return the 99th percentile queue wait time, in nanoseconds
+     */
+    long getQueueWaitTime99thPercentile();
+
+    /**
+     * Returns the maximum queue wait time.
+     *
+     * @return the maximum queue wait time, in nanoseconds
+     */
+    long getQueueWaitTimeMax();
+
+    /**
+     * Returns the mean execution time.
+     *
+     * @return the mean execution time, in nanoseconds
+     */
+    double getExecutionTimeMean();
+
+    /**
+     * Returns the median execution time.
+     *
+     * @return the median execution time, in nanoseconds
+     */
+    long getExecutionTimeMedian();
+
+    /**
+     * Returns the 99th percentile of the execution time.
+     *
+     * @return the 99th percentile execution time, in nanoseconds
+     */
+    long getExecutionTime99thPercentile();
+
+    /**
+     * Returns the maximum execution time.
+     *
+     * @return the maximum execution time, in nanoseconds
+     */
+    long getExecutionTimeMax();
+
+    /**
+     * Discards the statistics recorded so far.
+     */
+    void reset();
+}
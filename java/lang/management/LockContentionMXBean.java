@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.lang.management;
+
+import java.util.List;
+import java.util.concurrent.locks.LockContentionInfo;
+
+/**
+ * The management interface for the sampling lock contention profiler
+ * of {@link java.util.concurrent.locks.AbstractQueuedSynchronizer},
+ * and so of the locks, semaphores and other synchronizers built on
+ * it.  While enabled, a sample of the acquisitions that have to
+ * queue is recorded per synchronizer: the time the acquiring thread
+ * waited, the length of the queue it joined, and where the owner of
+ * an exclusively held synchronizer was executing.
+ *
+ * <p> The profiler is disabled by default, and may be enabled with
+ * {@link #setEnabled}, or at startup by setting the system property
+ * {@code java.util.concurrent.locks.profileContention} to {@code true}.
+ * Uncontended acquisitions are never recorded, and cost nothing
+ * more while the profiler is enabled.
+ *
+ * <p> The profiler is obtained by
+ * {@link java.util.concurrent.locks.LockContentionProfiler#getProfiler},
+ * and may be registered with the platform {@link
+ * javax.management.MBeanServer MBeanServer} under the {@link
+ * javax.management.ObjectName ObjectName}:
+ * <pre>
+ *     java.util.concurrent.locks:type=LockContention
+ * </pre>
+ *
+ * @see java.util.concurrent.locks.LockContentionProfiler
+ * @since   1.8
+ */
+public interface LockContentionMXBean extends PlatformManagedObject {
+
+    /**
+     * Tests if contention profiling is enabled.
+     *
+     * @return {@code true} if contention profiling is enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables contention profiling.  Samples recorded
+     * while enabled are kept when profiling is disabled.
+     *
+     * @param enable {@code true} to enable; {@code false} to disable
+     * @throws SecurityException if a security manager exists and the
+     *         caller does not have ManagementPermission("control")
+     */
+    void setEnabled(boolean enable);
+
+    /**
+     * Returns the sampling interval: on average one contended
+     * acquisition in this many is recorded.
+     *
+     * @return the sampling interval
+     */
+    int getSamplingInterval();
+
+    /**
+     * Sets the sampling interval.
+     *
+     * @param interval on average one contended acquisition in this
+     *        many is recorded; 1 records all of them
+     * @throws IllegalArgumentException if {@code interval < 1}
+     * @throws SecurityException if a security manager exists and the
+     *         caller does not have ManagementPermission("control")
+     */
+    void setSamplingInterval(int interval);
+
+    /**
+     * Returns the contention recorded for at most the given number of
+     * synchronizers, those with the greatest total sampled wait time
+     * first.
+     *
+     * @param n the maximum number of synchronizers
+     * @return the contention of the most contended synchronizers
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    List<LockContentionInfo> getTopContendedLocks(int n);
+
+    /**
+     * Discards all recorded samples.
+     *
+     * @throws SecurityException if a security manager exists and the
+     *         caller does not have ManagementPermission("control")
+     */
+    void reset();
+}
@@ -26,6 +26,9 @@
 package java.util;
 
 import java.lang.reflect.Array;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
@@ -963,6 +966,1256 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /*
+     * In-place parallel sorting of primitive arrays.
+     */
+
+    /**
+     * Sorts the specified array into ascending numerical order, without
+     * allocating a working array the size of the original.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(int[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(int[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(int[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * without allocating a working array the size of the range.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(int[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(int[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else
+            new ArraysParallelSortHelpers.FJInt.InPlaceSorter
+                (null, a, fromIndex, toIndex - 1,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g,
+                 (32 - Integer.numberOfLeadingZeros(n)) << 1).invoke();
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order, without
+     * allocating a working array the size of the original.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(long[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(long[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(long[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * without allocating a working array the size of the range.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(long[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(long[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, toIndex - 1);
+        else
+            new ArraysParallelSortHelpers.FJLong.InPlaceSorter
+                (null, a, fromIndex, toIndex - 1,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g,
+                 (32 - Integer.numberOfLeadingZeros(n)) << 1).invoke();
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order, without
+     * allocating a working array the size of the original.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(float[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(float[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(float[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * without allocating a working array the size of the range.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(float[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(float[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(float[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int right = DualPivotQuicksort.moveNaNsToEnd(a, fromIndex, toIndex - 1);
+        int n = right + 1 - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, right);
+        else {
+            new ArraysParallelSortHelpers.FJFloat.InPlaceSorter
+                (null, a, fromIndex, right,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g,
+                 (32 - Integer.numberOfLeadingZeros(n)) << 1).invoke();
+            DualPivotQuicksort.placeNegativeZeros(a, fromIndex, right);
+        }
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order, without
+     * allocating a working array the size of the original.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(double[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(double[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(double[] a) {
+        parallelSortInPlace(a, 0, a.length);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * without allocating a working array the size of the range.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a parallel quicksort that
+     * partitions the array in place around a pivot chosen as a median of
+     * medians, sorting the two partitions concurrently, until the
+     * partitions reach a minimum granularity, which are then sorted using
+     * the appropriate {@link Arrays#sort(double[]) Arrays.sort} method. Unlike
+     * {@link #parallelSort(double[]) parallelSort}, it does not require a
+     * working space the size of the original array; the sequential sorts of
+     * the partitions may use working space no greater than the minimum
+     * granularity. This sort is not stable, which is not observable for
+     * primitive values. The {@link ForkJoinPool#commonPool() ForkJoin common
+     * pool} is used to execute any parallel tasks.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 1.8
+     */
+    public static void parallelSortInPlace(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int right = DualPivotQuicksort.moveNaNsToEnd(a, fromIndex, toIndex - 1);
+        int n = right + 1 - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            DualPivotQuicksort.sortInPlace(a, fromIndex, right);
+        else {
+            new ArraysParallelSortHelpers.FJDouble.InPlaceSorter
+                (null, a, fromIndex, right,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g,
+                 (32 - Integer.numberOfLeadingZeros(n)) << 1).invoke();
+            DualPivotQuicksort.placeNegativeZeros(a, fromIndex, right);
+        }
+    }
+
+    /*
+     * Sorting of int and long buffers.
+     */
+
+    /**
+     * Sorts the remaining elements of the specified buffer, those between
+     * its position, inclusive, and its limit, exclusive, into ascending
+     * numerical order.  The position, limit and mark of the buffer are
+     * not changed.
+     *
+     * @implNote If the buffer is backed by an accessible array, the
+     * corresponding range of that array is sorted using the appropriate
+     * {@link Arrays#sort(int[], int, int) Arrays.sort} method.  Otherwise,
+     * for example for direct and mapped buffers, the elements are sorted in
+     * place with an introsort that reads and writes the buffer directly, so
+     * that no copy of its contents is made on the Java heap.
+     *
+     * @param buf the buffer to be sorted
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     *
+     * @since 1.8
+     */
+    public static void sort(IntBuffer buf) {
+        if (buf.isReadOnly())
+            throw new ReadOnlyBufferException();
+        int lo = buf.position(), hi = buf.limit();
+        if (buf.hasArray()) {
+            int off = buf.arrayOffset();
+            DualPivotQuicksort.sort(buf.array(), off + lo, off + hi - 1,
+                                    null, 0, 0);
+        }
+        else
+            DualPivotQuicksort.sort(buf, lo, hi - 1);
+    }
+
+    /**
+     * Sorts the remaining elements of the specified buffer, those between
+     * its position, inclusive, and its limit, exclusive, into ascending
+     * numerical order.  The position, limit and mark of the buffer are
+     * not changed.
+     *
+     * @implNote If the buffer is backed by an accessible array, the
+     * corresponding range of that array is sorted using the appropriate
+     * {@link Arrays#sort(long[], int, int) Arrays.sort} method.  Otherwise,
+     * for example for direct and mapped buffers, the elements are sorted in
+     * place with an introsort that reads and writes the buffer directly, so
+     * that no copy of its contents is made on the Java heap.
+     *
+     * @param buf the buffer to be sorted
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     *
+     * @since 1.8
+     */
+    public static void sort(LongBuffer buf) {
+        if (buf.isReadOnly())
+            throw new ReadOnlyBufferException();
+        int lo = buf.position(), hi = buf.limit();
+        if (buf.hasArray()) {
+            int off = buf.arrayOffset();
+            DualPivotQuicksort.sort(buf.array(), off + lo, off + hi - 1,
+                                    null, 0, 0);
+        }
+        else
+            DualPivotQuicksort.sort(buf, lo, hi - 1);
+    }
+
+    /*
+     * Sorting of primitive keys with companion values.
+     */
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, int[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, int[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], int[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(int[], int[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, int[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], int[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(int[], int[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, int[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJIntInt.Sorter
+                (null, keys, values, new int[n], new int[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, long[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, long[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], long[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(int[], long[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, long[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], long[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(int[], long[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, long[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJIntLong.Sorter
+                (null, keys, values, new int[n], new long[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, Object[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(int[] keys, Object[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], Object[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(int[], Object[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, Object[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(int[], Object[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(int[], Object[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(int[] keys, Object[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJIntObject.Sorter
+                (null, keys, values, new int[n], new Object[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, int[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, int[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], int[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(long[], int[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, int[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], int[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(long[], int[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, int[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJLongInt.Sorter
+                (null, keys, values, new long[n], new int[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, long[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, long[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], long[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(long[], long[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, long[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], long[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(long[], long[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, long[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJLongLong.Sorter
+                (null, keys, values, new long[n], new long[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified arrays.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, Object[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        KeyedMergeSort.sort(keys, values, 0, n - 1, null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a merge sort that moves keys and
+     * values together, without boxing the keys.  It requires a working space
+     * no greater than the size of the specified range.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void sort(long[] keys, Object[] values,
+                            int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                            null, null, 0, 0);
+    }
+
+    /**
+     * Sorts the specified array of keys into ascending numerical order,
+     * applying the same permutation to the specified array of values, so
+     * that each value stays at the same index as its key.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * arrays into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], Object[])
+     * Arrays.sort} method. If the length of the specified arrays is less than
+     * the minimum granularity, then they are sorted using the appropriate
+     * {@link Arrays#sort(long[], Object[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the original
+     * arrays. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @throws IllegalArgumentException if the arrays differ in length
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, Object[] values) {
+        int n = keys.length;
+        if (n != values.length)
+            throw new IllegalArgumentException("keys.length(" + n +
+                                               ") != values.length(" +
+                                               values.length + ")");
+        parallelSort(keys, values, 0, n);
+    }
+
+    /**
+     * Sorts the specified range of the array of keys into ascending
+     * numerical order, applying the same permutation to the same range of
+     * the array of values.  The range to be sorted extends from the index
+     * {@code fromIndex}, inclusive, to the index {@code toIndex}, exclusive.
+     * If {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  values of equal
+     * keys will not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is a parallel sort-merge that breaks the
+     * range into sub-arrays that are themselves sorted and then merged. When
+     * the sub-array length reaches a minimum granularity, the sub-array is
+     * sorted using the appropriate {@link Arrays#sort(long[], Object[])
+     * Arrays.sort} method. If the length of the specified range is less than
+     * the minimum granularity, then it is sorted using the appropriate
+     * {@link Arrays#sort(long[], Object[]) Arrays.sort} method. The algorithm
+     * requires a working space no greater than the size of the specified
+     * range. The {@link ForkJoinPool#commonPool() ForkJoin common pool} is
+     * used to execute any parallel tasks.
+     *
+     * @param keys the keys to be sorted
+     * @param values the values to be permuted alongside the keys
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0}, or if {@code toIndex} is greater than
+     *     the length of either array
+     *
+     * @since 1.8
+     */
+    public static void parallelSort(long[] keys, Object[] values,
+                                    int fromIndex, int toIndex) {
+        rangeCheck(keys.length, fromIndex, toIndex);
+        rangeCheck(values.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p, g;
+        if (n <= MIN_ARRAY_SORT_GRAN ||
+            (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            KeyedMergeSort.sort(keys, values, fromIndex, toIndex - 1,
+                                null, null, 0, 0);
+        else
+            new ArraysParallelSortHelpers.FJLongObject.Sorter
+                (null, keys, values, new long[n], new Object[n],
+                 fromIndex, n, 0,
+                 ((g = n / (p << 2)) <= MIN_ARRAY_SORT_GRAN) ?
+                 MIN_ARRAY_SORT_GRAN : g).invoke();
+    }
+
     /**
      * Sorts the specified array of objects into ascending order, according
      * to the {@linkplain Comparable natural ordering} of its elements.
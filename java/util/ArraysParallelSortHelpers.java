@@ -66,6 +66,18 @@ import java.util.concurrent.CountedCompleter;
  * The primitive class versions (FJByte... FJDouble) are
  * identical to each other except for type declarations.
  *
+ * The int, long, float and double classes also define an
+ * InPlaceSorter for Arrays.parallelSortInPlace, which recursively
+ * partitions around a ninther pivot, forking the lower part of each
+ * partition, and sorts small ranges sequentially, so that no
+ * workspace array is allocated.
+ *
+ * The FJIntInt ... FJLongObject classes sort primitive keys together
+ * with a companion array of values for Arrays.parallelSort(keys,
+ * values).  Their leaf sorts use the stable KeyedMergeSort, and their
+ * Mergers split ties so that equal keys from the left partition stay
+ * ahead of those from the right, so the full sort is stable.
+ *
  * The base sequential sorts rely on non-public versions of TimSort,
  * ComparableTimSort, and DualPivotQuicksort sort methods that accept
  * temp workspace array slices that we will have already allocated, so
@@ -672,6 +684,52 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        static final class InPlaceSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a;
+            final int left, right, gran, depth;
+            InPlaceSorter(CountedCompleter<?> par, int[] a, int left,
+                          int right, int gran, int depth) {
+                super(par);
+                this.a = a; this.left = left; this.right = right;
+                this.gran = gran; this.depth = depth;
+            }
+            public final void compute() {
+                int[] a = this.a; // localize all params
+                int l = this.left, r = this.right, g = this.gran, d = this.depth;
+                while (r - l >= g && --d >= 0) {
+                    int m = (l + r) >>> 1, e = (r - l) >>> 3;
+                    int pivot = median(median(a[l], a[l+e], a[l+2*e]),
+                                     median(a[m-e], a[m], a[m+e]),
+                                     median(a[r-2*e], a[r-e], a[r]));
+                    int lt = l, gt = r;
+                    for (int k = l; k <= gt; ) {
+                        int ak = a[k];
+                        if (ak < pivot) {
+                            a[k++] = a[lt];
+                            a[lt++] = ak;
+                        }
+                        else if (ak > pivot) {
+                            a[k] = a[gt];
+                            a[gt--] = ak;
+                        }
+                        else
+                            ++k;
+                    }
+                    addToPendingCount(1);
+                    new InPlaceSorter(this, a, l, lt-1, g, d).fork();
+                    l = gt + 1;
+                }
+                DualPivotQuicksort.sort(a, l, r, null, 0, 0);
+                tryComplete();
+            }
+        }
+
+        static int median(int x, int y, int z) {
+            return (x < y) ? ((y < z) ? y : (x < z) ? z : x)
+                : ((x < z) ? x : (y < z) ? z : y);
+        }
     } // FJInt
 
     /** long support class */
@@ -783,6 +841,52 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        static final class InPlaceSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a;
+            final int left, right, gran, depth;
+            InPlaceSorter(CountedCompleter<?> par, long[] a, int left,
+                          int right, int gran, int depth) {
+                super(par);
+                this.a = a; this.left = left; this.right = right;
+                this.gran = gran; this.depth = depth;
+            }
+            public final void compute() {
+                long[] a = this.a; // localize all params
+                int l = this.left, r = this.right, g = this.gran, d = this.depth;
+                while (r - l >= g && --d >= 0) {
+                    int m = (l + r) >>> 1, e = (r - l) >>> 3;
+                    long pivot = median(median(a[l], a[l+e], a[l+2*e]),
+                                     median(a[m-e], a[m], a[m+e]),
+                                     median(a[r-2*e], a[r-e], a[r]));
+                    int lt = l, gt = r;
+                    for (int k = l; k <= gt; ) {
+                        long ak = a[k];
+                        if (ak < pivot) {
+                            a[k++] = a[lt];
+                            a[lt++] = ak;
+                        }
+                        else if (ak > pivot) {
+                            a[k] = a[gt];
+                            a[gt--] = ak;
+                        }
+                        else
+                            ++k;
+                    }
+                    addToPendingCount(1);
+                    new InPlaceSorter(this, a, l, lt-1, g, d).fork();
+                    l = gt + 1;
+                }
+                DualPivotQuicksort.sort(a, l, r, null, 0, 0);
+                tryComplete();
+            }
+        }
+
+        static long median(long x, long y, long z) {
+            return (x < y) ? ((y < z) ? y : (x < z) ? z : x)
+                : ((x < z) ? x : (y < z) ? z : y);
+        }
     } // FJLong
 
     /** float support class */
@@ -894,6 +998,52 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        static final class InPlaceSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final float[] a;
+            final int left, right, gran, depth;
+            InPlaceSorter(CountedCompleter<?> par, float[] a, int left,
+                          int right, int gran, int depth) {
+                super(par);
+                this.a = a; this.left = left; this.right = right;
+                this.gran = gran; this.depth = depth;
+            }
+            public final void compute() {
+                float[] a = this.a; // localize all params
+                int l = this.left, r = this.right, g = this.gran, d = this.depth;
+                while (r - l >= g && --d >= 0) {
+                    int m = (l + r) >>> 1, e = (r - l) >>> 3;
+                    float pivot = median(median(a[l], a[l+e], a[l+2*e]),
+                                     median(a[m-e], a[m], a[m+e]),
+                                     median(a[r-2*e], a[r-e], a[r]));
+                    int lt = l, gt = r;
+                    for (int k = l; k <= gt; ) {
+                        float ak = a[k];
+                        if (ak < pivot) {
+                            a[k++] = a[lt];
+                            a[lt++] = ak;
+                        }
+                        else if (ak > pivot) {
+                            a[k] = a[gt];
+                            a[gt--] = ak;
+                        }
+                        else
+                            ++k;
+                    }
+                    addToPendingCount(1);
+                    new InPlaceSorter(this, a, l, lt-1, g, d).fork();
+                    l = gt + 1;
+                }
+                DualPivotQuicksort.sort(a, l, r, null, 0, 0);
+                tryComplete();
+            }
+        }
+
+        static float median(float x, float y, float z) {
+            return (x < y) ? ((y < z) ? y : (x < z) ? z : x)
+                : ((x < z) ? x : (y < z) ? z : y);
+        }
     } // FJFloat
 
     /** double support class */
@@ -1005,6 +1155,772 @@ import java.util.concurrent.CountedCompleter;
                 tryComplete();
             }
         }
+
+        static final class InPlaceSorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final double[] a;
+            final int left, right, gran, depth;
+            InPlaceSorter(CountedCompleter<?> par, double[] a, int left,
+                          int right, int gran, int depth) {
+                super(par);
+                this.a = a; this.left = left; this.right = right;
+                this.gran = gran; this.depth = depth;
+            }
+            public final void compute() {
+                double[] a = this.a; // localize all params
+                int l = this.left, r = this.right, g = this.gran, d = this.depth;
+                while (r - l >= g && --d >= 0) {
+                    int m = (l + r) >>> 1, e = (r - l) >>> 3;
+                    double pivot = median(median(a[l], a[l+e], a[l+2*e]),
+                                     median(a[m-e], a[m], a[m+e]),
+                                     median(a[r-2*e], a[r-e], a[r]));
+                    int lt = l, gt = r;
+                    for (int k = l; k <= gt; ) {
+                        double ak = a[k];
+                        if (ak < pivot) {
+                            a[k++] = a[lt];
+                            a[lt++] = ak;
+                        }
+                        else if (ak > pivot) {
+                            a[k] = a[gt];
+                            a[gt--] = ak;
+                        }
+                        else
+                            ++k;
+                    }
+                    addToPendingCount(1);
+                    new InPlaceSorter(this, a, l, lt-1, g, d).fork();
+                    l = gt + 1;
+                }
+                DualPivotQuicksort.sort(a, l, r, null, 0, 0);
+                tryComplete();
+            }
+        }
+
+        static double median(double x, double y, double z) {
+            return (x < y) ? ((y < z) ? y : (x < z) ? z : x)
+                : ((x < z) ? x : (y < z) ? z : y);
+        }
     } // FJDouble
 
+    /** int keys with int values support class */
+    static final class FJIntInt {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final int[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, int[] a, int[] v, int[] w, int[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                int[] a = this.a, w = this.w; // localize all params
+                int[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w; // main and workspace key arrays
+            final int[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, int[] a, int[] v, int[] w, int[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        int split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        int split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    int al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJIntInt
+
+    /** int keys with long values support class */
+    static final class FJIntLong {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final long[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, int[] a, long[] v, int[] w, long[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                int[] a = this.a, w = this.w; // localize all params
+                long[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w; // main and workspace key arrays
+            final long[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, int[] a, long[] v, int[] w, long[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                long[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        int split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        int split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    int al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJIntLong
+
+    /** int keys with Object values support class */
+    static final class FJIntObject {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final Object[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, int[] a, Object[] v, int[] w, Object[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                int[] a = this.a, w = this.w; // localize all params
+                Object[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w; // main and workspace key arrays
+            final Object[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, int[] a, Object[] v, int[] w, Object[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                Object[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        int split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        int split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    int al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJIntObject
+
+    /** long keys with int values support class */
+    static final class FJLongInt {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final int[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, long[] a, int[] v, long[] w, int[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                long[] a = this.a, w = this.w; // localize all params
+                int[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w; // main and workspace key arrays
+            final int[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, long[] a, int[] v, long[] w, int[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        long split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        long split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    long al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJLongInt
+
+    /** long keys with long values support class */
+    static final class FJLongLong {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final long[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, long[] a, long[] v, long[] w, long[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                long[] a = this.a, w = this.w; // localize all params
+                long[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w; // main and workspace key arrays
+            final long[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, long[] a, long[] v, long[] w, long[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                long[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        long split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        long split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    long al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJLongLong
+
+    /** long keys with Object values support class */
+    static final class FJLongObject {
+        static final class Sorter extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final Object[] v, wv;
+            final int base, size, wbase, gran;
+            Sorter(CountedCompleter<?> par, long[] a, Object[] v, long[] w, Object[] wv,
+                   int base, int size, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.base = base; this.size = size;
+                this.wbase = wbase; this.gran = gran;
+            }
+            public final void compute() {
+                CountedCompleter<?> s = this;
+                long[] a = this.a, w = this.w; // localize all params
+                Object[] v = this.v, wv = this.wv;
+                int b = this.base, n = this.size, wb = this.wbase, g = this.gran;
+                while (n > g) {
+                    int h = n >>> 1, q = h >>> 1, u = h + q; // quartiles
+                    Relay fc = new Relay(new Merger(s, w, wv, a, v, wb, h,
+                                                    wb+h, n-h, b, g));
+                    Relay rc = new Relay(new Merger(fc, a, v, w, wv, b+h, q,
+                                                    b+u, n-u, wb+h, g));
+                    new Sorter(rc, a, v, w, wv, b+u, n-u, wb+u, g).fork();
+                    new Sorter(rc, a, v, w, wv, b+h, q, wb+h, g).fork();
+                    Relay bc = new Relay(new Merger(fc, a, v, w, wv, b, q,
+                                                    b+q, h-q, wb, g));
+                    new Sorter(bc, a, v, w, wv, b+q, h-q, wb+q, g).fork();
+                    s = new EmptyCompleter(bc);
+                    n = q;
+                }
+                KeyedMergeSort.sort(a, v, b, b + n - 1, w, wv, wb, n);
+                s.tryComplete();
+            }
+        }
+
+        static final class Merger extends CountedCompleter<Void> {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w; // main and workspace key arrays
+            final Object[] v, wv; // main and workspace value arrays
+            final int lbase, lsize, rbase, rsize, wbase, gran;
+            Merger(CountedCompleter<?> par, long[] a, Object[] v, long[] w, Object[] wv,
+                   int lbase, int lsize, int rbase,
+                   int rsize, int wbase, int gran) {
+                super(par);
+                this.a = a; this.v = v; this.w = w; this.wv = wv;
+                this.lbase = lbase; this.lsize = lsize;
+                this.rbase = rbase; this.rsize = rsize;
+                this.wbase = wbase; this.gran = gran;
+            }
+
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                Object[] v = this.v, wv = this.wv;
+                int lb = this.lbase, ln = this.lsize, rb = this.rbase,
+                    rn = this.rsize, k = this.wbase, g = this.gran;
+                if (a == null || w == null || v == null || wv == null ||
+                    lb < 0 || rb < 0 || k < 0)
+                    throw new IllegalStateException(); // hoist checks
+                for (int lh, rh;;) {  // split larger, find point in smaller
+                    if (ln >= rn) {
+                        if (ln <= g)
+                            break;
+                        rh = rn;
+                        long split = a[(lh = ln >>> 1) + lb];
+                        for (int lo = 0; lo < rh; ) {
+                            int rm = (lo + rh) >>> 1;
+                            if (split <= a[rm + rb])
+                                rh = rm;
+                            else
+                                lo = rm + 1;
+                        }
+                    }
+                    else {
+                        if (rn <= g)
+                            break;
+                        lh = ln;
+                        long split = a[(rh = rn >>> 1) + rb];
+                        for (int lo = 0; lo < lh; ) { // keep ties stable
+                            int lm = (lo + lh) >>> 1;
+                            if (split < a[lm + lb])
+                                lh = lm;
+                            else
+                                lo = lm + 1;
+                        }
+                    }
+                    Merger m = new Merger(this, a, v, w, wv, lb + lh, ln - lh,
+                                          rb + rh, rn - rh,
+                                          k + lh + rh, g);
+                    rn = rh;
+                    ln = lh;
+                    addToPendingCount(1);
+                    m.fork();
+                }
+
+                int lf = lb + ln, rf = rb + rn; // index bounds
+                while (lb < lf && rb < rf) {
+                    long al, ar;
+                    if ((al = a[lb]) <= (ar = a[rb])) {
+                        w[k] = al; wv[k++] = v[lb++];
+                    }
+                    else {
+                        w[k] = ar; wv[k++] = v[rb++];
+                    }
+                }
+                if (rb < rf) {
+                    System.arraycopy(a, rb, w, k, rf - rb);
+                    System.arraycopy(v, rb, wv, k, rf - rb);
+                }
+                else if (lb < lf) {
+                    System.arraycopy(a, lb, w, k, lf - lb);
+                    System.arraycopy(v, lb, wv, k, lf - lb);
+                }
+                tryComplete();
+            }
+        }
+    } // FJLongObject
+
 }
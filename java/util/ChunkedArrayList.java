@@ -0,0 +1,2178 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Resizable-array implementation of the <tt>List</tt> interface that
+ * stores its elements in a sequence of chunks instead of one contiguous
+ * array.  Growing the list allocates a new chunk and never copies the
+ * elements already stored, so unlike an {@link ArrayList}, which copies
+ * its whole backing array each time it grows, adding an element takes
+ * constant time even in the worst case (apart from the occasional
+ * growth of the small spine array referencing the chunks), and a very
+ * large list never needs a single very large array.
+ *
+ * <p>The first chunk holds 16 elements and each following chunk is
+ * twice as large as the previous one, up to a maximum chunk size of
+ * 32768 elements; all further chunks have the maximum size.  Because of
+ * this fixed layout the chunk and offset of an index are computed in
+ * constant time, so this class implements {@link RandomAccess}, and the
+ * <tt>size</tt>, <tt>isEmpty</tt>, <tt>get</tt>, <tt>set</tt> and
+ * <tt>add</tt> operations run in constant time.  Inserting or removing
+ * elements other than at the end runs in linear time, as for
+ * <tt>ArrayList</tt>.  The {@link #spliterator} splits the list into
+ * index ranges of equal size and traverses each chunk as a plain array,
+ * so it is well suited as the source of parallel streams.
+ *
+ * <p>The nested classes {@link OfInt}, {@link OfLong} and
+ * {@link OfDouble} are chunked lists of primitive values.  They are
+ * not <tt>List</tt>s, and store and return their values without boxing.
+ *
+ * <p>This class permits all elements, including <tt>null</tt>.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a <tt>ChunkedArrayList</tt> instance
+ * concurrently, and at least one of the threads modifies the list
+ * structurally, it <i>must</i> be synchronized externally.
+ *
+ * <p>The iterators and spliterators returned by this class and its
+ * nested classes are <i>fail-fast</i>, with the same best-effort
+ * guarantees as those of {@link ArrayList}.
+ *
+ * @param <E> the type of elements in this list
+ *
+ * @see     ArrayList
+ * @see     java.util.stream.Stream
+ * @since   1.8
+ */
+public class ChunkedArrayList<E> extends AbstractList<E>
+        implements List<E>, RandomAccess, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = -7403218856519036151L;
+
+    /*
+     * Chunk layout, shared with the primitive lists.  Chunk k, for k
+     * less than GROWING_CHUNKS, holds FIRST_CHUNK_SIZE << k elements
+     * starting at index FIRST_CHUNK_SIZE * ((1 << k) - 1); the chunks
+     * after those hold MAX_CHUNK_SIZE elements each.  The chunks are
+     * allocated only as needed and referenced from a spine array,
+     * which is the only array ever copied on growth.
+     */
+
+    /**
+     * log2 of the size of the first chunk.
+     */
+    static final int FIRST_CHUNK_POWER = 4;
+
+    /**
+     * log2 of the maximum chunk size.
+     */
+    static final int MAX_CHUNK_POWER = 15;
+
+    static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_POWER;
+
+    static final int MAX_CHUNK_SIZE = 1 << MAX_CHUNK_POWER;
+
+    /**
+     * The number of chunks of growing size.
+     */
+    static final int GROWING_CHUNKS = MAX_CHUNK_POWER - FIRST_CHUNK_POWER + 1;
+
+    /**
+     * The total size of the chunks of growing size, which is the index
+     * of the first element of the first chunk of maximum size.
+     */
+    static final int GROWING_CAPACITY = (MAX_CHUNK_SIZE << 1) - FIRST_CHUNK_SIZE;
+
+    /**
+     * The initial length of the spine.
+     */
+    static final int MIN_SPINE_SIZE = 8;
+
+    /**
+     * The maximum number of elements, limited by the int indices.
+     */
+    static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Returns the chunk holding the specified index.
+     */
+    static int chunkFor(int index) {
+        return (index < GROWING_CAPACITY) ?
+            31 - Integer.numberOfLeadingZeros((index >>> FIRST_CHUNK_POWER) + 1) :
+            GROWING_CHUNKS + ((index - GROWING_CAPACITY) >>> MAX_CHUNK_POWER);
+    }
+
+    /**
+     * Returns the index of the first element of the specified chunk.
+     */
+    static int chunkStart(int chunk) {
+        return (chunk < GROWING_CHUNKS) ?
+            (FIRST_CHUNK_SIZE << chunk) - FIRST_CHUNK_SIZE :
+            GROWING_CAPACITY + ((chunk - GROWING_CHUNKS) << MAX_CHUNK_POWER);
+    }
+
+    /**
+     * Returns the number of elements of the specified chunk.
+     */
+    static int chunkSize(int chunk) {
+        return (chunk < GROWING_CHUNKS) ?
+            FIRST_CHUNK_SIZE << chunk : MAX_CHUNK_SIZE;
+    }
+
+    /**
+     * Returns a spine length greater than the specified chunk index,
+     * growing the old length by 50%.
+     */
+    static int newSpineSize(int oldSize, int chunk) {
+        int n = oldSize + (oldSize >> 1);
+        return (n > chunk) ? n : chunk + 1;
+    }
+
+    /**
+     * Checks that the requested capacity is supported.
+     */
+    static void checkCapacity(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_SIZE) // overflow
+            throw new OutOfMemoryError();
+    }
+
+    /**
+     * The chunks holding the elements.  Only the first chunkCount
+     * entries are non-null.
+     */
+    transient Object[][] spine;
+
+    /**
+     * The number of chunks allocated.
+     */
+    transient int chunkCount;
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list.
+     */
+    public ChunkedArrayList() {
+        spine = new Object[MIN_SPINE_SIZE][];
+    }
+
+    /**
+     * Constructs an empty list with room for the specified number of
+     * elements before allocating another chunk.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public ChunkedArrayList(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        spine = new Object[MIN_SPINE_SIZE][];
+        ensureCapacity(initialCapacity);
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator.
+     *
+     * @param c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedArrayList(Collection<? extends E> c) {
+        spine = new Object[MIN_SPINE_SIZE][];
+        addAll(c);
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, so that it can
+     * hold at least the number of elements specified by the minimum
+     * capacity argument without allocating another chunk.
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        checkCapacity(minCapacity);
+        int k = chunkCount;
+        if (chunkStart(k) < minCapacity) {
+            Object[][] s = spine;
+            int last = chunkFor(minCapacity - 1);
+            if (last >= s.length)
+                spine = s = Arrays.copyOf(s, newSpineSize(s.length, last));
+            for (; k <= last; ++k)
+                s[k] = new Object[chunkSize(k)];
+            chunkCount = k;
+        }
+    }
+
+    /**
+     * Releases the chunks that are not needed to hold the current
+     * elements of this list.
+     */
+    public void trimToSize() {
+        modCount++;
+        int k = (size == 0) ? 0 : chunkFor(size - 1) + 1;
+        Object[][] s = spine;
+        for (int i = k; i < chunkCount; ++i)
+            s[i] = null;
+        chunkCount = k;
+        if (s.length > MIN_SPINE_SIZE && s.length > k)
+            spine = Arrays.copyOf(s, Math.max(k, MIN_SPINE_SIZE));
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this list contains no elements.
+     *
+     * @return <tt>true</tt> if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Positional Access Operations
+
+    @SuppressWarnings("unchecked")
+    E elementData(int index) {
+        int k = chunkFor(index);
+        return (E) spine[k][index - chunkStart(k)];
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E get(int index) {
+        rangeCheck(index);
+        return elementData(index);
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        rangeCheck(index);
+        int k = chunkFor(index);
+        Object[] chunk = spine[k];
+        int i = index - chunkStart(k);
+        @SuppressWarnings("unchecked") E oldValue = (E) chunk[i];
+        chunk[i] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     * @return <tt>true</tt> (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        modCount++;
+        int s = size;
+        if (s == chunkStart(chunkCount))
+            ensureCapacity(s + 1);
+        int k = chunkFor(s);
+        spine[k][s - chunkStart(k)] = e;
+        size = s + 1;
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        rangeCheckForAdd(index);
+        modCount++;
+        int s = size;
+        ensureCapacity(s + 1);
+        moveRange(index, index + 1, s - index);
+        int k = chunkFor(index);
+        spine[k][index - chunkStart(k)] = element;
+        size = s + 1;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        rangeCheck(index);
+        modCount++;
+        E oldValue = elementData(index);
+        int s = size - 1;
+        moveRange(index + 1, index, s - index);
+        clearRange(s, s + 1); // clear to let GC do its work
+        size = s;
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.  The chunks allocated so far
+     * are kept for reuse; use {@link #trimToSize} to release them.
+     */
+    public void clear() {
+        modCount++;
+        clearRange(0, size);
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified collection to the end of
+     * this list, in the order that they are returned by the
+     * specified collection's Iterator.  The behavior of this operation is
+     * undefined if the specified collection is modified while the operation
+     * is in progress.
+     *
+     * @param c collection containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size, c);
+    }
+
+    /**
+     * Inserts all of the elements in the specified collection into this
+     * list, starting at the specified position.  Shifts the element
+     * currently at that position (if any) and any subsequent elements to
+     * the right (increases their indices).  The new elements will appear
+     * in the list in the order that they are returned by the
+     * specified collection's iterator.
+     *
+     * @param index index at which to insert the first element from the
+     *              specified collection
+     * @param c collection containing elements to be added to this list
+     * @return <tt>true</tt> if this list changed as a result of the call
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean addAll(int index, Collection<? extends E> c) {
+        rangeCheckForAdd(index);
+        Object[] a = c.toArray();
+        int n = a.length;
+        modCount++;
+        if (n == 0)
+            return false;
+        int s = size;
+        ensureCapacity(s + n);
+        moveRange(index, index + n, s - index);
+        for (int i = 0; i < n; ) {
+            int p = index + i, k = chunkFor(p), off = p - chunkStart(k);
+            int m = Math.min(n - i, chunkSize(k) - off);
+            System.arraycopy(a, i, spine[k], off, m);
+            i += m;
+        }
+        size = s + n;
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex} or
+     *         {@code toIndex} is out of range
+     *         ({@code fromIndex < 0 ||
+     *          fromIndex >= size() ||
+     *          toIndex > size() ||
+     *          toIndex < fromIndex})
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        int s = size, newSize = s - (toIndex - fromIndex);
+        moveRange(toIndex, fromIndex, s - toIndex);
+        clearRange(newSize, s);
+        size = newSize;
+    }
+
+    /**
+     * Copies len elements starting at index src to the positions
+     * starting at index dst, which may overlap, one chunk-sized piece
+     * at a time.
+     */
+    private void moveRange(int src, int dst, int len) {
+        Object[][] s = spine;
+        if (src < dst) { // copy from the end
+            while (len > 0) {
+                int sl = src + len - 1, dl = dst + len - 1;
+                int sk = chunkFor(sl), dk = chunkFor(dl);
+                int so = sl - chunkStart(sk), dof = dl - chunkStart(dk);
+                int n = Math.min(len, Math.min(so, dof) + 1);
+                System.arraycopy(s[sk], so - n + 1, s[dk], dof - n + 1, n);
+                len -= n;
+            }
+        }
+        else if (src > dst)
+            copyRange(s, src, s, dst, len);
+    }
+
+    /**
+     * Copies len elements starting at index from of the chunks src to
+     * the positions starting at index to of the chunks dst, copying
+     * from the start, one chunk-sized piece at a time.
+     */
+    private static void copyRange(Object[][] src, int from,
+                                  Object[][] dst, int to, int len) {
+        while (len > 0) {
+            int sk = chunkFor(from), dk = chunkFor(to);
+            int so = from - chunkStart(sk), dof = to - chunkStart(dk);
+            int n = Math.min(len, Math.min(chunkSize(sk) - so,
+                                           chunkSize(dk) - dof));
+            System.arraycopy(src[sk], so, dst[dk], dof, n);
+            from += n;
+            to += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Sets the elements from index from, inclusive, to index to,
+     * exclusive, to null.
+     */
+    private void clearRange(int from, int to) {
+        while (from < to) {
+            int k = chunkFor(from), off = from - chunkStart(k);
+            int n = Math.min(to - from, chunkSize(k) - off);
+            Arrays.fill(spine[k], off, off + n, null);
+            from += n;
+        }
+    }
+
+    /**
+     * Checks if the given index is in range.
+     */
+    private void rangeCheck(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    /**
+     * A version of rangeCheck used by add and addAll.
+     */
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this list.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * @return an array containing all of the elements in this list in
+     *         proper sequence
+     */
+    public Object[] toArray() {
+        return copyTo(new Object[size]);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list in proper
+     * sequence (from first to last element); the runtime type of the returned
+     * array is that of the specified array.  If the list fits in the
+     * specified array, it is returned therein.  Otherwise, a new array is
+     * allocated with the runtime type of the specified array and the size of
+     * this list.
+     *
+     * <p>If the list fits in the specified array with room to spare
+     * (i.e., the array has more elements than the list), the element in
+     * the array immediately following the end of the collection is set to
+     * <tt>null</tt>.
+     *
+     * @param a the array into which the elements of the list are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose.
+     * @return an array containing the elements of the list
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this list
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        int s = size;
+        if (a.length < s)
+            a = (T[]) java.lang.reflect.Array.newInstance(
+                a.getClass().getComponentType(), s);
+        copyTo(a);
+        if (a.length > s)
+            a[s] = null;
+        return a;
+    }
+
+    /**
+     * Copies the elements into the given array, which is at least as
+     * long as the list, and returns it.
+     */
+    private <T> T[] copyTo(T[] a) {
+        Object[][] sp = spine;
+        for (int k = 0, i = 0, s = size; i < s; ++k) {
+            int n = Math.min(s - i, chunkSize(k));
+            System.arraycopy(sp[k], 0, a, i, n);
+            i += n;
+        }
+        return a;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        final int s = size;
+        for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+            Object[] chunk = sp[k];
+            int n = Math.min(s - i, chunk.length);
+            for (int j = 0; j < n; ++j) {
+                @SuppressWarnings("unchecked") E e = (E) chunk[j];
+                action.accept(e);
+            }
+            i += n;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        // figure out which elements are to be removed
+        // any exception thrown from the filter predicate at this stage
+        // will leave the collection unmodified
+        int removeCount = 0;
+        final int s = size;
+        final BitSet removeSet = new BitSet(s);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+            Object[] chunk = sp[k];
+            int n = Math.min(s - i, chunk.length);
+            for (int j = 0; j < n; ++j) {
+                @SuppressWarnings("unchecked") final E element = (E) chunk[j];
+                if (filter.test(element)) {
+                    removeSet.set(i + j);
+                    removeCount++;
+                }
+            }
+            i += n;
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+
+        // shift surviving elements left over the spaces left by removed
+        // elements, chunk by chunk
+        final boolean anyToRemove = removeCount > 0;
+        if (anyToRemove) {
+            final int newSize = s - removeCount;
+            Object[] dst = sp[0];
+            int dk = 0, dof = 0;
+            for (int k = 0, i = 0; i < s; ++k) {
+                Object[] chunk = sp[k];
+                int n = Math.min(s - i, chunk.length);
+                for (int j = 0; j < n; ++j) {
+                    if (!removeSet.get(i + j)) {
+                        if (dof == dst.length) {
+                            dst = sp[++dk];
+                            dof = 0;
+                        }
+                        dst[dof++] = chunk[j];
+                    }
+                }
+                i += n;
+            }
+            clearRange(newSize, s);  // Let gc do its work
+            this.size = newSize;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            modCount++;
+        }
+
+        return anyToRemove;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final Object[][] sp = spine;
+        final int s = size;
+        for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+            Object[] chunk = sp[k];
+            int n = Math.min(s - i, chunk.length);
+            for (int j = 0; j < n; ++j)
+                chunk[j] = operator.apply((E) chunk[j]);
+            i += n;
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}.
+     *
+     * <p>Each chunk is sorted in place, and the sorted chunks are then
+     * merged pairwise, from one set of chunks into another of the same
+     * layout, so that the sort neither copies the list into a single
+     * array nor needs a contiguous workspace.
+     *
+     * @param c the {@code Comparator} used to compare list elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException
+     *         (<a href="Collection.html#optional-restrictions">optional</a>)
+     *         if the comparator is found to violate the {@link Comparator}
+     *         contract
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        final int s = size;
+        if (s > 1) {
+            final Object[][] sp = spine;
+            int chunks = chunkFor(s - 1) + 1;
+            int[] runs = new int[chunks + 1];
+            for (int k = 0; k < chunks; ++k) {
+                int lo = chunkStart(k);
+                Arrays.sort((E[]) sp[k], 0, Math.min(s - lo, chunkSize(k)), c);
+                runs[k] = lo;
+            }
+            runs[chunks] = s;
+            if (chunks > 1)
+                mergeRuns(runs, chunks, c);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Merges the given number of adjacent sorted runs, whose bounds are
+     * given, pairwise into a second set of chunks and back, until a
+     * single run remains.  The chunks holding the result, or, if the
+     * comparator throws, a permutation of the elements, are left in the
+     * spine.
+     */
+    private void mergeRuns(int[] runs, int chunks, Comparator<? super E> c) {
+        final Object[][] sp = spine;
+        final int s = size;
+        Object[][] src = sp, dst = new Object[chunks][];
+        for (int k = 0; k < chunks; ++k)
+            dst[k] = new Object[chunkSize(k)];
+        try {
+            for (int count = chunks; count > 1; ) {
+                int n = 0;
+                for (int r = 0; r < count; r += 2) {
+                    if (r + 1 < count)
+                        merge(src, dst, runs[r], runs[r + 1], runs[r + 2], c);
+                    else
+                        copyRange(src, runs[r], dst, runs[r], s - runs[r]);
+                    runs[n++] = runs[r];
+                }
+                runs[n] = s;
+                count = n;
+                Object[][] t = src; src = dst; dst = t;
+            }
+        } finally {
+            // src is never written during a pass, so holds all elements
+            if (src != sp)
+                System.arraycopy(src, 0, sp, 0, chunks);
+        }
+    }
+
+    /**
+     * Merges the sorted ranges [lo, mid) and [mid, hi) of the chunks
+     * src into the range [lo, hi) of the chunks dst, taking elements
+     * from the first range when equal, so that the merge is stable.
+     */
+    private static void merge(Object[][] src, Object[][] dst,
+                              int lo, int mid, int hi,
+                              Comparator<?> c) {
+        int ik = chunkFor(lo), io = lo - chunkStart(ik);
+        int jk = chunkFor(mid), jo = mid - chunkStart(jk);
+        Object[] ic = src[ik], jc = src[jk];
+        Object x = ic[io], y = jc[jo];
+        int lk = chunkFor(mid - 1);
+        if (compare(c, src[lk][mid - 1 - chunkStart(lk)], y) <= 0) {
+            copyRange(src, lo, dst, lo, hi - lo); // already in order
+            return;
+        }
+        Object[] dc = dst[ik];
+        int dk = ik, dof = io;
+        for (int i = lo, j = mid;;) {
+            if (dof == dc.length) {
+                dc = dst[++dk];
+                dof = 0;
+            }
+            if (compare(c, y, x) < 0) {
+                dc[dof++] = y;
+                if (++j == hi) {
+                    copyRange(src, i, dst, hi - (mid - i), mid - i);
+                    return;
+                }
+                if (++jo == jc.length) {
+                    jc = src[++jk];
+                    jo = 0;
+                }
+                y = jc[jo];
+            }
+            else {
+                dc[dof++] = x;
+                if (++i == mid) {
+                    copyRange(src, j, dst, j, hi - j);
+                    return;
+                }
+                if (++io == ic.length) {
+                    ic = src[++ik];
+                    io = 0;
+                }
+                x = ic[io];
+            }
+        }
+    }
+
+    /**
+     * Compares two elements with the given comparator, or by their
+     * natural ordering if it is null.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Comparator c, Object x, Object y) {
+        return (c == null) ? ((Comparable) x).compareTo(y) : c.compare(x, y);
+    }
+
+    /**
+     * Returns a shallow copy of this <tt>ChunkedArrayList</tt> instance.
+     * (The elements themselves are not copied.)
+     *
+     * @return a clone of this <tt>ChunkedArrayList</tt> instance
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ChunkedArrayList<E> v = (ChunkedArrayList<E>) super.clone();
+            Object[][] s = spine.clone();
+            for (int k = 0; k < chunkCount; ++k)
+                s[k] = s[k].clone();
+            v.spine = s;
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Saves the state of the <tt>ChunkedArrayList</tt> instance to a
+     * stream (that is, serializes it).
+     *
+     * @serialData The size of the list (int), followed by all of its
+     *             elements (each an <tt>Object</tt>) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException{
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        for (int i = 0, n = size; i < n; i++)
+            s.writeObject(elementData(i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Reconstitutes the <tt>ChunkedArrayList</tt> instance from a stream
+     * (that is, deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = size;
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        size = 0;
+        spine = new Object[MIN_SPINE_SIZE][];
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            int k = chunkFor(i);
+            spine[k][i - chunkStart(k)] = s.readObject();
+        }
+        size = n;
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator} over the elements in this
+     * list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ChunkedSpliterator<>(this, 0, -1, 0);
+    }
+
+    /** Index-based split-by-two, lazily initialized Spliterator */
+    static final class ChunkedSpliterator<E> implements Spliterator<E> {
+        private final ChunkedArrayList<E> list;
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Create new spliterator covering the given  range */
+        ChunkedSpliterator(ChunkedArrayList<E> list, int origin, int fence,
+                           int expectedModCount) {
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = list.modCount;
+                hi = fence = list.size;
+            }
+            return hi;
+        }
+
+        public ChunkedSpliterator<E> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : // divide range in half unless too small
+                new ChunkedSpliterator<E>(list, lo, index = mid,
+                                          expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                E e = list.elementData(i);
+                action.accept(e);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            index = hi;
+            Object[][] sp = list.spine;
+            while (i < hi) { // traverse each chunk as an array
+                int k = chunkFor(i), off = i - chunkStart(k);
+                Object[] chunk;
+                if (k >= sp.length || (chunk = sp[k]) == null)
+                    break; // trimmed concurrently
+                int end = Math.min(chunk.length, off + hi - i);
+                for (int j = off; j < end; ++j) {
+                    @SuppressWarnings("unchecked") E e = (E) chunk[j];
+                    action.accept(e);
+                }
+                i += end - off;
+            }
+            if (list.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    /**
+     * A chunked list of {@code int} values, with the same chunk layout
+     * and growth policy as {@link ChunkedArrayList}.  The values are
+     * stored and returned without boxing.
+     *
+     * @since 1.8
+     */
+    public static class OfInt implements Cloneable, java.io.Serializable {
+        private static final long serialVersionUID = 2931845273564012475L;
+
+        /**
+         * The chunks holding the values.  Only the first chunkCount
+         * entries are non-null.
+         */
+        private transient int[][] spine;
+
+        /**
+         * The number of chunks allocated.
+         */
+        private transient int chunkCount;
+
+        /**
+         * The number of values in the list.
+         *
+         * @serial
+         */
+        private int size;
+
+        /**
+         * The number of times this list has been structurally modified.
+         */
+        transient int modCount;
+
+        /**
+         * Constructs an empty list.
+         */
+        public OfInt() {
+            spine = new int[MIN_SPINE_SIZE][];
+        }
+
+        /**
+         * Constructs an empty list with room for the specified number of
+         * values before allocating another chunk.
+         *
+         * @param  initialCapacity  the initial capacity of the list
+         * @throws IllegalArgumentException if the specified initial
+         *         capacity is negative
+         */
+        public OfInt(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException("Illegal Capacity: "+
+                                                   initialCapacity);
+            spine = new int[MIN_SPINE_SIZE][];
+            ensureCapacity(initialCapacity);
+        }
+
+        /**
+         * Increases the capacity of this list, if necessary, so that it
+         * can hold at least the number of values specified by the minimum
+         * capacity argument without allocating another chunk.
+         *
+         * @param   minCapacity   the desired minimum capacity
+         */
+        public void ensureCapacity(int minCapacity) {
+            checkCapacity(minCapacity);
+            int k = chunkCount;
+            if (chunkStart(k) < minCapacity) {
+                int[][] s = spine;
+                int last = chunkFor(minCapacity - 1);
+                if (last >= s.length)
+                    spine = s = Arrays.copyOf(s, newSpineSize(s.length, last));
+                for (; k <= last; ++k)
+                    s[k] = new int[chunkSize(k)];
+                chunkCount = k;
+            }
+        }
+
+        /**
+         * Releases the chunks that are not needed to hold the current
+         * values of this list.
+         */
+        public void trimToSize() {
+            modCount++;
+            int k = (size == 0) ? 0 : chunkFor(size - 1) + 1;
+            int[][] s = spine;
+            for (int i = k; i < chunkCount; ++i)
+                s[i] = null;
+            chunkCount = k;
+            if (s.length > MIN_SPINE_SIZE && s.length > k)
+                spine = Arrays.copyOf(s, Math.max(k, MIN_SPINE_SIZE));
+        }
+
+        /**
+         * Returns the number of values in this list.
+         *
+         * @return the number of values in this list
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns <tt>true</tt> if this list contains no values.
+         *
+         * @return <tt>true</tt> if this list contains no values
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the value at the specified position in this list.
+         *
+         * @param  index index of the value to return
+         * @return the value at the specified position in this list
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public int get(int index) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            return spine[k][index - chunkStart(k)];
+        }
+
+        /**
+         * Replaces the value at the specified position in this list with
+         * the specified value.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public int set(int index, int value) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            int[] chunk = spine[k];
+            int i = index - chunkStart(k);
+            int oldValue = chunk[i];
+            chunk[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Appends the specified value to the end of this list.
+         *
+         * @param value value to be appended to this list
+         */
+        public void add(int value) {
+            modCount++;
+            int s = size;
+            if (s == chunkStart(chunkCount))
+                ensureCapacity(s + 1);
+            int k = chunkFor(s);
+            spine[k][s - chunkStart(k)] = value;
+            size = s + 1;
+        }
+
+        /**
+         * Removes all of the values from this list.  The list will be
+         * empty after this call returns.  The chunks allocated so far are
+         * kept for reuse; use {@link #trimToSize} to release them.
+         */
+        public void clear() {
+            modCount++;
+            size = 0;
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+size);
+        }
+
+        /**
+         * Performs the given action for each value of this list, in
+         * order.
+         *
+         * @param action The action to be performed for each value
+         * @throws NullPointerException if the specified action is null
+         */
+        public void forEach(IntConsumer action) {
+            Objects.requireNonNull(action);
+            final int expectedModCount = modCount;
+            final int[][] sp = spine;
+            final int s = size;
+            for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+                int[] chunk = sp[k];
+                int n = Math.min(s - i, chunk.length);
+                for (int j = 0; j < n; ++j)
+                    action.accept(chunk[j]);
+                i += n;
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Returns an array containing all of the values in this list in
+         * proper sequence (from first to last value).
+         *
+         * @return an array containing all of the values in this list
+         */
+        public int[] toArray() {
+            int s = size;
+            int[] a = new int[s];
+            int[][] sp = spine;
+            for (int k = 0, i = 0; i < s; ++k) {
+                int n = Math.min(s - i, chunkSize(k));
+                System.arraycopy(sp[k], 0, a, i, n);
+                i += n;
+            }
+            return a;
+        }
+
+        /**
+         * Returns a sequential {@code IntStream} with this list as its
+         * source.
+         *
+         * @return a sequential {@code IntStream} over the values in this list
+         */
+        public IntStream stream() {
+            return StreamSupport.intStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a possibly parallel {@code IntStream} with this list as
+         * its source.
+         *
+         * @return a possibly parallel {@code IntStream} over the values in
+         *         this list
+         */
+        public IntStream parallelStream() {
+            return StreamSupport.intStream(spliterator(), true);
+        }
+
+        /**
+         * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+         * and <em>fail-fast</em> {@link Spliterator.OfInt} over the values
+         * in this list.
+         *
+         * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+         * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+         *
+         * @return a {@code Spliterator.OfInt} over the values in this list
+         */
+        public Spliterator.OfInt spliterator() {
+            return new OfIntSpliterator(this, 0, -1, 0);
+        }
+
+        /**
+         * Returns a copy of this list.
+         *
+         * @return a clone of this list
+         */
+        public OfInt clone() {
+            try {
+                OfInt v = (OfInt) super.clone();
+                int[][] s = spine.clone();
+                for (int k = 0; k < chunkCount; ++k)
+                    s[k] = s[k].clone();
+                v.spine = s;
+                v.modCount = 0;
+                return v;
+            } catch (CloneNotSupportedException e) {
+                // this shouldn't happen, since we are Cloneable
+                throw new InternalError(e);
+            }
+        }
+
+        /**
+         * Returns a string representation of this list, in the same
+         * form as {@link AbstractCollection#toString}.
+         *
+         * @return a string representation of this list
+         */
+        public String toString() {
+            StringJoiner sj = new StringJoiner(", ", "[", "]");
+            forEach(v -> sj.add(String.valueOf(v)));
+            return sj.toString();
+        }
+
+        /**
+         * Saves this list to a stream (that is, serializes it).
+         *
+         * @serialData The size of the list (int), followed by all of its
+         *             values (each a {@code int}) in the proper order.
+         */
+        private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+            int expectedModCount = modCount;
+            s.defaultWriteObject();
+            int[][] sp = spine;
+            for (int k = 0, i = 0, n = size; i < n; ++k) {
+                int[] chunk = sp[k];
+                for (int j = 0; j < chunk.length && i < n; ++j, ++i)
+                    s.writeInt(chunk[j]);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Reconstitutes this list from a stream (that is, deserializes it).
+         */
+        private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = size;
+            if (n < 0)
+                throw new java.io.InvalidObjectException("Illegal size: " + n);
+            size = 0;
+            spine = new int[MIN_SPINE_SIZE][];
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                int k = chunkFor(i);
+                spine[k][i - chunkStart(k)] = s.readInt();
+            }
+            size = n;
+        }
+
+        /** Index-based split-by-two, lazily initialized Spliterator */
+        static final class OfIntSpliterator implements Spliterator.OfInt {
+            private final ChunkedArrayList.OfInt list;
+            private int index; // current index, modified on advance/split
+            private int fence; // -1 until used; then one past last index
+            private int expectedModCount; // initialized when fence set
+
+            OfIntSpliterator(ChunkedArrayList.OfInt list, int origin,
+                           int fence, int expectedModCount) {
+                this.list = list;
+                this.index = origin;
+                this.fence = fence;
+                this.expectedModCount = expectedModCount;
+            }
+
+            private int getFence() { // initialize fence to size on first use
+                int hi;
+                if ((hi = fence) < 0) {
+                    expectedModCount = list.modCount;
+                    hi = fence = list.size;
+                }
+                return hi;
+            }
+
+            public OfIntSpliterator trySplit() {
+                int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+                return (lo >= mid) ? null : // divide range in half unless too small
+                    new OfIntSpliterator(list, lo, index = mid,
+                                       expectedModCount);
+            }
+
+            public boolean tryAdvance(IntConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                if (i < hi) {
+                    index = i + 1;
+                    int k = chunkFor(i);
+                    action.accept(list.spine[k][i - chunkStart(k)]);
+                    if (list.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
+
+            public void forEachRemaining(IntConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                index = hi;
+                int[][] sp = list.spine;
+                while (i < hi) { // traverse each chunk as an array
+                    int k = chunkFor(i), off = i - chunkStart(k);
+                    int[] chunk;
+                    if (k >= sp.length || (chunk = sp[k]) == null)
+                        break; // trimmed concurrently
+                    int end = Math.min(chunk.length, off + hi - i);
+                    for (int j = off; j < end; ++j)
+                        action.accept(chunk[j]);
+                    i += end - off;
+                }
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+            }
+
+            public long estimateSize() {
+                return (long) (getFence() - index);
+            }
+
+            public int characteristics() {
+                return Spliterator.ORDERED | Spliterator.SIZED |
+                    Spliterator.SUBSIZED;
+            }
+        }
+    }
+
+    /**
+     * A chunked list of {@code long} values, with the same chunk layout
+     * and growth policy as {@link ChunkedArrayList}.  The values are
+     * stored and returned without boxing.
+     *
+     * @since 1.8
+     */
+    public static class OfLong implements Cloneable, java.io.Serializable {
+        private static final long serialVersionUID = -6178390262861147920L;
+
+        /**
+         * The chunks holding the values.  Only the first chunkCount
+         * entries are non-null.
+         */
+        private transient long[][] spine;
+
+        /**
+         * The number of chunks allocated.
+         */
+        private transient int chunkCount;
+
+        /**
+         * The number of values in the list.
+         *
+         * @serial
+         */
+        private int size;
+
+        /**
+         * The number of times this list has been structurally modified.
+         */
+        transient int modCount;
+
+        /**
+         * Constructs an empty list.
+         */
+        public OfLong() {
+            spine = new long[MIN_SPINE_SIZE][];
+        }
+
+        /**
+         * Constructs an empty list with room for the specified number of
+         * values before allocating another chunk.
+         *
+         * @param  initialCapacity  the initial capacity of the list
+         * @throws IllegalArgumentException if the specified initial
+         *         capacity is negative
+         */
+        public OfLong(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException("Illegal Capacity: "+
+                                                   initialCapacity);
+            spine = new long[MIN_SPINE_SIZE][];
+            ensureCapacity(initialCapacity);
+        }
+
+        /**
+         * Increases the capacity of this list, if necessary, so that it
+         * can hold at least the number of values specified by the minimum
+         * capacity argument without allocating another chunk.
+         *
+         * @param   minCapacity   the desired minimum capacity
+         */
+        public void ensureCapacity(int minCapacity) {
+            checkCapacity(minCapacity);
+            int k = chunkCount;
+            if (chunkStart(k) < minCapacity) {
+                long[][] s = spine;
+                int last = chunkFor(minCapacity - 1);
+                if (last >= s.length)
+                    spine = s = Arrays.copyOf(s, newSpineSize(s.length, last));
+                for (; k <= last; ++k)
+                    s[k] = new long[chunkSize(k)];
+                chunkCount = k;
+            }
+        }
+
+        /**
+         * Releases the chunks that are not needed to hold the current
+         * values of this list.
+         */
+        public void trimToSize() {
+            modCount++;
+            int k = (size == 0) ? 0 : chunkFor(size - 1) + 1;
+            long[][] s = spine;
+            for (int i = k; i < chunkCount; ++i)
+                s[i] = null;
+            chunkCount = k;
+            if (s.length > MIN_SPINE_SIZE && s.length > k)
+                spine = Arrays.copyOf(s, Math.max(k, MIN_SPINE_SIZE));
+        }
+
+        /**
+         * Returns the number of values in this list.
+         *
+         * @return the number of values in this list
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns <tt>true</tt> if this list contains no values.
+         *
+         * @return <tt>true</tt> if this list contains no values
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the value at the specified position in this list.
+         *
+         * @param  index index of the value to return
+         * @return the value at the specified position in this list
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public long get(int index) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            return spine[k][index - chunkStart(k)];
+        }
+
+        /**
+         * Replaces the value at the specified position in this list with
+         * the specified value.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public long set(int index, long value) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            long[] chunk = spine[k];
+            int i = index - chunkStart(k);
+            long oldValue = chunk[i];
+            chunk[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Appends the specified value to the end of this list.
+         *
+         * @param value value to be appended to this list
+         */
+        public void add(long value) {
+            modCount++;
+            int s = size;
+            if (s == chunkStart(chunkCount))
+                ensureCapacity(s + 1);
+            int k = chunkFor(s);
+            spine[k][s - chunkStart(k)] = value;
+            size = s + 1;
+        }
+
+        /**
+         * Removes all of the values from this list.  The list will be
+         * empty after this call returns.  The chunks allocated so far are
+         * kept for reuse; use {@link #trimToSize} to release them.
+         */
+        public void clear() {
+            modCount++;
+            size = 0;
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+size);
+        }
+
+        /**
+         * Performs the given action for each value of this list, in
+         * order.
+         *
+         * @param action The action to be performed for each value
+         * @throws NullPointerException if the specified action is null
+         */
+        public void forEach(LongConsumer action) {
+            Objects.requireNonNull(action);
+            final int expectedModCount = modCount;
+            final long[][] sp = spine;
+            final int s = size;
+            for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+                long[] chunk = sp[k];
+                int n = Math.min(s - i, chunk.length);
+                for (int j = 0; j < n; ++j)
+                    action.accept(chunk[j]);
+                i += n;
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Returns an array containing all of the values in this list in
+         * proper sequence (from first to last value).
+         *
+         * @return an array containing all of the values in this list
+         */
+        public long[] toArray() {
+            int s = size;
+            long[] a = new long[s];
+            long[][] sp = spine;
+            for (int k = 0, i = 0; i < s; ++k) {
+                int n = Math.min(s - i, chunkSize(k));
+                System.arraycopy(sp[k], 0, a, i, n);
+                i += n;
+            }
+            return a;
+        }
+
+        /**
+         * Returns a sequential {@code LongStream} with this list as its
+         * source.
+         *
+         * @return a sequential {@code LongStream} over the values in this list
+         */
+        public LongStream stream() {
+            return StreamSupport.longStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a possibly parallel {@code LongStream} with this list as
+         * its source.
+         *
+         * @return a possibly parallel {@code LongStream} over the values in
+         *         this list
+         */
+        public LongStream parallelStream() {
+            return StreamSupport.longStream(spliterator(), true);
+        }
+
+        /**
+         * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+         * and <em>fail-fast</em> {@link Spliterator.OfLong} over the values
+         * in this list.
+         *
+         * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+         * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+         *
+         * @return a {@code Spliterator.OfLong} over the values in this list
+         */
+        public Spliterator.OfLong spliterator() {
+            return new OfLongSpliterator(this, 0, -1, 0);
+        }
+
+        /**
+         * Returns a copy of this list.
+         *
+         * @return a clone of this list
+         */
+        public OfLong clone() {
+            try {
+                OfLong v = (OfLong) super.clone();
+                long[][] s = spine.clone();
+                for (int k = 0; k < chunkCount; ++k)
+                    s[k] = s[k].clone();
+                v.spine = s;
+                v.modCount = 0;
+                return v;
+            } catch (CloneNotSupportedException e) {
+                // this shouldn't happen, since we are Cloneable
+                throw new InternalError(e);
+            }
+        }
+
+        /**
+         * Returns a string representation of this list, in the same
+         * form as {@link AbstractCollection#toString}.
+         *
+         * @return a string representation of this list
+         */
+        public String toString() {
+            StringJoiner sj = new StringJoiner(", ", "[", "]");
+            forEach(v -> sj.add(String.valueOf(v)));
+            return sj.toString();
+        }
+
+        /**
+         * Saves this list to a stream (that is, serializes it).
+         *
+         * @serialData The size of the list (int), followed by all of its
+         *             values (each a {@code long}) in the proper order.
+         */
+        private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+            int expectedModCount = modCount;
+            s.defaultWriteObject();
+            long[][] sp = spine;
+            for (int k = 0, i = 0, n = size; i < n; ++k) {
+                long[] chunk = sp[k];
+                for (int j = 0; j < chunk.length && i < n; ++j, ++i)
+                    s.writeLong(chunk[j]);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Reconstitutes this list from a stream (that is, deserializes it).
+         */
+        private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = size;
+            if (n < 0)
+                throw new java.io.InvalidObjectException("Illegal size: " + n);
+            size = 0;
+            spine = new long[MIN_SPINE_SIZE][];
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                int k = chunkFor(i);
+                spine[k][i - chunkStart(k)] = s.readLong();
+            }
+            size = n;
+        }
+
+        /** Index-based split-by-two, lazily initialized Spliterator */
+        static final class OfLongSpliterator implements Spliterator.OfLong {
+            private final ChunkedArrayList.OfLong list;
+            private int index; // current index, modified on advance/split
+            private int fence; // -1 until used; then one past last index
+            private int expectedModCount; // initialized when fence set
+
+            OfLongSpliterator(ChunkedArrayList.OfLong list, int origin,
+                           int fence, int expectedModCount) {
+                this.list = list;
+                this.index = origin;
+                this.fence = fence;
+                this.expectedModCount = expectedModCount;
+            }
+
+            private int getFence() { // initialize fence to size on first use
+                int hi;
+                if ((hi = fence) < 0) {
+                    expectedModCount = list.modCount;
+                    hi = fence = list.size;
+                }
+                return hi;
+            }
+
+            public OfLongSpliterator trySplit() {
+                int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+                return (lo >= mid) ? null : // divide range in half unless too small
+                    new OfLongSpliterator(list, lo, index = mid,
+                                       expectedModCount);
+            }
+
+            public boolean tryAdvance(LongConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                if (i < hi) {
+                    index = i + 1;
+                    int k = chunkFor(i);
+                    action.accept(list.spine[k][i - chunkStart(k)]);
+                    if (list.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
+
+            public void forEachRemaining(LongConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                index = hi;
+                long[][] sp = list.spine;
+                while (i < hi) { // traverse each chunk as an array
+                    int k = chunkFor(i), off = i - chunkStart(k);
+                    long[] chunk;
+                    if (k >= sp.length || (chunk = sp[k]) == null)
+                        break; // trimmed concurrently
+                    int end = Math.min(chunk.length, off + hi - i);
+                    for (int j = off; j < end; ++j)
+                        action.accept(chunk[j]);
+                    i += end - off;
+                }
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+            }
+
+            public long estimateSize() {
+                return (long) (getFence() - index);
+            }
+
+            public int characteristics() {
+                return Spliterator.ORDERED | Spliterator.SIZED |
+                    Spliterator.SUBSIZED;
+            }
+        }
+    }
+
+    /**
+     * A chunked list of {@code double} values, with the same chunk layout
+     * and growth policy as {@link ChunkedArrayList}.  The values are
+     * stored and returned without boxing.
+     *
+     * @since 1.8
+     */
+    public static class OfDouble implements Cloneable, java.io.Serializable {
+        private static final long serialVersionUID = 4019452216547384862L;
+
+        /**
+         * The chunks holding the values.  Only the first chunkCount
+         * entries are non-null.
+         */
+        private transient double[][] spine;
+
+        /**
+         * The number of chunks allocated.
+         */
+        private transient int chunkCount;
+
+        /**
+         * The number of values in the list.
+         *
+         * @serial
+         */
+        private int size;
+
+        /**
+         * The number of times this list has been structurally modified.
+         */
+        transient int modCount;
+
+        /**
+         * Constructs an empty list.
+         */
+        public OfDouble() {
+            spine = new double[MIN_SPINE_SIZE][];
+        }
+
+        /**
+         * Constructs an empty list with room for the specified number of
+         * values before allocating another chunk.
+         *
+         * @param  initialCapacity  the initial capacity of the list
+         * @throws IllegalArgumentException if the specified initial
+         *         capacity is negative
+         */
+        public OfDouble(int initialCapacity) {
+            if (initialCapacity < 0)
+                throw new IllegalArgumentException("Illegal Capacity: "+
+                                                   initialCapacity);
+            spine = new double[MIN_SPINE_SIZE][];
+            ensureCapacity(initialCapacity);
+        }
+
+        /**
+         * Increases the capacity of this list, if necessary, so that it
+         * can hold at least the number of values specified by the minimum
+         * capacity argument without allocating another chunk.
+         *
+         * @param   minCapacity   the desired minimum capacity
+         */
+        public void ensureCapacity(int minCapacity) {
+            checkCapacity(minCapacity);
+            int k = chunkCount;
+            if (chunkStart(k) < minCapacity) {
+                double[][] s = spine;
+                int last = chunkFor(minCapacity - 1);
+                if (last >= s.length)
+                    spine = s = Arrays.copyOf(s, newSpineSize(s.length, last));
+                for (; k <= last; ++k)
+                    s[k] = new double[chunkSize(k)];
+                chunkCount = k;
+            }
+        }
+
+        /**
+         * Releases the chunks that are not needed to hold the current
+         * values of this list.
+         */
+        public void trimToSize() {
+            modCount++;
+            int k = (size == 0) ? 0 : chunkFor(size - 1) + 1;
+            double[][] s = spine;
+            for (int i = k; i < chunkCount; ++i)
+                s[i] = null;
+            chunkCount = k;
+            if (s.length > MIN_SPINE_SIZE && s.length > k)
+                spine = Arrays.copyOf(s, Math.max(k, MIN_SPINE_SIZE));
+        }
+
+        /**
+         * Returns the number of values in this list.
+         *
+         * @return the number of values in this list
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns <tt>true</tt> if this list contains no values.
+         *
+         * @return <tt>true</tt> if this list contains no values
+         */
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the value at the specified position in this list.
+         *
+         * @param  index index of the value to return
+         * @return the value at the specified position in this list
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public double get(int index) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            return spine[k][index - chunkStart(k)];
+        }
+
+        /**
+         * Replaces the value at the specified position in this list with
+         * the specified value.
+         *
+         * @param index index of the value to replace
+         * @param value value to be stored at the specified position
+         * @return the value previously at the specified position
+         * @throws IndexOutOfBoundsException if the index is out of range
+         *         (<tt>index &lt; 0 || index &gt;= size()</tt>)
+         */
+        public double set(int index, double value) {
+            rangeCheck(index);
+            int k = chunkFor(index);
+            double[] chunk = spine[k];
+            int i = index - chunkStart(k);
+            double oldValue = chunk[i];
+            chunk[i] = value;
+            return oldValue;
+        }
+
+        /**
+         * Appends the specified value to the end of this list.
+         *
+         * @param value value to be appended to this list
+         */
+        public void add(double value) {
+            modCount++;
+            int s = size;
+            if (s == chunkStart(chunkCount))
+                ensureCapacity(s + 1);
+            int k = chunkFor(s);
+            spine[k][s - chunkStart(k)] = value;
+            size = s + 1;
+        }
+
+        /**
+         * Removes all of the values from this list.  The list will be
+         * empty after this call returns.  The chunks allocated so far are
+         * kept for reuse; use {@link #trimToSize} to release them.
+         */
+        public void clear() {
+            modCount++;
+            size = 0;
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: "+index+
+                                                    ", Size: "+size);
+        }
+
+        /**
+         * Performs the given action for each value of this list, in
+         * order.
+         *
+         * @param action The action to be performed for each value
+         * @throws NullPointerException if the specified action is null
+         */
+        public void forEach(DoubleConsumer action) {
+            Objects.requireNonNull(action);
+            final int expectedModCount = modCount;
+            final double[][] sp = spine;
+            final int s = size;
+            for (int k = 0, i = 0; i < s && modCount == expectedModCount; ++k) {
+                double[] chunk = sp[k];
+                int n = Math.min(s - i, chunk.length);
+                for (int j = 0; j < n; ++j)
+                    action.accept(chunk[j]);
+                i += n;
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Returns an array containing all of the values in this list in
+         * proper sequence (from first to last value).
+         *
+         * @return an array containing all of the values in this list
+         */
+        public double[] toArray() {
+            int s = size;
+            double[] a = new double[s];
+            double[][] sp = spine;
+            for (int k = 0, i = 0; i < s; ++k) {
+                int n = Math.min(s - i, chunkSize(k));
+                System.arraycopy(sp[k], 0, a, i, n);
+                i += n;
+            }
+            return a;
+        }
+
+        /**
+         * Returns a sequential {@code DoubleStream} with this list as its
+         * source.
+         *
+         * @return a sequential {@code DoubleStream} over the values in this list
+         */
+        public DoubleStream stream() {
+            return StreamSupport.doubleStream(spliterator(), false);
+        }
+
+        /**
+         * Returns a possibly parallel {@code DoubleStream} with this list as
+         * its source.
+         *
+         * @return a possibly parallel {@code DoubleStream} over the values in
+         *         this list
+         */
+        public DoubleStream parallelStream() {
+            return StreamSupport.doubleStream(spliterator(), true);
+        }
+
+        /**
+         * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+         * and <em>fail-fast</em> {@link Spliterator.OfDouble} over the values
+         * in this list.
+         *
+         * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+         * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}.
+         *
+         * @return a {@code Spliterator.OfDouble} over the values in this list
+         */
+        public Spliterator.OfDouble spliterator() {
+            return new OfDoubleSpliterator(this, 0, -1, 0);
+        }
+
+        /**
+         * Returns a copy of this list.
+         *
+         * @return a clone of this list
+         */
+        public OfDouble clone() {
+            try {
+                OfDouble v = (OfDouble) super.clone();
+                double[][] s = spine.clone();
+                for (int k = 0; k < chunkCount; ++k)
+                    s[k] = s[k].clone();
+                v.spine = s;
+                v.modCount = 0;
+                return v;
+            } catch (CloneNotSupportedException e) {
+                // this shouldn't happen, since we are Cloneable
+                throw new InternalError(e);
+            }
+        }
+
+        /**
+         * Returns a string representation of this list, in the same
+         * form as {@link AbstractCollection#toString}.
+         *
+         * @return a string representation of this list
+         */
+        public String toString() {
+            StringJoiner sj = new StringJoiner(", ", "[", "]");
+            forEach(v -> sj.add(String.valueOf(v)));
+            return sj.toString();
+        }
+
+        /**
+         * Saves this list to a stream (that is, serializes it).
+         *
+         * @serialData The size of the list (int), followed by all of its
+         *             values (each a {@code double}) in the proper order.
+         */
+        private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+            int expectedModCount = modCount;
+            s.defaultWriteObject();
+            double[][] sp = spine;
+            for (int k = 0, i = 0, n = size; i < n; ++k) {
+                double[] chunk = sp[k];
+                for (int j = 0; j < chunk.length && i < n; ++j, ++i)
+                    s.writeDouble(chunk[j]);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        /**
+         * Reconstitutes this list from a stream (that is, deserializes it).
+         */
+        private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = size;
+            if (n < 0)
+                throw new java.io.InvalidObjectException("Illegal size: " + n);
+            size = 0;
+            spine = new double[MIN_SPINE_SIZE][];
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                int k = chunkFor(i);
+                spine[k][i - chunkStart(k)] = s.readDouble();
+            }
+            size = n;
+        }
+
+        /** Index-based split-by-two, lazily initialized Spliterator */
+        static final class OfDoubleSpliterator implements Spliterator.OfDouble {
+            private final ChunkedArrayList.OfDouble list;
+            private int index; // current index, modified on advance/split
+            private int fence; // -1 until used; then one past last index
+            private int expectedModCount; // initialized when fence set
+
+            OfDoubleSpliterator(ChunkedArrayList.OfDouble list, int origin,
+                           int fence, int expectedModCount) {
+                this.list = list;
+                this.index = origin;
+                this.fence = fence;
+                this.expectedModCount = expectedModCount;
+            }
+
+            private int getFence() { // initialize fence to size on first use
+                int hi;
+                if ((hi = fence) < 0) {
+                    expectedModCount = list.modCount;
+                    hi = fence = list.size;
+                }
+                return hi;
+            }
+
+            public OfDoubleSpliterator trySplit() {
+                int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+                return (lo >= mid) ? null : // divide range in half unless too small
+                    new OfDoubleSpliterator(list, lo, index = mid,
+                                       expectedModCount);
+            }
+
+            public boolean tryAdvance(DoubleConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                if (i < hi) {
+                    index = i + 1;
+                    int k = chunkFor(i);
+                    action.accept(list.spine[k][i - chunkStart(k)]);
+                    if (list.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
+
+            public void forEachRemaining(DoubleConsumer action) {
+                if (action == null)
+                    throw new NullPointerException();
+                int hi = getFence(), i = index;
+                index = hi;
+                double[][] sp = list.spine;
+                while (i < hi) { // traverse each chunk as an array
+                    int k = chunkFor(i), off = i - chunkStart(k);
+                    double[] chunk;
+                    if (k >= sp.length || (chunk = sp[k]) == null)
+                        break; // trimmed concurrently
+                    int end = Math.min(chunk.length, off + hi - i);
+                    for (int j = off; j < end; ++j)
+                        action.accept(chunk[j]);
+                    i += end - off;
+                }
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+            }
+
+            public long estimateSize() {
+                return (long) (getFence() - index);
+            }
+
+            public int characteristics() {
+                return Spliterator.ORDERED | Spliterator.SIZED |
+                    Spliterator.SUBSIZED;
+            }
+        }
+    }
+}
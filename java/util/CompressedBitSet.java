@@ -0,0 +1,1757 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A set of nonnegative integers, like {@link BitSet}, that is stored
+ * compressed so that its size depends on how many bits are set and how
+ * they cluster rather than on the largest index.
+ *
+ * <p>The index space is divided into chunks of 2<sup>16</sup> bits,
+ * and only chunks holding at least one set bit are stored, each in a
+ * <em>container</em> of one of three kinds: a sorted array of 16-bit
+ * values for sparse chunks, a 2<sup>16</sup>-bit bitmap for dense ones,
+ * and a list of runs of consecutive set bits for clustered ones.
+ * Containers are converted between kinds as bits are set and cleared,
+ * and {@link #compact} converts each to its smallest kind.  The logical
+ * operations {@link #and and}, {@link #or or}, {@link #xor xor} and
+ * {@link #andNot andNot} only visit chunks present in either set, and
+ * {@link #cardinality} is proportional to the number of chunks, not
+ * bits.  A set holding a few bits near index 2<sup>31</sup> therefore
+ * occupies a few bytes, where a {@code BitSet} occupies 256 MB.
+ *
+ * <p>A set can be written to a {@link ByteBuffer} in a compact,
+ * byte-order independent format with {@link #writeTo}, and read back
+ * either by copying with {@link #valueOf(ByteBuffer)} or, without
+ * decoding any container, with {@link #wrap}: a wrapped set reads the
+ * containers in place, for instance from a memory-mapped file, and
+ * copies a container to the heap only when that container is modified.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code CompressedBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code CompressedBitSet} is not safe for multithreaded use
+ * without external synchronization.
+ *
+ * @see BitSet
+ * @since 1.8
+ */
+public class CompressedBitSet implements Cloneable, java.io.Serializable {
+
+    /*
+     * The set is held as parallel arrays of chunk keys (the high 16
+     * bits of the indexes, which are at most 0x7fff since indexes are
+     * nonnegative) and containers holding the low 16 bits, sorted by
+     * key.  Containers are never empty.
+     *
+     * Serialized format, all values little-endian:
+     *
+     *   int    cookie (SERIAL_COOKIE)
+     *   int    number of containers n
+     *   n times: char key, char kind, int count
+     *   n container payloads, in the same order
+     *
+     * where count is the cardinality of ARRAY and BITMAP containers
+     * and the number of runs of RUN containers, and the payloads are
+     * count chars, 1024 longs and count (start, length - 1) char
+     * pairs respectively.  Payload offsets follow from the counts, so
+     * wrap() only needs to read the descriptors.
+     */
+
+    private static final long serialVersionUID = -3174861298571412236L;
+
+    /** The identifying first word of the serialized format. */
+    static final int SERIAL_COOKIE = 0x31534243;
+
+    /** The number of bits in a chunk. */
+    static final int CHUNK_BITS = 1 << 16;
+
+    /** The number of words in a bitmap container. */
+    static final int BITMAP_WORDS = CHUNK_BITS >>> 6;
+
+    /** The largest cardinality held in an array container. */
+    static final int ARRAY_MAX = 4096;
+
+    static final int ARRAY = 0, BITMAP = 1, RUN = 2;
+
+    private transient char[] keys;
+    private transient Container[] containers;
+    private transient int size;
+
+    /**
+     * Creates a new, empty compressed bit set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitSet(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * The low 16 bits of the indexes in one chunk.  Methods that modify
+     * a container return the container to use in its place, which may
+     * be of a different kind; they never return an empty container
+     * except from remove, whose callers drop empty results.
+     */
+    static abstract class Container {
+        abstract int kind();
+        abstract int cardinality();
+        abstract boolean contains(int x);
+        /** Returns the least value >= x, or -1 if none. */
+        abstract int nextSetBit(int x);
+        /** Returns the greatest value <= x, or -1 if none. */
+        abstract int previousSetBit(int x);
+        /** Returns the least absent value >= x, possibly CHUNK_BITS. */
+        abstract int nextClearBit(int x);
+        abstract void forEach(int base, IntConsumer action);
+        /** Sets the bits of this container in the given words. */
+        abstract void orInto(long[] words);
+        abstract Container add(int x);
+        abstract Container remove(int x);
+        /** Returns the count recorded in the serialized descriptor. */
+        abstract int serialCount();
+        /** Writes the payload to a little-endian buffer. */
+        abstract void writeTo(ByteBuffer buf);
+        /** Returns a container that may be modified independently. */
+        abstract Container copy();
+
+        final long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            orInto(words);
+            return words;
+        }
+
+        /** Returns the values in increasing order. */
+        char[] toArray() {
+            char[] a = new char[cardinality()];
+            int n = 0;
+            for (int x = nextSetBit(0); x >= 0; x = nextSetBit(x + 1))
+                a[n++] = (char)x;
+            return a;
+        }
+
+        /** Returns an array or bitmap container holding these values. */
+        Container toArrayOrBitmap() {
+            int card = cardinality();
+            return (card <= ARRAY_MAX) ? new ArrayContainer(toArray(), card) :
+                new BitmapContainer(toWords(), card);
+        }
+
+        final int payloadSize() {
+            switch (kind()) {
+            case ARRAY:  return serialCount() << 1;
+            case BITMAP: return BITMAP_WORDS << 3;
+            default:     return serialCount() << 2;
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest container holding the bits of the given
+     * words, which it may retain, or null if no bit is set.
+     */
+    static Container fromWords(long[] words) {
+        int card = 0, runs = 0;
+        long carry = 0L;
+        for (long w : words) {
+            card += Long.bitCount(w);
+            runs += Long.bitCount(w & ~((w << 1) | carry));
+            carry = w >>> 63;
+        }
+        if (card == 0)
+            return null;
+        int arrayBytes = (card <= ARRAY_MAX) ? card << 1 : Integer.MAX_VALUE;
+        if (runs << 2 < Math.min(arrayBytes, BITMAP_WORDS << 3))
+            return RunContainer.fromWords(words, runs, card);
+        else if (arrayBytes != Integer.MAX_VALUE) {
+            char[] a = new char[card];
+            int n = 0;
+            for (int i = 0; i < words.length; i++) {
+                for (long w = words[i]; w != 0L; w &= w - 1)
+                    a[n++] = (char)((i << 6) + Long.numberOfTrailingZeros(w));
+            }
+            return new ArrayContainer(a, card);
+        }
+        else
+            return new BitmapContainer(words, card);
+    }
+
+    static final class ArrayContainer extends Container {
+        char[] content;
+        int card;
+
+        ArrayContainer(char[] content, int card) {
+            this.content = content;
+            this.card = card;
+        }
+
+        int kind() { return ARRAY; }
+        int cardinality() { return card; }
+        int serialCount() { return card; }
+
+        boolean contains(int x) {
+            return Arrays.binarySearch(content, 0, card, (char)x) >= 0;
+        }
+
+        int nextSetBit(int x) {
+            if (x >= CHUNK_BITS)
+                return -1;
+            int i = Arrays.binarySearch(content, 0, card, (char)x);
+            if (i >= 0)
+                return x;
+            i = -i - 1;
+            return (i < card) ? content[i] : -1;
+        }
+
+        int previousSetBit(int x) {
+            int i = Arrays.binarySearch(content, 0, card, (char)x);
+            if (i >= 0)
+                return x;
+            i = -i - 2;
+            return (i >= 0) ? content[i] : -1;
+        }
+
+        int nextClearBit(int x) {
+            int i = Arrays.binarySearch(content, 0, card, (char)x);
+            if (i < 0)
+                return x;
+            while (i + 1 < card && content[i + 1] == content[i] + 1)
+                i++;
+            return content[i] + 1;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++)
+                action.accept(base | content[i]);
+        }
+
+        void orInto(long[] words) {
+            for (int i = 0; i < card; i++)
+                words[content[i] >>> 6] |= 1L << content[i];
+        }
+
+        char[] toArray() {
+            return Arrays.copyOf(content, card);
+        }
+
+        Container toArrayOrBitmap() {
+            return this;
+        }
+
+        Container add(int x) {
+            int i = Arrays.binarySearch(content, 0, card, (char)x);
+            if (i >= 0)
+                return this;
+            if (card == ARRAY_MAX)
+                return new BitmapContainer(toWords(), card).add(x);
+            i = -i - 1;
+            if (card == content.length)
+                content = Arrays.copyOf(content, Math.min(ARRAY_MAX,
+                                                         Math.max(4, card + (card >> 1))));
+            System.arraycopy(content, i, content, i + 1, card - i);
+            content[i] = (char)x;
+            card++;
+            return this;
+        }
+
+        Container remove(int x) {
+            int i = Arrays.binarySearch(content, 0, card, (char)x);
+            if (i >= 0) {
+                System.arraycopy(content, i + 1, content, i, card - i - 1);
+                card--;
+            }
+            return this;
+        }
+
+        void writeTo(ByteBuffer buf) {
+            for (int i = 0; i < card; i++)
+                buf.putChar(content[i]);
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(content, card), card);
+        }
+    }
+
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int card;
+
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        int kind() { return BITMAP; }
+        int cardinality() { return card; }
+        int serialCount() { return card; }
+
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0L;
+        }
+
+        int nextSetBit(int x) {
+            if (x >= CHUNK_BITS)
+                return -1;
+            int u = x >>> 6;
+            long w = words[u] & (-1L << x);
+            while (w == 0L) {
+                if (++u == BITMAP_WORDS)
+                    return -1;
+                w = words[u];
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        int previousSetBit(int x) {
+            int u = x >>> 6;
+            long w = words[u] & (-1L >>> -(x + 1));
+            while (w == 0L) {
+                if (u-- == 0)
+                    return -1;
+                w = words[u];
+            }
+            return (u << 6) + 63 - Long.numberOfLeadingZeros(w);
+        }
+
+        int nextClearBit(int x) {
+            int u = x >>> 6;
+            long w = ~words[u] & (-1L << x);
+            while (w == 0L) {
+                if (++u == BITMAP_WORDS)
+                    return CHUNK_BITS;
+                w = ~words[u];
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                for (long w = words[i]; w != 0L; w &= w - 1)
+                    action.accept(base | (i << 6) + Long.numberOfTrailingZeros(w));
+            }
+        }
+
+        void orInto(long[] ws) {
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                ws[i] |= words[i];
+        }
+
+        Container add(int x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) == 0L) {
+                words[x >>> 6] |= bit;
+                card++;
+            }
+            return this;
+        }
+
+        Container remove(int x) {
+            long bit = 1L << x;
+            if ((words[x >>> 6] & bit) != 0L) {
+                words[x >>> 6] &= ~bit;
+                if (--card <= ARRAY_MAX)
+                    return new ArrayContainer(toArray(), card);
+            }
+            return this;
+        }
+
+        void writeTo(ByteBuffer buf) {
+            for (long w : words)
+                buf.putLong(w);
+        }
+
+        Container copy() {
+            return new BitmapContainer(words.clone(), card);
+        }
+    }
+
+    /**
+     * A container of runs, as pairs of start and length minus one.
+     * Runs are sorted and separated by at least one absent value.  It
+     * is converted to another kind when single values are added or
+     * removed.
+     */
+    static final class RunContainer extends Container {
+        final char[] runs;
+        final int nruns;
+        final int card;
+
+        RunContainer(char[] runs, int nruns, int card) {
+            this.runs = runs;
+            this.nruns = nruns;
+            this.card = card;
+        }
+
+        /** Creates a container of the single run [lo, hi). */
+        RunContainer(int lo, int hi) {
+            this(new char[] { (char)lo, (char)(hi - lo - 1) }, 1, hi - lo);
+        }
+
+        static RunContainer fromWords(long[] words, int nruns, int card) {
+            char[] runs = new char[nruns << 1];
+            int n = 0;
+            for (int x = nextSet(words, 0); x >= 0; ) {
+                int end = nextClear(words, x);
+                runs[n++] = (char)x;
+                runs[n++] = (char)(end - x - 1);
+                x = (end < CHUNK_BITS) ? nextSet(words, end) : -1;
+            }
+            return new RunContainer(runs, nruns, card);
+        }
+
+        private static int nextSet(long[] words, int x) {
+            int u = x >>> 6;
+            long w = words[u] & (-1L << x);
+            while (w == 0L) {
+                if (++u == BITMAP_WORDS)
+                    return -1;
+                w = words[u];
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        private static int nextClear(long[] words, int x) {
+            int u = x >>> 6;
+            long w = ~words[u] & (-1L << x);
+            while (w == 0L) {
+                if (++u == BITMAP_WORDS)
+                    return CHUNK_BITS;
+                w = ~words[u];
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        int kind() { return RUN; }
+        int cardinality() { return card; }
+        int serialCount() { return nruns; }
+
+        /** Returns the index of the last run starting at or before x, or -1. */
+        private int runFor(int x) {
+            int lo = 0, hi = nruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[mid << 1] <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        boolean contains(int x) {
+            int r = runFor(x);
+            return r >= 0 && x <= runs[r << 1] + runs[(r << 1) + 1];
+        }
+
+        int nextSetBit(int x) {
+            if (x >= CHUNK_BITS)
+                return -1;
+            int r = runFor(x);
+            if (r >= 0 && x <= runs[r << 1] + runs[(r << 1) + 1])
+                return x;
+            return (++r < nruns) ? runs[r << 1] : -1;
+        }
+
+        int previousSetBit(int x) {
+            int r = runFor(x);
+            return (r < 0) ? -1 : Math.min(x, runs[r << 1] + runs[(r << 1) + 1]);
+        }
+
+        int nextClearBit(int x) {
+            int r = runFor(x);
+            int end;
+            return (r >= 0 && x <= (end = runs[r << 1] + runs[(r << 1) + 1])) ?
+                end + 1 : x;
+        }
+
+        void forEach(int base, IntConsumer action) {
+            for (int r = 0; r < nruns; r++) {
+                int start = base | runs[r << 1];
+                for (int x = start, end = start + runs[(r << 1) + 1]; x <= end; x++)
+                    action.accept(x);
+            }
+        }
+
+        void orInto(long[] words) {
+            for (int r = 0; r < nruns; r++) {
+                int start = runs[r << 1];
+                setRange(words, start, start + runs[(r << 1) + 1] + 1);
+            }
+        }
+
+        Container add(int x) {
+            return contains(x) ? this : toArrayOrBitmap().add(x);
+        }
+
+        Container remove(int x) {
+            return contains(x) ? toArrayOrBitmap().remove(x) : this;
+        }
+
+        void writeTo(ByteBuffer buf) {
+            for (int i = 0, n = nruns << 1; i < n; i++)
+                buf.putChar(runs[i]);
+        }
+
+        Container copy() {
+            return this;  // never modified in place
+        }
+    }
+
+    /**
+     * A container read in place from a little-endian buffer holding the
+     * serialized form.  Any modification returns a heap copy.
+     */
+    static final class MappedContainer extends Container {
+        final ByteBuffer buf;   // little-endian, shared with the wrapping set
+        final int offset;
+        final int kind;
+        final int count;
+        final int card;
+
+        MappedContainer(ByteBuffer buf, int offset, int kind, int count) {
+            this.buf = buf;
+            this.offset = offset;
+            this.kind = kind;
+            this.count = count;
+            if (kind == RUN) {
+                int c = 0;
+                for (int r = 0; r < count; r++)
+                    c += length(r);
+                this.card = c;
+            }
+            else
+                this.card = count;
+        }
+
+        private int value(int i) {
+            return buf.getChar(offset + (i << 1));
+        }
+
+        private long word(int i) {
+            return buf.getLong(offset + (i << 3));
+        }
+
+        private int start(int r) {
+            return buf.getChar(offset + (r << 2));
+        }
+
+        private int length(int r) {
+            return buf.getChar(offset + (r << 2) + 2) + 1;
+        }
+
+        /**
+         * Returns the index of x among the values, or of the last run
+         * starting at or before it, as for Arrays.binarySearch.
+         */
+        private int search(int x) {
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int v = (kind == ARRAY) ? value(mid) : start(mid);
+                if (v < x)
+                    lo = mid + 1;
+                else if (v > x)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -(lo + 1);
+        }
+
+        /** For RUN containers, returns the run starting at or before x, or -1. */
+        private int runFor(int x) {
+            int i = search(x);
+            return (i >= 0) ? i : -i - 2;
+        }
+
+        int kind() { return kind; }
+        int cardinality() { return card; }
+        int serialCount() { return count; }
+
+        boolean contains(int x) {
+            switch (kind) {
+            case ARRAY:
+                return search(x) >= 0;
+            case BITMAP:
+                return (word(x >>> 6) & (1L << x)) != 0L;
+            default:
+                int r = runFor(x);
+                return r >= 0 && x < start(r) + length(r);
+            }
+        }
+
+        int nextSetBit(int x) {
+            if (x >= CHUNK_BITS)
+                return -1;
+            switch (kind) {
+            case ARRAY: {
+                int i = search(x);
+                if (i >= 0)
+                    return x;
+                i = -i - 1;
+                return (i < count) ? value(i) : -1;
+            }
+            case BITMAP: {
+                int u = x >>> 6;
+                long w = word(u) & (-1L << x);
+                while (w == 0L) {
+                    if (++u == BITMAP_WORDS)
+                        return -1;
+                    w = word(u);
+                }
+                return (u << 6) + Long.numberOfTrailingZeros(w);
+            }
+            default: {
+                int r = runFor(x);
+                if (r >= 0 && x < start(r) + length(r))
+                    return x;
+                return (++r < count) ? start(r) : -1;
+            }
+            }
+        }
+
+        int previousSetBit(int x) {
+            switch (kind) {
+            case ARRAY: {
+                int i = search(x);
+                if (i >= 0)
+                    return x;
+                i = -i - 2;
+                return (i >= 0) ? value(i) : -1;
+            }
+            case BITMAP: {
+                int u = x >>> 6;
+                long w = word(u) & (-1L >>> -(x + 1));
+                while (w == 0L) {
+                    if (u-- == 0)
+                        return -1;
+                    w = word(u);
+                }
+                return (u << 6) + 63 - Long.numberOfLeadingZeros(w);
+            }
+            default: {
+                int r = runFor(x);
+                return (r < 0) ? -1 : Math.min(x, start(r) + length(r) - 1);
+            }
+            }
+        }
+
+        int nextClearBit(int x) {
+            switch (kind) {
+            case ARRAY: {
+                int i = search(x);
+                if (i < 0)
+                    return x;
+                while (i + 1 < count && value(i + 1) == value(i) + 1)
+                    i++;
+                return value(i) + 1;
+            }
+            case BITMAP: {
+                int u = x >>> 6;
+                long w = ~word(u) & (-1L << x);
+                while (w == 0L) {
+                    if (++u == BITMAP_WORDS)
+                        return CHUNK_BITS;
+                    w = ~word(u);
+                }
+                return (u << 6) + Long.numberOfTrailingZeros(w);
+            }
+            default: {
+                int r = runFor(x), end;
+                return (r >= 0 && x < (end = start(r) + length(r))) ? end : x;
+            }
+            }
+        }
+
+        void forEach(int base, IntConsumer action) {
+            switch (kind) {
+            case ARRAY:
+                for (int i = 0; i < count; i++)
+                    action.accept(base | value(i));
+                break;
+            case BITMAP:
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    for (long w = word(i); w != 0L; w &= w - 1)
+                        action.accept(base | (i << 6) + Long.numberOfTrailingZeros(w));
+                }
+                break;
+            default:
+                for (int r = 0; r < count; r++) {
+                    int start = base | start(r);
+                    for (int x = start, end = start + length(r); x < end; x++)
+                        action.accept(x);
+                }
+            }
+        }
+
+        void orInto(long[] words) {
+            switch (kind) {
+            case ARRAY:
+                for (int i = 0; i < count; i++) {
+                    int v = value(i);
+                    words[v >>> 6] |= 1L << v;
+                }
+                break;
+            case BITMAP:
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    words[i] |= word(i);
+                break;
+            default:
+                for (int r = 0; r < count; r++)
+                    setRange(words, start(r), start(r) + length(r));
+            }
+        }
+
+        Container add(int x) {
+            return contains(x) ? this : copy().add(x);
+        }
+
+        Container remove(int x) {
+            return contains(x) ? copy().remove(x) : this;
+        }
+
+        void writeTo(ByteBuffer dst) {
+            ByteBuffer src = buf.duplicate();
+            src.limit(offset + payloadSize()).position(offset);
+            dst.put(src);
+        }
+
+        Container copy() {
+            switch (kind) {
+            case ARRAY: {
+                char[] a = new char[count];
+                for (int i = 0; i < count; i++)
+                    a[i] = (char)value(i);
+                return new ArrayContainer(a, count);
+            }
+            case BITMAP:
+                return new BitmapContainer(toWords(), card);
+            default: {
+                char[] runs = new char[count << 1];
+                for (int i = 0; i < runs.length; i++)
+                    runs[i] = buf.getChar(offset + (i << 1));
+                return new RunContainer(runs, count, card);
+            }
+            }
+        }
+    }
+
+    /** Sets the bits [from, to) of the given words. */
+    static void setRange(long[] words, int from, int to) {
+        if (from >= to)
+            return;
+        int u = from >>> 6, v = (to - 1) >>> 6;
+        long first = -1L << from, last = -1L >>> -to;
+        if (u == v)
+            words[u] |= first & last;
+        else {
+            words[u] |= first;
+            for (int i = u + 1; i < v; i++)
+                words[i] = -1L;
+            words[v] |= last;
+        }
+    }
+
+    /** Clears (or flips) the bits [from, to) of the given words. */
+    static void clearOrFlipRange(long[] words, int from, int to, boolean flip) {
+        if (from >= to)
+            return;
+        int u = from >>> 6, v = (to - 1) >>> 6;
+        long first = -1L << from, last = -1L >>> -to;
+        for (int i = u; i <= v; i++) {
+            long mask = -1L;
+            if (i == u)
+                mask &= first;
+            if (i == v)
+                mask &= last;
+            words[i] = flip ? words[i] ^ mask : words[i] & ~mask;
+        }
+    }
+
+    /* ---------------- Operations on containers -------------- */
+
+    static Container and(Container a, Container b) {
+        if (a.cardinality() > b.cardinality()) {
+            Container t = a; a = b; b = t;
+        }
+        if (a.cardinality() <= ARRAY_MAX) {
+            char[] out = new char[a.cardinality()];
+            int n = 0;
+            for (int x = a.nextSetBit(0); x >= 0; x = a.nextSetBit(x + 1))
+                if (b.contains(x))
+                    out[n++] = (char)x;
+            return (n == 0) ? null : new ArrayContainer(out, n);
+        }
+        long[] w = a.toWords(), v = b.toWords();
+        for (int i = 0; i < BITMAP_WORDS; i++)
+            w[i] &= v[i];
+        return fromWords(w);
+    }
+
+    static boolean intersects(Container a, Container b) {
+        if (a.cardinality() > b.cardinality()) {
+            Container t = a; a = b; b = t;
+        }
+        for (int x = a.nextSetBit(0); x >= 0; x = a.nextSetBit(x + 1))
+            if (b.contains(x))
+                return true;
+        return false;
+    }
+
+    /**
+     * Merges the values of two small containers, keeping those in
+     * either (xor false) or in exactly one (xor true) of them.
+     */
+    static Container merge(Container a, Container b, boolean xor) {
+        char[] x = a.toArray(), y = b.toArray(), out = new char[x.length + y.length];
+        int i = 0, j = 0, n = 0;
+        while (i < x.length && j < y.length) {
+            if (x[i] < y[j])
+                out[n++] = x[i++];
+            else if (x[i] > y[j])
+                out[n++] = y[j++];
+            else {
+                if (!xor)
+                    out[n++] = x[i];
+                i++;
+                j++;
+            }
+        }
+        while (i < x.length)
+            out[n++] = x[i++];
+        while (j < y.length)
+            out[n++] = y[j++];
+        return (n == 0) ? null : new ArrayContainer(out, n);
+    }
+
+    static Container or(Container a, Container b) {
+        if (a.cardinality() + b.cardinality() <= ARRAY_MAX)
+            return merge(a, b, false);
+        long[] w = a.toWords();
+        b.orInto(w);
+        return fromWords(w);
+    }
+
+    static Container xor(Container a, Container b) {
+        if (a.cardinality() + b.cardinality() <= ARRAY_MAX)
+            return merge(a, b, true);
+        long[] w = a.toWords(), v = b.toWords();
+        for (int i = 0; i < BITMAP_WORDS; i++)
+            w[i] ^= v[i];
+        return fromWords(w);
+    }
+
+    static Container andNot(Container a, Container b) {
+        if (a.cardinality() <= ARRAY_MAX) {
+            char[] out = new char[a.cardinality()];
+            int n = 0;
+            for (int x = a.nextSetBit(0); x >= 0; x = a.nextSetBit(x + 1))
+                if (!b.contains(x))
+                    out[n++] = (char)x;
+            return (n == 0) ? null : new ArrayContainer(out, n);
+        }
+        long[] w = a.toWords(), v = b.toWords();
+        for (int i = 0; i < BITMAP_WORDS; i++)
+            w[i] &= ~v[i];
+        return fromWords(w);
+    }
+
+    static boolean containerEquals(Container a, Container b) {
+        if (a.cardinality() != b.cardinality())
+            return false;
+        for (int x = a.nextSetBit(0), y = b.nextSetBit(0); x >= 0;
+             x = a.nextSetBit(x + 1), y = b.nextSetBit(y + 1))
+            if (x != y)
+                return false;
+        return true;
+    }
+
+    /* ---------------- Key array management -------------- */
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, (char)key);
+    }
+
+    private void insertAt(int i, int key, Container c) {
+        if (size == keys.length) {
+            int n = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, n);
+            containers = Arrays.copyOf(containers, n);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = (char)key;
+        containers[i] = c;
+        size++;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    /** Replaces the container at i, dropping it if empty. */
+    private void setAt(int i, Container c) {
+        if (c == null || c.cardinality() == 0)
+            removeAt(i);
+        else
+            containers[i] = c;
+    }
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /* ---------------- Single bits -------------- */
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int key = bitIndex >>> 16, low = bitIndex & 0xFFFF;
+        int i = indexOf(key);
+        if (i >= 0)
+            containers[i] = containers[i].add(low);
+        else
+            insertAt(-i - 1, key, new ArrayContainer(new char[] { (char)low }, 1));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int i = indexOf(bitIndex >>> 16);
+        if (i >= 0)
+            setAt(i, containers[i].remove(bitIndex & 0xFFFF));
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int i = indexOf(bitIndex >>> 16);
+        return i >= 0 && containers[i].contains(bitIndex & 0xFFFF);
+    }
+
+    /* ---------------- Ranges -------------- */
+
+    private static final int SET = 0, CLEAR = 1, FLIP = 2;
+
+    private void rangeOp(int fromIndex, int toIndex, int op) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int firstKey = fromIndex >>> 16, lastKey = (toIndex - 1) >>> 16;
+        for (int key = firstKey; key <= lastKey; key++) {
+            int lo = (key == firstKey) ? fromIndex & 0xFFFF : 0;
+            int hi = (key == lastKey) ? ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_BITS;
+            int i = indexOf(key);
+            if (i < 0) {
+                if (op != CLEAR)
+                    insertAt(-i - 1, key, new RunContainer(lo, hi));
+            }
+            else if (lo == 0 && hi == CHUNK_BITS && op != FLIP) {
+                if (op == SET)
+                    containers[i] = new RunContainer(0, CHUNK_BITS);
+                else
+                    removeAt(i);
+            }
+            else {
+                long[] w = containers[i].toWords();
+                if (op == SET)
+                    setRange(w, lo, hi);
+                else
+                    clearOrFlipRange(w, lo, hi, op == FLIP);
+                setAt(i, fromWords(w));
+            }
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, SET);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the specified value.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @param  value value to set the selected bits to
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex, boolean value) {
+        rangeOp(fromIndex, toIndex, value ? SET : CLEAR);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, CLEAR);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void flip(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, FLIP);
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16;
+        int i = indexOf(key);
+        if (i >= 0) {
+            int x = containers[i].nextSetBit(fromIndex & 0xFFFF);
+            if (x >= 0)
+                return (key << 16) | x;
+            i++;
+        }
+        else
+            i = -i - 1;
+        return (i < size) ? (keys[i] << 16) | containers[i].nextSetBit(0) : -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.  Since
+     * indexes are nonnegative {@code int}s, if every bit from the
+     * starting index to {@code Integer.MAX_VALUE} is set then {@code -1}
+     * is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16, low = fromIndex & 0xFFFF;
+        int i = indexOf(key);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            int x = containers[i].nextClearBit(low);
+            if (x < CHUNK_BITS)
+                return (key << 16) | x;
+            if (key == Character.MAX_VALUE >>> 1)
+                return -1;
+            key++;
+            low = 0;
+            if (++i == size || keys[i] != key)
+                return key << 16;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> 16;
+        int i = indexOf(key);
+        if (i >= 0) {
+            int x = containers[i].previousSetBit(fromIndex & 0xFFFF);
+            if (x >= 0)
+                return (key << 16) | x;
+            i--;
+        }
+        else
+            i = -i - 2;
+        return (i >= 0) ?
+            (keys[i] << 16) | containers[i].previousSetBit(CHUNK_BITS - 1) : -1;
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit plus one.  Returns zero if the set contains no set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        return (size == 0) ? 0 :
+            ((keys[size - 1] << 16) |
+             containers[size - 1].previousSetBit(CHUNK_BITS - 1)) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set
+     * to {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.  This
+     * takes time proportional to the number of 2<sup>16</sup>-bit chunks
+     * holding set bits.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /* ---------------- Logical operations -------------- */
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set set to intersect with
+     * @return boolean indicating whether this set intersects the
+     *         specified set
+     */
+    public boolean intersects(CompressedBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            if (keys[i] < set.keys[j])
+                i++;
+            else if (keys[i] > set.keys[j])
+                j++;
+            else if (intersects(containers[i++], set.containers[j++]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the
+     * argument set.  This set is modified so that each bit in it has the
+     * value {@code true} if and only if it both initially had the value
+     * {@code true} and the corresponding bit in the set argument also had
+     * the value {@code true}.
+     *
+     * @param set a set
+     */
+    public void and(CompressedBitSet set) {
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            if (keys[i] < set.keys[j])
+                i++;
+            else if (keys[i] > set.keys[j])
+                j++;
+            else {
+                Container c = and(containers[i], set.containers[j]);
+                if (c != null) {
+                    keys[n] = keys[i];
+                    containers[n++] = c;
+                }
+                i++;
+                j++;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if it either already had the value {@code true} or the
+     * corresponding bit in the set argument has the value {@code true}.
+     *
+     * @param set a set
+     */
+    public void or(CompressedBitSet set) {
+        if (this != set)
+            combine(set, false);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if one of the following statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a set
+     */
+    public void xor(CompressedBitSet set) {
+        if (this == set)
+            clear();
+        else
+            combine(set, true);
+    }
+
+    /** Implements or and xor, which keep chunks present in either set. */
+    private void combine(CompressedBitSet set, boolean xor) {
+        int n = size + set.size;
+        char[] ks = new char[Math.max(4, n)];
+        Container[] cs = new Container[ks.length];
+        int m = 0, i = 0, j = 0;
+        while (i < size || j < set.size) {
+            if (j == set.size || (i < size && keys[i] < set.keys[j])) {
+                ks[m] = keys[i];
+                cs[m++] = containers[i++];
+            }
+            else if (i == size || keys[i] > set.keys[j]) {
+                ks[m] = set.keys[j];
+                cs[m++] = set.containers[j++].copy();
+            }
+            else {
+                Container c = xor ? xor(containers[i], set.containers[j]) :
+                    or(containers[i], set.containers[j]);
+                if (c != null) {
+                    ks[m] = keys[i];
+                    cs[m++] = c;
+                }
+                i++;
+                j++;
+            }
+        }
+        keys = ks;
+        containers = cs;
+        size = m;
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is set
+     * in the specified set.
+     *
+     * @param  set the set with which to mask this set
+     */
+    public void andNot(CompressedBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        int n = 0;
+        for (int i = 0, j = 0; i < size; i++) {
+            while (j < set.size && set.keys[j] < keys[i])
+                j++;
+            Container c = containers[i];
+            if (j < set.size && set.keys[j] == keys[i])
+                c = andNot(c, set.containers[j]);
+            if (c != null) {
+                keys[n] = keys[i];
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Converts each chunk to the kind of container that stores it in
+     * the fewest bytes, for instance after bits have been set and
+     * cleared individually in long runs.
+     *
+     * @return {@code true} if any chunk was converted
+     */
+    public boolean compact() {
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            Container d = fromWords(c.toWords());
+            if (d.kind() != c.kind() || d.payloadSize() < c.payloadSize()) {
+                containers[i] = d;
+                changed = true;
+            }
+            else if (c instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer)c;
+                if (a.content.length > a.card)
+                    a.content = Arrays.copyOf(a.content, a.card);
+            }
+        }
+        if (keys.length > size) {
+            keys = Arrays.copyOf(keys, size);
+            containers = Arrays.copyOf(containers, size);
+        }
+        return changed;
+    }
+
+    /* ---------------- Conversion -------------- */
+
+    /**
+     * Returns a stream of indices for which this set contains a bit in
+     * the set state.  The indices are returned in order, from lowest to
+     * highest.  The size of the stream is the number of bits in the set
+     * state, equal to the value returned by the {@link #cardinality()}
+     * method.
+     *
+     * <p>The set must remain constant during the execution of the
+     * terminal stream operation.  Otherwise, the result of the terminal
+     * stream operation is undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        class CompressedBitSetIterator implements PrimitiveIterator.OfInt {
+            int next = nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next != -1;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next != -1) {
+                    int ret = next;
+                    next = (ret == Integer.MAX_VALUE) ? -1 : nextSetBit(ret + 1);
+                    return ret;
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                Objects.requireNonNull(action);
+                if (next == -1)
+                    return;
+                int key = next >>> 16, low = next & 0xFFFF;
+                int i = indexOf(key);
+                Container c = containers[i];
+                for (int x = low; x >= 0; x = c.nextSetBit(x + 1))
+                    action.accept((key << 16) | x);
+                while (++i < size)
+                    containers[i].forEach(keys[i] << 16, action);
+                next = -1;
+            }
+        }
+
+        return StreamSupport.intStream(
+                () -> Spliterators.spliterator(
+                        new CompressedBitSetIterator(), cardinality(),
+                        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED),
+                Spliterator.SIZED | Spliterator.SUBSIZED |
+                        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED,
+                false);
+    }
+
+    /**
+     * Returns a compressed bit set holding the bits of the given bit set.
+     *
+     * @param bs a bit set
+     * @return a {@code CompressedBitSet} with the same bits set
+     */
+    public static CompressedBitSet valueOf(BitSet bs) {
+        CompressedBitSet set = new CompressedBitSet();
+        long[] words = bs.toLongArray();
+        for (int base = 0; base < words.length; base += BITMAP_WORDS) {
+            long[] w = Arrays.copyOfRange(words, base, base + BITMAP_WORDS);
+            Container c = fromWords(w);
+            if (c != null)
+                set.insertAt(set.size, base / BITMAP_WORDS, c);
+        }
+        return set;
+    }
+
+    /**
+     * Returns a {@link BitSet} holding the bits of this set.
+     *
+     * @return a {@code BitSet} with the same bits set
+     */
+    public BitSet toBitSet() {
+        if (size == 0)
+            return new BitSet();
+        long[] words = new long[(length() + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            long[] w = containers[i].toWords();
+            int base = keys[i] * BITMAP_WORDS;
+            System.arraycopy(w, 0, words, base, Math.min(BITMAP_WORDS, words.length - base));
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /* ---------------- Buffers -------------- */
+
+    /**
+     * Returns the number of bytes written by {@link #writeTo}.
+     *
+     * @return the size of the serialized form of this set in bytes
+     */
+    public int serializedSize() {
+        int n = 8 + 8 * size;
+        for (int i = 0; i < size; i++)
+            n += containers[i].payloadSize();
+        return n;
+    }
+
+    /**
+     * Writes this set to the given buffer, starting at its position,
+     * which is advanced by {@link #serializedSize} bytes.  The format is
+     * independent of the byte order of the buffer.
+     *
+     * @param  buf the buffer to write to
+     * @throws java.nio.BufferOverflowException if the buffer has fewer
+     *         than {@code serializedSize()} bytes remaining
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public void writeTo(ByteBuffer buf) {
+        int len = serializedSize();
+        if (buf.remaining() < len)
+            throw new java.nio.BufferOverflowException();
+        ByteBuffer b = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(SERIAL_COOKIE).putInt(size);
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            b.putChar(keys[i]).putChar((char)c.kind()).putInt(c.serialCount());
+        }
+        for (int i = 0; i < size; i++)
+            containers[i].writeTo(b);
+        buf.position(buf.position() + len);
+    }
+
+    /**
+     * Returns a set that reads the serialized form written by {@link
+     * #writeTo} in place, starting at the buffer's current position.
+     * Only the container descriptors are read when wrapping; container
+     * contents are read from the buffer as needed, so wrapping a
+     * memory-mapped file does not load it.  Modifying the returned set
+     * never writes to the buffer: a modified chunk is first copied to
+     * the heap.  The buffer's contents must not change while the set is
+     * in use.  The buffer's position is not changed.
+     *
+     * @param  buf a buffer holding a serialized compressed bit set
+     * @return a set backed by the buffer
+     * @throws IllegalArgumentException if the buffer does not hold a
+     *         well-formed serialized set
+     */
+    public static CompressedBitSet wrap(ByteBuffer buf) {
+        ByteBuffer b = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (b.getInt(0) != SERIAL_COOKIE)
+                throw new IllegalArgumentException("not a serialized CompressedBitSet");
+            int n = b.getInt(4);
+            if (n < 0 || n > (Character.MAX_VALUE >>> 1) + 1)
+                throw new IllegalArgumentException("invalid container count: " + n);
+            char[] keys = new char[n];
+            Container[] cs = new Container[n];
+            int offset = 8 + 8 * n, prev = -1;
+            for (int i = 0; i < n; i++) {
+                int d = 8 + 8 * i;
+                int key = b.getChar(d), kind = b.getChar(d + 2), count = b.getInt(d + 4);
+                if (key <= prev || key > (Character.MAX_VALUE >>> 1) ||
+                    kind > RUN || count <= 0 ||
+                    (kind == ARRAY && count > ARRAY_MAX) ||
+                    (kind == BITMAP && count > CHUNK_BITS) ||
+                    (kind == RUN && count > CHUNK_BITS / 2))
+                    throw new IllegalArgumentException("invalid container " + i);
+                MappedContainer c = new MappedContainer(b, offset, kind, count);
+                offset += c.payloadSize();
+                if (offset > b.limit())
+                    throw new IllegalArgumentException("buffer too short");
+                keys[i] = (char)key;
+                cs[i] = c;
+                prev = key;
+            }
+            return new CompressedBitSet(keys, cs, n);
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("buffer too short", ex);
+        }
+    }
+
+    /**
+     * Returns a new set copied from the serialized form written by
+     * {@link #writeTo}, starting at the buffer's current position.  The
+     * buffer's position is advanced past the serialized form.
+     *
+     * @param  buf a buffer holding a serialized compressed bit set
+     * @return a new set holding the bits in the buffer
+     * @throws IllegalArgumentException if the buffer does not hold a
+     *         well-formed serialized set
+     */
+    public static CompressedBitSet valueOf(ByteBuffer buf) {
+        CompressedBitSet set = wrap(buf);
+        for (int i = 0; i < set.size; i++)
+            set.containers[i] = set.containers[i].copy();
+        buf.position(buf.position() + set.serializedSize());
+        return set;
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Compares this set against the specified object.  The result is
+     * {@code true} if and only if the argument is a {@code
+     * CompressedBitSet} with exactly the same bits set to {@code true}.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        CompressedBitSet set = (CompressedBitSet)obj;
+        if (size != set.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != set.keys[i] ||
+                !containerEquals(containers[i], set.containers[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this set.  The hash code depends
+     * only on which bits are set, not on how they are stored.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            int ch = 1;
+            for (int x = c.nextSetBit(0); x >= 0; x = c.nextSetBit(x + 1))
+                ch = 31 * ch + x;
+            h = 31 * h + (keys[i] ^ ch);
+        }
+        return h;
+    }
+
+    /**
+     * Cloning this {@code CompressedBitSet} produces a new set that is
+     * equal to it.  A clone of a set wrapping a buffer shares the
+     * buffer, and copies chunks to the heap as they are modified.
+     *
+     * @return a clone of this set
+     */
+    public Object clone() {
+        try {
+            CompressedBitSet result = (CompressedBitSet) super.clone();
+            result.keys = keys.clone();
+            result.containers = containers.clone();
+            for (int i = 0; i < size; i++) {
+                if (!(containers[i] instanceof MappedContainer))
+                    result.containers[i] = containers[i].copy();
+            }
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this set, in the format of
+     * {@link BitSet#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append('{');
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            int base = keys[i] << 16;
+            for (int x = c.nextSetBit(0); x >= 0; x = c.nextSetBit(x + 1)) {
+                if (b.length() > 1)
+                    b.append(", ");
+                b.append(base | x);
+            }
+        }
+        b.append('}');
+        return b.toString();
+    }
+
+    /**
+     * Saves the state of the {@code CompressedBitSet} instance to a
+     * stream (that is, serializes it).
+     *
+     * @serialData The length in bytes of the buffer form written by
+     * {@link #writeTo} as an {@code int}, followed by that form.
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        byte[] bytes = new byte[serializedSize()];
+        writeTo(ByteBuffer.wrap(bytes));
+        s.writeInt(bytes.length);
+        s.write(bytes);
+    }
+
+    /**
+     * Reconstitutes the {@code CompressedBitSet} instance from a stream
+     * (that is, deserializes it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int len = s.readInt();
+        if (len < 8)
+            throw new InvalidObjectException("invalid length: " + len);
+        byte[] bytes = new byte[len];
+        s.readFully(bytes);
+        CompressedBitSet set;
+        try {
+            set = valueOf(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException ex) {
+            InvalidObjectException ioe = new InvalidObjectException(ex.getMessage());
+            ioe.initCause(ex);
+            throw ioe;
+        }
+        keys = set.keys;
+        containers = set.containers;
+        size = set.size;
+    }
+}
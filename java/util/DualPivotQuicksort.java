@@ -25,6 +25,9 @@
 
 package java.util;
 
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
 /**
  * This class implements the Dual-Pivot Quicksort algorithm by
  * Vladimir Yaroslavskiy, Jon Bentley, and Josh Bloch. The algorithm
@@ -89,6 +92,25 @@ final class DualPivotQuicksort {
      */
     private static final int COUNTING_SORT_THRESHOLD_FOR_SHORT_OR_CHAR = 3200;
 
+    /**
+     * If the length of an int, long, float or double array to be
+     * sorted is greater than this constant, the array is not highly
+     * structured, and a workspace array large enough for the whole
+     * range is supplied (as by parallel sorting), radix sort is used
+     * in preference to Quicksort.
+     */
+    private static final int RADIX_SORT_THRESHOLD = 1 << 13;
+
+    /**
+     * The number of bits in a digit of radix sort.
+     */
+    private static final int RADIX_BITS = 11;
+
+    /**
+     * The mask selecting a digit of radix sort.
+     */
+    private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
     /*
      * Sorting methods for seven primitive types.
      */
@@ -142,7 +164,10 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD)
+                    radixSort(a, left, right, work, workBase, workLen);
+                else
+                    sort(a, left, right, true);
                 return;
             }
         }
@@ -203,6 +228,19 @@ final class DualPivotQuicksort {
         }
     }
 
+    /**
+     * Sorts the specified range of the array by Dual-Pivot Quicksort
+     * alone, which, unlike merging runs or radix sort, allocates no
+     * workspace.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(int[] a, int left, int right) {
+        sort(a, left, right, true);
+    }
+
     /**
      * Sorts the specified range of the array by Dual-Pivot Quicksort.
      *
@@ -541,6 +579,57 @@ final class DualPivotQuicksort {
         }
     }
 
+    /**
+     * Sorts the specified range of the array by LSD radix sort on
+     * 11-bit digits of the values with the sign bit flipped, using
+     * the given workspace array slice if it is large enough.  Otherwise
+     * the range is sorted in place by Quicksort, so that sorting without
+     * a supplied workspace allocates none.  A pass is skipped if all
+     * elements have the same value of its digit.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void radixSort(int[] a, int left, int right,
+                                  int[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            sort(a, left, right, true);
+            return;
+        }
+        int[][] count = new int[3][RADIX_MASK + 1];
+        for (int i = left; i <= right; ++i) {
+            int k = a[i] ^ Integer.MIN_VALUE;
+            for (int d = 0, shift = 0; d < 3; ++d, shift += RADIX_BITS) {
+                ++count[d][(k >>> shift) & RADIX_MASK];
+            }
+        }
+        int[] src = a, dst = work;
+        int sb = left, db = workBase;
+        for (int d = 0, shift = 0; d < 3; ++d, shift += RADIX_BITS) {
+            int[] c = count[d];
+            if (c[((src[sb] ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK] == n) {
+                continue;
+            }
+            for (int i = 0, sum = 0; i <= RADIX_MASK; ++i) {
+                int t = c[i]; c[i] = sum; sum += t;
+            }
+            for (int i = sb, end = sb + n; i < end; ++i) {
+                int v = src[i];
+                dst[db + c[((v ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK]++] = v;
+            }
+            int[] t = src; src = dst; dst = t;
+            int b = sb; sb = db; db = b;
+        }
+        if (src != a) {
+            System.arraycopy(src, sb, a, left, n);
+        }
+    }
+
     /**
      * Sorts the specified range of the array using the given
      * workspace array slice if possible for merging
@@ -590,7 +679,10 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD)
+                    radixSort(a, left, right, work, workBase, workLen);
+                else
+                    sort(a, left, right, true);
                 return;
             }
         }
@@ -651,6 +743,19 @@ final class DualPivotQuicksort {
         }
     }
 
+    /**
+     * Sorts the specified range of the array by Dual-Pivot Quicksort
+     * alone, which, unlike merging runs or radix sort, allocates no
+     * workspace.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(long[] a, int left, int right) {
+        sort(a, left, right, true);
+    }
+
     /**
      * Sorts the specified range of the array by Dual-Pivot Quicksort.
      *
@@ -989,6 +1094,57 @@ final class DualPivotQuicksort {
         }
     }
 
+    /**
+     * Sorts the specified range of the array by LSD radix sort on
+     * 11-bit digits of the values with the sign bit flipped, using
+     * the given workspace array slice if it is large enough.  Otherwise
+     * the range is sorted in place by Quicksort, so that sorting without
+     * a supplied workspace allocates none.  A pass is skipped if all
+     * elements have the same value of its digit.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void radixSort(long[] a, int left, int right,
+                                  long[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            sort(a, left, right, true);
+            return;
+        }
+        int[][] count = new int[6][RADIX_MASK + 1];
+        for (int i = left; i <= right; ++i) {
+            long k = a[i] ^ Long.MIN_VALUE;
+            for (int d = 0, shift = 0; d < 6; ++d, shift += RADIX_BITS) {
+                ++count[d][(int) (k >>> shift) & RADIX_MASK];
+            }
+        }
+        long[] src = a, dst = work;
+        int sb = left, db = workBase;
+        for (int d = 0, shift = 0; d < 6; ++d, shift += RADIX_BITS) {
+            int[] c = count[d];
+            if (c[(int) ((src[sb] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK] == n) {
+                continue;
+            }
+            for (int i = 0, sum = 0; i <= RADIX_MASK; ++i) {
+                int t = c[i]; c[i] = sum; sum += t;
+            }
+            for (int i = sb, end = sb + n; i < end; ++i) {
+                long v = src[i];
+                dst[db + c[(int) ((v ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK]++] = v;
+            }
+            long[] t = src; src = dst; dst = t;
+            int b = sb; sb = db; db = b;
+        }
+        if (src != a) {
+            System.arraycopy(src, sb, a, left, n);
+        }
+    }
+
     /**
      * Sorts the specified range of the array using the given
      * workspace array slice if possible for merging
@@ -2014,6 +2170,43 @@ final class DualPivotQuicksort {
         /*
          * Phase 1: Move NaNs to the end of the array.
          */
+        right = moveNaNsToEnd(a, left, right);
+
+        /*
+         * Phase 2: Sort everything except NaNs (which are already in place).
+         */
+        doSort(a, left, right, work, workBase, workLen);
+
+        /*
+         * Phase 3: Place negative zeros before positive zeros.
+         */
+        placeNegativeZeros(a, left, right);
+    }
+
+    /**
+     * Sorts the specified range of the array by Dual-Pivot Quicksort
+     * alone, which, unlike merging runs or radix sort, allocates no
+     * workspace.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(float[] a, int left, int right) {
+        right = moveNaNsToEnd(a, left, right);
+        sort(a, left, right, true);
+        placeNegativeZeros(a, left, right);
+    }
+
+    /**
+     * Moves the NaNs in the specified range of the array to its end.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @return the index of the last element that is not NaN
+     */
+    static int moveNaNsToEnd(float[] a, int left, int right) {
         while (left <= right && Float.isNaN(a[right])) {
             --right;
         }
@@ -2025,15 +2218,19 @@ final class DualPivotQuicksort {
                 --right;
             }
         }
+        return right;
+    }
 
-        /*
-         * Phase 2: Sort everything except NaNs (which are already in place).
-         */
-        doSort(a, left, right, work, workBase, workLen);
-
-        /*
-         * Phase 3: Place negative zeros before positive zeros.
-         */
+    /**
+     * Places the negative zeros in the specified range of a sorted
+     * array, in which they compare equal to positive zeros, before the
+     * positive zeros.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     */
+    static void placeNegativeZeros(float[] a, int left, int right) {
         int hi = right;
 
         /*
@@ -2138,7 +2335,10 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD)
+                    radixSort(a, left, right, work, workBase, workLen);
+                else
+                    sort(a, left, right, true);
                 return;
             }
         }
@@ -2537,6 +2737,67 @@ final class DualPivotQuicksort {
         }
     }
 
+    /**
+     * Sorts the specified range of the array by LSD radix sort on
+     * 11-bit digits of the keys computed by {@link #floatKey}, using
+     * the given workspace array slice if it is large enough.  Otherwise
+     * the range is sorted in place by Quicksort, so that sorting without
+     * a supplied workspace allocates none.  A pass is skipped if all
+     * elements have the same value of its digit.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void radixSort(float[] a, int left, int right,
+                                  float[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            sort(a, left, right, true);
+            return;
+        }
+        int[][] count = new int[3][RADIX_MASK + 1];
+        for (int i = left; i <= right; ++i) {
+            int k = floatKey(a[i]);
+            for (int d = 0, shift = 0; d < 3; ++d, shift += RADIX_BITS) {
+                ++count[d][(k >>> shift) & RADIX_MASK];
+            }
+        }
+        float[] src = a, dst = work;
+        int sb = left, db = workBase;
+        for (int d = 0, shift = 0; d < 3; ++d, shift += RADIX_BITS) {
+            int[] c = count[d];
+            if (c[(floatKey(src[sb]) >>> shift) & RADIX_MASK] == n) {
+                continue;
+            }
+            for (int i = 0, sum = 0; i <= RADIX_MASK; ++i) {
+                int t = c[i]; c[i] = sum; sum += t;
+            }
+            for (int i = sb, end = sb + n; i < end; ++i) {
+                float v = src[i];
+                dst[db + c[(floatKey(v) >>> shift) & RADIX_MASK]++] = v;
+            }
+            float[] t = src; src = dst; dst = t;
+            int b = sb; sb = db; db = b;
+        }
+        if (src != a) {
+            System.arraycopy(src, sb, a, left, n);
+        }
+    }
+
+    /**
+     * Returns an int whose unsigned order is the numerical order of the
+     * given float, with -0.0f before 0.0f.  NaNs must already have been
+     * removed from the range being sorted.
+     */
+    private static int floatKey(float v) {
+        int bits = Float.floatToRawIntBits(v);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    }
+
     /**
      * Sorts the specified range of the array using the given
      * workspace array slice if possible for merging
@@ -2553,6 +2814,43 @@ final class DualPivotQuicksort {
         /*
          * Phase 1: Move NaNs to the end of the array.
          */
+        right = moveNaNsToEnd(a, left, right);
+
+        /*
+         * Phase 2: Sort everything except NaNs (which are already in place).
+         */
+        doSort(a, left, right, work, workBase, workLen);
+
+        /*
+         * Phase 3: Place negative zeros before positive zeros.
+         */
+        placeNegativeZeros(a, left, right);
+    }
+
+    /**
+     * Sorts the specified range of the array by Dual-Pivot Quicksort
+     * alone, which, unlike merging runs or radix sort, allocates no
+     * workspace.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sortInPlace(double[] a, int left, int right) {
+        right = moveNaNsToEnd(a, left, right);
+        sort(a, left, right, true);
+        placeNegativeZeros(a, left, right);
+    }
+
+    /**
+     * Moves the NaNs in the specified range of the array to its end.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     * @return the index of the last element that is not NaN
+     */
+    static int moveNaNsToEnd(double[] a, int left, int right) {
         while (left <= right && Double.isNaN(a[right])) {
             --right;
         }
@@ -2564,15 +2862,19 @@ final class DualPivotQuicksort {
                 --right;
             }
         }
+        return right;
+    }
 
-        /*
-         * Phase 2: Sort everything except NaNs (which are already in place).
-         */
-        doSort(a, left, right, work, workBase, workLen);
-
-        /*
-         * Phase 3: Place negative zeros before positive zeros.
-         */
+    /**
+     * Places the negative zeros in the specified range of a sorted
+     * array, in which they compare equal to positive zeros, before the
+     * positive zeros.
+     *
+     * @param a the array
+     * @param left the index of the first element, inclusive
+     * @param right the index of the last element, inclusive
+     */
+    static void placeNegativeZeros(double[] a, int left, int right) {
         int hi = right;
 
         /*
@@ -2677,7 +2979,10 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                if (right - left >= RADIX_SORT_THRESHOLD)
+                    radixSort(a, left, right, work, workBase, workLen);
+                else
+                    sort(a, left, right, true);
                 return;
             }
         }
@@ -3075,4 +3380,290 @@ final class DualPivotQuicksort {
             sort(a, great + 1, right, false);
         }
     }
+
+    /**
+     * Sorts the specified range of the array by LSD radix sort on
+     * 11-bit digits of the keys computed by {@link #doubleKey}, using
+     * the given workspace array slice if it is large enough.  Otherwise
+     * the range is sorted in place by Quicksort, so that sorting without
+     * a supplied workspace allocates none.  A pass is skipped if all
+     * elements have the same value of its digit.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void radixSort(double[] a, int left, int right,
+                                  double[] work, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            sort(a, left, right, true);
+            return;
+        }
+        int[][] count = new int[6][RADIX_MASK + 1];
+        for (int i = left; i <= right; ++i) {
+            long k = doubleKey(a[i]);
+            for (int d = 0, shift = 0; d < 6; ++d, shift += RADIX_BITS) {
+                ++count[d][(int) (k >>> shift) & RADIX_MASK];
+            }
+        }
+        double[] src = a, dst = work;
+        int sb = left, db = workBase;
+        for (int d = 0, shift = 0; d < 6; ++d, shift += RADIX_BITS) {
+            int[] c = count[d];
+            if (c[(int) (doubleKey(src[sb]) >>> shift) & RADIX_MASK] == n) {
+                continue;
+            }
+            for (int i = 0, sum = 0; i <= RADIX_MASK; ++i) {
+                int t = c[i]; c[i] = sum; sum += t;
+            }
+            for (int i = sb, end = sb + n; i < end; ++i) {
+                double v = src[i];
+                dst[db + c[(int) (doubleKey(v) >>> shift) & RADIX_MASK]++] = v;
+            }
+            double[] t = src; src = dst; dst = t;
+            int b = sb; sb = db; db = b;
+        }
+        if (src != a) {
+            System.arraycopy(src, sb, a, left, n);
+        }
+    }
+
+    /**
+     * Returns a long whose unsigned order is the numerical order of the
+     * given double, with -0.0d before 0.0d.  NaNs must already have been
+     * removed from the range being sorted.
+     */
+    private static long doubleKey(double v) {
+        long bits = Double.doubleToRawLongBits(v);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /*
+     * Sorting methods for int and long buffers that are not backed by
+     * an accessible array, such as direct and mapped buffers.
+     */
+
+    /**
+     * Sorts the specified range of the buffer in place by introsort:
+     * Quicksort with three-way partitioning around a median-of-three
+     * (ninther for large ranges) pivot, insertion sort for small ranges,
+     * and heapsort if partitioning goes too deep.  Elements are accessed
+     * with absolute get and put, so this works on direct and mapped
+     * buffers without copying them.
+     *
+     * @param a the buffer to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sort(IntBuffer a, int left, int right) {
+        sort(a, left, right,
+             2 * (32 - Integer.numberOfLeadingZeros(right - left + 1)));
+    }
+
+    private static void sort(IntBuffer a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (--depth < 0) {
+                heapSort(a, left, right);
+                return;
+            }
+            int pivot = a.get(medianOf3(a, left, right));
+            int lt = left, gt = right;
+            for (int k = left; k <= gt; ) {
+                int ak = a.get(k);
+                if (ak < pivot) {
+                    a.put(k++, a.get(lt));
+                    a.put(lt++, ak);
+                } else if (ak > pivot) {
+                    a.put(k, a.get(gt));
+                    a.put(gt--, ak);
+                } else {
+                    ++k;
+                }
+            }
+            // Recurse into the smaller part, loop on the larger
+            if (lt - left < right - gt) {
+                sort(a, left, lt - 1, depth);
+                left = gt + 1;
+            } else {
+                sort(a, gt + 1, right, depth);
+                right = lt - 1;
+            }
+        }
+        for (int i = left + 1; i <= right; ++i) {
+            int ai = a.get(i);
+            int j = i - 1;
+            for (int aj; j >= left && (aj = a.get(j)) > ai; --j) {
+                a.put(j + 1, aj);
+            }
+            a.put(j + 1, ai);
+        }
+    }
+
+    /**
+     * Returns the index of the median of three elements of the range,
+     * or of the median of three such medians for large ranges.
+     */
+    private static int medianOf3(IntBuffer a, int left, int right) {
+        int mid = (left + right) >>> 1;
+        if (right - left > 1024) {
+            int e = (right - left) >>> 3;
+            return medianOf3(a, medianOf3(a, left, left + e, left + 2 * e),
+                             medianOf3(a, mid - e, mid, mid + e),
+                             medianOf3(a, right - 2 * e, right - e, right));
+        }
+        return medianOf3(a, left, mid, right);
+    }
+
+    private static int medianOf3(IntBuffer a, int i, int j, int k) {
+        int ai = a.get(i), aj = a.get(j), ak = a.get(k);
+        return (ai < aj) ?
+            ((aj < ak) ? j : (ai < ak) ? k : i) :
+            ((ai < ak) ? i : (aj < ak) ? k : j);
+    }
+
+    private static void heapSort(IntBuffer a, int left, int right) {
+        int n = right - left + 1;
+        for (int i = (n >>> 1) - 1; i >= 0; --i) {
+            siftDown(a, left, i, n);
+        }
+        for (int end = n - 1; end > 0; --end) {
+            int t = a.get(left);
+            a.put(left, a.get(left + end));
+            a.put(left + end, t);
+            siftDown(a, left, 0, end);
+        }
+    }
+
+    private static void siftDown(IntBuffer a, int base, int i, int n) {
+        int x = a.get(base + i);
+        for (int child; (child = (i << 1) + 1) < n; i = child) {
+            int c = a.get(base + child);
+            if (child + 1 < n) {
+                int r = a.get(base + child + 1);
+                if (r > c) {
+                    ++child;
+                    c = r;
+                }
+            }
+            if (c <= x) {
+                break;
+            }
+            a.put(base + i, c);
+        }
+        a.put(base + i, x);
+    }
+
+    /**
+     * Sorts the specified range of the buffer in place by introsort:
+     * Quicksort with three-way partitioning around a median-of-three
+     * (ninther for large ranges) pivot, insertion sort for small ranges,
+     * and heapsort if partitioning goes too deep.  Elements are accessed
+     * with absolute get and put, so this works on direct and mapped
+     * buffers without copying them.
+     *
+     * @param a the buffer to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     */
+    static void sort(LongBuffer a, int left, int right) {
+        sort(a, left, right,
+             2 * (32 - Integer.numberOfLeadingZeros(right - left + 1)));
+    }
+
+    private static void sort(LongBuffer a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (--depth < 0) {
+                heapSort(a, left, right);
+                return;
+            }
+            long pivot = a.get(medianOf3(a, left, right));
+            int lt = left, gt = right;
+            for (int k = left; k <= gt; ) {
+                long ak = a.get(k);
+                if (ak < pivot) {
+                    a.put(k++, a.get(lt));
+                    a.put(lt++, ak);
+                } else if (ak > pivot) {
+                    a.put(k, a.get(gt));
+                    a.put(gt--, ak);
+                } else {
+                    ++k;
+                }
+            }
+            // Recurse into the smaller part, loop on the larger
+            if (lt - left < right - gt) {
+                sort(a, left, lt - 1, depth);
+                left = gt + 1;
+            } else {
+                sort(a, gt + 1, right, depth);
+                right = lt - 1;
+            }
+        }
+        for (int i = left + 1; i <= right; ++i) {
+            long ai = a.get(i);
+            int j = i - 1;
+            for (long aj; j >= left && (aj = a.get(j)) > ai; --j) {
+                a.put(j + 1, aj);
+            }
+            a.put(j + 1, ai);
+        }
+    }
+
+    /**
+     * Returns the index of the median of three elements of the range,
+     * or of the median of three such medians for large ranges.
+     */
+    private static int medianOf3(LongBuffer a, int left, int right) {
+        int mid = (left + right) >>> 1;
+        if (right - left > 1024) {
+            int e = (right - left) >>> 3;
+            return medianOf3(a, medianOf3(a, left, left + e, left + 2 * e),
+                             medianOf3(a, mid - e, mid, mid + e),
+                             medianOf3(a, right - 2 * e, right - e, right));
+        }
+        return medianOf3(a, left, mid, right);
+    }
+
+    private static int medianOf3(LongBuffer a, int i, int j, int k) {
+        long ai = a.get(i), aj = a.get(j), ak = a.get(k);
+        return (ai < aj) ?
+            ((aj < ak) ? j : (ai < ak) ? k : i) :
+            ((ai < ak) ? i : (aj < ak) ? k : j);
+    }
+
+    private static void heapSort(LongBuffer a, int left, int right) {
+        int n = right - left + 1;
+        for (int i = (n >>> 1) - 1; i >= 0; --i) {
+            siftDown(a, left, i, n);
+        }
+        for (int end = n - 1; end > 0; --end) {
+            long t = a.get(left);
+            a.put(left, a.get(left + end));
+            a.put(left + end, t);
+            siftDown(a, left, 0, end);
+        }
+    }
+
+    private static void siftDown(LongBuffer a, int base, int i, int n) {
+        long x = a.get(base + i);
+        for (int child; (child = (i << 1) + 1) < n; i = child) {
+            long c = a.get(base + child);
+            if (child + 1 < n) {
+                long r = a.get(base + child + 1);
+                if (r > c) {
+                    ++child;
+                    c = r;
+                }
+            }
+            if (c <= x) {
+                break;
+            }
+            a.put(base + i, c);
+        }
+        a.put(base + i, x);
+    }
 }
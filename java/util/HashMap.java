@@ -499,15 +499,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     final void putMapEntries(Map<? extends K, ? extends V> m, boolean evict) {
         int s = m.size();
         if (s > 0) {
-            if (table == null) { // pre-size
-                float ft = ((float)s / loadFactor) + 1.0F;
-                int t = ((ft < (float)MAXIMUM_CAPACITY) ?
-                         (int)ft : MAXIMUM_CAPACITY);
-                if (t > threshold)
-                    threshold = tableSizeFor(t);
-            }
-            else if (s > threshold)
-                resize();
+            // Assume the keys are mostly new; at worst this over-sizes
+            // the table by one doubling, instead of resizing repeatedly.
+            presize((int)Math.min((long)size + s, Integer.MAX_VALUE));
             for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
                 K key = e.getKey();
                 V value = e.getValue();
@@ -747,6 +741,89 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return newTab;
     }
 
+    /**
+     * Ensures that the table can hold the given number of mappings
+     * without resizing.  If the table has not been allocated, only
+     * the initial capacity is recorded; otherwise it is grown, if
+     * needed, in a single rehashing pass.
+     *
+     * @param s the number of mappings expected
+     */
+    final void presize(int s) {
+        float ft = ((float)s / loadFactor) + 1.0F;
+        int t = ((ft < (float)MAXIMUM_CAPACITY) ?
+                 (int)ft : MAXIMUM_CAPACITY);
+        Node<K,V>[] tab = table;
+        if (tab == null) {
+            if (t > threshold)
+                threshold = tableSizeFor(t);
+        }
+        else if (s > threshold) {
+            int n = tableSizeFor(t);
+            if (n > tab.length)
+                rehash(n);
+        }
+    }
+
+    /**
+     * Moves all nodes into a new table of the given capacity, which
+     * may be any power of two larger than the current one.  Unlike
+     * resize, which only doubles, this lets a bulk insertion reach its
+     * final size in one pass.  Nodes of a tree bin only ever move to
+     * bins at the same index modulo the old capacity, so those bins
+     * are re-treeified or untreeified as each old bin is finished.
+     *
+     * @param newCap the new capacity
+     */
+    final void rehash(int newCap) {
+        Node<K,V>[] oldTab = table;
+        int oldCap = oldTab.length;
+        float ft = (float)newCap * loadFactor;
+        threshold = (newCap < MAXIMUM_CAPACITY && ft < (float)MAXIMUM_CAPACITY ?
+                     (int)ft : Integer.MAX_VALUE);
+        @SuppressWarnings({"rawtypes","unchecked"})
+            Node<K,V>[] newTab = (Node<K,V>[])new Node[newCap];
+        table = newTab;
+        for (int j = 0; j < oldCap; ++j) {
+            Node<K,V> e, next;
+            if ((e = oldTab[j]) == null)
+                continue;
+            oldTab[j] = null;
+            if (e instanceof TreeNode) {
+                for (; e != null; e = next) {
+                    TreeNode<K,V> p = (TreeNode<K,V>)e;
+                    int i = p.hash & (newCap - 1);
+                    TreeNode<K,V> hd = (TreeNode<K,V>)newTab[i];
+                    next = p.next;
+                    p.prev = null;
+                    if ((p.next = hd) != null)
+                        hd.prev = p;
+                    newTab[i] = p;
+                }
+                for (int i = j; i < newCap; i += oldCap) {
+                    TreeNode<K,V> hd = (TreeNode<K,V>)newTab[i];
+                    if (hd != null) {
+                        int c = 0;
+                        for (Node<K,V> q = hd; q != null; q = q.next)
+                            ++c;
+                        if (c <= UNTREEIFY_THRESHOLD)
+                            newTab[i] = hd.untreeify(this);
+                        else
+                            hd.treeify(newTab);
+                    }
+                }
+            }
+            else {
+                for (; e != null; e = next) {
+                    int i = e.hash & (newCap - 1);
+                    next = e.next;
+                    e.next = newTab[i];
+                    newTab[i] = e;
+                }
+            }
+        }
+    }
+
     /**
      * Replaces all linked nodes in bin at index for given hash unless
      * table is too small, in which case resizes instead.
@@ -784,6 +861,86 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         putMapEntries(m, true);
     }
 
+    /**
+     * Maps each element of {@code keys} to the element of {@code values}
+     * at the same index, as if by calling {@link #put put} for each pair
+     * in order.  The table is sized once, for the resulting number of
+     * mappings if all keys are new, before any pair is inserted, so
+     * loading a large snapshot does not resize repeatedly.
+     *
+     * @param keys the keys to be stored in this map
+     * @param values the values to be associated with the keys
+     * @throws NullPointerException if either array is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.8
+     */
+    public void putAll(K[] keys, V[] values) {
+        int s = keys.length;
+        if (s != values.length)
+            throw new IllegalArgumentException("keys and values differ in length");
+        if (s > 0) {
+            presize((int)Math.min((long)size + s, Integer.MAX_VALUE));
+            for (int i = 0; i < s; ++i) {
+                K key = keys[i];
+                putVal(hash(key), key, values[i], false, true);
+            }
+        }
+    }
+
+    /**
+     * Merges each element of {@code keys} and the element of {@code
+     * values} at the same index into this map, with the same results
+     * as calling {@link #merge merge} for each pair in order.  The
+     * table is sized once before any pair is inserted.
+     *
+     * <p>When {@code keys} is sorted, or otherwise holds equal keys next
+     * to each other, each run of equal keys is folded into the map with
+     * a single table lookup rather than one per element.
+     *
+     * @param keys the keys to be merged into this map
+     * @param values the non-null values to be merged with the keys
+     * @param remappingFunction the function to recompute a value if
+     *        present
+     * @throws NullPointerException if either array, any element of
+     *         {@code values} or the remapping function is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.8
+     */
+    public void mergeAll(K[] keys, V[] values,
+                         BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int s = keys.length;
+        if (s != values.length)
+            throw new IllegalArgumentException("keys and values differ in length");
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (s > 0)
+            presize((int)Math.min((long)size + s, Integer.MAX_VALUE));
+        for (int i = 0, j; i < s; i = j) {
+            K key = keys[i];
+            for (j = i + 1; j < s && Objects.equals(keys[j], key); ++j)
+                ;
+            int hash = hash(key);
+            Node<K,V> e = getNode(hash, key);
+            V v = (e == null) ? null : e.value;
+            for (int k = i; k < j; ++k) {
+                V value = values[k];
+                if (value == null)
+                    throw new NullPointerException();
+                v = (v == null) ? value : remappingFunction.apply(v, value);
+            }
+            if (e != null) {
+                if (v != null) {
+                    e.value = v;
+                    afterNodeAccess(e);
+                }
+                else
+                    removeNode(hash, key, null, false, true);
+            }
+            else if (v != null)
+                putVal(hash, key, v, false, true);
+        }
+    }
+
     /**
      * Removes the mapping for the specified key from this map if present.
      *
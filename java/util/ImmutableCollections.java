@@ -0,0 +1,949 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Container class for the compact immutable collections returned by
+ * the static factory methods {@link List#of(Object[]) List.of}, {@link
+ * Set#of(Object[]) Set.of} and {@link Map#ofEntries Map.ofEntries},
+ * and their fixed-arity overloads.
+ *
+ * <p>Collections of up to two elements hold them in fields.  Larger
+ * lists hold an exactly sized array, and larger sets and maps hold an
+ * open-addressed table with linear probing, twice as long as the
+ * number of elements (for maps, keys and values are interleaved in a
+ * single array).  No per-element node objects are allocated, and none
+ * of these classes wraps another collection.
+ *
+ * <p>None of the collections permits {@code null} elements, keys or
+ * values, and sets and maps reject duplicates when created.  Mutator
+ * methods always throw {@link UnsupportedOperationException}.  All are
+ * serialized through a common proxy, so the serial form does not
+ * depend on the field layout of the implementation classes.
+ *
+ * @since 1.8
+ */
+class ImmutableCollections {
+
+    private ImmutableCollections() { }
+
+    /**
+     * The ratio of table length to element count for sets and maps
+     * with more than two elements.
+     */
+    static final int EXPAND_FACTOR = 2;
+
+    static UnsupportedOperationException uoe() {
+        return new UnsupportedOperationException();
+    }
+
+    /* ---------------- Lists -------------- */
+
+    static abstract class AbstractImmutableList<E> extends AbstractList<E>
+        implements RandomAccess, Serializable {
+        private static final long serialVersionUID = -5734250177868082930L;
+
+        @Override public boolean add(E e) { throw uoe(); }
+        @Override public void add(int index, E element) { throw uoe(); }
+        @Override public boolean addAll(Collection<? extends E> c) { throw uoe(); }
+        @Override public boolean addAll(int index, Collection<? extends E> c) { throw uoe(); }
+        @Override public void clear() { throw uoe(); }
+        @Override public boolean remove(Object o) { throw uoe(); }
+        @Override public E remove(int index) { throw uoe(); }
+        @Override public boolean removeAll(Collection<?> c) { throw uoe(); }
+        @Override public boolean removeIf(Predicate<? super E> filter) { throw uoe(); }
+        @Override public void replaceAll(UnaryOperator<E> operator) { throw uoe(); }
+        @Override public boolean retainAll(Collection<?> c) { throw uoe(); }
+        @Override public E set(int index, E element) { throw uoe(); }
+        @Override public void sort(Comparator<? super E> c) { throw uoe(); }
+        @Override protected void removeRange(int fromIndex, int toIndex) { throw uoe(); }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(toArray(), Spliterator.ORDERED |
+                                            Spliterator.IMMUTABLE |
+                                            Spliterator.NONNULL);
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        Object writeReplace() throws ObjectStreamException {
+            return new CollSer(CollSer.IMM_LIST, toArray());
+        }
+    }
+
+    static final class List12<E> extends AbstractImmutableList<E> {
+        private static final long serialVersionUID = -7463214153421588232L;
+
+        private final E e0;
+        private final E e1;   // null if the list has one element
+
+        List12(E e0) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = null;
+        }
+
+        List12(E e0, E e1) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = Objects.requireNonNull(e1);
+        }
+
+        @Override
+        public int size() {
+            return (e1 != null) ? 2 : 1;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index == 0)
+                return e0;
+            else if (index == 1 && e1 != null)
+                return e1;
+            throw new IndexOutOfBoundsException("Index: " + index +
+                                                ", Size: " + size());
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return (o == null) ? -1 : o.equals(e0) ? 0 :
+                (e1 != null && o.equals(e1)) ? 1 : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return (o == null) ? -1 : (e1 != null && o.equals(e1)) ? 1 :
+                o.equals(e0) ? 0 : -1;
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            action.accept(e0);
+            if (e1 != null)
+                action.accept(e1);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return (e1 != null) ? new Object[] { e0, e1 } : new Object[] { e0 };
+        }
+    }
+
+    static final class ListN<E> extends AbstractImmutableList<E> {
+        private static final long serialVersionUID = 5458745282537398424L;
+
+        static final ListN<?> EMPTY_LIST = new ListN<Object>(new Object[0]);
+
+        private final E[] elements;
+
+        /**
+         * Takes ownership of the array, which must not contain nulls
+         * and must not be modified afterwards.
+         */
+        ListN(E[] elements) {
+            this.elements = elements;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> List<E> copyOf(Object[] input) {
+            switch (input.length) {
+            case 0:
+                return (List<E>) EMPTY_LIST;
+            case 1:
+                return new List12<E>((E) input[0]);
+            case 2:
+                return new List12<E>((E) input[0], (E) input[1]);
+            default:
+                Object[] a = new Object[input.length];
+                for (int i = 0; i < a.length; i++)
+                    a[i] = Objects.requireNonNull(input[i]);
+                return new ListN<E>((E[]) a);
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return elements.length == 0;
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public E get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (o != null) {
+                E[] es = elements;
+                for (int i = 0; i < es.length; i++)
+                    if (o.equals(es[i]))
+                        return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            if (o != null) {
+                E[] es = elements;
+                for (int i = es.length - 1; i >= 0; i--)
+                    if (o.equals(es[i]))
+                        return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (E e : elements)
+                action.accept(e);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.copyOf(elements, elements.length, Object[].class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            int size = elements.length;
+            if (a.length < size)
+                return (T[]) Arrays.copyOf(elements, size, a.getClass());
+            System.arraycopy(elements, 0, a, 0, size);
+            if (a.length > size)
+                a[size] = null;
+            return a;
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(elements, Spliterator.ORDERED |
+                                            Spliterator.IMMUTABLE |
+                                            Spliterator.NONNULL);
+        }
+    }
+
+    /* ---------------- Sets -------------- */
+
+    static abstract class AbstractImmutableSet<E> extends AbstractSet<E>
+        implements Serializable {
+        private static final long serialVersionUID = -981458094167356433L;
+
+        @Override public boolean add(E e) { throw uoe(); }
+        @Override public boolean addAll(Collection<? extends E> c) { throw uoe(); }
+        @Override public void clear() { throw uoe(); }
+        @Override public boolean remove(Object o) { throw uoe(); }
+        @Override public boolean removeAll(Collection<?> c) { throw uoe(); }
+        @Override public boolean removeIf(Predicate<? super E> filter) { throw uoe(); }
+        @Override public boolean retainAll(Collection<?> c) { throw uoe(); }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(toArray(), Spliterator.DISTINCT |
+                                            Spliterator.IMMUTABLE |
+                                            Spliterator.NONNULL);
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        Object writeReplace() throws ObjectStreamException {
+            return new CollSer(CollSer.IMM_SET, toArray());
+        }
+    }
+
+    static final class Set12<E> extends AbstractImmutableSet<E> {
+        private static final long serialVersionUID = 3519425397420867218L;
+
+        private final E e0;
+        private final E e1;   // null if the set has one element
+
+        Set12(E e0) {
+            this.e0 = Objects.requireNonNull(e0);
+            this.e1 = null;
+        }
+
+        Set12(E e0, E e1) {
+            if (e0.equals(Objects.requireNonNull(e1)))
+                throw new IllegalArgumentException("duplicate element: " + e0);
+            this.e0 = e0;
+            this.e1 = e1;
+        }
+
+        @Override
+        public int size() {
+            return (e1 != null) ? 2 : 1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && (o.equals(e0) || o.equals(e1));
+        }
+
+        @Override
+        public int hashCode() {
+            return e0.hashCode() + (e1 != null ? e1.hashCode() : 0);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int idx = 0;
+
+                public boolean hasNext() {
+                    return idx < size();
+                }
+
+                public E next() {
+                    if (idx == 0) {
+                        idx = 1;
+                        return e0;
+                    } else if (idx == 1 && e1 != null) {
+                        idx = 2;
+                        return e1;
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            action.accept(e0);
+            if (e1 != null)
+                action.accept(e1);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return (e1 != null) ? new Object[] { e0, e1 } : new Object[] { e0 };
+        }
+    }
+
+    static final class SetN<E> extends AbstractImmutableSet<E> {
+        private static final long serialVersionUID = -4419812474474549318L;
+
+        static final SetN<?> EMPTY_SET = new SetN<Object>();
+
+        private final E[] elements;   // probe table; null slots are empty
+        private final int size;
+
+        @SafeVarargs
+        @SuppressWarnings("unchecked")
+        SetN(E... input) {
+            size = input.length;
+            elements = (E[]) new Object[EXPAND_FACTOR * input.length];
+            for (E e : input) {
+                int idx = probe(e);
+                if (idx >= 0)
+                    throw new IllegalArgumentException("duplicate element: " + e);
+                elements[-(idx + 1)] = e;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> Set<E> copyOf(Object[] input) {
+            switch (input.length) {
+            case 0:
+                return (Set<E>) EMPTY_SET;
+            case 1:
+                return new Set12<E>((E) input[0]);
+            case 2:
+                return new Set12<E>((E) input[0], (E) input[1]);
+            default:
+                return new SetN<E>((E[]) input);
+            }
+        }
+
+        /**
+         * Returns the index of the slot holding pe, or if pe is absent,
+         * -(i + 1) where i is the slot at which it would be inserted.
+         * The table always has an empty slot, so this terminates.
+         *
+         * @throws NullPointerException if pe is null
+         */
+        private int probe(Object pe) {
+            E[] es = elements;
+            int h = pe.hashCode();
+            int idx = Math.floorMod(h ^ (h >>> 16), es.length);
+            for (;;) {
+                E e = es[idx];
+                if (e == null)
+                    return -idx - 1;
+                else if (pe.equals(e))
+                    return idx;
+                else if (++idx == es.length)
+                    idx = 0;
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && size > 0 && probe(o) >= 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 0;
+            for (E e : elements)
+                if (e != null)
+                    h += e.hashCode();
+            return h;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int idx = 0;
+                private int remaining = size;
+
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                public E next() {
+                    if (remaining > 0) {
+                        E e;
+                        E[] es = elements;
+                        while ((e = es[idx++]) == null)
+                            ;
+                        --remaining;
+                        return e;
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (E e : elements)
+                if (e != null)
+                    action.accept(e);
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] a = new Object[size];
+            int i = 0;
+            for (E e : elements)
+                if (e != null)
+                    a[i++] = e;
+            return a;
+        }
+    }
+
+    /* ---------------- Maps -------------- */
+
+    static abstract class AbstractImmutableMap<K,V> extends AbstractMap<K,V>
+        implements Serializable {
+        private static final long serialVersionUID = -4199052041939932164L;
+
+        @Override public void clear() { throw uoe(); }
+        @Override public V put(K key, V value) { throw uoe(); }
+        @Override public void putAll(Map<? extends K,? extends V> m) { throw uoe(); }
+        @Override public V putIfAbsent(K key, V value) { throw uoe(); }
+        @Override public V remove(Object key) { throw uoe(); }
+        @Override public boolean remove(Object key, Object value) { throw uoe(); }
+        @Override public V replace(K key, V value) { throw uoe(); }
+        @Override public boolean replace(K key, V oldValue, V newValue) { throw uoe(); }
+
+        @Override
+        public V compute(K key,
+                         BiFunction<? super K,? super V,? extends V> rf) {
+            throw uoe();
+        }
+
+        @Override
+        public V computeIfAbsent(K key,
+                                 Function<? super K,? extends V> mf) {
+            throw uoe();
+        }
+
+        @Override
+        public V computeIfPresent(K key,
+                                  BiFunction<? super K,? super V,? extends V> rf) {
+            throw uoe();
+        }
+
+        @Override
+        public V merge(K key, V value,
+                       BiFunction<? super V,? super V,? extends V> rf) {
+            throw uoe();
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K,? super V,? extends V> f) {
+            throw uoe();
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            V v;
+            return ((v = get(key)) != null) ? v : defaultValue;
+        }
+
+        /** Returns the keys and values interleaved, in iteration order. */
+        abstract Object[] toKeyValueArray();
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw new InvalidObjectException("not serial proxy");
+        }
+
+        Object writeReplace() throws ObjectStreamException {
+            return new CollSer(CollSer.IMM_MAP, toKeyValueArray());
+        }
+    }
+
+    /**
+     * An immutable key-value pair, the entry type of the immutable
+     * maps and the result of {@link Map#entry Map.entry}.
+     */
+    static final class KeyValueHolder<K,V> implements Map.Entry<K,V> {
+        final K key;
+        final V value;
+
+        KeyValueHolder(K k, V v) {
+            key = Objects.requireNonNull(k);
+            value = Objects.requireNonNull(v);
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw uoe();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return key.equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * An immutable set view of the entries of an immutable map, whose
+     * iteration is driven by the map's table.
+     */
+    static final class EntrySetView<K,V> extends AbstractImmutableSet<Map.Entry<K,V>> {
+        private static final long serialVersionUID = 7224289066233456315L;
+
+        private final AbstractImmutableMap<K,V> map;
+
+        EntrySetView(AbstractImmutableMap<K,V> map) {
+            this.map = map;
+        }
+
+        final Object[] keyValues() {
+            return map.toKeyValueArray();
+        }
+
+        final Map<K,V> map() {
+            return map;
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v = e.getValue();
+            return k != null && v != null && v.equals(map().get(k));
+        }
+
+        @Override
+        public int hashCode() {
+            return map().hashCode();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K,V>> iterator() {
+            final Object[] kvs = keyValues();
+            return new Iterator<Map.Entry<K,V>>() {
+                private int idx = 0;
+
+                public boolean hasNext() {
+                    return idx < kvs.length;
+                }
+
+                public Map.Entry<K,V> next() {
+                    if (idx >= kvs.length)
+                        throw new NoSuchElementException();
+                    Map.Entry<K,V> e = new KeyValueHolder<K,V>
+                        ((K)kvs[idx], (V)kvs[idx + 1]);
+                    idx += 2;
+                    return e;
+                }
+            };
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] kvs = keyValues(), a = new Object[kvs.length >> 1];
+            for (int i = 0; i < a.length; i++)
+                a[i] = new KeyValueHolder<Object,Object>(kvs[i << 1], kvs[(i << 1) + 1]);
+            return a;
+        }
+
+        @Override
+        Object writeReplace() throws ObjectStreamException {
+            // not a factory-produced set; serialize as a snapshot of
+            // serializable entries, KeyValueHolder not being serializable
+            Object[] kvs = keyValues(), a = new Object[kvs.length >> 1];
+            for (int i = 0; i < a.length; i++)
+                a[i] = new AbstractMap.SimpleImmutableEntry<Object,Object>
+                    (kvs[i << 1], kvs[(i << 1) + 1]);
+            return new CollSer(CollSer.IMM_SET, a);
+        }
+    }
+
+    static final class Map1<K,V> extends AbstractImmutableMap<K,V> {
+        private static final long serialVersionUID = 2219127006404426018L;
+
+        private final K k0;
+        private final V v0;
+
+        Map1(K k0, V v0) {
+            this.k0 = Objects.requireNonNull(k0);
+            this.v0 = Objects.requireNonNull(v0);
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new Set12<Map.Entry<K,V>>(new KeyValueHolder<K,V>(k0, v0));
+        }
+
+        @Override
+        public V get(Object o) {
+            return (o != null && o.equals(k0)) ? v0 : null;
+        }
+
+        @Override
+        public boolean containsKey(Object o) {
+            return o != null && o.equals(k0);
+        }
+
+        @Override
+        public boolean containsValue(Object o) {
+            return o != null && o.equals(v0);
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public int hashCode() {
+            return k0.hashCode() ^ v0.hashCode();
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K,? super V> action) {
+            Objects.requireNonNull(action);
+            action.accept(k0, v0);
+        }
+
+        @Override
+        Object[] toKeyValueArray() {
+            return new Object[] { k0, v0 };
+        }
+    }
+
+    /**
+     * A map of any number of mappings, held in a probe table with
+     * keys at even and values at odd indexes.
+     */
+    static final class MapN<K,V> extends AbstractImmutableMap<K,V> {
+        private static final long serialVersionUID = -2460245893416262745L;
+
+        static final MapN<?,?> EMPTY_MAP = new MapN<Object,Object>();
+
+        private final Object[] table;
+        private final int size;
+
+        MapN(Object... input) {
+            if ((input.length & 1) != 0)
+                throw new InternalError("length is odd");
+            size = input.length >> 1;
+            int len = EXPAND_FACTOR * input.length;
+            len = (len + 1) & ~1;   // ensure table is even length
+            table = new Object[len];
+            for (int i = 0; i < input.length; i += 2) {
+                @SuppressWarnings("unchecked")
+                K k = Objects.requireNonNull((K)input[i]);
+                @SuppressWarnings("unchecked")
+                V v = Objects.requireNonNull((V)input[i + 1]);
+                int idx = probe(k);
+                if (idx >= 0)
+                    throw new IllegalArgumentException("duplicate key: " + k);
+                int dest = -(idx + 1);
+                table[dest] = k;
+                table[dest + 1] = v;
+            }
+        }
+
+        /**
+         * Returns the index of the key slot of pk, or if pk is absent,
+         * -(i + 1) where i is the key slot at which it would be
+         * inserted.  The table always has an empty slot, so this
+         * terminates.
+         *
+         * @throws NullPointerException if pk is null
+         */
+        private int probe(Object pk) {
+            Object[] t = table;
+            int h = pk.hashCode();
+            int idx = Math.floorMod(h ^ (h >>> 16), t.length >> 1) << 1;
+            for (;;) {
+                Object k = t[idx];
+                if (k == null)
+                    return -idx - 1;
+                else if (pk.equals(k))
+                    return idx;
+                else if ((idx += 2) == t.length)
+                    idx = 0;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object o) {
+            if (size == 0 || o == null)
+                return null;
+            int i = probe(o);
+            return (i >= 0) ? (V)table[i + 1] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object o) {
+            return o != null && size > 0 && probe(o) >= 0;
+        }
+
+        @Override
+        public boolean containsValue(Object o) {
+            if (o != null) {
+                Object[] t = table;
+                for (int i = 1; i < t.length; i += 2) {
+                    Object v = t[i];
+                    if (v != null && o.equals(v))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            Object[] t = table;
+            for (int i = 0; i < t.length; i += 2) {
+                Object k = t[i];
+                if (k != null)
+                    hash += k.hashCode() ^ t[i + 1].hashCode();
+            }
+            return hash;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K,? super V> action) {
+            Objects.requireNonNull(action);
+            Object[] t = table;
+            for (int i = 0; i < t.length; i += 2) {
+                Object k = t[i];
+                if (k != null)
+                    action.accept((K)k, (V)t[i + 1]);
+            }
+        }
+
+        @Override
+        Object[] toKeyValueArray() {
+            Object[] a = new Object[size << 1], t = table;
+            int j = 0;
+            for (int i = 0; i < t.length; i += 2) {
+                if (t[i] != null) {
+                    a[j++] = t[i];
+                    a[j++] = t[i + 1];
+                }
+            }
+            return a;
+        }
+
+        @Override
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new EntrySetView<K,V>(this);
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * The serial proxy for all of the immutable collections.  It
+     * records the kind of collection and its elements (for maps, keys
+     * and values interleaved), and resolves to an equal collection
+     * created by the same factories.
+     */
+    static final class CollSer implements Serializable {
+        private static final long serialVersionUID = 6309168927139932177L;
+
+        static final int IMM_LIST = 1;
+        static final int IMM_SET = 2;
+        static final int IMM_MAP = 3;
+
+        /** @serial the kind of collection */
+        private final int tag;
+
+        /** the elements, or the interleaved keys and values */
+        private transient Object[] array;
+
+        CollSer(int t, Object... a) {
+            tag = t;
+            array = a;
+        }
+
+        /**
+         * @serialData The element count as an {@code int}, followed by
+         * the elements (for maps, the keys and values interleaved, the
+         * count being twice the number of mappings).
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(array.length);
+            for (Object o : array)
+                s.writeObject(o);
+        }
+
+        private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int len = s.readInt();
+            if (len < 0)
+                throw new InvalidObjectException("negative length " + len);
+            Object[] a = new Object[len];
+            for (int i = 0; i < len; i++)
+                a[i] = s.readObject();
+            array = a;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            try {
+                if (array == null)
+                    throw new InvalidObjectException("null array");
+                switch (tag) {
+                case IMM_LIST:
+                    return ListN.copyOf(array);
+                case IMM_SET:
+                    return SetN.copyOf(array);
+                case IMM_MAP:
+                    if (array.length == 0)
+                        return MapN.EMPTY_MAP;
+                    else if (array.length == 2)
+                        return new Map1<Object,Object>(array[0], array[1]);
+                    else
+                        return new MapN<Object,Object>(array);
+                default:
+                    throw new InvalidObjectException(String.format("invalid flags 0x%x", tag));
+                }
+            } catch (NullPointerException | IllegalArgumentException ex) {
+                InvalidObjectException ioe = new InvalidObjectException("invalid object");
+                ioe.initCause(ex);
+                throw ioe;
+            }
+        }
+    }
+}
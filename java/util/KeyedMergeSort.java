@@ -0,0 +1,757 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+/**
+ * Stable merge sort of primitive keys together with a companion array of
+ * values, which receives the same permutation as the keys.  This avoids
+ * boxing the keys, or sorting an array of indices with a comparator,
+ * when records are stored as parallel arrays.
+ *
+ * <p>Short runs are first sorted by insertion sort, and are then merged
+ * bottom-up, alternating between the original arrays and the workspace
+ * arrays.  Already sorted ranges are detected with a single pass and left
+ * untouched.  Because the sort is stable, values of equal keys keep their
+ * relative order, which is observable through the values.
+ *
+ * <p>All exposed methods are package-private, designed to be invoked
+ * from public methods (in class Arrays) after performing any
+ * necessary array bounds checks and expanding parameters into the
+ * required forms.  The sequential sorts are also used as the leaf sorts
+ * of Arrays.parallelSort for keys and values.
+ *
+ * @since 1.8
+ */
+final class KeyedMergeSort {
+
+    /**
+     * Prevents instantiation.
+     */
+    private KeyedMergeSort() {}
+
+    /**
+     * The length of the runs sorted by insertion sort before merging.
+     */
+    private static final int MIN_MERGE_RUN = 32;
+
+    /*
+     * Sorting methods for int keys.
+     */
+
+    /**
+     * Sorts the specified range of the int keys into ascending order,
+     * applying the same permutation to the int values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(int[] k, int[] v, int left, int right,
+                     int[] wk, int[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new int[n];
+            wv = new int[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        int[] sk = k, dk = wk;
+        int[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            int[] tk = sk; sk = dk; dk = tk;
+            int[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(int[] k, int[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            int key = k[i];
+            if (k[i - 1] > key) {
+                int val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(int[] sk, int[] sv, int lo, int mid, int hi,
+                              int[] dk, int[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the int keys into ascending order,
+     * applying the same permutation to the long values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(int[] k, long[] v, int left, int right,
+                     int[] wk, long[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new int[n];
+            wv = new long[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        int[] sk = k, dk = wk;
+        long[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            int[] tk = sk; sk = dk; dk = tk;
+            long[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(int[] k, long[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            int key = k[i];
+            if (k[i - 1] > key) {
+                long val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(int[] sk, long[] sv, int lo, int mid, int hi,
+                              int[] dk, long[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the int keys into ascending order,
+     * applying the same permutation to the Object values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(int[] k, Object[] v, int left, int right,
+                     int[] wk, Object[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new int[n];
+            wv = new Object[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        int[] sk = k, dk = wk;
+        Object[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            int[] tk = sk; sk = dk; dk = tk;
+            Object[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(int[] k, Object[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            int key = k[i];
+            if (k[i - 1] > key) {
+                Object val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(int[] sk, Object[] sv, int lo, int mid, int hi,
+                              int[] dk, Object[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+
+    /*
+     * Sorting methods for long keys.
+     */
+
+    /**
+     * Sorts the specified range of the long keys into ascending order,
+     * applying the same permutation to the int values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(long[] k, int[] v, int left, int right,
+                     long[] wk, int[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new long[n];
+            wv = new int[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        long[] sk = k, dk = wk;
+        int[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            long[] tk = sk; sk = dk; dk = tk;
+            int[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(long[] k, int[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            long key = k[i];
+            if (k[i - 1] > key) {
+                int val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(long[] sk, int[] sv, int lo, int mid, int hi,
+                              long[] dk, int[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the long keys into ascending order,
+     * applying the same permutation to the long values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(long[] k, long[] v, int left, int right,
+                     long[] wk, long[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new long[n];
+            wv = new long[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        long[] sk = k, dk = wk;
+        long[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            long[] tk = sk; sk = dk; dk = tk;
+            long[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(long[] k, long[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            long key = k[i];
+            if (k[i - 1] > key) {
+                long val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(long[] sk, long[] sv, int lo, int mid, int hi,
+                              long[] dk, long[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the long keys into ascending order,
+     * applying the same permutation to the Object values, using the given
+     * workspace array slices if possible for merging.
+     *
+     * @param k the keys to be sorted
+     * @param v the values to be permuted alongside the keys
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param wk a workspace array for keys
+     * @param wv a workspace array for values
+     * @param workBase origin of usable space in the work arrays
+     * @param workLen usable size of the work arrays
+     */
+    static void sort(long[] k, Object[] v, int left, int right,
+                     long[] wk, Object[] wv, int workBase, int workLen) {
+        int n = right - left + 1;
+        if (n < 2)
+            return;
+
+        // Skip a range that is already sorted
+        int i = left;
+        while (i < right && k[i] <= k[i + 1])
+            i++;
+        if (i == right)
+            return;
+
+        if (n <= MIN_MERGE_RUN) {
+            insertionSort(k, v, left, right);
+            return;
+        }
+
+        // Use or create temporary arrays for merging
+        if (wk == null || wv == null || workLen < n ||
+            workBase + n > wk.length || workBase + n > wv.length) {
+            wk = new long[n];
+            wv = new Object[n];
+            workBase = 0;
+        }
+
+        for (int lo = left; lo <= right; lo += MIN_MERGE_RUN)
+            insertionSort(k, v, lo, Math.min(lo + MIN_MERGE_RUN - 1, right));
+
+        long[] sk = k, dk = wk;
+        Object[] sv = v, dv = wv;
+        int sb = left, db = workBase;
+        for (int width = MIN_MERGE_RUN; width < n; width <<= 1) {
+            for (int lo = 0; lo < n; lo += width << 1) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(mid + width, n);
+                merge(sk, sv, sb + lo, sb + mid, sb + hi, dk, dv, db + lo);
+            }
+            long[] tk = sk; sk = dk; dk = tk;
+            Object[] tv = sv; sv = dv; dv = tv;
+            int tb = sb; sb = db; db = tb;
+        }
+        if (sk != k) {
+            System.arraycopy(sk, sb, k, left, n);
+            System.arraycopy(sv, sb, v, left, n);
+        }
+    }
+
+    /**
+     * Sorts the specified range of the keys by stable insertion sort,
+     * moving the values alongside.
+     */
+    private static void insertionSort(long[] k, Object[] v, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            long key = k[i];
+            if (k[i - 1] > key) {
+                Object val = v[i];
+                int j = i - 1;
+                do {
+                    k[j + 1] = k[j];
+                    v[j + 1] = v[j];
+                } while (--j >= left && k[j] > key);
+                k[j + 1] = key;
+                v[j + 1] = val;
+            }
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted ranges [lo, mid) and [mid, hi) of
+     * the source arrays into the destination arrays starting at d,
+     * taking from the left range first when keys are equal.
+     */
+    private static void merge(long[] sk, Object[] sv, int lo, int mid, int hi,
+                              long[] dk, Object[] dv, int d) {
+        if (mid == hi || sk[mid - 1] <= sk[mid]) {
+            System.arraycopy(sk, lo, dk, d, hi - lo);
+            System.arraycopy(sv, lo, dv, d, hi - lo);
+            return;
+        }
+        int i = lo, j = mid;
+        while (i < mid && j < hi) {
+            if (sk[i] <= sk[j]) {
+                dk[d] = sk[i];
+                dv[d++] = sv[i++];
+            }
+            else {
+                dk[d] = sk[j];
+                dv[d++] = sv[j++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(sk, i, dk, d, mid - i);
+            System.arraycopy(sv, i, dv, d, mid - i);
+        }
+        else if (j < hi) {
+            System.arraycopy(sk, j, dk, d, hi - j);
+            System.arraycopy(sv, j, dv, d, hi - j);
+        }
+    }
+}
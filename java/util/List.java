@@ -731,4 +731,90 @@ public interface List<E> extends Collection<E> {
     default Spliterator<E> spliterator() {
         return Spliterators.spliterator(this, Spliterator.ORDERED);
     }
+
+    /**
+     * Returns an unmodifiable list containing zero elements.
+     *
+     * <p>The returned list and the lists returned by the other {@code of}
+     * and {@code copyOf} methods of this interface are compact: small
+     * ones hold their elements in fields and larger ones in a single
+     * array, without wrapping another collection.  They reject
+     * {@code null} elements, throw {@code UnsupportedOperationException}
+     * from every mutator method, are serializable if all their elements
+     * are, and their spliterators report {@link Spliterator#ORDERED},
+     * {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED},
+     * {@link Spliterator#IMMUTABLE} and {@link Spliterator#NONNULL}.
+     *
+     * @param <E> the {@code List}'s element type
+     * @return an empty {@code List}
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    static <E> List<E> of() {
+        return ((List<E>) ImmutableCollections.ListN.EMPTY_LIST);
+    }
+
+    /**
+     * Returns an unmodifiable list containing one element.
+     *
+     * @param <E> the {@code List}'s element type
+     * @param e1 the single element
+     * @return a {@code List} containing the specified element
+     * @throws NullPointerException if the element is {@code null}
+     * @since 1.8
+     */
+    static <E> List<E> of(E e1) {
+        return new ImmutableCollections.List12<E>(e1);
+    }
+
+    /**
+     * Returns an unmodifiable list containing two elements.
+     *
+     * @param <E> the {@code List}'s element type
+     * @param e1 the first element
+     * @param e2 the second element
+     * @return a {@code List} containing the specified elements
+     * @throws NullPointerException if an element is {@code null}
+     * @since 1.8
+     */
+    static <E> List<E> of(E e1, E e2) {
+        return new ImmutableCollections.List12<E>(e1, e2);
+    }
+
+    /**
+     * Returns an unmodifiable list containing an arbitrary number of
+     * elements.  The array is copied, so later changes to it do not
+     * affect the returned list.
+     *
+     * @param <E> the {@code List}'s element type
+     * @param elements the elements to be contained in the list
+     * @return a {@code List} containing the specified elements
+     * @throws NullPointerException if an element is {@code null} or if
+     *         the array is {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    static <E> List<E> of(E... elements) {
+        return ImmutableCollections.ListN.copyOf(elements);
+    }
+
+    /**
+     * Returns an unmodifiable list containing the elements of the given
+     * collection, in its iteration order.  If the collection is
+     * itself such a list, it is returned unchanged.
+     *
+     * @param <E> the {@code List}'s element type
+     * @param coll a {@code Collection} from which elements are drawn
+     * @return a {@code List} containing the elements of the collection
+     * @throws NullPointerException if coll is null, or if it contains
+     *         any nulls
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    static <E> List<E> copyOf(Collection<? extends E> coll) {
+        if (coll instanceof ImmutableCollections.AbstractImmutableList)
+            return (List<E>)coll;
+        return ImmutableCollections.ListN.copyOf(coll.toArray());
+    }
 }
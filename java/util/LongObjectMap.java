@@ -0,0 +1,1175 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A hash table mapping primitive <tt>long</tt> keys to object values.
+ * Unlike a <tt>HashMap&lt;Long,V&gt;</tt>, this class stores its keys
+ * in a flat <tt>long[]</tt> and its values in a parallel
+ * <tt>Object[]</tt>, so the basic operations on primitive keys
+ * ({@link #get(long)}, {@link #put(long, Object)},
+ * {@link #remove(long)} and {@link #containsKey(long)}) neither box
+ * the key nor allocate a per-mapping entry object.
+ *
+ * <p>This class also implements the full <tt>Map&lt;Long,V&gt;</tt>
+ * interface, so it may be used wherever such a map is expected.  The
+ * boxed operations and the collection views box keys on demand.  The
+ * {@link #keyStream} method and the spliterator of the
+ * {@link #keySet} view traverse the keys without boxing, and may be
+ * used as the source of parallel stream pipelines.
+ *
+ * <p>This class permits <tt>null</tt> values.  The boxed operations
+ * throw <tt>NullPointerException</tt> for a <tt>null</tt> key.  This
+ * class makes no guarantees as to the order of the map; in particular,
+ * it does not guarantee that the order will remain constant over time.
+ *
+ * <p>This class has one tuning parameter (which affects performance but
+ * not semantics): <i>expected maximum size</i>, as for
+ * {@link IdentityHashMap}.  The table is kept at most two thirds full
+ * and doubles in size when that bound is exceeded.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access this map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators returned by the collection views of this class are
+ * <i>fail-fast</i>, with the same best-effort guarantees as those of
+ * {@link HashMap}.
+ *
+ * <p>Implementation note: This is a <i>linear-probe</i> hash table
+ * with deletion by backward shifting (Knuth Section 6.4 Algorithm R), so
+ * no tombstones accumulate.  Key {@code 0} marks a free slot in the key
+ * array; a mapping for key {@code 0} itself is kept in one extra slot
+ * past the end of the probed region.  Keys are scrambled with a
+ * multiplicative hash before probing, so that sequential ids and ids
+ * sharing their low-order bits do not form long probe sequences.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IdentityHashMap
+ * @since   1.8
+ */
+public class LongObjectMap<V>
+    extends AbstractMap<Long,V>
+    implements Map<Long,V>, java.io.Serializable, Cloneable
+{
+    private static final long serialVersionUID = 4736205548271838462L;
+
+    /**
+     * The capacity used by the no-args constructor.  MUST be a power
+     * of two.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The minimum capacity.  MUST be a power of two.
+     */
+    private static final int MINIMUM_CAPACITY = 4;
+
+    /**
+     * The maximum capacity.  MUST be a power of two <= 1<<30.  The map
+     * can hold no more than MAXIMUM_CAPACITY mappings, because at least
+     * one probed slot must stay free.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The keys, indexed by probe position.  The length is always a
+     * power of two plus one; the last slot is reserved for key 0 and
+     * always holds 0.
+     */
+    transient long[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient Object[] vals;
+
+    /**
+     * Whether the last slot holds a mapping for key 0.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The size at which the table is doubled.
+     */
+    transient int threshold;
+
+    /**
+     * The number of modifications, to support fast-fail iterators.
+     */
+    transient int modCount;
+
+    /**
+     * Holds cached entrySet().
+     */
+    transient Set<Map.Entry<Long,V>> entrySet;
+
+    /**
+     * Constructs a new, empty map with a default expected maximum size
+     * (10).
+     */
+    public LongObjectMap() {
+        init(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified expected maximum
+     * size.  Putting more than the expected number of mappings into the
+     * map may cause the internal tables to grow, which may be somewhat
+     * time-consuming.
+     *
+     * @param expectedMaxSize the expected maximum size of the map
+     * @throws IllegalArgumentException if <tt>expectedMaxSize</tt> is negative
+     */
+    public LongObjectMap(int expectedMaxSize) {
+        if (expectedMaxSize < 0)
+            throw new IllegalArgumentException("expectedMaxSize is negative: "
+                                               + expectedMaxSize);
+        init(capacity(expectedMaxSize));
+    }
+
+    /**
+     * Constructs a new map containing the mappings in the specified map.
+     *
+     * @param m the map whose mappings are to be placed in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key
+     */
+    public LongObjectMap(Map<? extends Long, ? extends V> m) {
+        this(m.size());
+        putAll(m);
+    }
+
+    /**
+     * Returns the smallest power of two between MINIMUM_CAPACITY and
+     * MAXIMUM_CAPACITY, inclusive, that keeps the table at most two
+     * thirds full when holding the given number of mappings.
+     */
+    private static int capacity(int expectedMaxSize) {
+        // assert expectedMaxSize >= 0;
+        long need = (long)expectedMaxSize + (expectedMaxSize >>> 1) + 1;
+        if (need >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        int cap = Integer.highestOneBit((int)need);
+        if (cap < need)
+            cap <<= 1;
+        return (cap < MINIMUM_CAPACITY) ? MINIMUM_CAPACITY : cap;
+    }
+
+    /**
+     * Initializes object to be an empty map with the specified capacity,
+     * which is assumed to be a power of two between MINIMUM_CAPACITY and
+     * MAXIMUM_CAPACITY inclusive.
+     */
+    private void init(int cap) {
+        keys = new long[cap + 1];
+        vals = new Object[cap + 1];
+        threshold = thresholdFor(cap);
+    }
+
+    private static int thresholdFor(int cap) {
+        return (cap == MAXIMUM_CAPACITY) ? cap - 1 : cap - (cap / 3);
+    }
+
+    /**
+     * Scrambles the key and returns a well-mixed 32 bit hash whose
+     * low-order bits may be used directly as a table index.
+     */
+    static int hash(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return (int)(h ^ (h >>> 16));
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    final int indexOf(long key) {
+        long[] ks = keys;
+        int z = ks.length - 1;
+        if (key == 0)
+            return hasZeroKey ? z : -1;
+        int mask = z - 1;
+        long k;
+        for (int i = hash(key) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  A
+     * return value of {@code null} does not <i>necessarily</i> indicate
+     * that the map contains no mapping for the key; the
+     * {@link #containsKey(long) containsKey} operation may be used to
+     * distinguish the two cases.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the
+     *         specified key
+     */
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     * @throws IllegalStateException if the map already holds the maximum
+     *         number of mappings
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        if (key == 0) {
+            if (hasZeroKey) {
+                V oldValue = (V)vs[z];
+                vs[z] = value;
+                return oldValue;
+            }
+            hasZeroKey = true;
+            vs[z] = value;
+        }
+        else {
+            int mask = z - 1, i = hash(key) & mask;
+            for (long k; (k = ks[i]) != 0; i = (i + 1) & mask) {
+                if (k == key) {
+                    V oldValue = (V)vs[i];
+                    vs[i] = value;
+                    return oldValue;
+                }
+            }
+            if (size >= threshold && z == MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Capacity exhausted.");
+            ks[i] = key;
+            vs[i] = value;
+        }
+        ++modCount;
+        if (++size > threshold)
+            resize(z << 1);
+        return null;
+    }
+
+    /**
+     * Rehashes the contents of this map into tables of the given
+     * capacity, which must be a power of two.
+     */
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldCapacity = oldKeys.length - 1;
+        if (oldCapacity >= newCapacity || oldCapacity == MAXIMUM_CAPACITY)
+            return;
+        long[] newKeys = new long[newCapacity + 1];
+        Object[] newVals = new Object[newCapacity + 1];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldCapacity; ++j) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = hash(k) & mask;
+                while (newKeys[i] != 0)
+                    i = (i + 1) & mask;
+                newKeys[i] = k;
+                newVals[i] = oldVals[j];
+            }
+        }
+        newVals[newCapacity] = oldVals[oldCapacity];
+        keys = newKeys;
+        vals = newVals;
+        threshold = thresholdFor(newCapacity);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a null key
+     */
+    public void putAll(Map<? extends Long, ? extends V> m) {
+        int n = m.size();
+        if (n == 0)
+            return;
+        if (n > size)
+            resize(capacity(n)); // conservatively pre-expand
+        if (m instanceof LongObjectMap) {
+            @SuppressWarnings("unchecked")
+            LongObjectMap<? extends V> src = (LongObjectMap<? extends V>)m;
+            long[] ks = src.keys;
+            Object[] vs = src.vals;
+            int z = ks.length - 1;
+            for (int i = 0; i < z; ++i) {
+                if (ks[i] != 0) {
+                    @SuppressWarnings("unchecked") V v = (V)vs[i];
+                    put(ks[i], v);
+                }
+            }
+            if (src.hasZeroKey) {
+                @SuppressWarnings("unchecked") V v = (V)vs[z];
+                put((long)0, v);
+            }
+        }
+        else {
+            for (Map.Entry<? extends Long, ? extends V> e : m.entrySet())
+                put(e.getKey().longValue(), e.getValue());
+        }
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i, null);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping in slot d, closing the gap by shifting back
+     * the entries that follow it in their probe sequence.  If it is
+     * non-null, the iterator is told about any entry moved from a slot
+     * it has not reached yet into one it has already passed.
+     */
+    final void removeAt(int d, HashIterator<?> it) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        ++modCount;
+        --size;
+        vs[d] = null;
+        if (d == z) {
+            hasZeroKey = false;
+            return;
+        }
+        ks[d] = 0;
+        // Adapted from Knuth Section 6.4 Algorithm R, as in
+        // IdentityHashMap.closeDeletion
+        int mask = z - 1, last = d;
+        long k;
+        for (int i = (d + 1) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            int r = hash(k) & mask;
+            if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+                if (it != null && i < last && d >= last)
+                    it.addWrapped(k);
+                ks[d] = k;
+                vs[d] = vs[i];
+                ks[i] = 0;
+                vs[i] = null;
+                d = i;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            Arrays.fill(keys, (long)0);
+            Arrays.fill(vals, null);
+            hasZeroKey = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        for (int i = 0; i < z; ++i) {
+            if (ks[i] != 0 && Objects.equals(value, vs[i]))
+                return true;
+        }
+        return hasZeroKey && Objects.equals(value, vs[z]);
+    }
+
+    // Boxed Map methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Keys that are not instances of <tt>Long</tt> are never
+     * contained in this map.
+     */
+    public V get(Object key) {
+        return (key instanceof Long) ? get(((Long)key).longValue()) : null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        return (key instanceof Long) ?
+            getOrDefault(((Long)key).longValue(), defaultValue) :
+            defaultValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Keys that are not instances of <tt>Long</tt> are never
+     * contained in this map.
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && indexOf(((Long)key).longValue()) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V remove(Object key) {
+        return (key instanceof Long) ? remove(((Long)key).longValue()) : null;
+    }
+
+    /**
+     * Returns whether the specified mapping is in this map.
+     */
+    private boolean containsMapping(Object key, Object value) {
+        int i;
+        return (key instanceof Long) &&
+            (i = indexOf(((Long)key).longValue())) >= 0 &&
+            Objects.equals(value, vals[i]);
+    }
+
+    /**
+     * Removes the specified mapping if present.
+     */
+    private boolean removeMapping(Object key, Object value) {
+        int i;
+        if ((key instanceof Long) &&
+            (i = indexOf(((Long)key).longValue())) >= 0 &&
+            Objects.equals(value, vals[i])) {
+            removeAt(i, null);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs the given action for each key in this map, in an
+     * unspecified order, without boxing the keys.
+     *
+     * @param action the action to be performed for each key
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the map is structurally
+     *         modified during the traversal
+     */
+    public void forEachKey(LongConsumer action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        long[] ks = keys;
+        int z = ks.length - 1;
+        if (hasZeroKey)
+            action.accept((long)0);
+        for (int i = 0; i < z && modCount == expectedModCount; ++i) {
+            long k = ks[i];
+            if (k != 0)
+                action.accept(k);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Long, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        if (hasZeroKey)
+            action.accept((long)0, (V)vs[z]);
+        for (int i = 0; i < z && modCount == expectedModCount; ++i) {
+            long k = ks[i];
+            if (k != 0)
+                action.accept(k, (V)vs[i]);
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a sequential {@code LongStream} over the keys of this map.
+     * The keys are not boxed.  The map must not be structurally modified
+     * while the stream is being traversed.
+     *
+     * @return a stream of the keys of this map
+     */
+    public LongStream keyStream() {
+        return StreamSupport.longStream(
+            new KeySpliterator<>(this, 0, -1, 0, 0), false);
+    }
+
+    /**
+     * Returns the hash code value for this map, as defined by
+     * {@link Map#hashCode}, without boxing the keys.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = 0;
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        for (int i = 0; i < z; ++i) {
+            if (ks[i] != 0)
+                h += Long.hashCode(ks[i]) ^ Objects.hashCode(vs[i]);
+        }
+        if (hasZeroKey)
+            h += Objects.hashCode(vs[z]);
+        return h;
+    }
+
+    /**
+     * Returns a shallow copy of this map: the values themselves are not
+     * cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            LongObjectMap<V> m = (LongObjectMap<V>) super.clone();
+            m.keySet = null;
+            m.values = null;
+            m.entrySet = null;
+            m.keys = keys.clone();
+            m.vals = vals.clone();
+            return m;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class HashIterator<T> implements Iterator<T> {
+        int pos = keys.length - 1;       // next slot to examine, descending
+        int lastReturned = -1;           // slot of last element, for remove
+        int remaining = size;            // elements not yet returned
+        int expectedModCount = modCount; // to support fast-fail
+        long[] wrapped;                 // keys moved behind pos by remove
+        int wrappedCount;
+
+        /**
+         * Records a key that a removal moved from a slot not yet
+         * examined into one already passed.
+         */
+        final void addWrapped(long k) {
+            if (wrapped == null)
+                wrapped = new long[4];
+            else if (wrappedCount == wrapped.length)
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            wrapped[wrappedCount++] = k;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        final int nextIndex() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            long[] ks = keys;
+            int i = pos;
+            if (i == ks.length - 1) {
+                pos = i - 1;
+                if (hasZeroKey)
+                    return lastReturned = i;
+                --i;
+            }
+            for (; i >= 0; --i) {
+                if (ks[i] != 0) {
+                    pos = i - 1;
+                    return lastReturned = i;
+                }
+            }
+            pos = -1;
+            if (wrappedCount > 0) {
+                int j = indexOf(wrapped[--wrappedCount]);
+                if (j >= 0)
+                    return lastReturned = j;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public final void remove() {
+            int i = lastReturned;
+            if (i < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastReturned = -1;
+            // once past slot 0, every slot has been examined
+            removeAt(i, (pos < 0) ? null : this);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends HashIterator<Long> {
+        public Long next() {
+            int i = nextIndex();
+            return (i == keys.length - 1) ? (long)0 : keys[i];
+        }
+    }
+
+    final class ValueIterator extends HashIterator<V> {
+        @SuppressWarnings("unchecked")
+        public V next() {
+            return (V)vals[nextIndex()];
+        }
+    }
+
+    final class EntryIterator extends HashIterator<Map.Entry<Long,V>> {
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Long,V> next() {
+            int i = nextIndex();
+            long k = (i == keys.length - 1) ? (long)0 : keys[i];
+            return new MapEntry(k, (V)vals[i]);
+        }
+    }
+
+    /**
+     * An entry returned by the entry set iterator.  Calls to setValue
+     * write through to the map.
+     */
+    final class MapEntry extends AbstractMap.SimpleEntry<Long,V> {
+        private static final long serialVersionUID = -1945270370264719285L;
+
+        MapEntry(long key, V value) {
+            super(key, value);
+        }
+
+        public V setValue(V value) {
+            LongObjectMap.this.put(getKey().longValue(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // views
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.  The
+     * set is backed by the map, so changes to the map are reflected in
+     * the set, and vice-versa.  The set supports element removal, but
+     * not addition.  Its spliterator is a {@code Spliterator.OfLong}
+     * that traverses the keys without boxing them.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Long> keySet() {
+        Set<Long> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<Long> {
+        public Iterator<Long> iterator() {
+            return new KeyIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+        public boolean remove(Object o) {
+            int i;
+            if ((o instanceof Long) &&
+                (i = indexOf(((Long)o).longValue())) >= 0) {
+                removeAt(i, null);
+                return true;
+            }
+            return false;
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+        public Spliterator.OfLong spliterator() {
+            return new KeySpliterator<>(LongObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map.  The collection is backed by the map, so changes to the map
+     * are reflected in the collection, and vice-versa.  The collection
+     * supports element removal, but not addition.
+     *
+     * @return a collection view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator<>(LongObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are reflected
+     * in the set, and vice-versa.  The entries returned by its iterator
+     * support {@code setValue}; the set supports element removal, but
+     * not addition.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Long,V>> entrySet() {
+        Set<Map.Entry<Long,V>> es = entrySet;
+        if (es == null) {
+            es = new EntrySet();
+            entrySet = es;
+        }
+        return es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,V>> {
+        public Iterator<Map.Entry<Long,V>> iterator() {
+            return new EntryIterator();
+        }
+        public int size() {
+            return size;
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return containsMapping(e.getKey(), e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return removeMapping(e.getKey(), e.getValue());
+        }
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+        public Spliterator<Map.Entry<Long,V>> spliterator() {
+            return new EntrySpliterator<>(LongObjectMap.this, 0, -1, 0, 0);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // serialization
+
+    /**
+     * Saves the state of the map to a stream (i.e., serializes it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *          mappings) (<tt>int</tt>), followed by the key
+     *          (<tt>long</tt>) and value (Object) for each key-value
+     *          mapping represented by the map.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        long[] ks = keys;
+        Object[] vs = vals;
+        int z = ks.length - 1;
+        if (hasZeroKey) {
+            s.writeLong((long)0);
+            s.writeObject(vs[z]);
+        }
+        for (int i = 0; i < z; ++i) {
+            if (ks[i] != 0) {
+                s.writeLong(ks[i]);
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes the map from a stream (i.e., deserializes it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.StreamCorruptedException
+                ("Illegal mappings count: " + n);
+        init(capacity(n));
+        for (int i = 0; i < n; ++i) {
+            long key = s.readLong();
+            @SuppressWarnings("unchecked")
+                V value = (V) s.readObject();
+            put(key, value);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // spliterators
+
+    /**
+     * Similar form as IdentityHashMap spliterators: array-based,
+     * skipping free slots, and guessing that the size halves per split.
+     * Indices range over the probed slots plus the trailing zero-key slot.
+     */
+    static class LongObjectMapSpliterator<V> {
+        final LongObjectMap<V> map;
+        int index;             // current index, modified on advance/split
+        int fence;             // -1 until first use; then one past last index
+        int est;               // size estimate
+        int expectedModCount;  // initialized when fence set
+
+        LongObjectMapSpliterator(LongObjectMap<V> map, int origin, int fence,
+                             int est, int expectedModCount) {
+            this.map = map;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                est = map.size;
+                expectedModCount = map.modCount;
+                hi = fence = map.keys.length;
+            }
+            return hi;
+        }
+
+        /**
+         * Returns whether slot i holds a mapping.
+         */
+        final boolean used(long[] ks, int i) {
+            return ks[i] != 0 || (i == ks.length - 1 && map.hasZeroKey);
+        }
+
+        public final long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+    }
+
+    static final class KeySpliterator<V>
+        extends LongObjectMapSpliterator<V>
+        implements Spliterator.OfLong {
+        KeySpliterator(LongObjectMap<V> map, int origin, int fence, int est,
+                       int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        public KeySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                     expectedModCount);
+        }
+
+        public void forEachRemaining(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i, hi;
+            LongObjectMap<V> m; long[] a;
+            if ((m = map) != null && (a = m.keys) != null &&
+                (i = index) >= 0 && (index = hi = getFence()) <= a.length) {
+                for (; i < hi; ++i) {
+                    if (used(a, i))
+                        action.accept(a[i]);
+                }
+                if (m.modCount == expectedModCount)
+                    return;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(LongConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            long[] a = map.keys;
+            int hi = getFence();
+            while (index < hi) {
+                int i = index++;
+                if (used(a, i)) {
+                    action.accept(a[i]);
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? SIZED : 0) |
+                Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+    }
+
+    static final class ValueSpliterator<V>
+        extends LongObjectMapSpliterator<V>
+        implements Spliterator<V> {
+        ValueSpliterator(LongObjectMap<V> map, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        public ValueSpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i, hi;
+            LongObjectMap<V> m; long[] a; Object[] v;
+            if ((m = map) != null && (a = m.keys) != null &&
+                (v = m.vals) != null &&
+                (i = index) >= 0 && (index = hi = getFence()) <= a.length) {
+                for (; i < hi; ++i) {
+                    if (used(a, i))
+                        action.accept((V)v[i]);
+                }
+                if (m.modCount == expectedModCount)
+                    return;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            long[] a = map.keys;
+            int hi = getFence();
+            while (index < hi) {
+                int i = index++;
+                if (used(a, i)) {
+                    action.accept((V)map.vals[i]);
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? SIZED : 0);
+        }
+    }
+
+    static final class EntrySpliterator<V>
+        extends LongObjectMapSpliterator<V>
+        implements Spliterator<Map.Entry<Long,V>> {
+        EntrySpliterator(LongObjectMap<V> map, int origin, int fence, int est,
+                         int expectedModCount) {
+            super(map, origin, fence, est, expectedModCount);
+        }
+
+        public EntrySpliterator<V> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                       expectedModCount);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super Map.Entry<Long,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int i, hi;
+            LongObjectMap<V> m; long[] a; Object[] v;
+            if ((m = map) != null && (a = m.keys) != null &&
+                (v = m.vals) != null &&
+                (i = index) >= 0 && (index = hi = getFence()) <= a.length) {
+                for (; i < hi; ++i) {
+                    if (used(a, i))
+                        action.accept(new AbstractMap.SimpleImmutableEntry<Long,V>
+                                      (a[i], (V)v[i]));
+                }
+                if (m.modCount == expectedModCount)
+                    return;
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Map.Entry<Long,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            long[] a = map.keys;
+            int hi = getFence();
+            while (index < hi) {
+                int i = index++;
+                if (used(a, i)) {
+                    action.accept(new AbstractMap.SimpleImmutableEntry<Long,V>
+                                  (a[i], (V)map.vals[i]));
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? SIZED : 0) |
+                Spliterator.DISTINCT;
+        }
+    }
+}
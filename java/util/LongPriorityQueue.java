@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+/**
+ * An unbounded priority queue of elements with primitive <tt>long</tt>
+ * priorities, based on a <i>d</i>-ary heap.  Unlike a
+ * {@link PriorityQueue}, which orders its elements by calling a
+ * {@link Comparator} or {@link Comparable#compareTo}, this class stores
+ * the priorities in a flat <tt>long[]</tt> and compares them directly,
+ * and it allocates no per-element objects, so that a steady stream of
+ * insertions and removals does not create garbage once the internal
+ * arrays have grown to the working size.
+ *
+ * <p>The <em>head</em> of this queue is an element with the
+ * <em>least</em> priority.  If multiple elements are tied for least
+ * priority, the head is one of those elements -- ties are broken
+ * arbitrarily.  This queue does not permit {@code null} elements.
+ *
+ * <p>Each element added to the queue is assigned an <tt>int</tt>
+ * <em>handle</em>, returned by {@link #add}, through which the element
+ * can later be removed ({@link #remove(int)}) or have its priority
+ * changed ({@link #changePriority}) in O(log(n)) time, without
+ * searching the queue.  A handle stays valid until its element is
+ * removed from the queue, by any method; after that the handle may be
+ * reused for an element added later.  Handles are small non-negative
+ * integers, so callers may use them to index arrays of their own.
+ *
+ * <p>The <em>arity</em> of the heap, the number of children of each
+ * node, is fixed at construction time.  Wider heaps are shallower, so
+ * that insertions and priority decreases compare fewer priorities,
+ * and keep the children of a node in adjacent array slots, which is
+ * more cache-friendly; removals compare more priorities per level.
+ * The default arity is 4.
+ *
+ * <p>A priority queue is unbounded, but has an internal
+ * <i>capacity</i> governing the size of the arrays used to store the
+ * elements on the queue.  It is always at least as large as the queue
+ * size.  As elements are added to a priority queue, its capacity
+ * grows automatically.  The details of the growth policy are not
+ * specified.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Multiple threads should not access a {@code LongPriorityQueue}
+ * instance concurrently if any of the threads modifies the queue.
+ * Instead, use the thread-safe {@link
+ * java.util.concurrent.LongPriorityBlockingQueue} class.
+ *
+ * <p>Implementation note: this implementation provides
+ * O(log(n)) time for the methods {@code add}, {@code poll},
+ * {@code remove(int)} and {@code changePriority}, and constant time
+ * for the retrieval methods ({@code peek}, {@code peekPriority},
+ * {@code get}, {@code priority} and {@code size}).
+ *
+ * @param <E> the type of elements held in this queue
+ * @see PriorityQueue
+ * @since 1.8
+ */
+public class LongPriorityQueue<E> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    private static final int DEFAULT_ARITY = 4;
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The heap is held in the parallel arrays priorities and handles,
+     * indexed by heap position: the children of position n are
+     * positions arity*n+1 through arity*n+arity.  For each position n
+     * and each descendant d of n, priorities[n] <= priorities[d].
+     */
+    private long[] priorities;
+
+    /**
+     * The handle of the element at each heap position.
+     */
+    private int[] handles;
+
+    /**
+     * The elements, indexed by handle; null for unused handles.
+     */
+    private Object[] elements;
+
+    /**
+     * The heap position of each handle in use.  For an unused handle,
+     * holds -2 minus the next unused handle in the free list, or -1
+     * at the end of the list.
+     */
+    private int[] positions;
+
+    /**
+     * The first unused handle below handleCount, or -1 if none.
+     */
+    private int freeHandle = -1;
+
+    /**
+     * The number of handles ever assigned, which is at least size.
+     */
+    private int handleCount;
+
+    /**
+     * The number of elements in the queue.
+     */
+    private int size;
+
+    /**
+     * The number of children of each heap node.
+     */
+    private final int arity;
+
+    /**
+     * Creates a {@code LongPriorityQueue} with the default initial
+     * capacity (11) and arity (4).
+     */
+    public LongPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates a {@code LongPriorityQueue} with the specified initial
+     * capacity and the default arity (4).
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         negative
+     */
+    public LongPriorityQueue(int initialCapacity) {
+        this(initialCapacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates a {@code LongPriorityQueue} with the specified initial
+     * capacity and heap arity.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @param arity the number of children of each node of the heap
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         negative or {@code arity} is less than 2
+     */
+    public LongPriorityQueue(int initialCapacity, int arity) {
+        if (initialCapacity < 0 || arity < 2)
+            throw new IllegalArgumentException();
+        this.arity = arity;
+        this.priorities = new long[initialCapacity];
+        this.handles = new int[initialCapacity];
+        this.elements = new Object[initialCapacity];
+        this.positions = new int[initialCapacity];
+    }
+
+    /**
+     * Returns the number of children of each node of the heap.
+     *
+     * @return the arity of the heap
+     */
+    public int arity() {
+        return arity;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no elements.
+     *
+     * @return {@code true} if this queue contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserts the specified element into this queue with the specified
+     * priority.
+     *
+     * @param e the element to add
+     * @param priority the priority of the element
+     * @return the handle of the element
+     * @throws NullPointerException if the specified element is null
+     */
+    public int add(E e, long priority) {
+        if (e == null)
+            throw new NullPointerException();
+        int h = freeHandle;
+        if (h >= 0)
+            freeHandle = -2 - positions[h];
+        else {
+            if ((h = handleCount) >= positions.length)
+                growHandles(h + 1);
+            handleCount = h + 1;
+        }
+        elements[h] = e;
+        int i = size;
+        if (i >= priorities.length)
+            growHeap(i + 1);
+        size = i + 1;
+        siftUp(i, priority, h);
+        return h;
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of this queue, or
+     * returns {@code null} if this queue is empty.
+     *
+     * @return the head of this queue, or {@code null} if this queue
+     *         is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return (size == 0) ? null : (E) elements[handles[0]];
+    }
+
+    /**
+     * Returns the handle of the head of this queue, or -1 if this queue
+     * is empty.
+     *
+     * @return the handle of the head of this queue, or -1 if this queue
+     *         is empty
+     */
+    public int peekHandle() {
+        return (size == 0) ? -1 : handles[0];
+    }
+
+    /**
+     * Returns the priority of the head of this queue, which is the
+     * least priority in the queue.
+     *
+     * @return the priority of the head of this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public long peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return priorities[0];
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns
+     * {@code null} if this queue is empty.
+     *
+     * @return the head of this queue, or {@code null} if this queue
+     *         is empty
+     */
+    public E poll() {
+        return (size == 0) ? null : removeAt(0);
+    }
+
+    /**
+     * Returns {@code true} if the specified handle is the handle of an
+     * element in this queue.
+     *
+     * @param handle the handle
+     * @return {@code true} if the handle is in use
+     */
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < handleCount && positions[handle] >= 0;
+    }
+
+    /**
+     * Returns the element with the specified handle.
+     *
+     * @param handle the handle of the element
+     * @return the element with the specified handle
+     * @throws NoSuchElementException if the handle is not in use
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int handle) {
+        checkHandle(handle);
+        return (E) elements[handle];
+    }
+
+    /**
+     * Returns the priority of the element with the specified handle.
+     *
+     * @param handle the handle of the element
+     * @return the priority of the element with the specified handle
+     * @throws NoSuchElementException if the handle is not in use
+     */
+    public long priority(int handle) {
+        checkHandle(handle);
+        return priorities[positions[handle]];
+    }
+
+    /**
+     * Changes the priority of the element with the specified handle,
+     * moving it up or down the queue as needed.  The handle of the
+     * element does not change.
+     *
+     * @param handle the handle of the element
+     * @param priority the new priority of the element
+     * @throws NoSuchElementException if the handle is not in use
+     */
+    public void changePriority(int handle, long priority) {
+        checkHandle(handle);
+        int i = positions[handle];
+        long old = priorities[i];
+        if (priority < old)
+            siftUp(i, priority, handle);
+        else if (priority > old)
+            siftDown(i, priority, handle);
+    }
+
+    /**
+     * Removes the element with the specified handle from this queue.
+     *
+     * @param handle the handle of the element
+     * @return the removed element
+     * @throws NoSuchElementException if the handle is not in use
+     */
+    public E remove(int handle) {
+        checkHandle(handle);
+        return removeAt(positions[handle]);
+    }
+
+    /**
+     * Removes all of the elements from this queue, invalidating all
+     * handles.  The queue will be empty after this call returns.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, handleCount, null);
+        size = 0;
+        handleCount = 0;
+        freeHandle = -1;
+    }
+
+    /**
+     * Throws NoSuchElementException unless the handle is in use.
+     */
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= handleCount || positions[handle] < 0)
+            throw new NoSuchElementException("handle " + handle);
+    }
+
+    /**
+     * Removes the element at heap position i, frees its handle and
+     * returns it.
+     */
+    @SuppressWarnings("unchecked")
+    private E removeAt(int i) {
+        int h = handles[i];
+        E e = (E) elements[h];
+        elements[h] = null;
+        positions[h] = -2 - freeHandle;
+        freeHandle = h;
+        int s = --size;
+        if (s != i) {
+            long moved = priorities[s];
+            int mh = handles[s];
+            siftDown(i, moved, mh);
+            if (handles[i] == mh)
+                siftUp(i, moved, mh);
+        }
+        return e;
+    }
+
+    /**
+     * Inserts the priority p with handle h at position i, maintaining
+     * heap invariant by promoting it up the heap until it is greater
+     * than or equal to its parent, or is the root.
+     */
+    private void siftUp(int i, long p, int h) {
+        long[] ps = priorities;
+        int[] hs = handles, pos = positions;
+        int d = arity;
+        while (i > 0) {
+            int parent = (i - 1) / d;
+            long pp = ps[parent];
+            if (p >= pp)
+                break;
+            int ph = hs[parent];
+            ps[i] = pp;
+            hs[i] = ph;
+            pos[ph] = i;
+            i = parent;
+        }
+        ps[i] = p;
+        hs[i] = h;
+        pos[h] = i;
+    }
+
+    /**
+     * Inserts the priority p with handle h at position i, maintaining
+     * heap invariant by demoting it down the heap until it is less
+     * than or equal to its children, or is a leaf.
+     */
+    private void siftDown(int i, long p, int h) {
+        long[] ps = priorities;
+        int[] hs = handles, pos = positions;
+        int d = arity, n = size;
+        for (int c; (c = d * i + 1) < n && c > 0; ) {
+            int end = (n - c > d) ? c + d : n;
+            int m = c;
+            long mp = ps[c];
+            for (int k = c + 1; k < end; ++k) {
+                long kp = ps[k];
+                if (kp < mp) {
+                    m = k;
+                    mp = kp;
+                }
+            }
+            if (p <= mp)
+                break;
+            int mh = hs[m];
+            ps[i] = mp;
+            hs[i] = mh;
+            pos[mh] = i;
+            i = m;
+        }
+        ps[i] = p;
+        hs[i] = h;
+        pos[h] = i;
+    }
+
+    /**
+     * Returns a capacity at least minCapacity, growing oldCapacity as
+     * PriorityQueue does.
+     */
+    private static int newCapacity(int oldCapacity, int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = (minCapacity > MAX_ARRAY_SIZE) ?
+                Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+        return Math.max(newCapacity, minCapacity);
+    }
+
+    private void growHeap(int minCapacity) {
+        int n = newCapacity(priorities.length, minCapacity);
+        priorities = Arrays.copyOf(priorities, n);
+        handles = Arrays.copyOf(handles, n);
+    }
+
+    private void growHandles(int minCapacity) {
+        int n = newCapacity(positions.length, minCapacity);
+        elements = Arrays.copyOf(elements, n);
+        positions = Arrays.copyOf(positions, n);
+    }
+}
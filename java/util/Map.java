@@ -1180,4 +1180,130 @@ public interface Map<K,V> {
         }
         return newValue;
     }
+
+    /**
+     * Returns an unmodifiable map containing zero mappings.
+     *
+     * <p>The returned map and the maps returned by the other {@code of},
+     * {@code ofEntries} and {@code copyOf} methods of this interface are
+     * compact: a single mapping is held in fields, and more in one
+     * open-addressed array of interleaved keys and values, without
+     * entry objects or a wrapped map.  They reject {@code null} keys and
+     * values and duplicate keys, throw {@code UnsupportedOperationException}
+     * from every mutator method, and are serializable if all their keys
+     * and values are.  The spliterators of their entry sets report
+     * {@link Spliterator#DISTINCT}, {@link Spliterator#SIZED}, {@link
+     * Spliterator#IMMUTABLE} and {@link Spliterator#NONNULL}.
+     *
+     * @param <K> the {@code Map}'s key type
+     * @param <V> the {@code Map}'s value type
+     * @return an empty {@code Map}
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Map<K, V> of() {
+        return (Map<K,V>) ImmutableCollections.MapN.EMPTY_MAP;
+    }
+
+    /**
+     * Returns an unmodifiable map containing a single mapping.
+     *
+     * @param <K> the {@code Map}'s key type
+     * @param <V> the {@code Map}'s value type
+     * @param k1 the mapping's key
+     * @param v1 the mapping's value
+     * @return a {@code Map} containing the specified mapping
+     * @throws NullPointerException if the key or the value is {@code null}
+     * @since 1.8
+     */
+    static <K, V> Map<K, V> of(K k1, V v1) {
+        return new ImmutableCollections.Map1<K,V>(k1, v1);
+    }
+
+    /**
+     * Returns an unmodifiable map containing two mappings.
+     *
+     * @param <K> the {@code Map}'s key type
+     * @param <V> the {@code Map}'s value type
+     * @param k1 the first mapping's key
+     * @param v1 the first mapping's value
+     * @param k2 the second mapping's key
+     * @param v2 the second mapping's value
+     * @return a {@code Map} containing the specified mappings
+     * @throws IllegalArgumentException if the keys are duplicates
+     * @throws NullPointerException if any key or value is {@code null}
+     * @since 1.8
+     */
+    static <K, V> Map<K, V> of(K k1, V v1, K k2, V v2) {
+        return new ImmutableCollections.MapN<K,V>(k1, v1, k2, v2);
+    }
+
+    /**
+     * Returns an unmodifiable map containing keys and values extracted
+     * from the given entries.  The entries themselves are not stored in
+     * the map.
+     *
+     * @param <K> the {@code Map}'s key type
+     * @param <V> the {@code Map}'s value type
+     * @param entries {@code Map.Entry}s containing the keys and values
+     *        from which the map is populated
+     * @return a {@code Map} containing the specified mappings
+     * @throws IllegalArgumentException if there are any duplicate keys
+     * @throws NullPointerException if any entry, key, or value is
+     *         {@code null}, or if the {@code entries} array is {@code null}
+     * @see Map#entry Map.entry()
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    static <K, V> Map<K, V> ofEntries(Entry<? extends K, ? extends V>... entries) {
+        if (entries.length == 0)
+            return of();
+        else if (entries.length == 1)
+            return new ImmutableCollections.Map1<K,V>(entries[0].getKey(),
+                                                      entries[0].getValue());
+        Object[] kva = new Object[entries.length << 1];
+        int a = 0;
+        for (Entry<? extends K, ? extends V> entry : entries) {
+            kva[a++] = entry.getKey();
+            kva[a++] = entry.getValue();
+        }
+        return new ImmutableCollections.MapN<K,V>(kva);
+    }
+
+    /**
+     * Returns an unmodifiable {@link Entry} containing the given key and
+     * value, suitable for use with {@link Map#ofEntries Map.ofEntries()}.
+     *
+     * @param <K> the key's type
+     * @param <V> the value's type
+     * @param k the key
+     * @param v the value
+     * @return an {@code Entry} containing the specified key and value
+     * @throws NullPointerException if the key or value is {@code null}
+     * @since 1.8
+     */
+    static <K, V> Entry<K, V> entry(K k, V v) {
+        return new ImmutableCollections.KeyValueHolder<K,V>(k, v);
+    }
+
+    /**
+     * Returns an unmodifiable map containing the mappings of the given
+     * map.  If the given map is itself such a map, it is returned
+     * unchanged.
+     *
+     * @param <K> the {@code Map}'s key type
+     * @param <V> the {@code Map}'s value type
+     * @param map a {@code Map} from which mappings are drawn
+     * @return a {@code Map} containing the mappings of the given map
+     * @throws NullPointerException if map is null, or if it contains any
+     *         null keys or values
+     * @since 1.8
+     */
+    @SuppressWarnings({"rawtypes","unchecked"})
+    static <K, V> Map<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof ImmutableCollections.AbstractImmutableMap)
+            return (Map<K,V>)map;
+        return (Map<K,V>)Map.ofEntries(map.entrySet().toArray(new Entry[0]));
+    }
 }
@@ -410,4 +410,93 @@ public interface Set<E> extends Collection<E> {
     default Spliterator<E> spliterator() {
         return Spliterators.spliterator(this, Spliterator.DISTINCT);
     }
+
+    /**
+     * Returns an unmodifiable set containing zero elements.
+     *
+     * <p>The returned set and the sets returned by the other {@code of}
+     * and {@code copyOf} methods of this interface are compact: small
+     * ones hold their elements in fields and larger ones in a single
+     * array, without wrapping another collection.  They reject
+     * {@code null} elements, throw {@code UnsupportedOperationException}
+     * from every mutator method, are serializable if all their elements
+     * are, and their spliterators report {@link Spliterator#DISTINCT},
+     * {@link Spliterator#SIZED}, {@link Spliterator#SUBSIZED},
+     * {@link Spliterator#IMMUTABLE} and {@link Spliterator#NONNULL}.
+     *
+     * @param <E> the {@code Set}'s element type
+     * @return an empty {@code Set}
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> of() {
+        return ((Set<E>) ImmutableCollections.SetN.EMPTY_SET);
+    }
+
+    /**
+     * Returns an unmodifiable set containing one element.
+     *
+     * @param <E> the {@code Set}'s element type
+     * @param e1 the single element
+     * @return a {@code Set} containing the specified element
+     * @throws NullPointerException if the element is {@code null}
+     * @since 1.8
+     */
+    static <E> Set<E> of(E e1) {
+        return new ImmutableCollections.Set12<E>(e1);
+    }
+
+    /**
+     * Returns an unmodifiable set containing two elements.
+     *
+     * @param <E> the {@code Set}'s element type
+     * @param e1 the first element
+     * @param e2 the second element
+     * @return a {@code Set} containing the specified elements
+     * @throws IllegalArgumentException if the elements are duplicates
+     * @throws NullPointerException if an element is {@code null}
+     * @since 1.8
+     */
+    static <E> Set<E> of(E e1, E e2) {
+        return new ImmutableCollections.Set12<E>(e1, e2);
+    }
+
+    /**
+     * Returns an unmodifiable set containing an arbitrary number of
+     * elements.  The array is copied, so later changes to it do not
+     * affect the returned set.
+     *
+     * @param <E> the {@code Set}'s element type
+     * @param elements the elements to be contained in the set
+     * @return a {@code Set} containing the specified elements
+     * @throws IllegalArgumentException if there are any duplicate elements
+     * @throws NullPointerException if an element is {@code null} or if
+     *         the array is {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    static <E> Set<E> of(E... elements) {
+        return ImmutableCollections.SetN.copyOf(elements);
+    }
+
+    /**
+     * Returns an unmodifiable set containing the elements of the given
+     * collection.  If the collection contains duplicate elements, an
+     * arbitrary one of each is kept.  If the collection is itself such a
+     * set, it is returned unchanged.
+     *
+     * @param <E> the {@code Set}'s element type
+     * @param coll a {@code Collection} from which elements are drawn
+     * @return a {@code Set} containing the elements of the collection
+     * @throws NullPointerException if coll is null, or if it contains
+     *         any nulls
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> copyOf(Collection<? extends E> coll) {
+        if (coll instanceof ImmutableCollections.AbstractImmutableSet)
+            return (Set<E>)coll;
+        return ImmutableCollections.SetN.copyOf(new HashSet<E>(coll).toArray());
+    }
 }
@@ -0,0 +1,1142 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A {@link ConcurrentMap} that holds a bounded amount of data, evicting
+ * entries when its maximum size or weight is exceeded, and optionally
+ * expiring entries a fixed time after they were written or last
+ * accessed.
+ *
+ * <p>Retrievals are as concurrent as those of the {@link
+ * ConcurrentHashMap} holding the entries: a read only records the
+ * access in one of several striped, lossy ring buffers, and the eviction
+ * policy is updated later, in batches, by whichever thread manages to
+ * acquire the eviction lock.  Writes are recorded in a separate buffer
+ * that is never lossy.  The calling thread does the maintenance work
+ * when a buffer needs draining; there is no background thread.
+ *
+ * <p>Entries are chosen for eviction by the <em>W-TinyLFU</em> policy.
+ * New entries enter a small admission window ordered by recency.
+ * Entries leaving the window are admitted to the main space only if
+ * they have been used more often, recently, than the entry the main
+ * space would evict to make room for them; access frequencies are
+ * estimated with a compact, periodically aged count-min sketch.  The
+ * main space is a segmented LRU whose protected segment holds entries
+ * accessed at least twice.  Compared with a pure LRU policy, this
+ * resists pollution by one-off scans while still adapting to recency.
+ *
+ * <p>The size of an entry is 1 unless a weigher is supplied, in which
+ * case it is the weight the weigher returns when the entry is written.
+ * Because eviction runs in batches after writes, the total may exceed
+ * the maximum briefly.
+ *
+ * <p>Hit, miss and eviction counts are kept in {@link LongAdder}s and
+ * are available through getter methods, in the manner of the
+ * statistics of {@link ThreadPoolExecutor}.
+ *
+ * <p>This class does not allow {@code null} keys or values.  Iterators
+ * of the collection views are <i>weakly consistent</i> and skip expired
+ * entries.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of mapped values
+ */
+public class BoundedConcurrentCache<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /*
+     * Overview:
+     *
+     * Entries live in a ConcurrentHashMap of Nodes.  The policy state
+     * -- three access-ordered deques (window, probation, protected),
+     * one write-ordered deque used for expire-after-write, the
+     * frequency sketch and the weight totals -- is only ever touched
+     * while holding evictionLock.  Each node records a "policy
+     * weight", the weight the policy has accounted for; tasks in the
+     * write buffer reconcile it with the node's current weight, which
+     * makes them insensitive to the order in which concurrent writers
+     * enqueue them.  A node is alive while mapped, retired once
+     * removed from the map, and dead once also unlinked from the
+     * policy.
+     *
+     * Expiration uses fixed durations, so the deques are already in
+     * expiration order and expired entries are found at their heads
+     * in O(1); no timer wheel is needed.
+     */
+
+    /** The maximum number of read buffer stripes. */
+    static final int MAX_READ_BUFFERS = 64;
+
+    /** The number of slots in each read buffer.  Must be a power of two. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** The number of reads recorded in a stripe before draining. */
+    static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    /** The share of the maximum given to the admission window, in percent. */
+    static final int WINDOW_PERCENT = 1;
+
+    /** The share of the main space given to the protected segment, in percent. */
+    static final int PROTECTED_PERCENT = 80;
+
+    static final byte NONE = 0, WINDOW = 1, PROBATION = 2, PROTECTED = 3;
+
+    static final int ALIVE = 0, RETIRED = 1, DEAD = 2;
+
+    /**
+     * A cache entry.  The value, weight and times are written by
+     * callers; the links, queue and policyWeight only under the
+     * eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile int weight;
+        volatile long accessTime;
+        volatile long writeTime;
+        volatile int state;
+        int policyWeight;
+        byte queue;
+        Node<K,V> prevInAccess, nextInAccess;
+        Node<K,V> prevInWrite, nextInWrite;
+        boolean inWriteOrder;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+            this.writeTime = now;
+        }
+    }
+
+    /**
+     * A deque threaded through the access-order links of nodes.
+     */
+    static final class AccessDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevInAccess = l;
+            e.nextInAccess = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextInAccess = e;
+        }
+
+        void unlink(Node<K,V> e) {
+            Node<K,V> p = e.prevInAccess, n = e.nextInAccess;
+            if (p == null)
+                first = n;
+            else
+                p.nextInAccess = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevInAccess = p;
+            e.prevInAccess = e.nextInAccess = null;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                unlink(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /**
+     * A deque threaded through the write-order links of nodes.
+     */
+    static final class WriteDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevInWrite = l;
+            e.nextInWrite = null;
+            e.inWriteOrder = true;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextInWrite = e;
+        }
+
+        void unlink(Node<K,V> e) {
+            if (!e.inWriteOrder)
+                return;
+            Node<K,V> p = e.prevInWrite, n = e.nextInWrite;
+            if (p == null)
+                first = n;
+            else
+                p.nextInWrite = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevInWrite = p;
+            e.prevInWrite = e.nextInWrite = null;
+            e.inWriteOrder = false;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                unlink(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /**
+     * A bounded, lossy, multiple-producer single-consumer buffer of
+     * recent reads.  Producers claim a slot by advancing tail; the
+     * consumer, holding the eviction lock, advances head.
+     */
+    static final class ReadBuffer<K,V> {
+        final AtomicReferenceArray<Node<K,V>> slots =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+        final AtomicLong tail = new AtomicLong();
+        volatile long head;
+
+        /**
+         * Records a read, returning the number of pending reads, or
+         * -1 if the buffer was full and the read was dropped.
+         */
+        int offer(Node<K,V> e) {
+            long h = head, t = tail.get();
+            long size = t - h;
+            if (size >= READ_BUFFER_SIZE)
+                return -1;
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int)t & (READ_BUFFER_SIZE - 1), e);
+                return (int)size + 1;
+            }
+            return 0; // lost a race; dropping is harmless
+        }
+
+        /** Drains recorded reads into the policy. */
+        void drainTo(BoundedConcurrentCache<K,V> cache) {
+            long h = head, t = tail.get();
+            for (; h != t; ++h) {
+                int i = (int)h & (READ_BUFFER_SIZE - 1);
+                Node<K,V> e = slots.get(i);
+                if (e == null)
+                    break;   // producer has not yet filled the slot
+                slots.lazySet(i, null);
+                cache.onAccess(e);
+            }
+            head = h;
+        }
+    }
+
+    /**
+     * A probabilistic multiset estimating the popularity of keys
+     * within a time window, as a count-min sketch of four-bit
+     * counters.  All counters are halved after a sample period, so
+     * that old popularity fades.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+
+        final long[] table;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(long maximum) {
+            int n = (int)Math.min(Math.max(maximum, 16L), 1L << 26);
+            int cap = Integer.highestOneBit(n - 1) << 1;
+            table = new long[cap];
+            sampleSize = 10 * cap;
+        }
+
+        private int indexOf(int h, int i) {
+            long x = (h + SEEDS[i]) * SEEDS[i];
+            x += x >>> 32;
+            return (int)x & (table.length - 1);
+        }
+
+        /** Returns the estimated number of occurrences, at most 15. */
+        int frequency(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2, f = 15;
+            for (int i = 0; i < 4; ++i) {
+                int c = (int)(table[indexOf(h, i)] >>> ((start + i) << 2)) & 0xf;
+                f = Math.min(f, c);
+            }
+            return f;
+        }
+
+        /** Counts an occurrence, aging the sketch when a period ends. */
+        void increment(Object key) {
+            int h = spread(key.hashCode()), start = (h & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i) {
+                int j = indexOf(h, i), shift = (start + i) << 2;
+                long mask = 0xfL << shift;
+                if ((table[j] & mask) != mask) {
+                    table[j] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; ++i)
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                additions >>>= 1;
+            }
+        }
+
+        static int spread(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final ConcurrentLinkedQueue<Runnable> writeBuffer =
+        new ConcurrentLinkedQueue<Runnable>();
+    final ReadBuffer<K,V>[] readBuffers;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final long expireAfterWriteNanos;
+    final long expireAfterAccessNanos;
+
+    // Policy state, guarded by evictionLock
+    final AccessDeque<K,V> window = new AccessDeque<K,V>();
+    final AccessDeque<K,V> probation = new AccessDeque<K,V>();
+    final AccessDeque<K,V> protectedDeque = new AccessDeque<K,V>();
+    final WriteDeque<K,V> writeOrder = new WriteDeque<K,V>();
+    final FrequencySketch sketch;
+    final long maximum;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long windowWeight;
+    long protectedWeight;
+    volatile long weightedSize;
+
+    // Statistics
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+
+    /**
+     * Creates a cache holding at most the given number of entries, with
+     * no expiration.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if {@code maximumSize} is negative
+     */
+    public BoundedConcurrentCache(long maximumSize) {
+        this(maximumSize, null, 0L, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maximumWeight the maximum total weight of the entries, or
+     *        the maximum number of entries if {@code weigher} is null
+     * @param weigher the function computing the weight of an entry when
+     *        it is written, or null if every entry weighs 1.  Weights
+     *        must not be negative.
+     * @param expireAfterWrite the time after its last write at which an
+     *        entry expires, or zero if entries do not expire after writes
+     * @param expireAfterAccess the time after its last read or write at
+     *        which an entry expires, or zero if entries do not expire
+     *        after accesses
+     * @param unit the time unit of the expiration arguments
+     * @throws IllegalArgumentException if {@code maximumWeight} or either
+     *         expiration time is negative
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public BoundedConcurrentCache(long maximumWeight,
+                                  ToIntBiFunction<? super K, ? super V> weigher,
+                                  long expireAfterWrite,
+                                  long expireAfterAccess,
+                                  TimeUnit unit) {
+        if (maximumWeight < 0L || expireAfterWrite < 0L ||
+            expireAfterAccess < 0L)
+            throw new IllegalArgumentException();
+        if (unit == null)
+            throw new NullPointerException();
+        this.weigher = weigher;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.maximum = maximumWeight;
+        this.windowMaximum = Math.max(Math.min(maximumWeight, 1L),
+                                      maximumWeight * WINDOW_PERCENT / 100);
+        this.protectedMaximum =
+            (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(weigher == null ? maximumWeight :
+                                          Math.min(maximumWeight, 1L << 20));
+        int initial = (int)Math.min(maximumWeight, 1L << 16);
+        this.data = new ConcurrentHashMap<K,Node<K,V>>(Math.max(16, initial));
+        int n = 1;
+        while (n < ConcurrentHashMap.NCPU && n < MAX_READ_BUFFERS)
+            n <<= 1;
+        @SuppressWarnings("unchecked")
+        ReadBuffer<K,V>[] rbs = (ReadBuffer<K,V>[])new ReadBuffer<?,?>[n];
+        for (int i = 0; i < n; ++i)
+            rbs[i] = new ReadBuffer<K,V>();
+        this.readBuffers = rbs;
+    }
+
+    /* ---------------- Map operations -------------- */
+
+    /**
+     * Returns the number of entries in this cache, possibly including
+     * entries that have expired but not yet been removed.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return data.size();
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Returns the total weight of the entries in this cache, as last
+     * accounted for by the eviction policy.  Without a weigher, this is
+     * the number of entries.
+     *
+     * @return the total weight of the entries
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Returns the maximum total weight of this cache.
+     *
+     * @return the maximum total weight
+     */
+    public long getMaximumWeight() {
+        return maximum;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this cache contains no unexpired mapping for the
+     * key.  The lookup is counted as a hit or a miss.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        Node<K,V> e = data.get(key);
+        long now;
+        if (e == null || e.state != ALIVE || isExpired(e, now = ticker())) {
+            missCount.increment();
+            if (e != null)
+                scheduleDrain();
+            return null;
+        }
+        V v = e.value;
+        if (expireAfterAccessNanos > 0L)
+            e.accessTime = now;
+        hitCount.increment();
+        afterRead(e);
+        return v;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, without
+     * recording the access with the eviction policy or the statistics.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value, or {@code null} if there is no unexpired mapping
+     * @throws NullPointerException if the specified key is null
+     */
+    public V peek(Object key) {
+        Node<K,V> e = data.get(key);
+        return (e == null || e.state != ALIVE || isExpired(e, ticker())) ?
+            null : e.value;
+    }
+
+    public boolean containsKey(Object key) {
+        return peek(key) != null;
+    }
+
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        long now = ticker();
+        for (Node<K,V> e : data.values()) {
+            if (e.state == ALIVE && !isExpired(e, now) &&
+                value.equals(e.value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this cache,
+     * possibly evicting other entries.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no unexpired mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no unexpired mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /** Implementation for put and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        int w = weigh(key, value);
+        long now = ticker();
+        Node<K,V> created = null;
+        for (;;) {
+            Node<K,V> e = data.get(key);
+            if (e == null) {
+                if (created == null)
+                    created = new Node<K,V>(key, value, w, now);
+                if ((e = data.putIfAbsent(key, created)) == null) {
+                    afterWrite(new AddTask(created));
+                    return null;
+                }
+            }
+            V oldValue;
+            boolean expired;
+            synchronized (e) {
+                if (e.state != ALIVE)
+                    continue; // raced with removal; retry
+                oldValue = e.value;
+                expired = isExpired(e, now);
+                if (onlyIfAbsent && !expired) {
+                    afterRead(e);
+                    return oldValue;
+                }
+                e.value = value;
+                e.weight = w;
+                e.writeTime = now;
+                e.accessTime = now;
+            }
+            afterWrite(new UpdateTask(e));
+            return expired ? null : oldValue;
+        }
+    }
+
+    /**
+     * Removes the mapping for a key from this cache if it is present.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no unexpired mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        Node<K,V> e = data.remove(key);
+        if (e == null)
+            return null;
+        V oldValue;
+        boolean expired;
+        synchronized (e) {
+            oldValue = e.value;
+            expired = isExpired(e, ticker());
+            e.state = RETIRED;
+        }
+        afterWrite(new RemovalTask(e));
+        return expired ? null : oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Node<K,V> e = data.get(key);
+        if (e == null || value == null)
+            return false;
+        synchronized (e) {
+            if (e.state != ALIVE || isExpired(e, ticker()) ||
+                !value.equals(e.value) || !data.remove(key, e))
+                return false;
+            e.state = RETIRED;
+        }
+        afterWrite(new RemovalTask(e));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        Node<K,V> e = data.get(key);
+        if (e == null)
+            return false;
+        int w = weigh(key, newValue);
+        long now = ticker();
+        synchronized (e) {
+            if (e.state != ALIVE || isExpired(e, now) ||
+                !oldValue.equals(e.value))
+                return false;
+            e.value = newValue;
+            e.weight = w;
+            e.writeTime = now;
+            e.accessTime = now;
+        }
+        afterWrite(new UpdateTask(e));
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no unexpired mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Node<K,V> e = data.get(key);
+        if (e == null)
+            return null;
+        int w = weigh(key, value);
+        long now = ticker();
+        V oldValue;
+        synchronized (e) {
+            if (e.state != ALIVE || isExpired(e, now))
+                return null;
+            oldValue = e.value;
+            e.value = value;
+            e.weight = w;
+            e.writeTime = now;
+            e.accessTime = now;
+        }
+        afterWrite(new UpdateTask(e));
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this cache.
+     */
+    public void clear() {
+        for (K key : data.keySet())
+            remove(key);
+        cleanUp();
+    }
+
+    /**
+     * Performs any pending maintenance: applies buffered reads and
+     * writes to the eviction policy, evicts entries over the maximum
+     * and removes expired entries.  Maintenance is otherwise done as a
+     * side effect of other operations; this method is useful when the
+     * cache sees little activity.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the unexpired mappings contained in
+     * this cache.  Its iterator is weakly consistent and does not record
+     * accesses with the eviction policy.  The entries it returns write
+     * through to the cache on {@code setValue}.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySet());
+    }
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Statistics -------------- */
+
+    /**
+     * Returns the number of lookups by {@link #get} that found an
+     * unexpired entry.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups by {@link #get} that found no
+     * unexpired entry.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the ratio of hits to lookups, or 1.0 if there have been
+     * no lookups.
+     *
+     * @return the hit rate
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum(), lookups = hits + missCount.sum();
+        return (lookups == 0L) ? 1.0 : (double)hits / lookups;
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the cache within
+     * its maximum weight.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns the total weight of the entries evicted to keep the cache
+     * within its maximum weight.
+     *
+     * @return the evicted weight
+     */
+    public long getEvictionWeight() {
+        return evictionWeight.sum();
+    }
+
+    /**
+     * Returns the number of entries removed because they expired.
+     *
+     * @return the expiration count
+     */
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    /* ---------------- Buffers and maintenance -------------- */
+
+    private long ticker() {
+        return (expireAfterWriteNanos | expireAfterAccessNanos) == 0L ?
+            0L : System.nanoTime();
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null)
+            return 1;
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("negative weight: " + w);
+        return w;
+    }
+
+    final boolean isExpired(Node<K,V> e, long now) {
+        return (expireAfterWriteNanos > 0L &&
+                now - e.writeTime >= expireAfterWriteNanos) ||
+            (expireAfterAccessNanos > 0L &&
+             now - e.accessTime >= expireAfterAccessNanos);
+    }
+
+    /**
+     * Records a read in the calling thread's read buffer stripe,
+     * draining the buffers if that stripe is filling up.
+     */
+    final void afterRead(Node<K,V> e) {
+        int h = ThreadLocalRandom.getProbe();
+        if (h == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        ReadBuffer<K,V> rb = readBuffers[h & (readBuffers.length - 1)];
+        int pending = rb.offer(e);
+        if (pending < 0)
+            ThreadLocalRandom.advanceProbe(h); // move off a busy stripe
+        if (pending < 0 || pending >= READ_BUFFER_DRAIN_THRESHOLD)
+            scheduleDrain();
+    }
+
+    /**
+     * Records a write task and runs maintenance if possible.
+     */
+    final void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        scheduleDrain();
+    }
+
+    /**
+     * Runs maintenance unless another thread is already doing so.  A
+     * thread that finds more writes after releasing the lock tries
+     * again, so that no write is left unapplied.
+     */
+    final void scheduleDrain() {
+        do {
+            if (!evictionLock.tryLock())
+                return;
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    /**
+     * Drains the buffers and enforces the bounds.  Called with the
+     * eviction lock held.
+     */
+    final void maintenance() {
+        for (ReadBuffer<K,V> rb : readBuffers)
+            rb.drainTo(this);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null)
+            task.run();
+        if ((expireAfterWriteNanos | expireAfterAccessNanos) != 0L)
+            expireEntries(System.nanoTime());
+        evictEntries();
+        weightedSize = windowWeight + mainWeight;
+    }
+
+    /** The weight of the probation and protected segments. */
+    long mainWeight;
+
+    /**
+     * Adds a new node to the policy.
+     */
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.state != ALIVE || e.queue != NONE)
+                return;
+            int w = e.weight;
+            e.policyWeight = w;
+            e.queue = WINDOW;
+            window.addLast(e);
+            windowWeight += w;
+            if (expireAfterWriteNanos > 0L)
+                writeOrder.addLast(e);
+            sketch.increment(e.key);
+        }
+    }
+
+    /**
+     * Reconciles the policy with an updated node.
+     */
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.queue == NONE)
+                return; // not yet added, or already removed
+            int delta = e.weight - e.policyWeight;
+            e.policyWeight += delta;
+            if (e.queue == WINDOW)
+                windowWeight += delta;
+            else {
+                mainWeight += delta;
+                if (e.queue == PROTECTED)
+                    protectedWeight += delta;
+            }
+            if (expireAfterWriteNanos > 0L)
+                writeOrder.moveToBack(e);
+            onAccess(e);
+        }
+    }
+
+    /**
+     * Removes a retired node from the policy.
+     */
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            unlinkFromPolicy(node);
+        }
+    }
+
+    /**
+     * Updates the policy for an access to a node.  Called with the
+     * eviction lock held.
+     */
+    final void onAccess(Node<K,V> e) {
+        if (e.state != ALIVE)
+            return;
+        sketch.increment(e.key);
+        switch (e.queue) {
+        case WINDOW:
+            window.moveToBack(e);
+            break;
+        case PROBATION:
+            probation.unlink(e);
+            e.queue = PROTECTED;
+            protectedDeque.addLast(e);
+            protectedWeight += e.policyWeight;
+            while (protectedWeight > protectedMaximum) {
+                Node<K,V> d = protectedDeque.first;
+                if (d == null || d == e)
+                    break;
+                protectedDeque.unlink(d);
+                protectedWeight -= d.policyWeight;
+                d.queue = PROBATION;
+                probation.addLast(d);
+            }
+            break;
+        case PROTECTED:
+            protectedDeque.moveToBack(e);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Unlinks a node from the policy structures and marks it dead.
+     * Called with the eviction lock held.
+     */
+    final void unlinkFromPolicy(Node<K,V> e) {
+        switch (e.queue) {
+        case WINDOW:
+            window.unlink(e);
+            windowWeight -= e.policyWeight;
+            break;
+        case PROBATION:
+            probation.unlink(e);
+            mainWeight -= e.policyWeight;
+            break;
+        case PROTECTED:
+            protectedDeque.unlink(e);
+            mainWeight -= e.policyWeight;
+            protectedWeight -= e.policyWeight;
+            break;
+        default:
+            break;
+        }
+        writeOrder.unlink(e);
+        e.queue = NONE;
+        e.state = DEAD;
+    }
+
+    /**
+     * Removes a node chosen by the policy from the map, if it is still
+     * mapped.  Returns whether it was.
+     */
+    final boolean evict(Node<K,V> e, boolean expired) {
+        boolean removed;
+        synchronized (e) {
+            removed = e.state == ALIVE && data.remove(e.key, e);
+            if (removed)
+                e.state = RETIRED;
+        }
+        int w = e.policyWeight;
+        unlinkFromPolicy(e);
+        if (removed) {
+            if (expired)
+                expirationCount.increment();
+            else {
+                evictionCount.increment();
+                evictionWeight.add(w);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes expired entries, which are found at the heads of the
+     * deques.
+     */
+    final void expireEntries(long now) {
+        if (expireAfterWriteNanos > 0L) {
+            Node<K,V> e;
+            while ((e = writeOrder.first) != null && isExpired(e, now))
+                evict(e, true);
+        }
+        if (expireAfterAccessNanos > 0L) {
+            expireFrom(window, now);
+            expireFrom(probation, now);
+            expireFrom(protectedDeque, now);
+        }
+    }
+
+    private void expireFrom(AccessDeque<K,V> q, long now) {
+        Node<K,V> e;
+        while ((e = q.first) != null && isExpired(e, now))
+            evict(e, true);
+    }
+
+    /**
+     * Moves entries past the window's share into the main space,
+     * admitting each only if it is more popular than the main space's
+     * eviction victim when the main space is full.
+     */
+    final void evictEntries() {
+        long mainMaximum = maximum - windowMaximum;
+        while (windowWeight > windowMaximum) {
+            Node<K,V> candidate = window.first;
+            if (candidate == null)
+                break;
+            window.unlink(candidate);
+            windowWeight -= candidate.policyWeight;
+            int w = candidate.policyWeight;
+            while (mainWeight + w > mainMaximum) {
+                Node<K,V> victim = (probation.first != null) ?
+                    probation.first : protectedDeque.first;
+                if (victim == null ||
+                    sketch.frequency(candidate.key) <=
+                    sketch.frequency(victim.key)) {
+                    candidate.queue = NONE;
+                    evict(candidate, false);
+                    candidate = null;
+                    break;
+                }
+                evict(victim, false);
+            }
+            if (candidate != null) {
+                candidate.queue = PROBATION;
+                probation.addLast(candidate);
+                mainWeight += w;
+            }
+        }
+        // a shrunken window cannot make room for oversized entries
+        while (windowWeight + mainWeight > maximum) {
+            Node<K,V> victim = (probation.first != null) ? probation.first :
+                (protectedDeque.first != null) ? protectedDeque.first :
+                window.first;
+            if (victim == null)
+                break;
+            evict(victim, false);
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return BoundedConcurrentCache.this.size();
+        }
+        public void clear() {
+            BoundedConcurrentCache.this.clear();
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey(), v;
+            return k != null && (v = peek(k)) != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            return k != null && BoundedConcurrentCache.this.remove(k, e.getValue());
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        final Iterator<Node<K,V>> it = data.values().iterator();
+        final long now = ticker();
+        Node<K,V> next;
+        K lastKey;
+
+        public boolean hasNext() {
+            while (next == null && it.hasNext()) {
+                Node<K,V> e = it.next();
+                if (e.state == ALIVE && !isExpired(e, now))
+                    next = e;
+            }
+            return next != null;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Node<K,V> e = next;
+            next = null;
+            lastKey = e.key;
+            return new WriteThroughEntry(e.key, e.value);
+        }
+
+        public void remove() {
+            if (lastKey == null)
+                throw new IllegalStateException();
+            BoundedConcurrentCache.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -7227212924312519405L;
+        WriteThroughEntry(K key, V value) { super(key, value); }
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
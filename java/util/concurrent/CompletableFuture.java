@@ -34,6 +34,9 @@
  */
 
 package java.util.concurrent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.function.Consumer;
 import java.util.function.BiConsumer;
@@ -535,7 +538,7 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     }
 
     /** Pushes the given completion (if it exists) unless done. */
-    final void push(UniCompletion<?,?> c) {
+    final void push(Completion c) {
         if (c != null) {
             while (result == null && !tryPushStack(c))
                 lazySetNext(c, null); // clear on failure
@@ -1567,6 +1570,155 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return d;
     }
 
+    /* ------------- Batch Completions -------------- */
+
+    /**
+     * Shared state for the batch combinators (allOfList, anySuccessOf,
+     * someOf).  Rather than building a tree of relays, each source
+     * gets a single BatchCompletion that reports to this object, and
+     * successful results are written directly into a preallocated
+     * array.  Field remaining counts successes still needed, and
+     * tolerance counts failures that may still be ignored; the
+     * dependent is completed by whichever source causes either to
+     * reach zero.  For unordered batches, field slot hands out
+     * positions in completion order.
+     */
+    static final class Batch {
+        final CompletableFuture<Object> dep; // the dependent to complete
+        final Object[] results;  // null if completing with a single value
+        final boolean indexed;   // true if results are in source order
+        volatile int remaining;  // number of successes still needed
+        volatile int tolerance;  // number of failures still tolerated
+        volatile int slot;       // next unordered result index
+
+        Batch(CompletableFuture<Object> dep, int needed, int tolerance,
+              boolean single, boolean indexed) {
+            this.dep = dep;
+            this.results = single ? null : new Object[needed];
+            this.indexed = indexed;
+            this.remaining = needed;
+            this.tolerance = tolerance;
+        }
+
+        /**
+         * Records result r of the source with the given index,
+         * returning true if this caused the dependent to complete.
+         */
+        final boolean accept(int index, Object r) {
+            CompletableFuture<Object> d = dep;
+            Object[] rs; Throwable x; int i;
+            if (d.result != null)
+                return false;
+            if (r instanceof AltResult && (x = ((AltResult)r).ex) != null)
+                return (UNSAFE.getAndAddInt(this, TOLERANCE, -1) <= 0 &&
+                        d.completeThrowable(x, r));
+            Object v = (r == NIL) ? null : r;
+            if ((rs = results) == null)
+                return d.completeValue(v);
+            if ((i = indexed ? index : UNSAFE.getAndAddInt(this, SLOT, 1))
+                >= rs.length)
+                return false;
+            rs[i] = v;
+            return (UNSAFE.getAndAddInt(this, REMAINING, -1) == 1 &&
+                    d.completeValue(Arrays.asList(rs)));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static final class BatchCompletion extends Completion {
+        CompletableFuture<?> src;
+        Batch batch;
+        final int index;
+        BatchCompletion(CompletableFuture<?> src, Batch batch, int index) {
+            this.src = src; this.batch = batch; this.index = index;
+        }
+        final CompletableFuture<?> tryFire(int mode) {
+            CompletableFuture<?> a; Batch b; Object r;
+            if ((b = batch) == null || (a = src) == null ||
+                (r = a.result) == null ||
+                !compareAndSetForkJoinTaskTag((short)0, (short)1))
+                return null;
+            src = null; batch = null;
+            if (!b.accept(index, r))
+                return null;
+            CompletableFuture<Object> d = b.dep;
+            if (mode < 0)
+                return d;
+            d.postComplete();
+            return null;
+        }
+        final boolean isLive() {
+            Batch b;
+            return (b = batch) != null && b.dep.result == null;
+        }
+    }
+
+    /** Cancels the sources that are still incomplete when dep completes. */
+    @SuppressWarnings("serial")
+    static final class BatchCanceller extends Completion {
+        CompletableFuture<?> dep;
+        CompletableFuture<?>[] srcs;
+        BatchCanceller(CompletableFuture<?> dep, CompletableFuture<?>[] srcs) {
+            this.dep = dep; this.srcs = srcs;
+        }
+        final CompletableFuture<?> tryFire(int mode) {
+            CompletableFuture<?> d; CompletableFuture<?>[] as;
+            if ((d = dep) == null || d.result == null ||
+                (as = srcs) == null ||
+                !compareAndSetForkJoinTaskTag((short)0, (short)1))
+                return null;
+            dep = null; srcs = null;
+            for (CompletableFuture<?> a : as) {
+                if (a.result == null)
+                    a.cancel(false);
+            }
+            return null;
+        }
+        final boolean isLive() { return dep != null; }
+    }
+
+    /**
+     * Returns a new CompletableFuture completed when needed sources
+     * complete normally, or exceptionally when more than
+     * (cfs.length - needed) complete exceptionally.
+     */
+    static CompletableFuture<Object> batch(CompletableFuture<?>[] cfs,
+                                           int needed, boolean single,
+                                           boolean indexed,
+                                           boolean cancelRemaining) {
+        int n = cfs.length;
+        for (CompletableFuture<?> a : cfs) {
+            if (a == null)
+                throw new NullPointerException();
+        }
+        if (needed < 0 || needed > n)
+            throw new IllegalArgumentException();
+        CompletableFuture<Object> d = new CompletableFuture<Object>();
+        if (needed == 0) {
+            if (!single)
+                d.result = Collections.emptyList();
+        }
+        else {
+            Batch b = new Batch(d, needed, n - needed, single, indexed);
+            for (int i = 0; i < n && d.result == null; ++i) {
+                CompletableFuture<?> a = cfs[i]; Object r;
+                if ((r = a.result) != null)
+                    b.accept(i, r);
+                else {
+                    BatchCompletion c = new BatchCompletion(a, b, i);
+                    a.push(c);
+                    c.tryFire(SYNC);
+                }
+            }
+        }
+        if (cancelRemaining && n > 0) {
+            BatchCanceller c = new BatchCanceller(d, cfs.clone());
+            d.push(c);
+            c.tryFire(SYNC);
+        }
+        return d;
+    }
+
     /* ------------- Zero-input Async forms -------------- */
 
     @SuppressWarnings("serial")
@@ -2244,6 +2396,184 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
         return orTree(cfs, 0, cfs.length - 1);
     }
 
+    /**
+     * Returns a new CompletableFuture that is completed with a list of
+     * the results of the given CompletableFutures, in the order given,
+     * when all of them complete normally.  If any of the given
+     * CompletableFutures completes exceptionally, then the returned
+     * CompletableFuture does so as soon as it is observed, with a
+     * CompletionException holding this exception as its cause,
+     * without waiting for the others to complete.  If no
+     * CompletableFutures are provided, returns a CompletableFuture
+     * completed with an empty list.
+     *
+     * <p>Unlike {@link #allOf}, this method registers a single
+     * dependent action with each of the given CompletableFutures, and
+     * their results are collected into a list allocated in advance,
+     * so it is better suited to large numbers of CompletableFutures.
+     * The list is fixed-size, as by {@link Arrays#asList}.
+     *
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * results of the given CompletableFutures when all complete
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> CompletableFuture<List<T>> allOfList(
+        CompletableFuture<? extends T>... cfs) {
+        return allOfList(false, cfs);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed in the same
+     * way as {@link #allOfList(CompletableFuture[])}, and that, if
+     * {@code cancelRemaining} is {@code true}, cancels those of the
+     * given CompletableFutures that are not yet complete when it
+     * completes.  This includes the case in which the returned
+     * CompletableFuture is itself cancelled.
+     *
+     * @param cancelRemaining {@code true} if incomplete CompletableFutures
+     * should be cancelled when the returned CompletableFuture completes
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * results of the given CompletableFutures when all complete
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings({"unchecked", "varargs"})
+    public static <T> CompletableFuture<List<T>> allOfList(
+        boolean cancelRemaining, CompletableFuture<? extends T>... cfs) {
+        return (CompletableFuture<List<T>>)(CompletableFuture<?>)
+            batch(cfs, cfs.length, false, true, cancelRemaining);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed with the
+     * result of the first of the given CompletableFutures to complete
+     * normally.  Exceptional completions are ignored unless all of
+     * the given CompletableFutures complete exceptionally, in which
+     * case the returned CompletableFuture also does so, with a
+     * CompletionException holding the last such exception as its
+     * cause.  If no CompletableFutures are provided, returns an
+     * incomplete CompletableFuture.
+     *
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * result of the first of the given CompletableFutures to complete
+     * normally
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> CompletableFuture<T> anySuccessOf(
+        CompletableFuture<? extends T>... cfs) {
+        return anySuccessOf(false, cfs);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed in the same
+     * way as {@link #anySuccessOf(CompletableFuture[])}, and that, if
+     * {@code cancelRemaining} is {@code true}, cancels those of the
+     * given CompletableFutures that are not yet complete when it
+     * completes.  This includes the case in which the returned
+     * CompletableFuture is itself cancelled.
+     *
+     * @param cancelRemaining {@code true} if incomplete CompletableFutures
+     * should be cancelled when the returned CompletableFuture completes
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * result of the first of the given CompletableFutures to complete
+     * normally
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings({"unchecked", "varargs"})
+    public static <T> CompletableFuture<T> anySuccessOf(
+        boolean cancelRemaining, CompletableFuture<? extends T>... cfs) {
+        return (CompletableFuture<T>)
+            batch(cfs, (cfs.length == 0) ? 0 : 1, true, false,
+                  cancelRemaining);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed with a list of
+     * the results of the first {@code n} of the given
+     * CompletableFutures to complete normally, in the order in which
+     * they completed.  Exceptional completions are ignored unless so
+     * many of the given CompletableFutures complete exceptionally that
+     * {@code n} normal completions are no longer possible, in which
+     * case the returned CompletableFuture completes exceptionally as
+     * soon as this is observed, with a CompletionException holding
+     * the last such exception as its cause.  If {@code n} is zero,
+     * returns a CompletableFuture completed with an empty list.
+     *
+     * <p>This method may be used to await a quorum, as in {@code
+     * CompletableFuture.someOf(replicas.length / 2 + 1, replicas)}.
+     * The list is fixed-size, as by {@link Arrays#asList}.
+     *
+     * @param n the number of normal completions to await
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * results of the first {@code n} of the given CompletableFutures
+     * to complete normally
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @throws IllegalArgumentException if {@code n} is negative or
+     * greater than the number of CompletableFutures
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> CompletableFuture<List<T>> someOf(
+        int n, CompletableFuture<? extends T>... cfs) {
+        return someOf(n, false, cfs);
+    }
+
+    /**
+     * Returns a new CompletableFuture that is completed in the same
+     * way as {@link #someOf(int, CompletableFuture[])}, and that, if
+     * {@code cancelRemaining} is {@code true}, cancels those of the
+     * given CompletableFutures that are not yet complete when it
+     * completes.  This includes the case in which the returned
+     * CompletableFuture is itself cancelled.
+     *
+     * @param n the number of normal completions to await
+     * @param cancelRemaining {@code true} if incomplete CompletableFutures
+     * should be cancelled when the returned CompletableFuture completes
+     * @param cfs the CompletableFutures
+     * @param <T> the type of the results
+     * @return a new CompletableFuture that is completed with the
+     * results of the first {@code n} of the given CompletableFutures
+     * to complete normally
+     * @throws NullPointerException if the array or any of its elements are
+     * {@code null}
+     * @throws IllegalArgumentException if {@code n} is negative or
+     * greater than the number of CompletableFutures
+     * @since 1.8
+     */
+    @SafeVarargs
+    @SuppressWarnings({"unchecked", "varargs"})
+    public static <T> CompletableFuture<List<T>> someOf(
+        int n, boolean cancelRemaining,
+        CompletableFuture<? extends T>... cfs) {
+        return (CompletableFuture<List<T>>)(CompletableFuture<?>)
+            batch(cfs, n, false, false, cancelRemaining);
+    }
+
     /* ------------- Control and status methods -------------- */
 
     /**
@@ -2369,6 +2699,9 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
     private static final long RESULT;
     private static final long STACK;
     private static final long NEXT;
+    private static final long REMAINING;
+    private static final long TOLERANCE;
+    private static final long SLOT;
     static {
         try {
             final sun.misc.Unsafe u;
@@ -2378,6 +2711,12 @@ public class CompletableFuture<T> implements Future<T>, CompletionStage<T> {
             STACK = u.objectFieldOffset(k.getDeclaredField("stack"));
             NEXT = u.objectFieldOffset
                 (Completion.class.getDeclaredField("next"));
+            Class<?> bk = Batch.class;
+            REMAINING = u.objectFieldOffset
+                (bk.getDeclaredField("remaining"));
+            TOLERANCE = u.objectFieldOffset
+                (bk.getDeclaredField("tolerance"));
+            SLOT = u.objectFieldOffset(bk.getDeclaredField("slot"));
         } catch (Exception x) {
             throw new Error(x);
         }
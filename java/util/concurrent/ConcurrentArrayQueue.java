@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Skeletal implementation of the bounded lock-free array queues
+ * {@link MpmcArrayBlockingQueue}, {@link MpscArrayBlockingQueue} and
+ * {@link SpscArrayBlockingQueue}, which differ only in how producers
+ * and consumers claim slots.  This class provides the storage, the
+ * blocking methods and iteration.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+abstract class ConcurrentArrayQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Elements live in a circular array whose length is a power of
+     * two.  The head and tail fields are unbounded positions, the
+     * number of elements ever taken and ever inserted; the slot of a
+     * position is its low bits.  Each is written by consumers or
+     * producers respectively, and they are padded apart so that the
+     * two sides do not share a cache line.
+     *
+     * The multi-producer and multi-consumer variants also keep a
+     * sequence number per slot, as in Vyukov's bounded MPMC queue:
+     * slot i holds sequence p when free for the producer of position
+     * p, and p + 1 once that producer has stored its element, until
+     * the consumer of position p frees it for position p + capacity.
+     * A producer claims position p by CASing tail from p only after
+     * finding sequence p, and a consumer claims it by CASing head
+     * only after finding p + 1, so claims never wait for each other
+     * and a slow thread delays only the slot it claimed.  The
+     * single-consumer and single-producer sides need no CAS, and the
+     * single-producer single-consumer queue needs no sequences, since
+     * a null slot suffices to tell free from full.  Sequenced queues
+     * have at least two slots: with one, the sequence p + 1 marking
+     * the slot full for position p would also mark it free for
+     * position p + 1.
+     *
+     * Blocking is layered on top of the nonblocking methods.  A
+     * thread that finds the queue full or empty spins briefly, then
+     * registers in the volatile fullWaiters or emptyWaiters count
+     * while holding waitLock, rechecks, and awaits the corresponding
+     * condition.  Threads that free or fill a slot publish it with a
+     * volatile write before reading the count, and lock to signal
+     * only if it is nonzero.  Since both sides write before they read,
+     * at least one of them sees the other, so no wakeup is missed,
+     * and the lock is never touched while no thread is blocked.
+     *
+     * Iterators traverse a snapshot of the elements between head and
+     * tail, and do not support removal.
+     */
+
+    /** The number of times to retry before blocking */
+    static final int SPINS =
+        (Runtime.getRuntime().availableProcessors() > 1) ? 1 << 6 : 0;
+
+    /** The queued items */
+    final Object[] items;
+
+    /** Slot sequence numbers, or null if not used */
+    final long[] sequences;
+
+    /** items.length - 1 */
+    final int mask;
+
+    /** The position of the next element to take */
+    @sun.misc.Contended volatile long head;
+
+    /** The position of the next element to insert */
+    @sun.misc.Contended volatile long tail;
+
+    /** Guards the conditions below; never held by nonblocking methods */
+    final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final Condition notFull = waitLock.newCondition();
+
+    /** The numbers of threads blocked or about to block */
+    private volatile int emptyWaiters;
+    private volatile int fullWaiters;
+
+    /**
+     * Creates a queue with room for at least the given number of
+     * elements, and for at least two if sequenced.
+     *
+     * @param capacity the minimum capacity
+     * @param sequenced whether to allocate slot sequence numbers
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         exceeds the largest power of two array length
+     */
+    ConcurrentArrayQueue(int capacity, boolean sequenced) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = (capacity == 1) ? (sequenced ? 2 : 1) :
+            Integer.highestOneBit(capacity - 1) << 1;
+        items = new Object[n];
+        mask = n - 1;
+        if (!sequenced)
+            sequences = null;
+        else {
+            long[] s = new long[n];
+            for (int i = 0; i < n; ++i)
+                s[i] = i;
+            sequences = s;
+        }
+    }
+
+    /**
+     * Transfers at most {@code max} elements to the given collection,
+     * returning how many were transferred.
+     */
+    abstract int drain(Collection<? super E> c, int max);
+
+    // Slot access
+
+    static final long itemOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    static final long sequenceOffset(int i) {
+        return ((long)i << LSHIFT) + LBASE;
+    }
+
+    /**
+     * Inserts the given element if the queue is not full, allowing
+     * concurrent producers.  Requires sequences.
+     */
+    final boolean multiProducerOffer(Object e) {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int mask = this.mask;
+        for (;;) {
+            long t = tail;
+            int i = (int)t & mask;
+            long d = U.getLongVolatile(seqs, sequenceOffset(i)) - t;
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, TAIL, t, t + 1L)) {
+                    U.putObject(items, itemOffset(i), e);
+                    U.putLongVolatile(seqs, sequenceOffset(i), t + 1L);
+                    signalNotEmpty();
+                    return true;
+                }
+            }
+            else if (d < 0L && t == tail)
+                return false;           // slot not yet freed: full
+        }
+    }
+
+    /**
+     * Wakes up a consumer if any is waiting.  Call after a volatile
+     * write publishing an element.
+     */
+    final void signalNotEmpty() {
+        if (emptyWaiters != 0) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wakes up producers if any is waiting, one per freed slot.  Call
+     * after a volatile write freeing the slots.
+     */
+    final void signalNotFull(int freed) {
+        if (fullWaiters != 0) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lock();
+            try {
+                if (freed == 1)
+                    notFull.signal();
+                else
+                    notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Blocking methods
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        for (int spins = SPINS; !offer(e); ) {
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++fullWaiters;
+                try {
+                    if (offer(e))
+                        return;
+                    notFull.await();
+                } finally {
+                    --fullWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        long nanos = unit.toNanos(timeout);
+        for (int spins = SPINS; !offer(e); ) {
+            if (nanos <= 0L)
+                return false;
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++fullWaiters;
+                try {
+                    if (offer(e))
+                        return true;
+                    nanos = notFull.awaitNanos(nanos);
+                } finally {
+                    --fullWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        for (int spins = SPINS; (x = poll()) == null; ) {
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++emptyWaiters;
+                try {
+                    if ((x = poll()) != null)
+                        break;
+                    notEmpty.await();
+                } finally {
+                    --emptyWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E x;
+        for (int spins = SPINS; (x = poll()) == null; ) {
+            if (nanos <= 0L)
+                return null;
+            if (spins > 0) {
+                --spins;
+                continue;
+            }
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++emptyWaiters;
+                try {
+                    if ((x = poll()) != null)
+                        break;
+                    nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    --emptyWaiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return x;
+    }
+
+    // Size and capacity
+
+    /**
+     * Returns the number of elements in this queue.  As producers and
+     * consumers may be in the midst of operations, the result is only
+     * an estimate while the queue is in use.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        for (;;) {
+            long h = head, t = tail;
+            if (h == head) {
+                long n = t - h;
+                return (n <= 0L) ? 0 : (n > items.length) ?
+                    items.length : (int)n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Returns the capacity of this queue: the requested capacity
+     * rounded up to a power of two, and to at least two for the
+     * queues that allow concurrent producers.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints)
+     * accept without blocking.  This is always equal to the capacity
+     * of this queue less its current {@code size}.
+     */
+    public int remainingCapacity() {
+        return items.length - size();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        return drain(c, maxElements);
+    }
+
+    // Iteration
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this
+     * queue, in proper sequence.  The iterator does not reflect later
+     * changes to the queue, and does not support removal, so neither
+     * does {@link #remove(Object)}.  For the same reason, these queues
+     * cannot serve as the work queue of a {@link ThreadPoolExecutor},
+     * whose {@code remove} and {@code purge} methods, and whose
+     * {@code execute} method while shutting down, remove queued
+     * tasks.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        final Object[] items = this.items;
+        final int mask = this.mask;
+        final ArrayList<Object> snapshot = new ArrayList<Object>();
+        long h = head, t = tail;
+        if (t - h > items.length)
+            h = t - items.length;
+        for (long p = h; p < t; ++p) {
+            Object x = U.getObjectVolatile(items, itemOffset((int)p & mask));
+            if (x != null)
+                snapshot.add(x);
+        }
+        return new Iterator<E>() {
+            int cursor;
+            public boolean hasNext() {
+                return cursor < snapshot.size();
+            }
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= snapshot.size())
+                    throw new NoSuchElementException();
+                return (E) snapshot.get(cursor++);
+            }
+        };
+    }
+
+    // Unsafe mechanics
+    static final sun.misc.Unsafe U;
+    static final long HEAD;
+    static final long TAIL;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    private static final long LBASE;
+    private static final int LSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentArrayQueue.class;
+            HEAD = U.objectFieldOffset(k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset(k.getDeclaredField("tail"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            LBASE = U.arrayBaseOffset(long[].class);
+            scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            LSHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
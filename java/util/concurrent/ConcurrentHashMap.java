@@ -1079,7 +1079,7 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      * @param m mappings to be stored in this map
      */
     public void putAll(Map<? extends K, ? extends V> m) {
-        tryPresize(m.size());
+        tryPresize(presizeFor(m.size()));
         for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
             putVal(e.getKey(), e.getValue(), false);
     }
@@ -2108,6 +2108,73 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (n < 0L) ? 0L : n; // ignore transient negative values
     }
 
+    /**
+     * Maps each element of {@code keys} to the element of {@code values}
+     * at the same index, as if by calling {@link #put put} for each pair
+     * in order.  The table is grown once, for the resulting number of
+     * mappings if all keys are new, before any pair is inserted, so
+     * loading a large snapshot does not trigger repeated resizes.
+     *
+     * @param keys the keys to be stored in this map
+     * @param values the values to be associated with the keys
+     * @throws NullPointerException if either array or any of their
+     *         elements is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.8
+     */
+    public void putAll(K[] keys, V[] values) {
+        putAll(Long.MAX_VALUE, keys, values);
+    }
+
+    /**
+     * Merges each element of {@code keys} and the element of {@code
+     * values} at the same index into this map, with the same results
+     * as calling {@link #merge merge} for each pair in order.  The
+     * table is grown once before any pair is inserted.
+     *
+     * <p>When {@code keys} is sorted, or otherwise holds equal keys next
+     * to each other, each run of equal keys is folded into the map by
+     * a single atomic update rather than one per element.
+     *
+     * @param keys the keys to be merged into this map
+     * @param values the values to be merged with the keys
+     * @param remappingFunction the function to recompute a value if
+     *        present
+     * @throws NullPointerException if either array or any of their
+     *         elements, or the remapping function, is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.8
+     */
+    public void mergeAll(K[] keys, final V[] values,
+                         final BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        int s = keys.length;
+        if (s != values.length)
+            throw new IllegalArgumentException();
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        tryPresize(presizeFor(s));
+        for (int i = 0, j; i < s; i = j) {
+            K key = keys[i];
+            if (key == null)
+                throw new NullPointerException();
+            for (j = i + 1; j < s && key.equals(keys[j]); ++j)
+                ;
+            final int lo = i, hi = j;
+            compute(key, new BiFunction<K,V,V>() {
+                    public V apply(K k, V v) {
+                        for (int x = lo; x < hi; ++x) {
+                            V value = values[x];
+                            if (value == null)
+                                throw new NullPointerException();
+                            v = (v == null) ? value :
+                                remappingFunction.apply(v, value);
+                        }
+                        return v;
+                    }
+                });
+        }
+    }
+
     /**
      * Creates a new {@link Set} backed by a ConcurrentHashMap
      * from the given type to {@code Boolean.TRUE}.
@@ -2314,6 +2381,15 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return table;
     }
 
+    /**
+     * Returns the size to presize for before adding the given number
+     * of mappings, assuming they are mostly new.
+     */
+    private final int presizeFor(int added) {
+        long n = sumCount();
+        return (int)Math.min(((n < 0L) ? 0L : n) + added, Integer.MAX_VALUE);
+    }
+
     /**
      * Tries to presize table to accommodate the given number of elements.
      *
@@ -3641,6 +3717,41 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return (b <= 0L || (n /= b) >= sp) ? sp : (int)n;
     }
 
+    /**
+     * Maps each element of {@code keys} to the element of {@code values}
+     * at the same index.  The table is grown once, using the same
+     * cooperative transfer as ordinary resizing, and the pairs are
+     * then inserted by parallel tasks, each covering a range of the
+     * arrays.  If a key occurs more than once, which of its values
+     * remains mapped is unspecified unless the operation runs
+     * sequentially.
+     *
+     * @param parallelismThreshold the (estimated) number of elements
+     * needed for this operation to be executed in parallel
+     * @param keys the keys to be stored in this map
+     * @param values the values to be associated with the keys
+     * @throws NullPointerException if either array or any of their
+     *         elements is null
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.8
+     */
+    public void putAll(long parallelismThreshold, K[] keys, V[] values) {
+        int s = keys.length;
+        if (s != values.length)
+            throw new IllegalArgumentException();
+        if (s == 0)
+            return;
+        tryPresize(presizeFor(s));
+        int b = 0;
+        if (parallelismThreshold != Long.MAX_VALUE && s > 1 &&
+            s >= parallelismThreshold) {
+            int sp = ForkJoinPool.getCommonPoolParallelism() << 2;
+            long n = s / Math.max(parallelismThreshold, 1L);
+            b = (parallelismThreshold <= 0L || n >= sp) ? sp : (int)n;
+        }
+        new PutAllTask<K,V>(null, b, 0, s, this, keys, values).invoke();
+    }
+
     /**
      * Performs the given action for each (key, value).
      *
@@ -6274,6 +6385,36 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Inserts a range of parallel key and value arrays, splitting by
+     * halves like the bulk tasks until the batch is exhausted.
+     */
+    @SuppressWarnings("serial")
+    static final class PutAllTask<K,V> extends CountedCompleter<Void> {
+        final ConcurrentHashMap<K,V> map;
+        final K[] keys;
+        final V[] values;
+        int batch, lo, hi;
+        PutAllTask(CountedCompleter<?> p, int b, int lo, int hi,
+                   ConcurrentHashMap<K,V> map, K[] keys, V[] values) {
+            super(p);
+            this.batch = b; this.lo = lo; this.hi = hi;
+            this.map = map; this.keys = keys; this.values = values;
+        }
+        public final void compute() {
+            final ConcurrentHashMap<K,V> m = map;
+            final K[] ks = keys; final V[] vs = values;
+            for (int l = lo, h; batch > 0 && (h = (hi + l) >>> 1) > l;) {
+                addToPendingCount(1);
+                new PutAllTask<K,V>(this, batch >>>= 1, h, hi, m, ks, vs).fork();
+                hi = h;
+            }
+            for (int i = lo, f = hi; i < f; ++i)
+                m.putVal(ks[i], vs[i], false);
+            propagateCompletion();
+        }
+    }
+
     // Unsafe mechanics
     private static final sun.misc.Unsafe U;
     private static final long SIZECTL;
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.lang.management.ExecutorMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Task statistics of a {@link ThreadPoolExecutor} or a {@link
+ * ForkJoinPool}, recorded while statistics are enabled for the
+ * executor (see {@link ThreadPoolExecutor#setStatisticsEnabled} and
+ * {@link ForkJoinPool#setStatisticsEnabled}).  The time each task
+ * waits in the queue before a worker starts it, and the time it takes
+ * to run, are recorded in {@link LatencyHistogram}s by the worker
+ * threads, together with counts of completed and rejected tasks.
+ * Since tasks carry no submission time, the queue wait of a task a
+ * {@code ThreadPoolExecutor} takes from its queue is an estimate, by
+ * Little's law, from the number of tasks still queued and the recent
+ * rate at which tasks are taken.
+ *
+ * <p>An {@code ExecutorStatistics} is an {@link ExecutorMXBean}, and
+ * may be registered with the platform MBean server:
+ * <pre> {@code
+ * ThreadPoolExecutor pool = ...;
+ * pool.setStatisticsEnabled(true);
+ * ExecutorStatistics stats = pool.getStatistics();
+ * ManagementFactory.getPlatformMBeanServer()
+ *     .registerMBean(stats, stats.getObjectName());}</pre>
+ *
+ * <p>A {@code ForkJoinPool} does not record queue wait times, as its
+ * tasks carry no enqueue time; its queue wait histogram stays empty.
+ *
+ * @since 1.8
+ */
+public final class ExecutorStatistics implements ExecutorMXBean {
+    private final String name;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+
+    /** The nanoTime at which a task was last taken from the queue */
+    private final AtomicLong lastDequeue = new AtomicLong();
+
+    /**
+     * Moving average of the nanoseconds between successive takes from
+     * the queue, updated racily; 0 until two tasks have been taken.
+     */
+    private volatile long dequeueInterval;
+
+    ExecutorStatistics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records the estimated time a task taken from the queue at the
+     * given nanoTime waited there.  By Little's law, the tasks still
+     * queued arrived while it waited, so its wait is estimated as
+     * their number times the average interval between takes.
+     */
+    void taskDequeued(int queued, long nanos) {
+        long last = lastDequeue.getAndSet(nanos);
+        if (last != 0L) {
+            long gap = Math.max(nanos - last, 0L), avg = dequeueInterval;
+            avg = (avg == 0L) ? gap : avg + ((gap - avg) >> 3);
+            dequeueInterval = avg;
+            queueWait.record(queued * avg);
+        }
+    }
+
+    /** Records the time a task waited in the queue. */
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /** Records the time a task took to run. */
+    void recordExecution(long nanos) {
+        execution.record(nanos);
+    }
+
+    /** Records the rejection of a task. */
+    void recordRejection() {
+        rejected.increment();
+    }
+
+    /**
+     * Returns the histogram of the times, in nanoseconds, tasks waited
+     * in the queue before they started.
+     *
+     * @return the queue wait time histogram
+     */
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    /**
+     * Returns the histogram of the times, in nanoseconds, tasks took to
+     * run.
+     *
+     * @return the execution time histogram
+     */
+    public LatencyHistogram getExecutionTimeHistogram() {
+        return execution;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCompletedTaskCount() {
+        return execution.getCount();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejected.sum();
+    }
+
+    public double getQueueWaitTimeMean() {
+        return queueWait.getMean();
+    }
+
+    public long getQueueWaitTimeMedian() {
+        return queueWait.getValueAtPercentile(50.0);
+    }
+
+    public long getQueueWaitTime99thPercentile() {
+        return queueWait.getValueAtPercentile(99.0);
+    }
+
+    public long getQueueWaitTimeMax() {
+        return queueWait.getMaximum();
+    }
+
+    public double getExecutionTimeMean() {
+        return execution.getMean();
+    }
+
+    public long getExecutionTimeMedian() {
+        return execution.getValueAtPercentile(50.0);
+    }
+
+    public long getExecutionTime99thPercentile() {
+        return execution.getValueAtPercentile(99.0);
+    }
+
+    public long getExecutionTimeMax() {
+        return execution.getMaximum();
+    }
+
+    public void reset() {
+        queueWait.reset();
+        execution.reset();
+        rejected.reset();
+    }
+
+    /**
+     * Returns the object name under which these statistics may be
+     * registered: {@code java.util.concurrent:type=Executor,name=}
+     * followed by the {@linkplain #getName name} of the executor.
+     *
+     * @return the object name
+     * @throws IllegalArgumentException if the name of the executor is
+     *         not valid in an object name
+     */
+    public ObjectName getObjectName() {
+        try {
+            return ObjectName.getInstance(
+                "java.util.concurrent:type=Executor,name=" + name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Returns a string identifying these statistics, with a summary of
+     * the queue wait and execution time histograms.
+     *
+     * @return a string identifying these statistics
+     */
+    public String toString() {
+        return super.toString() + "[" + name +
+            ", rejected = " + rejected.sum() +
+            ", queue wait = " + queueWait +
+            ", execution = " + execution + "]";
+    }
+}
@@ -812,6 +812,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         volatile Thread parker;    // == owner during call to park; else null
         volatile ForkJoinTask<?> currentJoin;  // task being joined in awaitJoin
         volatile ForkJoinTask<?> currentSteal; // mainly used by helpStealer
+        ForkJoinScope scope;       // scope of task being run by owner
 
         WorkQueue(ForkJoinPool pool, ForkJoinWorkerThread owner) {
             this.pool = pool;
@@ -1053,7 +1054,14 @@ public class ForkJoinPool extends AbstractExecutorService {
         final void runTask(ForkJoinTask<?> task) {
             if (task != null) {
                 scanState &= ~SCANNING; // mark as busy
-                (currentSteal = task).doExec();
+                ForkJoinPool p; ExecutorStatistics stats;
+                if ((p = pool) == null || (stats = p.statistics) == null)
+                    (currentSteal = task).doExec();
+                else {
+                    long start = System.nanoTime();
+                    (currentSteal = task).doExec();
+                    stats.recordExecution(System.nanoTime() - start);
+                }
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
@@ -1092,19 +1100,21 @@ public class ForkJoinPool extends AbstractExecutorService {
                         long j = ((--s & m) << ASHIFT) + ABASE;
                         if ((t = (ForkJoinTask<?>)U.getObject(a, j)) == null)
                             return s + 1 == top;     // shorter than expected
-                        else if (t == task) {
+                        else if (t == task ||        // or forked in a scope
+                                 (t instanceof ForkJoinScope.ScopedTask &&
+                                  ((ForkJoinScope.ScopedTask)t).task == task)) {
                             boolean removed = false;
                             if (s + 1 == top) {      // pop
-                                if (U.compareAndSwapObject(a, j, task, null)) {
+                                if (U.compareAndSwapObject(a, j, t, null)) {
                                     U.putOrderedInt(this, QTOP, s);
                                     removed = true;
                                 }
                             }
                             else if (base == b)      // replace with proxy
                                 removed = U.compareAndSwapObject(
-                                    a, j, task, new EmptyTask());
+                                    a, j, t, new EmptyTask());
                             if (removed)
-                                task.doExec();
+                                t.doExec();
                             break;
                         }
                         else if (t.status < 0 && s + 1 == top) {
@@ -1396,6 +1406,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    volatile ExecutorStatistics statistics; // null unless enabled
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -2038,9 +2049,14 @@ public class ForkJoinPool extends AbstractExecutorService {
             U.putOrderedObject(w, QCURRENTJOIN, task);
             CountedCompleter<?> cc = (task instanceof CountedCompleter) ?
                 (CountedCompleter<?>)task : null;
+            ForkJoinScope sc = w.scope;
             for (;;) {
                 if ((s = task.status) < 0)
                     break;
+                if (sc != null && sc.isCancelled()) {
+                    s = task.cancelFromScope();
+                    break;
+                }
                 if (cc != null)
                     helpComplete(w, cc, 0);
                 else if (w.base == w.top || w.tryRemoveAndExec(task))
@@ -2054,6 +2070,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                     break;
                 else if ((ms = TimeUnit.NANOSECONDS.toMillis(ns)) <= 0L)
                     ms = 1L;
+                if (sc != null)
+                    ms = sc.boundWait(ms);
                 if (tryCompensate(w)) {
                     task.internalWait(ms);
                     U.getAndAddLong(this, CTL, AC_UNIT);
@@ -2324,6 +2342,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             WorkQueue[] ws; WorkQueue q; int rs, m, k;
             boolean move = false;
             if ((rs = runState) < 0) {
+                ExecutorStatistics stats = statistics;
+                if (stats != null)
+                    stats.recordRejection();
                 tryTerminate(false, false);     // help terminate
                 throw new RejectedExecutionException();
             }
@@ -2793,6 +2814,45 @@ public class ForkJoinPool extends AbstractExecutorService {
         return (config & FIFO_QUEUE) != 0;
     }
 
+    /**
+     * Enables or disables the recording of task statistics.  While
+     * enabled, workers record the time each top-level task (one
+     * submitted to the pool or stolen by a worker) takes to run,
+     * including the time spent running the subtasks it joins, in a
+     * new {@link ExecutorStatistics}.  Queue wait times are not
+     * recorded.  Disabling statistics discards them.
+     *
+     * @param enabled {@code true} to enable statistics, {@code false}
+     *        to disable them
+     * @see #getStatistics
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        if (!enabled)
+            statistics = null;
+        else if (statistics == null) {
+            String prefix = workerNamePrefix, name;
+            if (prefix != null && prefix.endsWith("-worker-"))
+                name = prefix.substring(0, prefix.length() - 8);
+            else
+                name = "ForkJoinPool-" +
+                    Integer.toHexString(System.identityHashCode(this));
+            statistics = new ExecutorStatistics(name);
+        }
+    }
+
+    /**
+     * Returns the task statistics of this pool, or {@code null} if
+     * statistics are not enabled.  The statistics are an {@link
+     * java.lang.management.ExecutorMXBean} that may be registered
+     * with the platform MBean server.
+     *
+     * @return the task statistics, or {@code null}
+     * @see #setStatisticsEnabled
+     */
+    public ExecutorStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Returns an estimate of the number of worker threads that are
      * not blocked waiting to join tasks or for other managed
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+/**
+ * A cancellation scope for a tree of {@link ForkJoinTask}s, with an
+ * optional deadline.  A task is run in a scope by running the task
+ * returned by {@link #bind}, and the subtasks that it (directly or
+ * indirectly) forks or invokes while running in a {@link
+ * ForkJoinPool} run in the same scope, unless bound to a scope of
+ * their own.  Once a scope is {@link #isCancelled cancelled}, either
+ * by {@link #cancel} or because its deadline has passed, tasks in that
+ * scope that have not yet started are cancelled instead of being run,
+ * as are tasks forked in that scope, and tasks joining one of them
+ * return without waiting for it, within a short polling interval.
+ * Tasks already running are not interrupted, but can poll the
+ * {@link #current} scope to stop early.
+ *
+ * <p>Cancellation of a task by its scope is reported as a {@link
+ * CancellationException} by methods such as {@link ForkJoinTask#join}.
+ * For a {@link CountedCompleter}, it is also propagated to its
+ * completers as by {@link ForkJoinTask#completeExceptionally}, so that
+ * the root of the computation completes even though some of its
+ * subtasks never run.
+ *
+ * <p>Scopes may be nested: a scope constructed with a parent is
+ * cancelled whenever its parent is, and its deadline is never later
+ * than that of its parent.  Cancelling a nested scope does not affect
+ * its parent.
+ *
+ * <p><b>Sample Usage.</b> Here is a sketch of a parallel search that
+ * gives up after one second, abandoning whatever part of the search
+ * has not yet been performed:
+ *
+ * <pre> {@code
+ * ForkJoinScope scope = new ForkJoinScope(1, TimeUnit.SECONDS);
+ * try {
+ *   result = pool.invoke(scope.bind(new SearchTask(data)));
+ * } catch (CancellationException ex) {
+ *   result = null; // timed out
+ * }}</pre>
+ *
+ * @since 1.8
+ */
+public final class ForkJoinScope {
+
+    /*
+     * Tasks carry no reference to their scope.  Instead, the
+     * WorkQueue of each worker records the scope of the task it is
+     * running, set and restored by the scope-owned wrappers below:
+     * a BoundTask returned by bind, and a ScopedTask pushed in place
+     * of each task forked while a scope is set, so that the scope
+     * follows the task to whichever worker takes it.  A worker
+     * running a stolen ScopedTask publishes the wrapped task as its
+     * currentSteal, and ForkJoinPool.WorkQueue.tryRemoveAndExec
+     * matches wrappers of the task being joined, so that joiners can
+     * still help.  Subtasks of a CountedCompleter forked in a scope
+     * are not found by helpComplete, and are run only by stealers.
+     *
+     * Checks are made on fork, before running a task, and on each
+     * iteration of ForkJoinPool.awaitJoin, so isCancelled must be
+     * cheap: it reads the cancelled flags of this scope and its
+     * ancestors, plus System.nanoTime if there is a deadline.  The
+     * deadline of a nested scope is precomputed as the minimum of
+     * its own and its parent's, so only the flags need a walk up the
+     * chain.  Expiry is latched into the flag on first detection.
+     * Since cancel() does not know the tasks in its scope, joiners
+     * blocked in a scope wake up every CANCEL_CHECK_MILLIS to check
+     * it.
+     */
+
+    /** Maximum time a joiner blocks before rechecking its scope */
+    static final long CANCEL_CHECK_MILLIS = 10L;
+
+    private final ForkJoinScope parent;
+    final long deadline;    // System.nanoTime based; valid only if timed
+    final boolean timed;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a scope without a parent or a deadline, that is
+     * cancelled only by {@link #cancel}.
+     */
+    public ForkJoinScope() {
+        this(null, 0L, false);
+    }
+
+    /**
+     * Creates a scope without a parent, that is cancelled when the
+     * given time has elapsed.
+     *
+     * @param timeout the maximum time to run tasks in this scope
+     * @param unit the time unit of the timeout argument
+     * @throws NullPointerException if unit is null
+     */
+    public ForkJoinScope(long timeout, TimeUnit unit) {
+        this(null, unit.toNanos(timeout), true);
+    }
+
+    /**
+     * Creates a scope nested within the given parent scope, that is
+     * cancelled when the parent is.
+     *
+     * @param parent the parent scope
+     * @throws NullPointerException if parent is null
+     */
+    public ForkJoinScope(ForkJoinScope parent) {
+        this(checkParent(parent), 0L, false);
+    }
+
+    /**
+     * Creates a scope nested within the given parent scope, that is
+     * cancelled when the parent is, or when the given time has
+     * elapsed, whichever comes first.
+     *
+     * @param parent the parent scope
+     * @param timeout the maximum time to run tasks in this scope
+     * @param unit the time unit of the timeout argument
+     * @throws NullPointerException if parent or unit is null
+     */
+    public ForkJoinScope(ForkJoinScope parent, long timeout, TimeUnit unit) {
+        this(checkParent(parent), unit.toNanos(timeout), true);
+    }
+
+    private ForkJoinScope(ForkJoinScope parent, long nanos, boolean timed) {
+        long d = 0L;
+        if (timed)  // avoid overflow for huge timeouts
+            d = System.nanoTime() + Math.min(nanos, Long.MAX_VALUE >>> 1);
+        if (parent != null && parent.timed &&
+            (!timed || parent.deadline - d < 0L)) {
+            d = parent.deadline;
+            timed = true;
+        }
+        this.parent = parent;
+        this.deadline = d;
+        this.timed = timed;
+    }
+
+    private static ForkJoinScope checkParent(ForkJoinScope parent) {
+        if (parent == null)
+            throw new NullPointerException();
+        return parent;
+    }
+
+    /**
+     * Returns the parent of this scope, or {@code null} if none.
+     *
+     * @return the parent of this scope, or {@code null} if none
+     */
+    public ForkJoinScope getParent() {
+        return parent;
+    }
+
+    /**
+     * Cancels this scope, and so all nested scopes, if not already
+     * cancelled.  Tasks in this scope that have not yet started will
+     * not run, and tasks blocked joining them return shortly after.
+     *
+     * @return {@code true} if this scope was cancelled by this call
+     */
+    public boolean cancel() {
+        if (isCancelled())
+            return false;
+        cancelled = true;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this scope or any of its ancestors has
+     * been cancelled, or if the deadline of this scope has passed.
+     *
+     * @return {@code true} if tasks in this scope should no longer run
+     */
+    public boolean isCancelled() {
+        for (ForkJoinScope s = this; s != null; s = s.parent) {
+            if (s.cancelled)
+                return true;
+        }
+        if (timed && deadline - System.nanoTime() <= 0L) {
+            cancelled = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time remaining until the deadline of this scope, in
+     * the given time unit: zero or negative if the deadline has
+     * passed, or {@code Long.MAX_VALUE} if this scope has no
+     * deadline.
+     *
+     * @param unit the time unit
+     * @return the time remaining until the deadline
+     */
+    public long getDelay(TimeUnit unit) {
+        return timed ?
+            unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) :
+            Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the given wait time in milliseconds, using Object.wait
+     * conventions, bounded by CANCEL_CHECK_MILLIS and by the time
+     * remaining until the deadline.  Used by ForkJoinPool.awaitJoin.
+     */
+    final long boundWait(long ms) {
+        long ns, b = CANCEL_CHECK_MILLIS;
+        if (timed && (ns = deadline - System.nanoTime()) > 0L &&
+            (ns = TimeUnit.NANOSECONDS.toMillis(ns)) < b)
+            b = (ns <= 0L) ? 1L : ns;
+        return (ms == 0L || b < ms) ? b : ms;
+    }
+
+    /**
+     * Returns a task that runs the given task in this scope, and
+     * completes with its result, or its exception, once it is done.
+     * If this scope is cancelled before the given task starts, both
+     * tasks are cancelled.  The returned task is typically submitted
+     * to or invoked in a {@link ForkJoinPool}; if run by any other
+     * thread, it arranges for the given task to run in the {@link
+     * ForkJoinPool#commonPool()}.
+     *
+     * @param task the task to run in this scope
+     * @param <V> the type of the result of the task
+     * @return a task that runs the given task in this scope
+     * @throws NullPointerException if task is null
+     */
+    public <V> ForkJoinTask<V> bind(ForkJoinTask<V> task) {
+        if (task == null)
+            throw new NullPointerException();
+        return new BoundTask<V>(this, task);
+    }
+
+    /**
+     * Returns the scope of the task running in the current thread, or
+     * {@code null} if there is none or the current thread is not a
+     * {@link ForkJoinWorkerThread}.  A long-running task may poll
+     * {@link #isCancelled} on this scope to stop early.
+     *
+     * @return the current scope, or {@code null} if none
+     */
+    public static ForkJoinScope current() {
+        Thread t;
+        return ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) ?
+            ((ForkJoinWorkerThread)t).workQueue.scope :
+            null;
+    }
+
+    /**
+     * Returns a string identifying this scope, as well as its
+     * state.  The state, in brackets, includes the String {@code
+     * "Cancelled"} if {@link #isCancelled} returns {@code true},
+     * otherwise {@code "Active"}.
+     *
+     * @return a string identifying this scope, as well as its state
+     */
+    public String toString() {
+        return super.toString() + (isCancelled() ? "[Cancelled]" : "[Active]");
+    }
+
+    /**
+     * Runs the given task in the given scope by the given worker, or
+     * cancels it if the scope has been cancelled, restoring the
+     * previous scope of the worker on exit.  If join is true, also
+     * waits for the task to complete, within the scope.
+     */
+    static void runIn(ForkJoinScope scope, ForkJoinTask<?> task,
+                      ForkJoinPool.WorkQueue w, boolean join) {
+        ForkJoinScope prev = w.scope;
+        w.scope = scope;
+        try {
+            if (scope.isCancelled())
+                task.cancelFromScope();
+            else if (task.doExec() >= 0 && join)
+                task.quietlyJoin();
+        } finally {
+            w.scope = prev;
+        }
+    }
+
+    /**
+     * The task pushed in place of a task forked while a scope is set,
+     * that runs it in that scope.  Its own result is never used.
+     */
+    static final class ScopedTask extends ForkJoinTask<Void> {
+        private static final long serialVersionUID = 4374826385049232387L;
+        final ForkJoinScope scope;
+        final ForkJoinTask<?> task;
+        ScopedTask(ForkJoinScope scope, ForkJoinTask<?> task) {
+            this.scope = scope;
+            this.task = task;
+        }
+        public final Void getRawResult() { return null; }
+        public final void setRawResult(Void v) { }
+        public final boolean exec() {
+            Thread t; ForkJoinPool.WorkQueue w;
+            if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) {
+                w = ((ForkJoinWorkerThread)t).workQueue;
+                if (w.currentSteal != this)
+                    runIn(scope, task, w, false);
+                else {
+                    w.currentSteal = task; // so that joiners find stealer
+                    try {
+                        runIn(scope, task, w, false);
+                    } finally {
+                        w.currentSteal = this;
+                    }
+                }
+            }
+            else if (scope.isCancelled())  // run by an external helper
+                task.cancelFromScope();
+            else
+                task.doExec();
+            return true;
+        }
+    }
+
+    /**
+     * The task returned by bind, that runs a task in a scope and
+     * completes as it does.
+     */
+    static final class BoundTask<V> extends ForkJoinTask<V> {
+        private static final long serialVersionUID = -1578234609227542468L;
+        final ForkJoinScope scope;
+        final ForkJoinTask<V> task;
+        BoundTask(ForkJoinScope scope, ForkJoinTask<V> task) {
+            this.scope = scope;
+            this.task = task;
+        }
+        public final V getRawResult() { return task.getRawResult(); }
+        public final void setRawResult(V v) { }
+        public final boolean exec() {
+            ForkJoinTask<V> tk = task; Thread t; Throwable ex;
+            if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread)
+                runIn(scope, tk, ((ForkJoinWorkerThread)t).workQueue, true);
+            else {
+                if (scope.isCancelled())
+                    tk.cancelFromScope();
+                else
+                    ForkJoinPool.common.externalPush(new ScopedTask(scope, tk));
+                tk.quietlyJoin();
+            }
+            if (tk.isCancelled()) {
+                cancel(false);
+                return false;
+            }
+            if ((ex = tk.getException()) != null)
+                rethrow(ex);
+            return true;
+        }
+    }
+}
@@ -146,6 +146,13 @@ import java.lang.reflect.Constructor;
  * #getException} will return either the encountered exception or
  * {@link java.util.concurrent.CancellationException}.
  *
+ * <p>Cancelling a task with {@link #cancel} does not affect the
+ * subtasks it has already forked.  To abandon a whole computation,
+ * for example when it has run for too long, run its root task in a
+ * {@link ForkJoinScope} using {@link ForkJoinScope#bind}.  The scope
+ * is inherited by the subtasks, which are cancelled rather than run
+ * once the scope is cancelled or its deadline has passed.
+ *
  * <p>The ForkJoinTask class is not usually directly subclassed.
  * Instead, you subclass one of the abstract classes that support a
  * particular style of fork/join processing, typically {@link
@@ -296,6 +303,21 @@ public abstract class ForkJoinTask<V> implements Future<V>, Serializable {
         return s;
     }
 
+    /**
+     * Cancels this task because its scope has been cancelled.  For a
+     * CountedCompleter, also propagates the cancellation to its
+     * completers, which would otherwise never complete.
+     *
+     * @return status on exit from this method
+     */
+    final int cancelFromScope() {
+        int s;
+        if ((s = setCompletion(CANCELLED)) == CANCELLED &&
+            this instanceof CountedCompleter)
+            internalPropagateException(new CancellationException());
+        return s;
+    }
+
     /**
      * If not done, sets SIGNAL status and performs Object.wait(timeout).
      * This task may or may not be done on exit. Ignores interrupts.
@@ -397,12 +419,15 @@ public abstract class ForkJoinTask<V> implements Future<V>, Serializable {
      * @return status upon completion
      */
     private int doInvoke() {
-        int s; Thread t; ForkJoinWorkerThread wt;
-        return (s = doExec()) < 0 ? s :
-            ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) ?
-            (wt = (ForkJoinWorkerThread)t).pool.
-            awaitJoin(wt.workQueue, this, 0L) :
-            externalAwaitDone();
+        int s; Thread t; ForkJoinWorkerThread wt; ForkJoinScope sc;
+        if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) {
+            wt = (ForkJoinWorkerThread)t;
+            if ((sc = wt.workQueue.scope) != null && sc.isCancelled())
+                return cancelFromScope();
+            return (s = doExec()) < 0 ? s :
+                wt.pool.awaitJoin(wt.workQueue, this, 0L);
+        }
+        return (s = doExec()) < 0 ? s : externalAwaitDone();
     }
 
     // Exception table support
@@ -692,12 +717,25 @@ public abstract class ForkJoinTask<V> implements Future<V>, Serializable {
      * related methods, or a call to {@link #isDone} returning {@code
      * true}.
      *
+     * <p>If the current task is running in a {@link ForkJoinScope},
+     * this task is run in the same scope.  If the scope has been
+     * cancelled, this task is cancelled instead of being arranged for
+     * execution.
+     *
      * @return {@code this}, to simplify usage
      */
     public final ForkJoinTask<V> fork() {
         Thread t;
-        if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread)
-            ((ForkJoinWorkerThread)t).workQueue.push(this);
+        if ((t = Thread.currentThread()) instanceof ForkJoinWorkerThread) {
+            ForkJoinPool.WorkQueue w = ((ForkJoinWorkerThread)t).workQueue;
+            ForkJoinScope sc = w.scope;
+            if (sc == null)
+                w.push(this);
+            else if (sc.isCancelled())
+                cancelFromScope();
+            else  // carry the scope to whichever thread runs this task
+                w.push(new ForkJoinScope.ScopedTask(sc, this));
+        }
         else
             ForkJoinPool.common.externalPush(this);
         return this;
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative <tt>long</tt> values, such as
+ * latencies in nanoseconds, with a bounded relative error.  Values are
+ * counted in <em>log-linear</em> buckets, as in HDR histograms: each
+ * power-of-two range of values is divided into eight buckets of equal
+ * width, so that a recorded value is known to within 12.5% of its
+ * magnitude, over the whole range of <tt>long</tt> values, using a
+ * fixed number of buckets.
+ *
+ * <p>Recording a value costs one atomic increment of a bucket counter
+ * and one {@link LongAdder} addition.  The bucket counters are striped
+ * over several arrays, each used by a different subset of threads as
+ * {@code LongAdder} cells are, so that threads recording concurrently
+ * seldom contend.  Queries such as {@link #getValueAtPercentile} sum
+ * the stripes, and are not atomic with respect to concurrent
+ * recording.
+ *
+ * @since 1.8
+ */
+public class LatencyHistogram {
+
+    /** log2 of the number of buckets per power of two */
+    static final int SUB_BUCKET_BITS = 3;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** The number of buckets, covering all non-negative longs */
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** The maximum number of stripes; a power of two */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Returns the index of the bucket counting the given value.
+     */
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int e = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int shift = e - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) +
+            (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the least value counted by the given bucket.
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    /**
+     * Returns the greatest value counted by the given bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return lowerBound(bucket) + ((1L << shift) - 1L);
+    }
+
+    /** The bucket counters, one array per stripe */
+    private final AtomicLongArray[] stripes;
+
+    /** The sum of the recorded values */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        int n = 1, p = ConcurrentHashMap.NCPU;
+        while (n < p && n < MAX_STRIPES)
+            n <<= 1;
+        AtomicLongArray[] s = new AtomicLongArray[n];
+        for (int i = 0; i < n; ++i)
+            s[i] = new AtomicLongArray(BUCKETS);
+        stripes = s;
+    }
+
+    /**
+     * Records the given value.  Negative values are recorded as zero,
+     * so that differences of {@link System#nanoTime} readings that are
+     * slightly out of order across threads do no harm.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        if (value < 0L)
+            value = 0L;
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        AtomicLongArray[] s = stripes;
+        s[h & (s.length - 1)].getAndIncrement(bucketFor(value));
+        total.add(value);
+    }
+
+    /**
+     * Returns the number of values recorded in each bucket, summed
+     * over the stripes.
+     */
+    private long[] counts() {
+        long[] c = new long[BUCKETS];
+        for (AtomicLongArray a : stripes) {
+            for (int i = 0; i < BUCKETS; ++i)
+                c[i] += a.get(i);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        long n = 0L;
+        for (long c : counts())
+            n += c;
+        return n;
+    }
+
+    /**
+     * Returns the arithmetic mean of the recorded values, or zero if no
+     * value has been recorded.
+     *
+     * @return the mean of the recorded values
+     */
+    public double getMean() {
+        long n = getCount();
+        return (n == 0L) ? 0.0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Returns the greatest recorded value, within the precision of the
+     * histogram, or zero if no value has been recorded.
+     *
+     * @return the maximum recorded value
+     */
+    public long getMaximum() {
+        long[] c = counts();
+        for (int i = BUCKETS - 1; i >= 0; --i) {
+            if (c[i] != 0L)
+                return upperBound(i);
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the
+     * recorded values fall, within the precision of the histogram: the
+     * greatest value counted in the bucket holding that percentile.
+     * Returns zero if no value has been recorded.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the given percentile
+     * @throws IllegalArgumentException if {@code percentile} is not
+     *         between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException();
+        long[] c = counts();
+        long n = 0L;
+        for (long x : c)
+            n += x;
+        if (n == 0L)
+            return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; ++i) {
+            if ((seen += c[i]) >= rank)
+                return upperBound(i);
+        }
+        return getMaximum(); // concurrently recorded
+    }
+
+    /**
+     * Discards all recorded values.  Values recorded concurrently may or
+     * may not be discarded.
+     */
+    public void reset() {
+        for (AtomicLongArray a : stripes) {
+            for (int i = 0; i < BUCKETS; ++i)
+                a.set(i, 0L);
+        }
+        total.reset();
+    }
+
+    /**
+     * Returns a string summarizing this histogram: the count, the mean,
+     * the median, the 99th percentile and the maximum.
+     *
+     * @return a string summarizing this histogram
+     */
+    public String toString() {
+        return super.toString() +
+            "[count = " + getCount() +
+            ", mean = " + getMean() +
+            ", p50 = " + getValueAtPercentile(50.0) +
+            ", p99 = " + getValueAtPercentile(99.0) +
+            ", max = " + getMaximum() + "]";
+    }
+}
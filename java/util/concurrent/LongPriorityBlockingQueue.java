@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * An unbounded {@linkplain BlockingQueue blocking queue} that orders
+ * its elements by a primitive <tt>long</tt> priority extracted from
+ * each element, such as a deadline, and supplies blocking retrieval
+ * operations.  The <em>head</em> of this queue is an element with the
+ * least priority.  Elements with equal priorities are retrieved in
+ * the order in which they were inserted (first-in-first-out).  This
+ * class does not permit {@code null} elements.
+ *
+ * <p>Unlike {@link PriorityBlockingQueue}, which guards an array-based
+ * heap with a single lock, this class is based on a
+ * {@link ConcurrentSkipListMap}, so that insertions and removals by
+ * different threads proceed concurrently without locking.  A lock is
+ * used only to park and wake consumers that find the queue empty, and
+ * producers acquire it only when some consumer is waiting.  The
+ * priority of an element is extracted once, when the element is
+ * inserted, and compared as a primitive value from then on; it must
+ * not change while the element is in the queue.
+ *
+ * <p>Beware that, unlike in most collections, the {@code size} method
+ * is <em>NOT</em> a constant-time operation, and may report inaccurate
+ * results if this queue is modified during traversal.  Iterators and
+ * spliterators are <i>weakly consistent</i> and traverse the elements
+ * in priority order.  Method {@code drainTo} can be used to
+ * <em>remove</em> some or all elements in priority order and place
+ * them in another collection.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @see java.util.LongPriorityQueue
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class LongPriorityBlockingQueue<E> extends AbstractQueue<E>
+    implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = -3256740412866735082L;
+
+    /*
+     * Each element is wrapped in a Node holding its priority and an
+     * insertion sequence number, and the nodes are the keys of a
+     * ConcurrentSkipListMap ordered by priority and then by sequence
+     * number, which makes all keys distinct and gives FIFO order
+     * among equal priorities.  Retrieval is pollFirstEntry.
+     *
+     * Consumers that find the map empty register in the volatile
+     * waiters count while holding the lock, then recheck emptiness
+     * before awaiting notEmpty.  Producers insert before reading
+     * waiters, and lock to signal only if it is nonzero.  Since both
+     * sides write before they read (volatile writes and reads), at
+     * least one of them sees the other, so no wakeup is missed.
+     */
+
+    /** Wrapper for an element and its ordering keys */
+    static final class Node<E> {
+        final long priority;
+        final long seq;
+        final E item;
+        Node(long priority, long seq, E item) {
+            this.priority = priority;
+            this.seq = seq;
+            this.item = item;
+        }
+    }
+
+    /** Orders nodes by priority, then by insertion sequence */
+    static final Comparator<Node<?>> NODE_ORDER = (a, b) -> {
+        int c = Long.compare(a.priority, b.priority);
+        return (c != 0) ? c : Long.compare(a.seq, b.seq);
+    };
+
+    /**
+     * The function extracting the priority of each element.
+     * Serialized along with the elements, so it must be serializable
+     * for this queue to be.
+     */
+    private final ToLongFunction<? super E> priorityFunction;
+
+    /** The nodes of this queue, in order */
+    private transient ConcurrentSkipListMap<Node<E>,Boolean> map;
+
+    /** The source of insertion sequence numbers */
+    private transient AtomicLong sequence;
+
+    /** Lock used only for waiting consumers */
+    private transient ReentrantLock lock;
+
+    /** Condition for waiting takes */
+    private transient Condition notEmpty;
+
+    /** The number of consumers waiting or about to wait */
+    private transient volatile int waiters;
+
+    /**
+     * Creates an initially empty {@code LongPriorityBlockingQueue} that
+     * orders its elements by the priorities computed by the specified
+     * function.
+     *
+     * @param priorityFunction the function computing the priority of
+     *        each element
+     * @throws NullPointerException if the function is null
+     */
+    public LongPriorityBlockingQueue(ToLongFunction<? super E> priorityFunction) {
+        if (priorityFunction == null)
+            throw new NullPointerException();
+        this.priorityFunction = priorityFunction;
+        initialize();
+    }
+
+    /**
+     * Creates a {@code LongPriorityBlockingQueue} containing the elements
+     * in the specified collection, ordered by the priorities computed by
+     * the specified function.
+     *
+     * @param priorityFunction the function computing the priority of
+     *        each element
+     * @param c the collection whose elements are to be placed
+     *        into this queue
+     * @throws NullPointerException if the function, the collection or
+     *         any of its elements are null
+     */
+    public LongPriorityBlockingQueue(ToLongFunction<? super E> priorityFunction,
+                                     Collection<? extends E> c) {
+        this(priorityFunction);
+        for (E e : c)
+            offer(e);
+    }
+
+    private void initialize() {
+        map = new ConcurrentSkipListMap<Node<E>,Boolean>(NODE_ORDER);
+        sequence = new AtomicLong();
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        return offer(e);
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never return
+     * {@code false}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        long p = priorityFunction.applyAsLong(e);
+        map.put(new Node<E>(p, sequence.getAndIncrement(), e), Boolean.TRUE);
+        if (waiters != 0)
+            signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never block.
+     *
+     * @param e the element to add
+     * @throws NullPointerException if the specified element is null
+     */
+    public void put(E e) {
+        offer(e); // never need to block
+    }
+
+    /**
+     * Inserts the specified element into this priority queue.
+     * As the queue is unbounded, this method will never block or
+     * return {@code false}.
+     *
+     * @param e the element to add
+     * @param timeout This parameter is ignored as the method never blocks
+     * @param unit This parameter is ignored as the method never blocks
+     * @return {@code true} (as specified by
+     *  {@link BlockingQueue#offer(Object,long,TimeUnit) BlockingQueue.offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e); // never need to block
+    }
+
+    /**
+     * Wakes up a waiting consumer.
+     */
+    private void signalNotEmpty() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E poll() {
+        Map.Entry<Node<E>,Boolean> e = map.pollFirstEntry();
+        return (e == null) ? null : e.getKey().item;
+    }
+
+    public E take() throws InterruptedException {
+        E result;
+        while ((result = poll()) == null) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waiters;
+                try {
+                    while (map.isEmpty())
+                        notEmpty.await();
+                } finally {
+                    --waiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E result;
+        while ((result = poll()) == null && nanos > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                ++waiters;
+                try {
+                    while (map.isEmpty() && nanos > 0)
+                        nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    --waiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    public E peek() {
+        Map.Entry<Node<E>,Boolean> e = map.firstEntry();
+        return (e == null) ? null : e.getKey().item;
+    }
+
+    /**
+     * Returns the priority of the head of this queue, as computed when
+     * it was inserted.
+     *
+     * @return the least priority in this queue
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public long peekPriority() {
+        return map.firstKey().priority;
+    }
+
+    /**
+     * Returns the number of elements in this queue.  Beware that,
+     * unlike in most collections, this method is <em>NOT</em> a
+     * constant-time operation.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Always returns {@code Integer.MAX_VALUE} because
+     * a {@code LongPriorityBlockingQueue} is not capacity constrained.
+     * @return {@code Integer.MAX_VALUE} always
+     */
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.  Returns {@code true} if and only if this queue contained
+     * the specified element (or equivalently, if this queue changed as a
+     * result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            for (Node<E> n : map.keySet()) {
+                if (o.equals(n.item) && map.remove(n) != null)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Node<E> n : map.keySet()) {
+                if (o.equals(n.item))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the elements from this queue.
+     * The queue will be empty after this call returns.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (Map.Entry<Node<E>,Boolean> e;
+             n < maxElements && (e = map.pollFirstEntry()) != null; ) {
+            Node<E> node = e.getKey();
+            boolean added = false;
+            try {
+                c.add(node.item);
+                added = true;
+            } finally {
+                if (!added)
+                    map.put(node, Boolean.TRUE); // put back if add() throws
+            }
+            ++n;
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue, in priority
+     * order.  The iterator is <i>weakly consistent</i>.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr<E>(map.keySet().iterator());
+    }
+
+    /** Iterator mapping nodes to their elements */
+    static final class Itr<E> implements Iterator<E> {
+        final Iterator<Node<E>> it;
+        Itr(Iterator<Node<E>> it) { this.it = it; }
+        public boolean hasNext() { return it.hasNext(); }
+        public E next() { return it.next().item; }
+        public void remove() { it.remove(); }
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The priority function, followed by all of the
+     * elements (each an {@code Object}) in priority order, followed by
+     * a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Node<E> n : map.keySet())
+            s.writeObject(n.item);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initialize();
+        for (Object item; (item = s.readObject()) != null; ) {
+            @SuppressWarnings("unchecked") E e = (E) item;
+            offer(e);
+        }
+    }
+}
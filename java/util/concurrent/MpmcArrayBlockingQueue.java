@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.util.Collection;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, that supports any number of concurrent producers and
+ * consumers without locking.  This queue orders elements FIFO
+ * (first-in-first-out).
+ *
+ * <p>Unlike {@link ArrayBlockingQueue}, which guards both ends with a
+ * single lock, and {@link LinkedBlockingQueue}, which allocates a node
+ * per insertion, this queue claims array slots with a single CAS on
+ * the head or tail position, and allocates nothing.  The head and
+ * tail positions are padded apart, so producers and consumers do not
+ * contend on a cache line.  The capacity is fixed on construction, as
+ * the requested capacity rounded up to a power of two, and to at
+ * least two.
+ *
+ * <p>Threads that find the queue full or empty spin briefly, and
+ * then park until signalled; no lock is acquired unless some thread
+ * is parked.  Method {@link #drainTo(Collection,int) drainTo} claims
+ * a whole run of elements with a single CAS.
+ *
+ * <p>Beware that, unlike in most collections, the {@code size} method
+ * is only an estimate while producers and consumers are active.
+ * Iterators traverse a snapshot of the elements and do not support
+ * removal; consequently {@link #remove(Object)} is not supported, and
+ * this queue cannot be used as the work queue of a {@link
+ * ThreadPoolExecutor}, which removes queued tasks.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * java.util.Iterator Iterator} interfaces, except element removal
+ * other than from the head.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code MpmcArrayBlockingQueue}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code MpmcArrayBlockingQueue} in another thread.
+ *
+ * @see MpscArrayBlockingQueue
+ * @see SpscArrayBlockingQueue
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class MpmcArrayBlockingQueue<E> extends ConcurrentArrayQueue<E> {
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with at least the given
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is less
+     *         than 1 or greater than {@code 1 << 30}
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        super(capacity, true);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        return multiProducerOffer(e);
+    }
+
+    public E poll() {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int mask = this.mask;
+        for (;;) {
+            long h = head;
+            int i = (int)h & mask;
+            long so = sequenceOffset(i);
+            long d = U.getLongVolatile(seqs, so) - (h + 1L);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, HEAD, h, h + 1L)) {
+                    long io = itemOffset(i);
+                    @SuppressWarnings("unchecked")
+                    E x = (E) U.getObject(items, io);
+                    U.putObject(items, io, null);
+                    U.putLongVolatile(seqs, so, h + items.length);
+                    signalNotFull(1);
+                    return x;
+                }
+            }
+            else if (d < 0L && h == head)
+                return null;            // slot not yet filled: empty
+        }
+    }
+
+    public E peek() {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int mask = this.mask;
+        for (;;) {
+            long h = head;
+            int i = (int)h & mask;
+            long d = U.getLongVolatile(seqs, sequenceOffset(i)) - (h + 1L);
+            if (d == 0L) {
+                @SuppressWarnings("unchecked")
+                E x = (E) U.getObjectVolatile(items, itemOffset(i));
+                if (x != null && h == head)
+                    return x;
+            }
+            else if (d < 0L && h == head)
+                return null;
+        }
+    }
+
+    int drain(Collection<? super E> c, int max) {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int mask = this.mask;
+        int limit = Math.min(max, items.length);
+        for (;;) {
+            long h = head;
+            int n = 0;
+            while (n < limit &&
+                   U.getLongVolatile(seqs, sequenceOffset((int)(h + n) & mask))
+                   == h + n + 1L)
+                ++n;
+            if (n == 0) {
+                if (h == head)
+                    return 0;
+            }
+            else if (U.compareAndSwapLong(this, HEAD, h, h + n)) {
+                // Free the claimed run before handing it out, so that
+                // a failing c.add cannot leave slots claimed forever
+                Object[] batch = new Object[n];
+                for (int k = 0; k < n; ++k) {
+                    long p = h + k;
+                    int i = (int)p & mask;
+                    long io = itemOffset(i);
+                    batch[k] = U.getObject(items, io);
+                    U.putObject(items, io, null);
+                    U.putLongVolatile(seqs, sequenceOffset(i),
+                                      p + items.length);
+                }
+                signalNotFull(n);
+                for (int k = 0; k < n; ++k) {
+                    @SuppressWarnings("unchecked") E x = (E) batch[k];
+                    c.add(x);
+                }
+                return n;
+            }
+        }
+    }
+}
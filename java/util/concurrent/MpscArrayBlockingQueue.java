@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.util.Collection;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, that supports any number of concurrent producers but only a
+ * single consumer, without locking.  This queue orders elements FIFO
+ * (first-in-first-out).
+ *
+ * <p>Producers claim array slots with a single CAS on the tail
+ * position, as in {@link MpmcArrayBlockingQueue}; the consumer takes
+ * elements with plain ordered writes, and {@link
+ * #drainTo(Collection,int) drainTo} publishes the new head position
+ * once per batch.  This makes the queue well suited to fan-in, such
+ * as a task queue feeding one worker.  The capacity is fixed on
+ * construction, as the requested capacity rounded up to a power of
+ * two, and to at least two.
+ *
+ * <p><b>At most one thread at a time may retrieve elements</b>, by
+ * {@code poll}, {@code take}, {@code remove()}, {@code drainTo} or
+ * {@code clear}.  The effects of concurrent retrievals are undefined.
+ * Retrieving threads may change over time, as long as each
+ * retrieval happens-before the next, for example by a hand-off
+ * through a lock.
+ *
+ * <p>Threads that find the queue full or empty spin briefly, and
+ * then park until signalled; no lock is acquired unless some thread
+ * is parked.  The {@code size} method is only an estimate while the
+ * queue is in use.  Iterators traverse a snapshot of the elements
+ * and do not support removal; consequently {@link #remove(Object)} is
+ * not supported, and this queue cannot be used as the work queue of a
+ * {@link ThreadPoolExecutor}, which removes queued tasks.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code MpscArrayBlockingQueue}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code MpscArrayBlockingQueue} in another thread.
+ *
+ * @see MpmcArrayBlockingQueue
+ * @see SpscArrayBlockingQueue
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class MpscArrayBlockingQueue<E> extends ConcurrentArrayQueue<E> {
+
+    /**
+     * Creates a {@code MpscArrayBlockingQueue} with at least the given
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is less
+     *         than 1 or greater than {@code 1 << 30}
+     */
+    public MpscArrayBlockingQueue(int capacity) {
+        super(capacity, true);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        return multiProducerOffer(e);
+    }
+
+    public E poll() {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        long h = head;
+        int i = (int)h & mask;
+        long so = sequenceOffset(i);
+        if (U.getLongVolatile(seqs, so) != h + 1L)
+            return null;
+        long io = itemOffset(i);
+        @SuppressWarnings("unchecked") E x = (E) U.getObject(items, io);
+        U.putObject(items, io, null);
+        U.putLongVolatile(seqs, so, h + items.length);
+        U.putOrderedLong(this, HEAD, h + 1L);
+        signalNotFull(1);
+        return x;
+    }
+
+    public E peek() {
+        long h = head;
+        int i = (int)h & mask;
+        if (U.getLongVolatile(sequences, sequenceOffset(i)) != h + 1L)
+            return null;
+        @SuppressWarnings("unchecked")
+        E x = (E) U.getObjectVolatile(items, itemOffset(i));
+        return x;
+    }
+
+    int drain(Collection<? super E> c, int max) {
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int mask = this.mask;
+        final long h = head;
+        int n = 0;
+        try {
+            while (n < max) {
+                long p = h + n;
+                int i = (int)p & mask;
+                long so = sequenceOffset(i);
+                if (U.getLongVolatile(seqs, so) != p + 1L)
+                    break;
+                long io = itemOffset(i);
+                @SuppressWarnings("unchecked")
+                E x = (E) U.getObject(items, io);
+                U.putObject(items, io, null);
+                U.putLongVolatile(seqs, so, p + items.length);
+                ++n;
+                c.add(x);
+            }
+        } finally {
+            // Publish progress even if c.add threw
+            if (n > 0) {
+                U.putOrderedLong(this, HEAD, h + n);
+                signalNotFull(n);
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,1391 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.management.BufferPoolMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * A {@link ConcurrentMap} that keeps its keys and values outside the
+ * Java heap, in slabs of {@linkplain ByteBuffer#allocateDirect direct
+ * buffers}.  Keys and values are converted to and from bytes by
+ * user-supplied {@link Codec}s; only the hash table of bin heads and
+ * a few bookkeeping objects live on the heap, so very large maps do
+ * not enlarge the old generation or lengthen garbage collection
+ * pauses.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does not allow
+ * {@code null} to be used as a key or value, and its table grows by
+ * doubling, with threads that encounter a table being resized helping
+ * to move bins to the new table.  Unlike {@code ConcurrentHashMap},
+ * retrievals lock the bin they read, because the memory holding an
+ * entry may be reused as soon as the entry is removed.  Bins are
+ * guarded by a fixed set of lock stripes, so operations on different
+ * bins rarely contend.
+ *
+ * <p>Keys are compared by their encoded form: two keys are considered
+ * equal if and only if their codec produces identical bytes for them.
+ * Key codecs must therefore encode equal keys identically.  Values
+ * returned by this map are always freshly decoded copies; modifying
+ * them has no effect on the map.
+ *
+ * <p>Memory is claimed from the system in slabs of a fixed size and is
+ * never returned while the map is in use; the space of removed entries
+ * is reused for later insertions.  The {@link #free} method releases
+ * all slabs at once, after which the map may no longer be used.  Slab
+ * usage can be monitored through {@link #getBufferPoolMXBean}, which
+ * presents the map's slabs as a buffer pool.
+ *
+ * <p>Iterators and the collection views are <i>weakly consistent</i>,
+ * as for {@code ConcurrentHashMap}; they decode entries one bin at a
+ * time and never throw {@link java.util.ConcurrentModificationException}.
+ *
+ * @since 1.8
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapConcurrentHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /**
+     * Converts objects to and from the byte form stored by an
+     * {@link OffHeapConcurrentHashMap}.  Codec methods are called while
+     * a bin lock is held, so they must not access the map itself.
+     *
+     * @param <T> the type of encoded objects
+     * @since 1.8
+     */
+    public interface Codec<T> {
+        /**
+         * Returns the number of bytes that {@link #encode} will write
+         * for the given object.
+         *
+         * @param value the object to encode
+         * @return the encoded size in bytes
+         */
+        int encodedSize(T value);
+
+        /**
+         * Writes the encoded form of the given object into the buffer,
+         * starting at its current position and advancing the position
+         * by exactly {@link #encodedSize encodedSize(value)} bytes.
+         *
+         * @param value the object to encode
+         * @param dst the destination buffer
+         */
+        void encode(T value, ByteBuffer dst);
+
+        /**
+         * Reconstructs an object from its encoded form, which occupies
+         * the bytes between the position and the limit of the given
+         * read-only buffer.
+         *
+         * @param src the buffer holding the encoded form
+         * @return the decoded object
+         */
+        T decode(ByteBuffer src);
+    }
+
+    /*
+     * Overview:
+     *
+     * The table is an on-heap long[] of bin heads.  Each head is the
+     * address of the first entry of a singly linked chain; address 0
+     * is an empty bin and MOVED marks a bin already transferred to
+     * the next table during a resize.  An address holds a slab
+     * number (plus one) in its upper 32 bits and a byte offset in the
+     * lower 32 bits.  Each entry is a block in a slab laid out as
+     *
+     *   long next | int hash | int keyLength | int valueLength |
+     *   key bytes | value bytes
+     *
+     * Blocks come in power-of-two size classes.  Freed blocks are
+     * kept on per-class free lists (linked through their first long)
+     * in the arena of the bin that released them.  Arenas are chosen by
+     * lock stripe, and each arena has its own lock, so allocation
+     * rarely contends either.
+     *
+     * Every read or write of a bin, and of the entries reachable from
+     * it, happens while holding the lock stripe for that bin.  The
+     * number of stripes never exceeds the table length, so when a
+     * table of length n is split into one of length 2n, old bin i and
+     * new bins i and i + n share a stripe.  This lets transfer relink
+     * the existing entries in place, and lets readers of either table
+     * rely on the same lock.  Otherwise, resizing mirrors
+     * ConcurrentHashMap.transfer: sizeCtl holds the resize stamp and
+     * the count of participating threads, and threads claim strides
+     * of bins through transferIndex.  Each table records its
+     * successor, playing the role of ForwardingNode.nextTable.
+     */
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The largest possible table capacity.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The number of lock stripes, and the smallest table capacity.
+     * Must be a power of two.
+     */
+    private static final int LOCK_STRIPES = 256;
+
+    /**
+     * The number of allocation arenas.  Must be a power of two no
+     * larger than LOCK_STRIPES.
+     */
+    private static final int ARENAS = 16;
+
+    /**
+     * The default slab size, in bytes.
+     */
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * The smallest block size, as a power of two.  Blocks must be
+     * able to hold an entry header.
+     */
+    private static final int MIN_BLOCK_SHIFT = 5;
+
+    /** Byte offsets of the entry header fields. */
+    private static final int NEXT = 0, HASH = 8, KLEN = 12, VLEN = 16;
+
+    /** The size of an entry header. */
+    private static final int HEADER_SIZE = 20;
+
+    /** Bin head marking a transferred bin. */
+    private static final long MOVED = -1L;
+
+    /** See ConcurrentHashMap. */
+    private static final int MIN_TRANSFER_STRIDE = 16;
+    private static final int RESIZE_STAMP_BITS = 16;
+    private static final int MAX_RESIZERS = (1 << (32 - RESIZE_STAMP_BITS)) - 1;
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+    static final int HASH_BITS = 0x7fffffff;
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+    static final boolean NATIVE_BIG_ENDIAN =
+        ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    /* ---------------- Tables, arenas and slabs -------------- */
+
+    /**
+     * A table of bin heads, linked to the table replacing it once a
+     * resize has started.
+     */
+    static final class Table {
+        final long[] bins;
+        volatile Table next;
+        Table(int n) { bins = new long[n]; }
+    }
+
+    /**
+     * An allocator of blocks carved out of slabs.  All fields are
+     * guarded by the arena's monitor.
+     */
+    static final class Arena {
+        final long[] freeLists;   // head address per size class
+        int slab = -1;            // slab currently carved, or -1
+        int top;                  // carving offset within that slab
+        long used;                // bytes in live blocks
+        Arena(int classes) { freeLists = new long[classes]; }
+    }
+
+    /** The current table.  Its length is always a power of two. */
+    private transient volatile Table table;
+
+    /** The table being filled by a resize, or null. */
+    private transient volatile Table nextTable;
+
+    /**
+     * Table resizing control, as in ConcurrentHashMap: when negative,
+     * the table is being resized; otherwise, the element count at
+     * which to resize next.
+     */
+    private transient volatile int sizeCtl;
+
+    /** The next table index (plus one) to split while resizing. */
+    private transient volatile int transferIndex;
+
+    /** Set by free(); checked under each bin lock. */
+    private transient volatile boolean freed;
+
+    /** The number of mappings. */
+    private final LongAdder count = new LongAdder();
+
+    /** Lock stripes, indexed by bin index modulo LOCK_STRIPES. */
+    private final Object[] locks;
+
+    /** Allocation arenas, indexed by stripe modulo ARENAS. */
+    private final Arena[] arenas;
+
+    /** All slabs, indexed by slab number.  Copied on growth. */
+    private transient volatile ByteBuffer[] slabs;
+
+    /** The number of slabs in use; guarded by slabLock. */
+    private int slabCount;
+
+    private final Object slabLock = new Object();
+
+    private final int slabSize;
+    private final int maxBlockShift;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final String name;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the default initial capacity and
+     * slab size.
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @throws NullPointerException if either codec is null
+     */
+    public OffHeapConcurrentHashMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, 16, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new, empty map sized to accommodate the specified
+     * number of elements without resizing, that claims memory in slabs
+     * of the given size.  No single entry may take more than one slab.
+     *
+     * @param keyCodec the codec for keys
+     * @param valueCodec the codec for values
+     * @param initialCapacity the expected number of elements
+     * @param slabSize the size of each slab in bytes; rounded up to a
+     *        power of two
+     * @throws NullPointerException if either codec is null
+     * @throws IllegalArgumentException if the initial capacity is
+     *         negative, or the slab size is not between 64 bytes and
+     *         1GB inclusive
+     */
+    public OffHeapConcurrentHashMap(Codec<K> keyCodec, Codec<V> valueCodec,
+                                    int initialCapacity, int slabSize) {
+        if (keyCodec == null || valueCodec == null)
+            throw new NullPointerException();
+        if (initialCapacity < 0 || slabSize < 64 || slabSize > (1 << 30))
+            throw new IllegalArgumentException();
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        int shift = 32 - Integer.numberOfLeadingZeros(slabSize - 1);
+        this.slabSize = 1 << shift;
+        this.maxBlockShift = shift;
+        long want = (long)(1.0 + initialCapacity / 0.75f);
+        int n = (want >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY :
+            Math.max(LOCK_STRIPES, tableSizeFor((int)want));
+        this.table = new Table(n);
+        this.sizeCtl = n - (n >>> 2);
+        Object[] ls = new Object[LOCK_STRIPES];
+        for (int i = 0; i < ls.length; ++i)
+            ls[i] = new Object();
+        this.locks = ls;
+        Arena[] as = new Arena[ARENAS];
+        for (int i = 0; i < as.length; ++i)
+            as[i] = new Arena(shift - MIN_BLOCK_SHIFT + 1);
+        this.arenas = as;
+        this.slabs = new ByteBuffer[4];
+        this.name = getClass().getName() + "@" +
+            Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map, or
+     * {@code Integer.MAX_VALUE} if there are more.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        long n = mappingCount();
+        return (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because the map may contain more
+     * mappings than can be represented as an int.  The value returned
+     * is an estimate; the actual count may differ if there are
+     * concurrent insertions or removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = count.sum();
+        return (n < 0L) ? 0L : n;
+    }
+
+    public boolean isEmpty() {
+        return mappingCount() <= 0L;
+    }
+
+    /**
+     * Returns a freshly decoded copy of the value to which the
+     * specified key is mapped, or {@code null} if this map contains no
+     * mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws ClassCastException if the key is not of a type accepted
+     *         by the key codec
+     * @throws IllegalStateException if the map has been freed
+     */
+    public V get(Object key) {
+        @SuppressWarnings("unchecked") byte[] k = encode(keyCodec, (K)key);
+        int h = hash(k);
+        for (Table t = table;;) {
+            long[] tab = t.bins;
+            int i = h & (tab.length - 1);
+            synchronized (lockFor(i)) {
+                checkNotFreed();
+                long b = tab[i];
+                if (b != MOVED) {
+                    long e = find(b, h, k);
+                    return (e == 0L) ? null : decodeValue(e);
+                }
+            }
+            t = t.next;
+        }
+    }
+
+    /**
+     * Tests if the specified object is a key in this map.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws ClassCastException if the key is not of a type accepted
+     *         by the key codec
+     * @throws IllegalStateException if the map has been freed
+     */
+    public boolean containsKey(Object key) {
+        @SuppressWarnings("unchecked") byte[] k = encode(keyCodec, (K)key);
+        int h = hash(k);
+        for (Table t = table;;) {
+            long[] tab = t.bins;
+            int i = h & (tab.length - 1);
+            synchronized (lockFor(i)) {
+                checkNotFreed();
+                long b = tab[i];
+                if (b != MOVED)
+                    return find(b, h, k) != 0L;
+            }
+            t = t.next;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  Values are compared by their encoded form.
+     * This method requires a full traversal of the map.
+     *
+     * @throws NullPointerException if the specified value is null
+     * @throws IllegalStateException if the map has been freed
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (V v : values()) {
+            if (value.equals(v))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the encoded entry does not
+     *         fit in one slab
+     * @throws IllegalStateException if the map has been freed
+     */
+    public V put(K key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the encoded entry does not
+     *         fit in one slab
+     * @throws IllegalStateException if the map has been freed
+     */
+    public V putIfAbsent(K key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /** Implementation for put and putIfAbsent */
+    final V putVal(K key, V value, boolean onlyIfAbsent) {
+        byte[] k = encode(keyCodec, key);
+        byte[] v = encode(valueCodec, value);
+        int blockShift = blockShiftFor(k.length, v.length);
+        int h = hash(k);
+        V oldVal = null;
+        boolean added = false;
+        for (Table t = table;;) {
+            long[] tab = t.bins;
+            int i = h & (tab.length - 1);
+            synchronized (lockFor(i)) {
+                checkNotFreed();
+                long b = tab[i];
+                if (b != MOVED) {
+                    long e = find(b, h, k), p;
+                    if (e != 0L) {
+                        oldVal = decodeValue(e);
+                        if (!onlyIfAbsent) {
+                            p = allocate(i, blockShift);
+                            writeEntry(p, h, k, v);
+                            tab[i] = replaceInChain(b, e, p);
+                            release(i, e);
+                        }
+                    }
+                    else {
+                        p = allocate(i, blockShift);
+                        writeEntry(p, h, k, v);
+                        putLong(p, NEXT, b);
+                        tab[i] = p;
+                        added = true;
+                    }
+                    break;
+                }
+            }
+            t = helpTransfer(t);
+        }
+        if (added)
+            addCount(1L, true);
+        return oldVal;
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been freed
+     */
+    public V remove(Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been freed
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     * @throws IllegalStateException if the map has been freed
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been freed
+     */
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return replaceNode(key, value, null);
+    }
+
+    /**
+     * Implementation for the four public remove/replace methods:
+     * Replaces node value with v, conditional upon match of cv if
+     * non-null.  If resulting value is null, delete.  Values are
+     * matched by their encoded form.
+     */
+    final V replaceNode(Object key, V value, Object cv) {
+        @SuppressWarnings("unchecked") byte[] k = encode(keyCodec, (K)key);
+        byte[] v = (value == null) ? null : encode(valueCodec, value);
+        byte[] c = null;
+        if (cv != null) {
+            @SuppressWarnings("unchecked") V cvv = (V)cv;
+            c = encode(valueCodec, cvv);
+        }
+        int h = hash(k);
+        V oldVal = null;
+        boolean removed = false;
+        for (Table t = table;;) {
+            long[] tab = t.bins;
+            int i = h & (tab.length - 1);
+            synchronized (lockFor(i)) {
+                checkNotFreed();
+                long b = tab[i];
+                if (b != MOVED) {
+                    long e = find(b, h, k);
+                    if (e != 0L && (c == null || valueEquals(e, c))) {
+                        oldVal = decodeValue(e);
+                        if (v != null) {
+                            long p = allocate(i, blockShiftFor(k.length, v.length));
+                            writeEntry(p, h, k, v);
+                            tab[i] = replaceInChain(b, e, p);
+                        }
+                        else {
+                            tab[i] = replaceInChain(b, e, getLong(e, NEXT));
+                            removed = true;
+                        }
+                        release(i, e);
+                    }
+                    break;
+                }
+            }
+            t = helpTransfer(t);
+        }
+        if (removed)
+            addCount(-1L, false);
+        return oldVal;
+    }
+
+    /**
+     * Removes all of the mappings from this map, returning their space
+     * to the free lists.  The slabs themselves are retained.
+     *
+     * @throws IllegalStateException if the map has been freed
+     */
+    public void clear() {
+        long delta = 0L;
+        Table t = table;
+        for (int i = 0; i < t.bins.length;) {
+            long[] tab = t.bins;
+            boolean moved = false;
+            synchronized (lockFor(i)) {
+                checkNotFreed();
+                long b = tab[i];
+                if (b == MOVED)
+                    moved = true;
+                else {
+                    tab[i] = 0L;
+                    for (long e = b, next; e != 0L; e = next) {
+                        next = getLong(e, NEXT);
+                        release(i, e);
+                        --delta;
+                    }
+                }
+            }
+            if (moved) {
+                t = helpTransfer(t);
+                i = 0; // restart
+            }
+            else
+                ++i;
+        }
+        if (delta != 0L)
+            addCount(delta, false);
+    }
+
+    /**
+     * Releases all off-heap memory held by this map.  Operations in
+     * progress when this method is called complete normally;
+     * operations started afterwards throw {@link IllegalStateException}.
+     * Invoking this method more than once has no further effect.
+     */
+    public void free() {
+        ByteBuffer[] ss;
+        synchronized (slabLock) {
+            if (freed)
+                return;
+            freed = true;
+        }
+        // wait out any operation holding a bin lock
+        for (Object lock : locks) {
+            synchronized (lock) { }
+        }
+        synchronized (slabLock) {
+            ss = slabs;
+            slabs = new ByteBuffer[0];
+            slabCount = 0;
+        }
+        count.reset();
+        for (ByteBuffer s : ss) {
+            if (s instanceof sun.nio.ch.DirectBuffer)
+                ((sun.nio.ch.DirectBuffer)s).cleaner().clean();
+        }
+    }
+
+    /**
+     * Returns the number of slabs claimed by this map.
+     *
+     * @return the number of slabs
+     */
+    public int getSlabCount() {
+        synchronized (slabLock) {
+            return slabCount;
+        }
+    }
+
+    /**
+     * Returns the size of each slab, in bytes.
+     *
+     * @return the slab size
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    /**
+     * Returns the number of off-heap bytes claimed by this map.
+     *
+     * @return the number of bytes in all slabs
+     */
+    public long getAllocatedBytes() {
+        return (long)getSlabCount() * slabSize;
+    }
+
+    /**
+     * Returns the number of off-heap bytes occupied by the blocks of
+     * live entries, including the rounding of blocks to their size
+     * class.  The difference from {@link #getAllocatedBytes} is space
+     * on free lists or not yet carved.
+     *
+     * @return the number of bytes in live blocks
+     */
+    public long getUsedBytes() {
+        long u = 0L;
+        for (Arena a : arenas) {
+            synchronized (a) {
+                u += a.used;
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Returns a management interface presenting the slabs of this map
+     * as a buffer pool.  The pool's {@linkplain BufferPoolMXBean#getCount
+     * count} is the number of slabs, its {@linkplain
+     * BufferPoolMXBean#getTotalCapacity total capacity} is the number of
+     * bytes claimed, and its {@linkplain BufferPoolMXBean#getMemoryUsed
+     * memory used} is the number of bytes occupied by live entries.  The
+     * returned object may be registered with an
+     * {@link javax.management.MBeanServer MBeanServer} under its
+     * {@linkplain BufferPoolMXBean#getObjectName object name}.
+     *
+     * @return a buffer pool view of this map's slabs
+     */
+    public BufferPoolMXBean getBufferPoolMXBean() {
+        return new BufferPoolMXBean() {
+            public ObjectName getObjectName() {
+                try {
+                    return ObjectName.getInstance
+                        ("java.nio:type=BufferPool,name=" +
+                         ObjectName.quote(name));
+                } catch (MalformedObjectNameException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+            public String getName() { return name; }
+            public long getCount() { return getSlabCount(); }
+            public long getTotalCapacity() { return getAllocatedBytes(); }
+            public long getMemoryUsed() { return getUsedBytes(); }
+        };
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map; the entries it returns hold decoded
+     * copies of keys and values, and {@code setValue} writes through to
+     * the map.  The view's iterators are weakly consistent.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es;
+        return (es = entrySet) != null ? es :
+            (entrySet = new EntrySetView<K,V>(this));
+    }
+
+    private transient EntrySetView<K,V> entrySet;
+
+    /* ---------------- Stock codecs -------------- */
+
+    /**
+     * Returns a codec storing strings in UTF-8.
+     *
+     * @return a string codec
+     */
+    public static Codec<String> stringCodec() {
+        return StringCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec storing {@code Long} values in eight bytes.
+     *
+     * @return a long codec
+     */
+    public static Codec<Long> longCodec() {
+        return LongCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec storing {@code Integer} values in four bytes.
+     *
+     * @return an integer codec
+     */
+    public static Codec<Integer> intCodec() {
+        return IntCodec.INSTANCE;
+    }
+
+    /**
+     * Returns a codec storing byte arrays as their contents.
+     *
+     * @return a byte array codec
+     */
+    public static Codec<byte[]> byteArrayCodec() {
+        return ByteArrayCodec.INSTANCE;
+    }
+
+    static final class StringCodec implements Codec<String> {
+        static final StringCodec INSTANCE = new StringCodec();
+        public int encodedSize(String s) {
+            return s.getBytes(StandardCharsets.UTF_8).length;
+        }
+        public void encode(String s, ByteBuffer dst) {
+            dst.put(s.getBytes(StandardCharsets.UTF_8));
+        }
+        public String decode(ByteBuffer src) {
+            byte[] b = new byte[src.remaining()];
+            src.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class LongCodec implements Codec<Long> {
+        static final LongCodec INSTANCE = new LongCodec();
+        public int encodedSize(Long v) { return 8; }
+        public void encode(Long v, ByteBuffer dst) { dst.putLong(v); }
+        public Long decode(ByteBuffer src) { return src.getLong(); }
+    }
+
+    static final class IntCodec implements Codec<Integer> {
+        static final IntCodec INSTANCE = new IntCodec();
+        public int encodedSize(Integer v) { return 4; }
+        public void encode(Integer v, ByteBuffer dst) { dst.putInt(v); }
+        public Integer decode(ByteBuffer src) { return src.getInt(); }
+    }
+
+    static final class ByteArrayCodec implements Codec<byte[]> {
+        static final ByteArrayCodec INSTANCE = new ByteArrayCodec();
+        public int encodedSize(byte[] v) { return v.length; }
+        public void encode(byte[] v, ByteBuffer dst) { dst.put(v); }
+        public byte[] decode(ByteBuffer src) {
+            byte[] b = new byte[src.remaining()];
+            src.get(b);
+            return b;
+        }
+    }
+
+    /* ---------------- Encoding and entry access -------------- */
+
+    /**
+     * Encodes a non-null object into a new array.
+     */
+    private static <T> byte[] encode(Codec<T> codec, T x) {
+        if (x == null)
+            throw new NullPointerException();
+        byte[] a = new byte[codec.encodedSize(x)];
+        ByteBuffer bb = ByteBuffer.wrap(a);
+        codec.encode(x, bb);
+        if (bb.hasRemaining())
+            throw new IllegalStateException("codec wrote fewer bytes than reported");
+        return a;
+    }
+
+    /**
+     * Hashes encoded key bytes, spreading as ConcurrentHashMap.spread.
+     */
+    static int hash(byte[] k) {
+        int h = 1;
+        for (byte b : k)
+            h = 31 * h + b;
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    /**
+     * Returns a power of two table size for the given desired capacity.
+     */
+    private static final int tableSizeFor(int c) {
+        int n = c - 1;
+        n |= n >>> 1;
+        n |= n >>> 2;
+        n |= n >>> 4;
+        n |= n >>> 8;
+        n |= n >>> 16;
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * Returns the size class shift of a block holding an entry with
+     * the given key and value lengths.
+     */
+    private int blockShiftFor(int klen, int vlen) {
+        long need = (long)HEADER_SIZE + klen + vlen;
+        int shift = Math.max(MIN_BLOCK_SHIFT,
+                             64 - Long.numberOfLeadingZeros(need - 1));
+        if (shift > maxBlockShift)
+            throw new IllegalArgumentException
+                ("entry of " + need + " bytes exceeds slab size " + slabSize);
+        return shift;
+    }
+
+    private Object lockFor(int i) {
+        return locks[i & (LOCK_STRIPES - 1)];
+    }
+
+    private void checkNotFreed() {
+        if (freed)
+            throw new IllegalStateException("map has been freed");
+    }
+
+    private ByteBuffer slabOf(long addr) {
+        return slabs[(int)(addr >>> 32) - 1];
+    }
+
+    private long getLong(long addr, int field) {
+        return slabOf(addr).getLong((int)addr + field);
+    }
+
+    private int getInt(long addr, int field) {
+        return slabOf(addr).getInt((int)addr + field);
+    }
+
+    private void putLong(long addr, int field, long x) {
+        slabOf(addr).putLong((int)addr + field, x);
+    }
+
+    private void writeEntry(long p, int h, byte[] k, byte[] v) {
+        ByteBuffer s = slabOf(p);
+        int o = (int)p;
+        s.putInt(o + HASH, h);
+        s.putInt(o + KLEN, k.length);
+        s.putInt(o + VLEN, v.length);
+        ByteBuffer d = s.duplicate();
+        d.position(o + HEADER_SIZE);
+        d.put(k);
+        d.put(v);
+    }
+
+    /**
+     * Returns whether the bytes at the given slab offset equal a.
+     */
+    private static boolean bytesEqual(ByteBuffer s, int o, byte[] a) {
+        int n = a.length, i = 0;
+        for (; i + 8 <= n; i += 8) {
+            long x = s.getLong(o + i); // slabs use native order
+            if (!NATIVE_BIG_ENDIAN)
+                x = Long.reverseBytes(x);
+            if (x != getLongBE(a, i))
+                return false;
+        }
+        for (; i < n; ++i) {
+            if (s.get(o + i) != a[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static long getLongBE(byte[] a, int i) {
+        return ((long)a[i] << 56) | ((a[i+1] & 0xffL) << 48) |
+            ((a[i+2] & 0xffL) << 40) | ((a[i+3] & 0xffL) << 32) |
+            ((a[i+4] & 0xffL) << 24) | ((a[i+5] & 0xffL) << 16) |
+            ((a[i+6] & 0xffL) << 8) | (a[i+7] & 0xffL);
+    }
+
+    /**
+     * Returns the entry in the chain starting at b with the given
+     * hash and key bytes, or 0.
+     */
+    private long find(long b, int h, byte[] k) {
+        for (long e = b; e != 0L; e = getLong(e, NEXT)) {
+            ByteBuffer s = slabOf(e);
+            int o = (int)e;
+            if (s.getInt(o + HASH) == h && s.getInt(o + KLEN) == k.length &&
+                bytesEqual(s, o + HEADER_SIZE, k))
+                return e;
+        }
+        return 0L;
+    }
+
+    private boolean valueEquals(long e, byte[] v) {
+        ByteBuffer s = slabOf(e);
+        int o = (int)e;
+        return s.getInt(o + VLEN) == v.length &&
+            bytesEqual(s, o + HEADER_SIZE + s.getInt(o + KLEN), v);
+    }
+
+    private K decodeKey(long e) {
+        ByteBuffer s = slabOf(e);
+        int o = (int)e, start = o + HEADER_SIZE;
+        ByteBuffer d = s.asReadOnlyBuffer();
+        d.limit(start + s.getInt(o + KLEN)).position(start);
+        return keyCodec.decode(d.slice());
+    }
+
+    private V decodeValue(long e) {
+        ByteBuffer s = slabOf(e);
+        int o = (int)e, start = o + HEADER_SIZE + s.getInt(o + KLEN);
+        ByteBuffer d = s.asReadOnlyBuffer();
+        d.limit(start + s.getInt(o + VLEN)).position(start);
+        return valueCodec.decode(d.slice());
+    }
+
+    /**
+     * Unlinks entry e from the chain starting at b, putting p (which
+     * may be the successor of e) in its place.  Returns the new head.
+     */
+    private long replaceInChain(long b, long e, long p) {
+        long next = getLong(e, NEXT);
+        if (p != next)
+            putLong(p, NEXT, next);
+        if (b == e)
+            return p;
+        long pred = b, q;
+        while ((q = getLong(pred, NEXT)) != e)
+            pred = q;
+        putLong(pred, NEXT, p);
+        return b;
+    }
+
+    /* ---------------- Block allocation -------------- */
+
+    /**
+     * Allocates a block of the given size class from the arena of the
+     * given bin.  Called with the bin's lock held.
+     */
+    private long allocate(int bin, int shift) {
+        Arena a = arenas[bin & (ARENAS - 1)];
+        int c = shift - MIN_BLOCK_SHIFT, size = 1 << shift;
+        synchronized (a) {
+            long p = a.freeLists[c];
+            if (p != 0L)
+                a.freeLists[c] = getLong(p, NEXT);
+            else {
+                if (a.slab < 0 || slabSize - a.top < size) {
+                    if (a.slab >= 0)
+                        retireRemainder(a);
+                    a.slab = newSlab();
+                    a.top = 0;
+                }
+                p = ((long)(a.slab + 1) << 32) | a.top;
+                a.top += size;
+            }
+            a.used += size;
+            return p;
+        }
+    }
+
+    /**
+     * Returns the block at e to the arena of the given bin.  Called
+     * with the bin's lock held.  Blocks may move between arenas when
+     * a resize changes the bins they belong to.
+     */
+    private void release(int bin, long e) {
+        ByteBuffer s = slabOf(e);
+        int o = (int)e;
+        long need = (long)HEADER_SIZE + s.getInt(o + KLEN) + s.getInt(o + VLEN);
+        int shift = Math.max(MIN_BLOCK_SHIFT,
+                             64 - Long.numberOfLeadingZeros(need - 1));
+        Arena a = arenas[bin & (ARENAS - 1)];
+        synchronized (a) {
+            int c = shift - MIN_BLOCK_SHIFT;
+            s.putLong(o + NEXT, a.freeLists[c]);
+            a.freeLists[c] = e;
+            a.used -= 1 << shift;
+        }
+    }
+
+    /**
+     * Places the uncarved tail of the arena's current slab on its free
+     * lists, in blocks of decreasing size.  Called with the arena lock
+     * held.
+     */
+    private void retireRemainder(Arena a) {
+        int top = a.top;
+        for (int shift = maxBlockShift; shift >= MIN_BLOCK_SHIFT; --shift) {
+            int size = 1 << shift;
+            while (slabSize - top >= size) {
+                long p = ((long)(a.slab + 1) << 32) | top;
+                int c = shift - MIN_BLOCK_SHIFT;
+                putLong(p, NEXT, a.freeLists[c]);
+                a.freeLists[c] = p;
+                top += size;
+            }
+        }
+        a.top = top;
+    }
+
+    /**
+     * Claims a new slab, returning its number.
+     */
+    private int newSlab() {
+        synchronized (slabLock) {
+            checkNotFreed();
+            ByteBuffer s = ByteBuffer.allocateDirect(slabSize)
+                .order(ByteOrder.nativeOrder());
+            ByteBuffer[] ss = slabs;
+            int n = slabCount;
+            if (n == ss.length) {
+                ByteBuffer[] grown = new ByteBuffer[n << 1];
+                System.arraycopy(ss, 0, grown, 0, n);
+                ss = grown;
+            }
+            ss[n] = s;
+            slabs = ss; // publish
+            slabCount = n + 1;
+            return n;
+        }
+    }
+
+    /* ---------------- Table resizing -------------- */
+
+    /**
+     * Returns the stamp bits for resizing a table of size n.
+     * Must be negative when shifted left by RESIZE_STAMP_SHIFT.
+     */
+    static final int resizeStamp(int n) {
+        return Integer.numberOfLeadingZeros(n) | (1 << (RESIZE_STAMP_BITS - 1));
+    }
+
+    /**
+     * Adds to count, and if table is too small and not already
+     * resizing, initiates transfer.  If already resizing, helps
+     * perform transfer if work is available.
+     */
+    private final void addCount(long x, boolean check) {
+        count.add(x);
+        if (check) {
+            Table t, nt; int n, sc;
+            long s = count.sum();
+            while (s >= (long)(sc = sizeCtl) && (t = table) != null &&
+                   (n = t.bins.length) < MAXIMUM_CAPACITY) {
+                int rs = resizeStamp(n) << RESIZE_STAMP_SHIFT;
+                if (sc < 0) {
+                    if ((sc >>> RESIZE_STAMP_SHIFT) != (rs >>> RESIZE_STAMP_SHIFT) ||
+                        sc == rs + 1 || sc == rs + MAX_RESIZERS ||
+                        (nt = nextTable) == null || transferIndex <= 0)
+                        break;
+                    if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1))
+                        transfer(t, nt);
+                }
+                else if (U.compareAndSwapInt(this, SIZECTL, sc, rs + 2))
+                    transfer(t, null);
+                s = count.sum();
+            }
+        }
+    }
+
+    /**
+     * Helps transfer if a resize is in progress, returning the table
+     * to retry an operation with after finding a moved bin of t.
+     */
+    final Table helpTransfer(Table t) {
+        Table nt; int sc;
+        if ((nt = t.next) != null) {
+            int rs = resizeStamp(t.bins.length) << RESIZE_STAMP_SHIFT;
+            while (nt == nextTable && table == t && (sc = sizeCtl) < 0) {
+                if (sc == rs + 1 || sc == rs + MAX_RESIZERS ||
+                    transferIndex <= 0 ||
+                    (sc >>> RESIZE_STAMP_SHIFT) != (rs >>> RESIZE_STAMP_SHIFT))
+                    break;
+                if (U.compareAndSwapInt(this, SIZECTL, sc, sc + 1)) {
+                    transfer(t, nt);
+                    break;
+                }
+            }
+            return nt;
+        }
+        return table;
+    }
+
+    /**
+     * Moves and/or copies the entries in each bin to the new table,
+     * following ConcurrentHashMap.transfer.  Entries are relinked in
+     * place; see the overview for why one lock guards both tables.
+     */
+    private final void transfer(Table t, Table nt) {
+        long[] tab = t.bins;
+        int n = tab.length, stride;
+        if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
+            stride = MIN_TRANSFER_STRIDE; // subdivide range
+        if (nt == null) {            // initiating
+            try {
+                nt = new Table(n << 1);
+            } catch (Throwable ex) {      // try to cope with OOME
+                sizeCtl = Integer.MAX_VALUE;
+                return;
+            }
+            t.next = nt;
+            nextTable = nt;
+            transferIndex = n;
+        }
+        long[] nextTab = nt.bins;
+        boolean advance = true;
+        boolean finishing = false; // to ensure sweep before committing nextTab
+        for (int i = 0, bound = 0;;) {
+            int nextIndex, nextBound;
+            while (advance) {
+                if (--i >= bound || finishing)
+                    advance = false;
+                else if ((nextIndex = transferIndex) <= 0) {
+                    i = -1;
+                    advance = false;
+                }
+                else if (U.compareAndSwapInt
+                         (this, TRANSFERINDEX, nextIndex,
+                          nextBound = (nextIndex > stride ?
+                                       nextIndex - stride : 0))) {
+                    bound = nextBound;
+                    i = nextIndex - 1;
+                    advance = false;
+                }
+            }
+            if (i < 0 || i >= n) {
+                int sc;
+                if (finishing) {
+                    table = nt;
+                    nextTable = null;
+                    sizeCtl = (n << 1) - (n >>> 1);
+                    return;
+                }
+                if (U.compareAndSwapInt(this, SIZECTL, sc = sizeCtl, sc - 1)) {
+                    if ((sc - 2) != resizeStamp(n) << RESIZE_STAMP_SHIFT)
+                        return;
+                    finishing = advance = true;
+                    i = n; // recheck before commit
+                }
+            }
+            else {
+                synchronized (lockFor(i)) {
+                    if (freed)
+                        return;
+                    long b = tab[i];
+                    if (b != MOVED) {
+                        long lo = 0L, hi = 0L;
+                        for (long e = b, next; e != 0L; e = next) {
+                            next = getLong(e, NEXT);
+                            if ((getInt(e, HASH) & n) == 0) {
+                                putLong(e, NEXT, lo);
+                                lo = e;
+                            }
+                            else {
+                                putLong(e, NEXT, hi);
+                                hi = e;
+                            }
+                        }
+                        nextTab[i] = lo;
+                        nextTab[i + n] = hi;
+                        tab[i] = MOVED;
+                    }
+                }
+                advance = true;
+            }
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Appends decoded copies of the entries of bin i of table t, or of
+     * the bins it was split into, to the list.
+     */
+    final void collectBin(Table t, int i, ArrayList<MapEntry<K,V>> list) {
+        long[] tab = t.bins;
+        synchronized (lockFor(i)) {
+            checkNotFreed();
+            long b = tab[i];
+            if (b != MOVED) {
+                for (long e = b; e != 0L; e = getLong(e, NEXT))
+                    list.add(new MapEntry<K,V>(decodeKey(e), decodeValue(e), this));
+                return;
+            }
+        }
+        Table nt = t.next;
+        collectBin(nt, i, list);
+        collectBin(nt, i + tab.length, list);
+    }
+
+    /**
+     * Exported Entry for EntryIterator.  Holds decoded copies.
+     */
+    static final class MapEntry<K,V> implements Map.Entry<K,V> {
+        final K key;
+        V val;
+        final OffHeapConcurrentHashMap<K,V> map;
+        MapEntry(K key, V val, OffHeapConcurrentHashMap<K,V> map) {
+            this.key = key;
+            this.val = val;
+            this.map = map;
+        }
+        public K getKey()        { return key; }
+        public V getValue()      { return val; }
+        public int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public String toString() { return key + "=" + val; }
+
+        public boolean equals(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == val || v.equals(val)));
+        }
+
+        /**
+         * Sets our entry's value and writes through to the map.
+         */
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = val;
+            val = value;
+            map.put(key, value);
+            return v;
+        }
+    }
+
+    /**
+     * Iterates over the table a bin at a time.
+     */
+    static final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        final Table table;
+        final ArrayList<MapEntry<K,V>> buffer = new ArrayList<MapEntry<K,V>>();
+        int bin;           // next bin of table to collect
+        int index;         // next index in buffer
+        MapEntry<K,V> lastReturned;
+
+        EntryIterator(OffHeapConcurrentHashMap<K,V> map) {
+            this.map = map;
+            this.table = map.table;
+        }
+
+        public boolean hasNext() {
+            while (index >= buffer.size()) {
+                if (bin >= table.bins.length)
+                    return false;
+                buffer.clear();
+                index = 0;
+                map.collectBin(table, bin++, buffer);
+            }
+            return true;
+        }
+
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return lastReturned = buffer.get(index++);
+        }
+
+        public void remove() {
+            MapEntry<K,V> p;
+            if ((p = lastReturned) == null)
+                throw new IllegalStateException();
+            lastReturned = null;
+            map.remove(p.key);
+        }
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        EntrySetView(OffHeapConcurrentHashMap<K,V> map) { this.map = map; }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator<K,V>(map);
+        }
+        public int size() { return map.size(); }
+        public boolean isEmpty() { return map.isEmpty(); }
+        public void clear() { map.clear(); }
+
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = map.get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    map.remove(k, v));
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long SIZECTL;
+    private static final long TRANSFERINDEX;
+
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = OffHeapConcurrentHashMap.class;
+            SIZECTL = U.objectFieldOffset
+                (k.getDeclaredField("sizeCtl"));
+            TRANSFERINDEX = U.objectFieldOffset
+                (k.getDeclaredField("transferIndex"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+
+import java.util.Collection;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, for use by a single producer and a single consumer, that
+ * needs neither locks nor atomic read-modify-write instructions.
+ * This queue orders elements FIFO (first-in-first-out).
+ *
+ * <p>A slot of the array holding {@code null} is free, so the
+ * producer and the consumer each test and write only the slot at
+ * their own position, which they alone advance.  This makes the queue
+ * well suited to pipelines between two threads.  The capacity is
+ * fixed on construction, as the requested capacity rounded up to a
+ * power of two.
+ *
+ * <p><b>At most one thread at a time may insert elements</b>, by
+ * {@code offer}, {@code put} or {@code add}, and <b>at most one
+ * thread at a time may retrieve elements</b>, by {@code poll}, {@code
+ * take}, {@code remove()}, {@code drainTo} or {@code clear}.  The
+ * effects of concurrent insertions, or of concurrent retrievals, are
+ * undefined.  The inserting and retrieving threads may change over
+ * time, as long as each insertion (respectively retrieval)
+ * happens-before the next.
+ *
+ * <p>Threads that find the queue full or empty spin briefly, and
+ * then park until signalled; no lock is acquired unless some thread
+ * is parked.  The {@code size} method is only an estimate while the
+ * queue is in use.  Iterators traverse a snapshot of the elements
+ * and do not support removal; consequently {@link #remove(Object)} is
+ * not supported, and this queue cannot be used as the work queue of a
+ * {@link ThreadPoolExecutor}, which removes queued tasks.
+ *
+ * <p>Memory consistency effects: As with other concurrent
+ * collections, actions in a thread prior to placing an object into a
+ * {@code SpscArrayBlockingQueue}
+ * <a href="package-summary.html#MemoryVisibility"><i>happen-before</i></a>
+ * actions subsequent to the access or removal of that element from
+ * the {@code SpscArrayBlockingQueue} in another thread.
+ *
+ * @see MpmcArrayBlockingQueue
+ * @see MpscArrayBlockingQueue
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class SpscArrayBlockingQueue<E> extends ConcurrentArrayQueue<E> {
+
+    /**
+     * Creates a {@code SpscArrayBlockingQueue} with at least the given
+     * capacity.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is less
+     *         than 1 or greater than {@code 1 << 30}
+     */
+    public SpscArrayBlockingQueue(int capacity) {
+        super(capacity, false);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        final Object[] items = this.items;
+        long t = tail;
+        long io = itemOffset((int)t & mask);
+        if (U.getObjectVolatile(items, io) != null)
+            return false;
+        U.putObjectVolatile(items, io, e);
+        U.putOrderedLong(this, TAIL, t + 1L);
+        signalNotEmpty();
+        return true;
+    }
+
+    public E poll() {
+        final Object[] items = this.items;
+        long h = head;
+        long io = itemOffset((int)h & mask);
+        @SuppressWarnings("unchecked")
+        E x = (E) U.getObjectVolatile(items, io);
+        if (x != null) {
+            U.putObjectVolatile(items, io, null);
+            U.putOrderedLong(this, HEAD, h + 1L);
+            signalNotFull(1);
+        }
+        return x;
+    }
+
+    public E peek() {
+        @SuppressWarnings("unchecked")
+        E x = (E) U.getObjectVolatile(items, itemOffset((int)head & mask));
+        return x;
+    }
+
+    int drain(Collection<? super E> c, int max) {
+        final Object[] items = this.items;
+        final int mask = this.mask;
+        final long h = head;
+        int n = 0;
+        try {
+            while (n < max) {
+                long io = itemOffset((int)(h + n) & mask);
+                @SuppressWarnings("unchecked")
+                E x = (E) U.getObjectVolatile(items, io);
+                if (x == null)
+                    break;
+                U.putObjectVolatile(items, io, null);
+                ++n;
+                c.add(x);
+            }
+        } finally {
+            // Publish progress even if c.add threw
+            if (n > 0) {
+                U.putOrderedLong(this, HEAD, h + n);
+                signalNotFull(n);
+            }
+        }
+        return n;
+    }
+}
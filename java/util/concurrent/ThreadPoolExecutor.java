@@ -198,6 +198,13 @@ import java.util.*;
  *
  * </ol>
  *
+ * With many threads running short tasks, worker threads may contend
+ * on the lock of a single queue to take their next task.  A {@link
+ * WorkStealingBlockingQueue} instead gives each thread its own lane,
+ * from which it takes tasks, stealing from other lanes when its own is
+ * empty.  It may be used unbounded or bounded, with the same effects
+ * as described above.
+ *
  * </dd>
  *
  * <dt>Rejected tasks</dt>
@@ -544,6 +551,20 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     private volatile int maximumPoolSize;
 
+    /**
+     * The controller adjusting the core pool size, or null if none.
+     * Informed by workers of each completed task.
+     */
+    private volatile ThreadPoolSizeController sizeController;
+
+    /**
+     * The task statistics recorded by workers, or null if disabled.
+     * Tasks carry no submission time, so that the queue holds the
+     * submitted tasks themselves; the wait of a task taken from the
+     * queue is instead estimated from the queue length when taken.
+     */
+    private volatile ExecutorStatistics statistics;
+
     /**
      * The default rejected execution handler
      */
@@ -608,6 +629,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Runnable firstTask;
         /** Per-thread task counter */
         volatile long completedTasks;
+        /** The nanoTime at which the first task was handed over */
+        final long firstTaskNanos;
 
         /**
          * Creates with given first task and thread from ThreadFactory.
@@ -616,6 +639,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Worker(Runnable firstTask) {
             setState(-1); // inhibit interrupts until runWorker
             this.firstTask = firstTask;
+            this.firstTaskNanos = System.nanoTime();
             this.thread = getThreadFactory().newThread(this);
         }
 
@@ -827,6 +851,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * Package-protected for use by ScheduledThreadPoolExecutor.
      */
     final void reject(Runnable command) {
+        ExecutorStatistics stats = statistics;
+        if (stats != null)
+            stats.recordRejection();
         handler.rejectedExecution(command, this);
     }
 
@@ -1127,6 +1154,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     final void runWorker(Worker w) {
         Thread wt = Thread.currentThread();
         Runnable task = w.firstTask;
+        boolean firstTask = (task != null);
         w.firstTask = null;
         w.unlock(); // allow interrupts
         boolean completedAbruptly = true;
@@ -1142,6 +1170,17 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                       runStateAtLeast(ctl.get(), STOP))) &&
                     !wt.isInterrupted())
                     wt.interrupt();
+                ThreadPoolSizeController sc = sizeController;
+                ExecutorStatistics stats = statistics;
+                long start = (sc == null && stats == null) ?
+                    0L : System.nanoTime();
+                if (stats != null) {
+                    if (firstTask)
+                        stats.recordQueueWait(start - w.firstTaskNanos);
+                    else
+                        stats.taskDequeued(workQueue.size(), start);
+                }
+                firstTask = false;
                 try {
                     beforeExecute(wt, task);
                     Throwable thrown = null;
@@ -1155,6 +1194,13 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                         thrown = x; throw new Error(x);
                     } finally {
                         afterExecute(task, thrown);
+                        if (sc != null || stats != null) {
+                            long elapsed = System.nanoTime() - start;
+                            if (stats != null)
+                                stats.recordExecution(elapsed);
+                            if (sc != null)
+                                sc.taskCompleted(this, elapsed);
+                        }
                     }
                 } finally {
                     task = null;
@@ -1539,6 +1585,73 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         return handler;
     }
 
+    /**
+     * Sets the controller that adjusts the core pool size of this
+     * executor according to its measured throughput and queueing
+     * delay, or removes the current controller if {@code null}.
+     * Removing a controller leaves the pool sizes as last set.
+     *
+     * @param controller the new controller, or {@code null}
+     * @throws IllegalStateException if the controller is already in
+     *         use by another executor
+     * @see #getSizeController
+     */
+    public void setSizeController(ThreadPoolSizeController controller) {
+        if (controller != null)
+            controller.attach(this);
+        ThreadPoolSizeController old = sizeController;
+        sizeController = controller;
+        if (old != null && old != controller)
+            old.detach(this);
+    }
+
+    /**
+     * Returns the controller adjusting the core pool size of this
+     * executor, or {@code null} if none.
+     *
+     * @return the current controller, or {@code null}
+     * @see #setSizeController
+     */
+    public ThreadPoolSizeController getSizeController() {
+        return sizeController;
+    }
+
+    /**
+     * Enables or disables the recording of task statistics.  While
+     * enabled, workers record the time each task waits in the queue,
+     * and the time each task takes to run, in a new {@link
+     * ExecutorStatistics}.  The queue wait of a task taken from the
+     * queue is estimated by Little's law, as the number of tasks still
+     * queued times the recent average interval between takes.  Disabling
+     * statistics discards them; tasks already queued continue to be
+     * run normally.
+     *
+     * @param enabled {@code true} to enable statistics, {@code false}
+     *        to disable them
+     * @see #getStatistics
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        if (!enabled)
+            statistics = null;
+        else if (statistics == null)
+            statistics = new ExecutorStatistics(
+                "ThreadPoolExecutor-" +
+                Integer.toHexString(System.identityHashCode(this)));
+    }
+
+    /**
+     * Returns the task statistics of this executor, or {@code null}
+     * if statistics are not enabled.  The statistics are an {@link
+     * java.lang.management.ExecutorMXBean} that may be registered
+     * with the platform MBean server.
+     *
+     * @return the task statistics, or {@code null}
+     * @see #setStatisticsEnabled
+     */
+    public ExecutorStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Sets the core number of threads.  This overrides any value set
      * in the constructor.  If the new value is smaller than the
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A controller that adjusts the core pool size of a
+ * {@link ThreadPoolExecutor} by <em>hill climbing</em> on its measured
+ * throughput, within configurable bounds.  A controller is installed
+ * with {@link ThreadPoolExecutor#setSizeController}, and may be used
+ * by only one executor at a time.
+ *
+ * <p>The worker threads of the executor report each completed task,
+ * with its execution time, to the controller.  Once per sampling
+ * period, the worker completing a task evaluates the last period:
+ * <ul>
+ * <li>the <em>throughput</em>, in tasks completed per second;
+ * <li>the <em>queue wait</em>, the average time tasks spend in the
+ * work queue, estimated by Little's law as the current queue length
+ * divided by the throughput; and
+ * <li>the <em>utilization</em>, the fraction of the period that the
+ * core threads spent executing tasks.
+ * </ul>
+ * and then decides on a new core pool size:
+ * <ul>
+ * <li>If the previous decision grew the pool and throughput did not
+ * improve by more than a small tolerance, the pool is oversubscribed:
+ * the increase is undone.  If the previous decision shrank the pool
+ * and throughput dropped, the decrease is undone.  After undoing a
+ * move, the size is held for a few periods.
+ * <li>Otherwise, if the queue wait exceeds the target queue wait, the
+ * pool grows by one step.
+ * <li>Otherwise, if the queue is empty and utilization is low, the
+ * pool shrinks by one step.
+ * <li>Otherwise the size is kept.
+ * </ul>
+ * The new core size is always between the minimum and maximum pool
+ * sizes of the controller; the maximum pool size of the executor is
+ * raised if needed to admit it.
+ *
+ * <p>Every decision, including decisions to keep the current size,
+ * is recorded as a {@link Decision} that is available from
+ * {@link #getLastDecision} and passed to the decision listener, if one
+ * is set.  The listener runs in a worker thread of the executor, so it
+ * should be quick; any exception it throws is ignored.
+ *
+ * <p>Since sampling is driven by task completions, a pool that
+ * completes no tasks, because it is idle or all its tasks are blocked,
+ * is not resized.  Idle core threads may be reclaimed with
+ * {@link ThreadPoolExecutor#allowCoreThreadTimeOut}.
+ *
+ * @since 1.8
+ */
+public class ThreadPoolSizeController {
+
+    /** Relative throughput change regarded as noise */
+    private static final double TOLERANCE = 0.05;
+
+    /** Utilization below which an unqueued pool is shrunk */
+    private static final double LOW_UTILIZATION = 0.5;
+
+    /** Number of periods to hold the size after undoing a move */
+    private static final int HOLD_PERIODS = 4;
+
+    /**
+     * The record of one sizing decision.
+     */
+    public static final class Decision {
+        private final long nanoTime;
+        private final int oldSize, newSize;
+        private final double throughput, utilization;
+        private final long queueWaitNanos;
+
+        Decision(long nanoTime, int oldSize, int newSize, double throughput,
+                 long queueWaitNanos, double utilization) {
+            this.nanoTime = nanoTime;
+            this.oldSize = oldSize;
+            this.newSize = newSize;
+            this.throughput = throughput;
+            this.queueWaitNanos = queueWaitNanos;
+            this.utilization = utilization;
+        }
+
+        /**
+         * Returns the value of {@link System#nanoTime} when the decision
+         * was made.
+         *
+         * @return the time of the decision, in nanoseconds
+         */
+        public long getNanoTime() { return nanoTime; }
+
+        /**
+         * Returns the core pool size before the decision.
+         *
+         * @return the old core pool size
+         */
+        public int getOldSize() { return oldSize; }
+
+        /**
+         * Returns the core pool size chosen by the decision, which equals
+         * the old size if the size was kept.
+         *
+         * @return the new core pool size
+         */
+        public int getNewSize() { return newSize; }
+
+        /**
+         * Returns the throughput measured in the sampling period.
+         *
+         * @return the number of tasks completed per second
+         */
+        public double getThroughput() { return throughput; }
+
+        /**
+         * Returns the estimated average time tasks spent in the work
+         * queue.
+         *
+         * @return the estimated queue wait, in nanoseconds
+         */
+        public long getQueueWaitNanos() { return queueWaitNanos; }
+
+        /**
+         * Returns the fraction of the sampling period that the core
+         * threads spent executing tasks.
+         *
+         * @return the utilization, normally between 0 and 1
+         */
+        public double getUtilization() { return utilization; }
+
+        /**
+         * Returns a string describing this decision.
+         *
+         * @return a string describing this decision
+         */
+        public String toString() {
+            return "Decision[" + oldSize + " -> " + newSize +
+                ", throughput = " + throughput +
+                ", queue wait = " + queueWaitNanos + "ns" +
+                ", utilization = " + utilization + "]";
+        }
+    }
+
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final int step;
+    private final long samplePeriodNanos;
+    private final long targetQueueWaitNanos;
+
+    /** The executor using this controller, or null */
+    private final AtomicReference<ThreadPoolExecutor> executor =
+        new AtomicReference<ThreadPoolExecutor>();
+
+    /** Tasks completed in the current period */
+    private final LongAdder completed = new LongAdder();
+
+    /** Nanoseconds spent executing tasks in the current period */
+    private final LongAdder busyNanos = new LongAdder();
+
+    /** Start of the current sampling period */
+    private final AtomicLong periodStart = new AtomicLong();
+
+    /**
+     * Set while a thread is evaluating a sampling period or resetting
+     * the hill-climbing state.  Any worker may end a period, so this
+     * keeps evaluations from overlapping, and its volatile writes and
+     * reads publish the state below from one holder to the next.
+     */
+    private final AtomicBoolean sampling = new AtomicBoolean();
+
+    // Hill-climbing state, accessed only while holding sampling
+    private double lastThroughput;
+    private int lastDelta;
+    private int holdPeriods;
+
+    private volatile Decision lastDecision;
+    private volatile Consumer<? super Decision> listener;
+    private final LongAdder decisionCount = new LongAdder();
+    private final LongAdder resizeCount = new LongAdder();
+
+    /**
+     * Creates a controller keeping the core pool size between the given
+     * bounds, with a sampling period of 500 milliseconds, a target
+     * queue wait of 10 milliseconds, and a step of one thread.
+     *
+     * @param minPoolSize the minimum core pool size
+     * @param maxPoolSize the maximum core pool size
+     * @throws IllegalArgumentException if {@code minPoolSize < 1} or
+     *         {@code maxPoolSize < minPoolSize}
+     */
+    public ThreadPoolSizeController(int minPoolSize, int maxPoolSize) {
+        this(minPoolSize, maxPoolSize, 1, 500L, 10L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a controller with the given parameters.
+     *
+     * @param minPoolSize the minimum core pool size
+     * @param maxPoolSize the maximum core pool size
+     * @param step the number of threads by which the core pool size is
+     *        changed in one decision
+     * @param samplePeriod the time between decisions
+     * @param targetQueueWait the average time tasks may spend in the
+     *        queue before the pool is grown
+     * @param unit the time unit of the {@code samplePeriod} and
+     *        {@code targetQueueWait} arguments
+     * @throws IllegalArgumentException if {@code minPoolSize < 1},
+     *         {@code maxPoolSize < minPoolSize}, {@code step < 1},
+     *         {@code samplePeriod <= 0} or {@code targetQueueWait < 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public ThreadPoolSizeController(int minPoolSize, int maxPoolSize,
+                                    int step, long samplePeriod,
+                                    long targetQueueWait, TimeUnit unit) {
+        if (minPoolSize < 1 || maxPoolSize < minPoolSize || step < 1 ||
+            samplePeriod <= 0L || targetQueueWait < 0L)
+            throw new IllegalArgumentException();
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.step = step;
+        this.samplePeriodNanos = unit.toNanos(samplePeriod);
+        this.targetQueueWaitNanos = unit.toNanos(targetQueueWait);
+    }
+
+    /**
+     * Sets the listener informed of every decision, or removes it if
+     * {@code null}.
+     *
+     * @param listener the listener, or {@code null}
+     */
+    public void setDecisionListener(Consumer<? super Decision> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the minimum core pool size.
+     *
+     * @return the minimum core pool size
+     */
+    public int getMinimumPoolSize() { return minPoolSize; }
+
+    /**
+     * Returns the maximum core pool size.
+     *
+     * @return the maximum core pool size
+     */
+    public int getMaximumPoolSize() { return maxPoolSize; }
+
+    /**
+     * Returns the most recent decision, or {@code null} if none has
+     * been made yet.
+     *
+     * @return the most recent decision, or {@code null}
+     */
+    public Decision getLastDecision() { return lastDecision; }
+
+    /**
+     * Returns the number of decisions made, including decisions to keep
+     * the current size.
+     *
+     * @return the number of decisions
+     */
+    public long getDecisionCount() { return decisionCount.sum(); }
+
+    /**
+     * Returns the number of decisions that changed the core pool size.
+     *
+     * @return the number of resizes
+     */
+    public long getResizeCount() { return resizeCount.sum(); }
+
+    /**
+     * Binds this controller to the given executor, starting a new
+     * sampling period.
+     */
+    void attach(ThreadPoolExecutor e) {
+        if (!executor.compareAndSet(null, e) && executor.get() != e)
+            throw new IllegalStateException("controller in use");
+        while (!sampling.compareAndSet(false, true))
+            Thread.yield(); // wait out a sample for a previous executor
+        try {
+            completed.reset();
+            busyNanos.reset();
+            lastDelta = 0;
+            holdPeriods = 0;
+            lastThroughput = 0.0;
+            periodStart.set(System.nanoTime());
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    /**
+     * Unbinds this controller from the given executor.
+     */
+    void detach(ThreadPoolExecutor e) {
+        executor.compareAndSet(e, null);
+    }
+
+    /**
+     * Records a task completed by a worker of the executor, taking
+     * nanos to run, and evaluates the sampling period if it has ended
+     * and no other thread is evaluating one.
+     */
+    void taskCompleted(ThreadPoolExecutor e, long nanos) {
+        completed.increment();
+        busyNanos.add(nanos);
+        long start = periodStart.get(), now = System.nanoTime();
+        if (now - start >= samplePeriodNanos &&
+            sampling.compareAndSet(false, true)) {
+            try {
+                if (periodStart.compareAndSet(start, now))
+                    sample(e, now - start, now);
+            } finally {
+                sampling.set(false);
+            }
+        }
+    }
+
+    /**
+     * Evaluates a sampling period of the given length and resizes the
+     * pool.  Called only while holding sampling, by the thread that
+     * ended the period.
+     */
+    private void sample(ThreadPoolExecutor e, long elapsed, long now) {
+        long n = completed.sumThenReset();
+        long busy = busyNanos.sumThenReset();
+        int size = e.getCorePoolSize();
+        int queued = e.getQueue().size();
+        double throughput = n * 1e9 / elapsed;
+        long wait = (n == 0L) ? ((queued == 0) ? 0L : Long.MAX_VALUE) :
+            (long) (queued * ((double) elapsed / n));
+        double utilization =
+            (double) busy / ((double) elapsed * Math.max(size, 1));
+
+        int delta;
+        if (holdPeriods > 0) {
+            --holdPeriods;
+            delta = 0;
+        }
+        else if (lastDelta > 0 &&
+                 throughput <= lastThroughput * (1.0 + TOLERANCE)) {
+            delta = -lastDelta; // growing did not pay off
+            holdPeriods = HOLD_PERIODS;
+        }
+        else if (lastDelta < 0 &&
+                 throughput < lastThroughput * (1.0 - TOLERANCE)) {
+            delta = -lastDelta; // shrinking hurt
+            holdPeriods = HOLD_PERIODS;
+        }
+        else if (wait > targetQueueWaitNanos)
+            delta = step;
+        else if (queued == 0 && utilization < LOW_UTILIZATION)
+            delta = -step;
+        else
+            delta = 0;
+
+        int newSize = Math.max(minPoolSize,
+                               Math.min(maxPoolSize, size + delta));
+        if (size < minPoolSize || size > maxPoolSize)
+            newSize = Math.max(minPoolSize, Math.min(maxPoolSize, size));
+        if (newSize != size) {
+            if (newSize > e.getMaximumPoolSize())
+                e.setMaximumPoolSize(newSize);
+            e.setCorePoolSize(newSize);
+            resizeCount.increment();
+        }
+        lastDelta = newSize - size;
+        lastThroughput = throughput;
+
+        Decision d = new Decision(now, size, newSize, throughput,
+                                  wait, utilization);
+        lastDecision = d;
+        decisionCount.increment();
+        Consumer<? super Decision> l = listener;
+        if (l != null) {
+            try {
+                l.accept(d);
+            } catch (RuntimeException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,834 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.*;
+
+/**
+ * A {@link ScheduledExecutorService} that keeps delayed tasks in a
+ * hierarchical hashed timer wheel rather than a priority queue.
+ * Scheduling and cancelling a task take constant time and never
+ * contend on a lock, which makes this class preferable to {@link
+ * ScheduledThreadPoolExecutor} for very large numbers of delayed
+ * tasks that are mostly cancelled before they run, such as request
+ * timeouts.
+ *
+ * <p>Time advances in discrete <em>ticks</em> of a duration given on
+ * construction, one millisecond by default.  A task is enabled at the
+ * first tick at or after its trigger time, so delayed tasks execute
+ * no sooner than they are enabled, but may execute up to one tick
+ * late, in addition to any delay before a worker thread commences
+ * them.  Tasks enabled at the same tick are not ordered with respect
+ * to each other.  A coarser tick costs fewer timer wake-ups in
+ * exchange for less precision.
+ *
+ * <p>A single timer thread advances the wheel, and hands all tasks
+ * enabled at a tick to a fixed pool of {@code corePoolSize} worker
+ * threads in one batch.  Tasks with no delay are handed to the
+ * workers directly.  Both kinds of threads are created by the thread
+ * factory given on construction, if any, when the first task is
+ * scheduled.
+ *
+ * <p>Cancelled tasks are always removed from the wheel, at the next
+ * tick.  After {@link #shutdown}, delayed tasks continue to be run
+ * when they are enabled, but periodic tasks are cancelled, as by
+ * default in {@code ScheduledThreadPoolExecutor}.
+ *
+ * @since 1.8
+ */
+public class TimerWheelExecutor extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    /*
+     * The wheel consists of LEVELS levels of WHEEL_SIZE slots, each
+     * holding a doubly-linked list of tasks.  Ticks are counted from
+     * the construction of the executor.  A task due at tick t, placed
+     * when the current tick is c, goes to the level holding the most
+     * significant WHEEL_BITS-bit digit in which t and c differ, in the
+     * slot indexed by that digit of t.  When the current tick reaches
+     * a value whose digits below level l are all zero, the slot of
+     * level l indexed by its level-l digit is emptied and its tasks
+     * are placed again, so landing on lower levels, until they are
+     * found in the level-0 slot of the current tick and run.  Placing
+     * and unlinking a task are thus constant-time, and each task is
+     * moved at most LEVELS - 1 times over its whole delay.
+     *
+     * All wheel state (the slots, the links and slot index of each
+     * task, the current tick) is confined to the timer thread.  Other
+     * threads hand over newly scheduled tasks, and cancelled ones to
+     * be unlinked, through two lock-free queues that the timer drains
+     * at each tick.  When the wheel and the queue of scheduled tasks
+     * are both empty, the timer parks until a task is scheduled
+     * rather than waking at each tick.
+     *
+     * Shutdown is driven by the timer thread, which owns the tasks:
+     * after shutdown() it cancels periodic tasks and exits once the
+     * wheel is empty; after shutdownNow() it collects the remaining
+     * tasks and exits at once.  The worker pool is shut down when the
+     * timer exits.
+     */
+
+    /** log2 of the number of slots per level */
+    static final int WHEEL_BITS = 6;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** The number of levels, enough for any non-negative tick */
+    static final int LEVELS = (63 + WHEEL_BITS - 1) / WHEEL_BITS;
+
+    private static final long DEFAULT_TICK_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /** Run states, in increasing order */
+    private static final int RUNNING  = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP     = 2;
+
+    private volatile int runState;
+
+    /** The duration of a tick, in nanoseconds */
+    private final long tickNanos;
+
+    /** The nanoTime of tick 0 */
+    private final long origin;
+
+    /** Runs enabled tasks */
+    private final ThreadPoolExecutor pool;
+
+    private final ThreadFactory threadFactory;
+
+    /** Sequence number to break scheduling ties FIFO in compareTo */
+    private final AtomicLong sequencer = new AtomicLong();
+
+    /** Newly scheduled tasks, not yet placed by the timer */
+    private final ConcurrentLinkedQueue<WheelTask<?>> scheduled =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Cancelled tasks, to be unlinked by the timer */
+    private final ConcurrentLinkedQueue<WheelTask<?>> cancelled =
+        new ConcurrentLinkedQueue<WheelTask<?>>();
+
+    /** Guards creation of the timer thread and run state changes */
+    private final ReentrantLock mainLock = new ReentrantLock();
+
+    /** The timer thread, or null if not yet started */
+    private volatile Thread timer;
+
+    /** True while the timer is parked with no tasks to track */
+    private volatile boolean idle;
+
+    /** Released when the timer thread exits, or would never start */
+    private final CountDownLatch timerDone = new CountDownLatch(1);
+
+    /** The tasks collected by the timer on shutdownNow */
+    private List<Runnable> unstarted;
+
+    // Timer thread state
+
+    /** The first task in each slot, indexed by level * WHEEL_SIZE + digit */
+    private final WheelTask<?>[] heads =
+        new WheelTask<?>[LEVELS * WHEEL_SIZE];
+
+    /** The last task in each slot */
+    private final WheelTask<?>[] tails =
+        new WheelTask<?>[LEVELS * WHEEL_SIZE];
+
+    /** The last tick processed */
+    private long currentTick;
+
+    /** The number of tasks in the wheel */
+    private int size;
+
+    /** True once periodic tasks have been cancelled after shutdown */
+    private boolean periodicCancelled;
+
+    private class WheelTask<V>
+            extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /** Sequence number to break ties FIFO */
+        private final long sequenceNumber;
+
+        /** The time the task is enabled to execute in nanoTime units */
+        private volatile long time;
+
+        /**
+         * Period in nanoseconds for repeating tasks.  A positive
+         * value indicates fixed-rate execution.  A negative value
+         * indicates fixed-delay execution.  A value of 0 indicates a
+         * non-repeating task.
+         */
+        private final long period;
+
+        /** Links and slot index in the wheel, or -1; timer only */
+        WheelTask<?> prev, next;
+        int slot = -1;
+
+        /** The tick at which the task is enabled; timer only */
+        long tick;
+
+        WheelTask(Runnable r, V result, long ns, long period) {
+            super(r, result);
+            this.time = ns;
+            this.period = period;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        WheelTask(Callable<V> callable, long ns) {
+            super(callable);
+            this.time = ns;
+            this.period = 0;
+            this.sequenceNumber = sequencer.getAndIncrement();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) // compare zero if same object
+                return 0;
+            if (other instanceof WheelTask) {
+                WheelTask<?> x = (WheelTask<?>)other;
+                long diff = time - x.time;
+                if (diff < 0)
+                    return -1;
+                else if (diff > 0)
+                    return 1;
+                else if (sequenceNumber < x.sequenceNumber)
+                    return -1;
+                else
+                    return 1;
+            }
+            long diff = getDelay(NANOSECONDS) - other.getDelay(NANOSECONDS);
+            return (diff < 0) ? -1 : (diff > 0) ? 1 : 0;
+        }
+
+        /**
+         * Returns {@code true} if this is a periodic (not a one-shot) action.
+         *
+         * @return {@code true} if periodic
+         */
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        /**
+         * Returns the tick at which the task is enabled.
+         */
+        long enablingTick() {
+            long d = time - origin;
+            return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && timerDone.getCount() != 0L)
+                TimerWheelExecutor.this.cancelled.offer(this);
+            return cancelled;
+        }
+
+        /**
+         * Overrides FutureTask version so as to reset/requeue if periodic.
+         */
+        public void run() {
+            if (!isPeriodic())
+                super.run();
+            else if (runAndReset()) {
+                long p = period;
+                time = (p > 0) ? time + p : triggerTime(-p);
+                if (runState != RUNNING || !enqueue(this))
+                    cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Creates a new {@code TimerWheelExecutor} with the given number
+     * of worker threads and a tick of one millisecond.
+     *
+     * @param corePoolSize the number of threads to run enabled tasks
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     */
+    public TimerWheelExecutor(int corePoolSize) {
+        this(corePoolSize, DEFAULT_TICK_NANOS, NANOSECONDS,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimerWheelExecutor} with the given number
+     * of worker threads and tick duration.
+     *
+     * @param corePoolSize the number of threads to run enabled tasks
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public TimerWheelExecutor(int corePoolSize,
+                              long tickDuration, TimeUnit unit) {
+        this(corePoolSize, tickDuration, unit,
+             Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new {@code TimerWheelExecutor} with the given number
+     * of worker threads, tick duration and thread factory.
+     *
+     * @param corePoolSize the number of threads to run enabled tasks
+     * @param tickDuration the duration of a tick
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates its timer and worker threads
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration <= 0}
+     * @throws NullPointerException if {@code unit} or
+     *         {@code threadFactory} is null
+     */
+    public TimerWheelExecutor(int corePoolSize,
+                              long tickDuration, TimeUnit unit,
+                              ThreadFactory threadFactory) {
+        if (corePoolSize < 0 || tickDuration <= 0)
+            throw new IllegalArgumentException();
+        if (unit == null || threadFactory == null)
+            throw new NullPointerException();
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.threadFactory = threadFactory;
+        this.pool = new ThreadPoolExecutor(
+            corePoolSize, Math.max(corePoolSize, 1), 0L, NANOSECONDS,
+            new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.origin = System.nanoTime();
+    }
+
+    /**
+     * Returns the tick duration in the given time unit.
+     *
+     * @param unit the desired time unit
+     * @return the tick duration
+     */
+    public long getTickDuration(TimeUnit unit) {
+        return unit.convert(tickNanos, NANOSECONDS);
+    }
+
+    /**
+     * Returns the trigger time of a delayed action.
+     */
+    private long triggerTime(long delay, TimeUnit unit) {
+        return triggerTime(unit.toNanos((delay < 0) ? 0 : delay));
+    }
+
+    /**
+     * Returns the trigger time of a delayed action, bounding the delay
+     * so that trigger times stay far from overflow.
+     */
+    long triggerTime(long delay) {
+        return System.nanoTime() +
+            ((delay < (Long.MAX_VALUE >> 1)) ? delay : (Long.MAX_VALUE >> 1));
+    }
+
+    /**
+     * Hands a task to the timer, starting the timer if necessary.
+     * Returns false if the executor was shut down first.
+     */
+    private boolean enqueue(WheelTask<?> t) {
+        if (timer == null && !startTimer())
+            return false;
+        scheduled.offer(t);
+        if (idle)
+            LockSupport.unpark(timer);
+        if (runState != RUNNING && scheduled.remove(t))
+            return false;
+        return true;
+    }
+
+    /**
+     * Starts the timer thread unless already started.  Returns false
+     * if the executor is shut down.
+     */
+    private boolean startTimer() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState != RUNNING)
+                return false;
+            if (timer == null) {
+                Thread t = threadFactory.newThread(new Runnable() {
+                        public void run() { runTimer(); }});
+                if (t == null)
+                    throw new RejectedExecutionException(
+                        "Thread factory failed to create timer thread");
+                t.start();
+                timer = t;
+            }
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Main execution method for delayed tasks: runs the task at once
+     * if it has no delay, else hands it to the timer.
+     */
+    private void delayedExecute(WheelTask<?> task) {
+        if (runState != RUNNING)
+            reject(task);
+        else if (task.getDelay(NANOSECONDS) <= 0L)
+            pool.execute(task);
+        else if (!enqueue(task))
+            reject(task);
+    }
+
+    private void reject(Runnable task) {
+        throw new RejectedExecutionException("Task " + task.toString() +
+                                             " rejected from " +
+                                             toString());
+    }
+
+    // Timer thread
+
+    /**
+     * The main loop of the timer thread.
+     */
+    private void runTimer() {
+        try {
+            for (;;) {
+                int rs = runState;
+                if (rs == STOP) {
+                    unstarted = drainWheel();
+                    break;
+                }
+                WheelTask<?> t;
+                while ((t = cancelled.poll()) != null)
+                    unlink(t);
+                long now = System.nanoTime();
+                long target = (now - origin) / tickNanos;
+                if (size == 0 && currentTick < target)
+                    currentTick = target; // nothing to expire meanwhile
+                while ((t = scheduled.poll()) != null) {
+                    if (rs != RUNNING && t.isPeriodic())
+                        t.cancel(false);
+                    else if (!t.isCancelled())
+                        place(t);
+                }
+                if (rs == SHUTDOWN && !periodicCancelled) {
+                    periodicCancelled = true;
+                    cancelPeriodicTasks();
+                }
+                while (currentTick < target)
+                    advance();
+                if (size == 0) {
+                    if (rs != RUNNING)
+                        break;
+                    idle = true;
+                    if (scheduled.isEmpty() && runState == RUNNING)
+                        LockSupport.park(this);
+                    idle = false;
+                }
+                else
+                    LockSupport.parkNanos(this, origin + (currentTick + 1L) *
+                                          tickNanos - System.nanoTime());
+            }
+        } finally {
+            pool.shutdown();
+            timerDone.countDown();
+        }
+    }
+
+    /**
+     * Places a task in the wheel, or runs it if already enabled.
+     */
+    private void place(WheelTask<?> t) {
+        long tick = t.tick = t.enablingTick(), cur = currentTick;
+        if (tick <= cur)
+            pool.execute(t);
+        else {
+            int level = (63 - Long.numberOfLeadingZeros(tick ^ cur)) /
+                WHEEL_BITS;
+            link(t, (level << WHEEL_BITS) |
+                 (int)((tick >>> (level * WHEEL_BITS)) & WHEEL_MASK));
+        }
+    }
+
+    private void link(WheelTask<?> t, int slot) {
+        WheelTask<?> last = tails[slot];
+        t.slot = slot;
+        t.prev = last;
+        t.next = null;
+        if (last == null)
+            heads[slot] = t;
+        else
+            last.next = t;
+        tails[slot] = t;
+        ++size;
+    }
+
+    private void unlink(WheelTask<?> t) {
+        int slot = t.slot;
+        if (slot >= 0) {
+            WheelTask<?> p = t.prev, n = t.next;
+            if (p == null)
+                heads[slot] = n;
+            else
+                p.next = n;
+            if (n == null)
+                tails[slot] = p;
+            else
+                n.prev = p;
+            t.prev = t.next = null;
+            t.slot = -1;
+            --size;
+        }
+    }
+
+    /**
+     * Empties a slot, returning its first task.  The removed tasks
+     * remain chained through their next links.
+     */
+    private WheelTask<?> takeSlot(int slot) {
+        WheelTask<?> h = heads[slot];
+        if (h != null) {
+            heads[slot] = tails[slot] = null;
+            for (WheelTask<?> p = h; p != null; p = p.next) {
+                p.slot = -1;
+                --size;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Advances the current tick by one, cascading the slots due on
+     * higher levels, and runs the tasks enabled at the new tick.
+     */
+    private void advance() {
+        long cur = ++currentTick;
+        int top = Math.min(Long.numberOfTrailingZeros(cur) / WHEEL_BITS,
+                           LEVELS - 1);
+        for (int level = top; level > 0; --level) {
+            WheelTask<?> p = takeSlot(
+                (level << WHEEL_BITS) |
+                (int)((cur >>> (level * WHEEL_BITS)) & WHEEL_MASK));
+            while (p != null) {
+                WheelTask<?> n = p.next;
+                p.prev = p.next = null;
+                if (!p.isCancelled())
+                    place(p);
+                p = n;
+            }
+        }
+        WheelTask<?> p = takeSlot((int)(cur & WHEEL_MASK));
+        while (p != null) {
+            WheelTask<?> n = p.next;
+            p.prev = p.next = null;
+            if (!p.isCancelled())
+                pool.execute(p);
+            p = n;
+        }
+    }
+
+    /**
+     * Cancels and removes the periodic tasks in the wheel.
+     */
+    private void cancelPeriodicTasks() {
+        for (int slot = 0; slot < heads.length; ++slot) {
+            for (WheelTask<?> p = heads[slot], n; p != null; p = n) {
+                n = p.next;
+                if (p.isPeriodic()) {
+                    unlink(p);
+                    p.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all tasks from the wheel and the queue of scheduled
+     * tasks, returning those not cancelled.
+     */
+    private List<Runnable> drainWheel() {
+        ArrayList<Runnable> list = new ArrayList<Runnable>();
+        for (int slot = 0; slot < heads.length; ++slot) {
+            for (WheelTask<?> p = takeSlot(slot), n; p != null; p = n) {
+                n = p.next;
+                p.prev = p.next = null;
+                if (!p.isCancelled())
+                    list.add(p);
+            }
+        }
+        WheelTask<?> t;
+        while ((t = scheduled.poll()) != null) {
+            if (!t.isCancelled())
+                list.add(t);
+        }
+        cancelled.clear();
+        return list;
+    }
+
+    // Public methods
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public ScheduledFuture<?> schedule(Runnable command,
+                                       long delay,
+                                       TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<Void> t = new WheelTask<Void>(command, null,
+                                                triggerTime(delay, unit), 0);
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable,
+                                           long delay,
+                                           TimeUnit unit) {
+        if (callable == null || unit == null)
+            throw new NullPointerException();
+        WheelTask<V> t = new WheelTask<V>(callable,
+                                          triggerTime(delay, unit));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+                                                  long initialDelay,
+                                                  long period,
+                                                  TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (period <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command, null,
+                                triggerTime(initialDelay, unit),
+                                unit.toNanos(period));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     * @throws IllegalArgumentException   {@inheritDoc}
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+                                                     long initialDelay,
+                                                     long delay,
+                                                     TimeUnit unit) {
+        if (command == null || unit == null)
+            throw new NullPointerException();
+        if (delay <= 0)
+            throw new IllegalArgumentException();
+        WheelTask<Void> t =
+            new WheelTask<Void>(command, null,
+                                triggerTime(initialDelay, unit),
+                                unit.toNanos(-delay));
+        delayedExecute(t);
+        return t;
+    }
+
+    /**
+     * Executes {@code command} with zero required delay.
+     * This has effect equivalent to
+     * {@link #schedule(Runnable,long,TimeUnit) schedule(command, 0, anyUnit)}.
+     *
+     * @throws RejectedExecutionException at discretion of
+     *         {@code RejectedExecutionHandler}, if the task
+     *         cannot be accepted for execution because the
+     *         executor has been shut down
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void execute(Runnable command) {
+        schedule(command, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public Future<?> submit(Runnable task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Runnable task, T result) {
+        return schedule(Executors.callable(task, result), 0, NANOSECONDS);
+    }
+
+    /**
+     * @throws RejectedExecutionException {@inheritDoc}
+     * @throws NullPointerException       {@inheritDoc}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return schedule(task, 0, NANOSECONDS);
+    }
+
+    /**
+     * Initiates an orderly shutdown in which previously submitted
+     * tasks are executed, but no new tasks will be accepted.
+     * Periodic tasks are cancelled; delayed tasks are run when they
+     * are enabled.  Invocation has no additional effect if already
+     * shut down.
+     *
+     * <p>This method does not wait for previously submitted tasks to
+     * complete execution.  Use {@link #awaitTermination awaitTermination}
+     * to do that.
+     *
+     * @throws SecurityException {@inheritDoc}
+     */
+    public void shutdown() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            if (runState == RUNNING)
+                runState = SHUTDOWN;
+            stopTimer();
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks, halts the
+     * processing of waiting tasks, and returns a list of the tasks
+     * that were awaiting execution.  These tasks are drained (removed)
+     * from the wheel and the work queue upon return from this method.
+     *
+     * <p>This method does not wait for actively executing tasks to
+     * terminate.  Use {@link #awaitTermination awaitTermination} to
+     * do that.
+     *
+     * <p>There are no guarantees beyond best-effort attempts to stop
+     * processing actively executing tasks.  This implementation
+     * cancels tasks via {@link Thread#interrupt}, so any task that
+     * fails to respond to interrupts may never terminate.
+     *
+     * @return list of tasks that never commenced execution.
+     *         Each element of this list is a {@link ScheduledFuture}.
+     * @throws SecurityException {@inheritDoc}
+     */
+    public List<Runnable> shutdownNow() {
+        final ReentrantLock mainLock = this.mainLock;
+        mainLock.lock();
+        try {
+            runState = STOP;
+            stopTimer();
+        } finally {
+            mainLock.unlock();
+        }
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                timerDone.await();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        List<Runnable> list = new ArrayList<Runnable>();
+        mainLock.lock();
+        try {
+            if (unstarted != null) {
+                list.addAll(unstarted);
+                unstarted = null;
+            }
+        } finally {
+            mainLock.unlock();
+        }
+        list.addAll(pool.shutdownNow());
+        return list;
+    }
+
+    /**
+     * Wakes the timer to act on a new run state, or releases
+     * awaitTermination if it was never started.  Call only with
+     * mainLock held.
+     */
+    private void stopTimer() {
+        Thread t = timer;
+        if (t != null)
+            LockSupport.unpark(t);
+        else if (timerDone.getCount() != 0L) {
+            pool.shutdown();
+            timerDone.countDown();
+        }
+    }
+
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return timerDone.getCount() == 0L && pool.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        if (!timerDone.await(nanos, NANOSECONDS))
+            return false;
+        return pool.awaitTermination(deadline - System.nanoTime(),
+                                     NANOSECONDS);
+    }
+
+    /**
+     * Returns a string identifying this executor, as well as its
+     * state, tick duration and worker pool.
+     *
+     * @return a string identifying this executor, as well as its state
+     */
+    public String toString() {
+        String rs = (runState == RUNNING) ? "Running" :
+            (isTerminated() ? "Terminated" : "Shutting down");
+        return super.toString() +
+            "[" + rs +
+            ", tick = " + tickNanos + "ns" +
+            ", workers = " + pool.getPoolSize() +
+            ", active workers = " + pool.getActiveCount() +
+            ", completed tasks = " + pool.getCompletedTaskCount() +
+            "]";
+    }
+}
@@ -0,0 +1,737 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@linkplain BlockingQueue blocking queue} made of several FIFO
+ * <em>lanes</em>, designed as the work queue of a
+ * {@link ThreadPoolExecutor} with many worker threads running short
+ * tasks.  With a single-lock or two-lock queue such as
+ * {@link LinkedBlockingQueue}, every worker contends for the same
+ * lock to take its next task.  In this queue each thread, worker or
+ * submitter, has a <em>home</em> lane, chosen by a per-thread hash, in
+ * which it inserts and from which it retrieves elements.  When its home
+ * lane is empty, a retrieving thread <em>steals</em> the oldest element
+ * of another lane, as workers of a {@link ForkJoinPool} do, so no
+ * element is stranded while any thread is waiting.  An inserting thread
+ * that finds its home lane locked tries the other lanes before
+ * waiting for it.
+ *
+ * <p>Since the queue is an ordinary {@code BlockingQueue}, a
+ * {@code ThreadPoolExecutor} using it keeps its usual core and maximum
+ * pool sizes, keep-alive, and {@link RejectedExecutionHandler}
+ * behavior: an unbounded queue, the default, acts like an unbounded
+ * {@code LinkedBlockingQueue}; a bounded queue makes the executor
+ * add threads up to the maximum pool size and then reject tasks when
+ * it is full.  For example:
+ *
+ *  <pre> {@code
+ * WorkStealingBlockingQueue<Runnable> queue =
+ *     new WorkStealingBlockingQueue<>(nThreads);
+ * ExecutorService pool = new ThreadPoolExecutor(
+ *     nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, queue);}</pre>
+ *
+ * <p>Elements are retrieved in first-in-first-out order within each
+ * lane, but not across lanes: an element inserted by one thread may be
+ * retrieved before an element inserted earlier by a thread with a
+ * different home lane.  Methods {@link #getStealCount} and
+ * {@link #getQueueDepths} report how often elements were retrieved from
+ * other lanes than the retrieving thread's home lane, and how many
+ * elements each lane holds; they may be used to tune the number of
+ * lanes.
+ *
+ * <p>A lock is used only to park and wake retrieving threads that find
+ * the queue empty, and inserting threads acquire it only when some
+ * thread is waiting.  The {@code size} method sums the sizes of the
+ * lanes, and like the bulk operations, iterators, and the
+ * {@code toArray} methods, it is not atomic with respect to concurrent
+ * insertions and retrievals.  Iterators are <i>weakly consistent</i>,
+ * traversing a snapshot of the elements taken lane by lane.  This queue
+ * does not permit {@code null} elements.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @since 1.8
+ * @param <E> the type of elements held in this collection
+ */
+public class WorkStealingBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * Each lane is a circular array guarded by its own lock (the lane
+     * itself, as with ConcurrentHashMap segments in earlier releases),
+     * with a volatile count so that scans skip empty lanes without
+     * locking them.  The home lane of a thread is given by its
+     * ThreadLocalRandom probe, which is stable for a thread unless
+     * advanced, so that a worker thread keeps using the same lane.
+     *
+     * Retrieving threads that find all lanes empty register in the
+     * volatile waiters count while holding waitLock, then recheck the
+     * lane counts before awaiting notEmpty.  Inserting threads
+     * increment a lane count before reading waiters, and lock to
+     * signal only if it is nonzero.  Since both sides write before
+     * they read, at least one of them sees the other, so no wakeup is
+     * missed.
+     */
+
+    /** The maximum number of lanes; a power of two. */
+    private static final int MAX_LANES = 1 << 8;
+
+    /** The initial length of the array of a lane; a power of two. */
+    private static final int INITIAL_LANE_CAPACITY = 16;
+
+    /**
+     * A FIFO lane: a circular array guarded by the lane lock.
+     */
+    static final class Lane extends ReentrantLock {
+        private static final long serialVersionUID = -4830627014939290917L;
+
+        /** The queued items; the length is a power of two */
+        Object[] items = new Object[INITIAL_LANE_CAPACITY];
+
+        /** Index of the oldest item */
+        int head;
+
+        /** Number of items; written only while locked */
+        volatile int count;
+
+        /** Number of items retrieved by threads with another home lane */
+        volatile long steals;
+
+        /** Appends x, growing the array if needed. Call only when locked. */
+        void push(Object x) {
+            Object[] a = items;
+            int n = count, len = a.length;
+            if (n == len) {
+                Object[] b = new Object[len << 1];
+                for (int i = 0; i < n; ++i)
+                    b[i] = a[(head + i) & (len - 1)];
+                items = a = b;
+                head = 0;
+                len <<= 1;
+            }
+            a[(head + n) & (len - 1)] = x;
+            count = n + 1;
+        }
+
+        /** Removes and returns the oldest item. Call only when locked. */
+        Object poll() {
+            int n = count;
+            if (n == 0)
+                return null;
+            Object[] a = items;
+            int h = head;
+            Object x = a[h];
+            a[h] = null;
+            head = (h + 1) & (a.length - 1);
+            count = n - 1;
+            return x;
+        }
+
+        /** Removes the i-th oldest item. Call only when locked. */
+        void removeAt(int i) {
+            Object[] a = items;
+            int mask = a.length - 1, n = count;
+            for (int j = i; j < n - 1; ++j)
+                a[(head + j) & mask] = a[(head + j + 1) & mask];
+            a[(head + n - 1) & mask] = null;
+            count = n - 1;
+        }
+    }
+
+    /** The lanes; the length is a power of two */
+    private final Lane[] lanes;
+
+    /** The maximum number of elements in each lane */
+    private final int laneCapacity;
+
+    /** Lock used only for waiting retrievals */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty = waitLock.newCondition();
+
+    /** The number of threads waiting or about to wait */
+    private volatile int waiters;
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE} and a number of lanes suited to the
+     * number of available processors.
+     */
+    public WorkStealingBlockingQueue() {
+        this(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a capacity of
+     * {@link Integer#MAX_VALUE} and a number of lanes suited to the
+     * given expected number of concurrently retrieving threads, such as
+     * the core pool size of an executor.
+     *
+     * @param parallelism the expected number of retrieving threads
+     * @throws IllegalArgumentException if {@code parallelism} is not
+     *         greater than zero
+     */
+    public WorkStealingBlockingQueue(int parallelism) {
+        this(parallelism, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a number of lanes
+     * suited to the given expected number of concurrently retrieving
+     * threads and (at least) the given capacity.  The capacity is
+     * divided evenly among the lanes, and rounded up to a multiple of
+     * the number of lanes; an insertion fails if its home lane and all
+     * other lanes are full.
+     *
+     * @param parallelism the expected number of retrieving threads
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code parallelism} or
+     *         {@code capacity} is not greater than zero
+     */
+    public WorkStealingBlockingQueue(int parallelism, int capacity) {
+        if (parallelism <= 0 || capacity <= 0)
+            throw new IllegalArgumentException();
+        int n = 1;
+        while (n < parallelism && n < MAX_LANES)
+            n <<= 1;
+        Lane[] ls = new Lane[n];
+        for (int i = 0; i < n; ++i)
+            ls[i] = new Lane();
+        this.lanes = ls;
+        this.laneCapacity = (capacity == Integer.MAX_VALUE) ?
+            Integer.MAX_VALUE : (capacity - 1) / n + 1;
+    }
+
+    /**
+     * Returns the index of the home lane of the current thread.
+     */
+    private int homeLane() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        return h & (lanes.length - 1);
+    }
+
+    /**
+     * Inserts the specified element at the tail of the home lane of the
+     * current thread, or of another lane if the home lane is locked or
+     * full, if this is possible without exceeding the capacity of every
+     * lane, returning {@code true} upon success and {@code false} if all
+     * lanes are full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        Lane[] ls = lanes;
+        int n = ls.length, h = homeLane(), cap = laneCapacity;
+        boolean added = false;
+        for (int j = 0; j < n && !added; ++j) { // try unlocked lanes first
+            Lane l = ls[(h + j) & (n - 1)];
+            if (l.count < cap && l.tryLock()) {
+                try {
+                    if (l.count < cap) {
+                        l.push(e);
+                        added = true;
+                    }
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        for (int j = 0; j < n && !added; ++j) {
+            Lane l = ls[(h + j) & (n - 1)];
+            l.lock();
+            try {
+                if (l.count < cap) {
+                    l.push(e);
+                    added = true;
+                }
+            } finally {
+                l.unlock();
+            }
+        }
+        if (added && waiters != 0)
+            signalNotEmpty();
+        return added;
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if necessary
+     * for space to become available in a lane.  Waiting is by
+     * yielding, since space is usually made available quickly by
+     * the threads retrieving elements.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting up to the
+     * specified wait time if necessary for space to become available in
+     * a lane.
+     *
+     * @return {@code true} if successful, or {@code false} if
+     *         the specified waiting time elapses before space is available
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (deadline - System.nanoTime() <= 0L)
+                return false;
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Wakes up a waiting retrieval.
+     */
+    private void signalNotEmpty() {
+        final ReentrantLock lock = this.waitLock;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest element of the home lane of the
+     * current thread or, if it is empty, steals the oldest element of
+     * another lane, or returns {@code null} if all lanes are empty.
+     */
+    public E poll() {
+        Lane[] ls = lanes;
+        int n = ls.length, h = homeLane();
+        for (int j = 0; j < n; ++j) {
+            Lane l = ls[(h + j) & (n - 1)];
+            if (l.count != 0) {
+                Object x;
+                l.lock();
+                try {
+                    if ((x = l.poll()) != null && j != 0)
+                        l.steals = l.steals + 1;
+                } finally {
+                    l.unlock();
+                }
+                if (x != null) {
+                    @SuppressWarnings("unchecked") E e = (E) x;
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    public E take() throws InterruptedException {
+        E result;
+        while ((result = poll()) == null) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++waiters;
+                try {
+                    while (isEmpty())
+                        notEmpty.await();
+                } finally {
+                    --waiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E result;
+        while ((result = poll()) == null && nanos > 0L) {
+            final ReentrantLock lock = this.waitLock;
+            lock.lockInterruptibly();
+            try {
+                ++waiters;
+                try {
+                    while (isEmpty() && nanos > 0L)
+                        nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    --waiters;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves, but does not remove, the element that {@link #poll}
+     * would return if called by the current thread, or returns
+     * {@code null} if this queue is empty.
+     *
+     * @return the head of the first nonempty lane, or {@code null}
+     */
+    public E peek() {
+        Lane[] ls = lanes;
+        int n = ls.length, h = homeLane();
+        for (int j = 0; j < n; ++j) {
+            Lane l = ls[(h + j) & (n - 1)];
+            if (l.count != 0) {
+                Object x;
+                l.lock();
+                try {
+                    x = (l.count == 0) ? null : l.items[l.head];
+                } finally {
+                    l.unlock();
+                }
+                if (x != null) {
+                    @SuppressWarnings("unchecked") E e = (E) x;
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements in this queue, the sum of the
+     * sizes of its lanes.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long s = 0L;
+        for (Lane l : lanes)
+            s += l.count;
+        return (s >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) s;
+    }
+
+    public boolean isEmpty() {
+        for (Lane l : lanes) {
+            if (l.count != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking, or {@code Integer.MAX_VALUE} if it is unbounded.
+     *
+     * @return the remaining capacity
+     */
+    public int remainingCapacity() {
+        int cap = laneCapacity;
+        if (cap == Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        long r = (long) cap * lanes.length - size();
+        return (r >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) r;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return (o != null) && removeElement(o, false);
+    }
+
+    /**
+     * Removes the first element equal to (or, if identity is true, the
+     * same as) o, scanning the lanes in order.
+     */
+    private boolean removeElement(Object o, boolean identity) {
+        for (Lane l : lanes) {
+            if (l.count != 0) {
+                l.lock();
+                try {
+                    Object[] a = l.items;
+                    int mask = a.length - 1;
+                    for (int i = 0, n = l.count; i < n; ++i) {
+                        Object x = a[(l.head + i) & mask];
+                        if (x == o || (!identity && o.equals(x))) {
+                            l.removeAt(i);
+                            return true;
+                        }
+                    }
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Lane l : lanes) {
+                if (l.count != 0) {
+                    l.lock();
+                    try {
+                        Object[] a = l.items;
+                        int mask = a.length - 1;
+                        for (int i = 0, n = l.count; i < n; ++i) {
+                            if (o.equals(a[(l.head + i) & mask]))
+                                return true;
+                        }
+                    } finally {
+                        l.unlock();
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Atomically removes all of the elements from each lane.
+     * The queue will be empty after this call returns, unless elements
+     * are concurrently inserted.
+     */
+    public void clear() {
+        for (Lane l : lanes) {
+            l.lock();
+            try {
+                while (l.poll() != null)
+                    ;
+            } finally {
+                l.unlock();
+            }
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (Lane l : lanes) {
+            if (n >= maxElements)
+                break;
+            if (l.count != 0) {
+                l.lock();
+                try {
+                    Object[] a = l.items;
+                    while (n < maxElements && l.count != 0) {
+                        @SuppressWarnings("unchecked") E e = (E) a[l.head];
+                        c.add(e); // In this order, in case add() throws.
+                        l.poll();
+                        ++n;
+                    }
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue,
+     * taken lane by lane.  The returned iterator is
+     * <i>weakly consistent</i>; its {@code remove} method removes the
+     * last returned element from this queue if it is still present.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(snapshot());
+    }
+
+    /**
+     * Returns the elements of all lanes, each lane copied while locked.
+     */
+    private Object[] snapshot() {
+        Object[] r = new Object[0];
+        int size = 0;
+        for (Lane l : lanes) {
+            if (l.count != 0) {
+                l.lock();
+                try {
+                    Object[] a = l.items;
+                    int n = l.count, mask = a.length - 1;
+                    if (size + n > r.length)
+                        r = java.util.Arrays.copyOf(r, Math.max(size + n,
+                                                                r.length << 1));
+                    for (int i = 0; i < n; ++i)
+                        r[size++] = a[(l.head + i) & mask];
+                } finally {
+                    l.unlock();
+                }
+            }
+        }
+        return (size == r.length) ? r : java.util.Arrays.copyOf(r, size);
+    }
+
+    public Object[] toArray() {
+        return snapshot();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] s = snapshot();
+        int n = s.length;
+        if (a.length < n)
+            a = (T[]) java.lang.reflect.Array.newInstance
+                (a.getClass().getComponentType(), n);
+        System.arraycopy(s, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    private class Itr implements Iterator<E> {
+        private final Object[] array; // Array of all elements
+        private int cursor;           // index of next element to return
+        private int lastRet = -1;     // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E) array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeElement(array[lastRet], true);
+            lastRet = -1;
+        }
+    }
+
+    /**
+     * Returns the number of lanes of this queue.
+     *
+     * @return the number of lanes
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns an estimate of the total number of elements retrieved by
+     * threads from other lanes than their home lane.  A steal count that
+     * grows quickly relative to the number of retrieved elements shows
+     * that work is unevenly spread over the lanes, for example because
+     * fewer threads insert elements than retrieve them.
+     *
+     * @return the number of steals
+     */
+    public long getStealCount() {
+        long s = 0L;
+        for (Lane l : lanes)
+            s += l.steals;
+        return s;
+    }
+
+    /**
+     * Returns an estimate of the number of elements in each lane.
+     *
+     * @return an array holding the number of elements in each lane
+     */
+    public int[] getQueueDepths() {
+        Lane[] ls = lanes;
+        int[] d = new int[ls.length];
+        for (int i = 0; i < ls.length; ++i)
+            d[i] = ls[i].count;
+        return d;
+    }
+}
@@ -856,7 +856,10 @@ public abstract class AbstractQueuedSynchronizer
      */
     final boolean acquireQueued(final Node node, int arg) {
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             boolean interrupted = false;
             for (;;) {
                 final Node p = node.predecessor();
@@ -873,6 +876,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -884,7 +889,10 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             for (;;) {
                 final Node p = node.predecessor();
                 if (p == head && tryAcquire(arg)) {
@@ -900,6 +908,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -917,7 +927,10 @@ public abstract class AbstractQueuedSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             for (;;) {
                 final Node p = node.predecessor();
                 if (p == head && tryAcquire(arg)) {
@@ -938,6 +951,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -948,7 +963,10 @@ public abstract class AbstractQueuedSynchronizer
     private void doAcquireShared(int arg) {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             boolean interrupted = false;
             for (;;) {
                 final Node p = node.predecessor();
@@ -970,6 +988,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -981,7 +1001,10 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             for (;;) {
                 final Node p = node.predecessor();
                 if (p == head) {
@@ -1000,6 +1023,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -1017,7 +1042,10 @@ public abstract class AbstractQueuedSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        long sampled = 0L;
         try {
+            if (LockContentionProfiler.enabled)
+                sampled = LockContentionProfiler.begin(this);
             for (;;) {
                 final Node p = node.predecessor();
                 if (p == head) {
@@ -1041,6 +1069,8 @@ public abstract class AbstractQueuedSynchronizer
         } finally {
             if (failed)
                 cancelAcquire(node);
+            else if (sampled != 0L)
+                LockContentionProfiler.end(this, sampled);
         }
     }
 
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent.locks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * The contention sampled by the {@link LockContentionProfiler} for one
+ * synchronizer.  Instances are snapshots, and do not change as more
+ * samples are recorded.  All times are in nanoseconds.
+ *
+ * @since 1.8
+ */
+public final class LockContentionInfo {
+    private final String lockName;
+    private final long sampleCount;
+    private final long acquiredCount;
+    private final long totalWaitTime;
+    private final long maxWaitTime;
+    private final double meanQueueLength;
+    private final Map<String,Long> ownerSites;
+
+    LockContentionInfo(String lockName, long sampleCount,
+                       long acquiredCount, long totalWaitTime,
+                       long maxWaitTime, double meanQueueLength,
+                       Map<String,Long> ownerSites) {
+        this.lockName = lockName;
+        this.sampleCount = sampleCount;
+        this.acquiredCount = acquiredCount;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+        this.meanQueueLength = meanQueueLength;
+        this.ownerSites = Collections.unmodifiableMap(ownerSites);
+    }
+
+    /**
+     * Returns the name of the synchronizer: the name of its class,
+     * followed by "@" and its identity hash code in hexadecimal.
+     *
+     * @return the name of the synchronizer
+     */
+    public String getLockName() {
+        return lockName;
+    }
+
+    /**
+     * Returns the number of sampled acquisitions that had to queue.
+     *
+     * @return the number of samples
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the number of sampled acquisitions that succeeded, as
+     * opposed to being cancelled by interrupt or timeout.  Wait times
+     * are recorded for these only.
+     *
+     * @return the number of sampled successful acquisitions
+     */
+    public long getAcquiredCount() {
+        return acquiredCount;
+    }
+
+    /**
+     * Returns the total time waited by sampled successful acquisitions.
+     *
+     * @return the total wait time, in nanoseconds
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    /**
+     * Returns the longest time waited by a sampled acquisition.
+     *
+     * @return the maximum wait time, in nanoseconds
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * Returns the mean wait time of sampled successful acquisitions.
+     *
+     * @return the mean wait time, in nanoseconds
+     */
+    public double getMeanWaitTime() {
+        return (acquiredCount == 0L) ? 0.0 :
+            (double) totalWaitTime / acquiredCount;
+    }
+
+    /**
+     * Returns the mean number of threads queued, including the
+     * acquiring thread, when sampled acquisitions began to queue.
+     *
+     * @return the mean queue length
+     */
+    public double getMeanQueueLength() {
+        return meanQueueLength;
+    }
+
+    /**
+     * Returns where owners of the synchronizer were executing when
+     * sampled acquisitions began to queue, as a map from the
+     * innermost stack frame of the owner outside this package to the
+     * number of samples.  Empty for synchronizers not held
+     * exclusively.
+     *
+     * @return the owner sites and their sample counts
+     */
+    public Map<String,Long> getOwnerSites() {
+        return ownerSites;
+    }
+
+    /**
+     * Returns a {@code LockContentionInfo} object represented by the
+     * given {@code CompositeData}, as mapped by the {@link
+     * java.lang.management.LockContentionMXBean LockContentionMXBean}.
+     * The given {@code CompositeData} must contain the following
+     * attributes:
+     * <blockquote>
+     * <table border summary="The attributes and the types the given CompositeData contains">
+     * <tr>
+     *   <th align=left>Attribute Name</th>
+     *   <th align=left>Type</th>
+     * </tr>
+     * <tr>
+     *   <td>lockName</td>
+     *   <td>{@code java.lang.String}</td>
+     * </tr>
+     * <tr>
+     *   <td>sampleCount</td>
+     *   <td>{@code java.lang.Long}</td>
+     * </tr>
+     * <tr>
+     *   <td>acquiredCount</td>
+     *   <td>{@code java.lang.Long}</td>
+     * </tr>
+     * <tr>
+     *   <td>totalWaitTime</td>
+     *   <td>{@code java.lang.Long}</td>
+     * </tr>
+     * <tr>
+     *   <td>maxWaitTime</td>
+     *   <td>{@code java.lang.Long}</td>
+     * </tr>
+     * <tr>
+     *   <td>meanQueueLength</td>
+     *   <td>{@code java.lang.Double}</td>
+     * </tr>
+     * <tr>
+     *   <td>ownerSites</td>
+     *   <td>{@code javax.management.openmbean.TabularData} of rows
+     *       with a {@code key} of type {@code java.lang.String} and a
+     *       {@code value} of type {@code java.lang.Long}</td>
+     * </tr>
+     * </table>
+     * </blockquote>
+     *
+     * @param cd {@code CompositeData} representing a
+     *        {@code LockContentionInfo}
+     *
+     * @throws IllegalArgumentException if {@code cd} does not
+     *   represent a {@code LockContentionInfo} with the attributes
+     *   described above.
+     * @return a {@code LockContentionInfo} object represented by
+     *         {@code cd} if {@code cd} is not {@code null};
+     *         {@code null} otherwise.
+     */
+    public static LockContentionInfo from(CompositeData cd) {
+        if (cd == null) {
+            return null;
+        }
+
+        try {
+            Map<String,Long> sites = new HashMap<String,Long>();
+            TabularData td = (TabularData) cd.get("ownerSites");
+            for (Object row : td.values()) {
+                CompositeData e = (CompositeData) row;
+                sites.put((String) e.get("key"), (Long) e.get("value"));
+            }
+            return new LockContentionInfo((String) cd.get("lockName"),
+                                          (Long) cd.get("sampleCount"),
+                                          (Long) cd.get("acquiredCount"),
+                                          (Long) cd.get("totalWaitTime"),
+                                          (Long) cd.get("maxWaitTime"),
+                                          (Double) cd.get("meanQueueLength"),
+                                          sites);
+        } catch (ClassCastException | NullPointerException ex) {
+            throw new IllegalArgumentException(
+                "CompositeData does not represent a LockContentionInfo", ex);
+        }
+    }
+
+    /**
+     * Returns a string summarizing this contention.
+     *
+     * @return a string summarizing this contention
+     */
+    public String toString() {
+        return lockName + "[samples = " + sampleCount +
+            ", mean wait = " + (long)getMeanWaitTime() + "ns" +
+            ", max wait = " + maxWaitTime + "ns" +
+            ", mean queue = " + meanQueueLength +
+            ", owner sites = " + ownerSites + "]";
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent.locks;
+
+import java.lang.management.LockContentionMXBean;
+import java.lang.management.ManagementPermission;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * A sampling profiler of contention on the synchronizers built on
+ * {@link AbstractQueuedSynchronizer}, such as {@link ReentrantLock},
+ * {@link ReentrantReadWriteLock} and {@link
+ * java.util.concurrent.Semaphore}.  There is a single profiler,
+ * obtained by {@link #getProfiler}, which implements {@link
+ * LockContentionMXBean} and may be registered with the platform MBean
+ * server:
+ * <pre> {@code
+ * LockContentionProfiler p = LockContentionProfiler.getProfiler();
+ * p.setEnabled(true);
+ * ManagementFactory.getPlatformMBeanServer()
+ *     .registerMBean(p, p.getObjectName());
+ * ...
+ * for (LockContentionInfo info : p.getTopContendedLocks(10))
+ *   System.out.println(info);}</pre>
+ *
+ * <p>While enabled, one in {@linkplain #getSamplingInterval a given
+ * number} of the acquisitions that have to queue, chosen at random,
+ * is recorded: the queue length and the owner's current stack frame
+ * when the acquisition starts waiting, and the time it waited once it
+ * succeeds.  The owner's frame is where it is executing at that
+ * moment, typically within the critical section, not where it
+ * acquired the synchronizer.  Capturing it requires a stack trace of
+ * the owner, which brings the virtual machine to a safepoint and is
+ * the main cost of a sample.  Samples are recorded without locking,
+ * in statistics looked up by the identity of the synchronizer, which
+ * is only weakly referenced and forgotten once unreachable.  The
+ * statistics of a synchronizer reported while it is being sampled
+ * may therefore be slightly inconsistent with each other.
+ *
+ * @since 1.8
+ */
+public final class LockContentionProfiler implements LockContentionMXBean {
+
+    /** The default sampling interval */
+    private static final int DEFAULT_SAMPLING_INTERVAL = 100;
+
+    /** The maximum number of distinct owner sites kept per synchronizer */
+    private static final int MAX_SITES = 32;
+
+    /** Read by AbstractQueuedSynchronizer on each queued acquisition */
+    static volatile boolean enabled =
+        AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction(
+                "java.util.concurrent.locks.profileContention"));
+
+    private static volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    /** Statistics per sampled synchronizer, by identity */
+    private static final ConcurrentHashMap<SyncKey,Stats> stats =
+        new ConcurrentHashMap<SyncKey,Stats>();
+
+    /** Queue of the keys of synchronizers that became unreachable */
+    private static final ReferenceQueue<AbstractQueuedSynchronizer> staleKeys =
+        new ReferenceQueue<AbstractQueuedSynchronizer>();
+
+    private static final LockContentionProfiler profiler =
+        new LockContentionProfiler();
+
+    /**
+     * A weak reference to a synchronizer, comparing referents by
+     * identity, since synchronizers may override equals.  A cleared
+     * key is equal only to itself, so that it can still be removed.
+     */
+    static final class SyncKey
+        extends WeakReference<AbstractQueuedSynchronizer> {
+        final int hash;
+        SyncKey(AbstractQueuedSynchronizer sync,
+                ReferenceQueue<AbstractQueuedSynchronizer> queue) {
+            super(sync, queue);
+            this.hash = System.identityHashCode(sync);
+        }
+        public int hashCode() { return hash; }
+        public boolean equals(Object o) {
+            AbstractQueuedSynchronizer sync;
+            return o == this ||
+                (o instanceof SyncKey && (sync = get()) != null &&
+                 ((SyncKey)o).get() == sync);
+        }
+    }
+
+    /**
+     * Samples of one synchronizer, updated without locking.
+     */
+    static final class Stats {
+        final String name;
+        final LongAdder samples = new LongAdder();
+        final LongAdder acquired = new LongAdder();
+        final LongAdder totalWait = new LongAdder();
+        final AtomicLong maxWait = new AtomicLong();
+        final LongAdder totalQueueLength = new LongAdder();
+        /** Counts per owner site, of at most about MAX_SITES sites */
+        final ConcurrentHashMap<String,AtomicLong> sites =
+            new ConcurrentHashMap<String,AtomicLong>();
+        Stats(String name) { this.name = name; }
+    }
+
+    private LockContentionProfiler() {}
+
+    /**
+     * Returns the lock contention profiler.
+     *
+     * @return the lock contention profiler
+     */
+    public static LockContentionProfiler getProfiler() {
+        return profiler;
+    }
+
+    // Hooks for AbstractQueuedSynchronizer
+
+    /**
+     * Called when a thread starts to queue for the given
+     * synchronizer, while enabled.  Returns a nonzero start time if
+     * the acquisition is sampled, else zero.  Called with the
+     * thread's node already queued, so a failure to sample is
+     * ignored rather than cancelling the acquisition.
+     */
+    static long begin(AbstractQueuedSynchronizer sync) {
+        int interval = samplingInterval;
+        if (interval > 1 &&
+            ThreadLocalRandom.current().nextInt(interval) != 0)
+            return 0L;
+        try {
+            record(sync);
+        } catch (RuntimeException ex) {
+            return 0L;
+        }
+        return System.nanoTime() | 1L;
+    }
+
+    private static void record(AbstractQueuedSynchronizer sync) {
+        int queued = sync.getQueueLength();
+        Thread owner = sync.getExclusiveOwnerThread();
+        String site = (owner == null || owner == Thread.currentThread()) ?
+            null : siteOf(owner);
+        expungeStaleKeys();
+        Stats s = stats.get(new SyncKey(sync, null));
+        if (s == null) {
+            Stats n = new Stats(
+                sync.getClass().getName() + "@" +
+                Integer.toHexString(System.identityHashCode(sync)));
+            s = stats.putIfAbsent(new SyncKey(sync, staleKeys), n);
+            if (s == null)
+                s = n;
+        }
+        s.samples.increment();
+        s.totalQueueLength.add(queued);
+        if (site != null) {
+            AtomicLong c = s.sites.get(site);
+            if (c == null && s.sites.size() < MAX_SITES) {
+                AtomicLong n = new AtomicLong();
+                if ((c = s.sites.putIfAbsent(site, n)) == null)
+                    c = n;
+            }
+            if (c != null)
+                c.incrementAndGet();
+        }
+    }
+
+    /** Removes the statistics of unreachable synchronizers. */
+    private static void expungeStaleKeys() {
+        for (Object k; (k = staleKeys.poll()) != null; )
+            stats.remove(k);
+    }
+
+    /**
+     * Called when a sampled acquisition succeeds, with the value
+     * returned by begin.
+     */
+    static void end(AbstractQueuedSynchronizer sync, long start) {
+        long wait = System.nanoTime() - start;
+        if (wait < 0L)
+            wait = 0L;
+        Stats s = stats.get(new SyncKey(sync, null));
+        if (s != null) {            // else reset meanwhile
+            s.acquired.increment();
+            s.totalWait.add(wait);
+            for (long m; wait > (m = s.maxWait.get()) &&
+                     !s.maxWait.compareAndSet(m, wait); )
+                ;
+        }
+    }
+
+    /**
+     * Returns the innermost frame of the given thread outside this
+     * package and Unsafe (where parked owners are), or null if none.
+     * This is where the thread is executing now, as of the safepoint
+     * taken by Thread.getStackTrace, not where it acquired the
+     * synchronizer.
+     */
+    private static String siteOf(final Thread t) {
+        StackTraceElement[] trace = AccessController.doPrivileged(
+            new PrivilegedAction<StackTraceElement[]>() {
+                public StackTraceElement[] run() {
+                    return t.getStackTrace();
+                }});
+        for (StackTraceElement e : trace) {
+            String c = e.getClassName();
+            if (!c.startsWith("java.util.concurrent.locks.") &&
+                !c.equals("sun.misc.Unsafe"))
+                return e.toString();
+        }
+        return null;
+    }
+
+    private static void checkControlAccess() {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null)
+            sm.checkPermission(new ManagementPermission("control"));
+    }
+
+    // LockContentionMXBean
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enable) {
+        checkControlAccess();
+        enabled = enable;
+    }
+
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    public void setSamplingInterval(int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException();
+        checkControlAccess();
+        samplingInterval = interval;
+    }
+
+    public List<LockContentionInfo> getTopContendedLocks(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException();
+        expungeStaleKeys();
+        ArrayList<LockContentionInfo> list =
+            new ArrayList<LockContentionInfo>();
+        for (Stats s : stats.values()) {
+            long samples = s.samples.sum();
+            HashMap<String,Long> sites = new HashMap<String,Long>();
+            for (Map.Entry<String,AtomicLong> e : s.sites.entrySet())
+                sites.put(e.getKey(), e.getValue().get());
+            list.add(new LockContentionInfo(
+                s.name, samples, s.acquired.sum(), s.totalWait.sum(),
+                s.maxWait.get(),
+                (samples == 0L) ? 0.0 :
+                (double) s.totalQueueLength.sum() / samples,
+                sites));
+        }
+        Collections.sort(list, new Comparator<LockContentionInfo>() {
+                public int compare(LockContentionInfo a, LockContentionInfo b) {
+                    return Long.compare(b.getTotalWaitTime(),
+                                        a.getTotalWaitTime());
+                }});
+        return (list.size() <= n) ? list :
+            new ArrayList<LockContentionInfo>(list.subList(0, n));
+    }
+
+    public void reset() {
+        checkControlAccess();
+        stats.clear();
+    }
+
+    /**
+     * Returns the object name of the profiler:
+     * {@code java.util.concurrent.locks:type=LockContention}.
+     *
+     * @return the object name of the profiler
+     */
+    public ObjectName getObjectName() {
+        try {
+            return ObjectName.getInstance(
+                "java.util.concurrent.locks:type=LockContention");
+        } catch (javax.management.MalformedObjectNameException e) {
+            throw new InternalError(e);
+        }
+    }
+}
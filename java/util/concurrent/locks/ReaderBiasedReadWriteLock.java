@@ -0,0 +1,884 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.concurrent.locks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ReadWriteLock} biased towards readers, for data that is
+ * read far more often than it is written, such as routing tables.
+ * Reading threads normally acquire the read lock by incrementing a
+ * counter in one of several stripes chosen per thread, instead of
+ * updating a single shared word as {@link ReentrantReadWriteLock}
+ * does, so that read acquisitions on different processors do not
+ * contend.
+ *
+ * <p>Writers pay for this: a thread acquiring the write lock first
+ * <em>revokes</em> the read bias, and then waits until all readers
+ * that acquired the lock through the stripes have released it.
+ * While the bias is revoked, readers use an underlying {@link
+ * ReentrantReadWriteLock}, and the bias is restored by a reader once
+ * a period proportional to the duration of the last revocation has
+ * elapsed, so that frequent writers are not slowed by repeated
+ * revocations.
+ *
+ * <p>This lock otherwise behaves as a {@code ReentrantReadWriteLock}
+ * with the same fairness policy: both locks are reentrant, the write
+ * lock supports {@link Condition}s, and a writer may downgrade to a
+ * read lock by acquiring the read lock before releasing the write
+ * lock.  Fairness applies to readers only while the bias is revoked.
+ *
+ * <p>Like {@link StampedLock}, this lock also supports
+ * <em>optimistic reading</em>: {@link #tryOptimisticRead} returns a
+ * nonzero stamp if the write lock is not held, and {@link
+ * #validate} tells whether the write lock has been acquired since the
+ * stamp was obtained.  Fields read between the two calls may be
+ * inconsistent, and must only be used if validation succeeds:
+ *
+ * <pre> {@code
+ * long stamp = lock.tryOptimisticRead();
+ * Route r = table.get(key);
+ * if (!lock.validate(stamp)) {
+ *   lock.readLock().lock();
+ *   try {
+ *     r = table.get(key);
+ *   } finally {
+ *     lock.readLock().unlock();
+ *   }
+ * }}</pre>
+ *
+ * <p>Methods {@link #getRevocationCount}, {@link
+ * #getRevocationTime} and {@link #getSlowReadCount} report how often
+ * writers revoke the bias and what it costs, for use in deciding
+ * whether this lock or a {@code ReentrantReadWriteLock} suits a
+ * given workload.
+ *
+ * <p>This class is not serializable.
+ *
+ * @since 1.8
+ */
+public class ReaderBiasedReadWriteLock implements ReadWriteLock {
+
+    /*
+     * Readers on the fast path increment their stripe, then read
+     * readBias; if still set, they hold the lock.  Otherwise they
+     * decrement the stripe again and use the underlying lock.  A
+     * writer first takes the underlying write lock, excluding other
+     * writers and slow-path readers; then, if readBias is set, it
+     * clears it and waits until all stripes read zero.  Since each
+     * side writes (an atomic increment, a volatile write) before it
+     * reads, any reader that missed the revocation is seen by the
+     * writer, and waited for.
+     *
+     * Each thread records in a ThreadLocal HoldCounter whether its
+     * read holds were taken on the fast or the slow path, so that
+     * release undoes the right one, and so that reentrant read
+     * acquisitions follow the first: a reader holding a fast hold
+     * must not queue behind a writer on the underlying lock while
+     * that writer waits for it to drain.  Unlike in
+     * ReentrantReadWriteLock, the HoldCounter is kept after the last
+     * release, so that acquisitions neither allocate nor write shared
+     * fields; the first reading thread also keeps a direct reference
+     * to its HoldCounter, saving it the ThreadLocal lookup.
+     *
+     * A writer that abandons revocation (on timeout or interrupt)
+     * restores the bias before releasing the underlying write lock.
+     * Fast-path readers that it did not wait for may still hold the
+     * lock, and the next writer, finding the bias cleared, would not
+     * wait for them either.
+     *
+     * A slow-path reader restores the bias, while holding the
+     * underlying read lock (so no writer is active), once
+     * inhibitUntil has passed.  Writers set inhibitUntil to
+     * INHIBIT_MULTIPLIER times the duration of their revocation into
+     * the future, bounding the time spent revoking to a fraction of
+     * the total.
+     *
+     * The version is odd while the write lock is held, and is
+     * incremented on each first acquisition and last release, giving
+     * the stamps of optimistic reads.  Condition waits release the
+     * write lock fully, so they are bracketed by the same actions as
+     * a release and an acquisition.
+     */
+
+    /** The multiple of the last revocation time to keep the bias off */
+    private static final long INHIBIT_MULTIPLIER = 9L;
+
+    /** Distance between used stripe slots, to avoid false sharing */
+    private static final int STRIPE_SPACING = 16;
+
+    /** The maximum number of stripes; a power of two */
+    private static final int MAX_STRIPES = 64;
+
+    /** The number of polls of a stripe before parking a revoking writer */
+    private static final int REVOKE_SPINS = 1 << 7;
+
+    /** The underlying lock, used by writers and slow-path readers */
+    private final ReentrantReadWriteLock lock;
+
+    /** Inner class providing readlock */
+    private final ReaderBiasedReadWriteLock.ReadLock readerLock;
+    /** Inner class providing writelock */
+    private final ReaderBiasedReadWriteLock.WriteLock writerLock;
+
+    /** Fast-path reader counts, one every STRIPE_SPACING slots */
+    private final AtomicLongArray stripes;
+
+    /** stripe count - 1 */
+    private final int stripeMask;
+
+    /** Whether readers may use the stripes */
+    private volatile boolean readBias = true;
+
+    /** The nanoTime before which readers do not restore the bias */
+    private volatile long inhibitUntil;
+
+    /** Odd while write-locked; see above */
+    private volatile long version = 2L;
+
+    // Statistics
+    private final LongAdder slowReads = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder revocationNanos = new LongAdder();
+
+    /**
+     * The number of read holds of a thread, by path.
+     */
+    static final class HoldCounter {
+        int fast;
+        int slow;
+        /** The index of the stripe used by the thread */
+        final int stripe;
+        // Use id, not reference, to avoid garbage retention
+        final long tid;
+        HoldCounter(long tid) {
+            this.tid = tid;
+            this.stripe = (int)((tid * 0x9e3779b97f4a7c15L) >>> 32);
+        }
+    }
+
+    /**
+     * ThreadLocal subclass. Easiest to explicitly define for sake
+     * of deserialization mechanics.
+     */
+    static final class ThreadLocalHoldCounter
+        extends ThreadLocal<HoldCounter> {
+        public HoldCounter initialValue() {
+            return new HoldCounter(
+                ReentrantReadWriteLock.getThreadId(Thread.currentThread()));
+        }
+    }
+
+    /** The read hold counts of each thread */
+    private final ThreadLocalHoldCounter readHolds =
+        new ThreadLocalHoldCounter();
+
+    /**
+     * The hold count of the first thread to acquire the read lock,
+     * saving it a ThreadLocal lookup.  Set only once, so that it is
+     * not written by each acquisition.  Benignly racy.
+     */
+    private HoldCounter firstReaderHoldCounter;
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with
+     * nonfair ordering properties.
+     */
+    public ReaderBiasedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code ReaderBiasedReadWriteLock} with
+     * the given fairness policy.
+     *
+     * @param fair {@code true} if the underlying lock should use a
+     *        fair ordering policy
+     */
+    public ReaderBiasedReadWriteLock(boolean fair) {
+        lock = new ReentrantReadWriteLock(fair);
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+        int n = 1, p = Runtime.getRuntime().availableProcessors();
+        while (n < p && n < MAX_STRIPES)
+            n <<= 1;
+        stripes = new AtomicLongArray(n * STRIPE_SPACING);
+        stripeMask = n - 1;
+    }
+
+    public ReaderBiasedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public ReaderBiasedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    // Read lock internals
+
+    /**
+     * Returns the hold counter of the current thread.
+     */
+    private HoldCounter holdCounter() {
+        HoldCounter hc = firstReaderHoldCounter;
+        if (hc != null &&
+            hc.tid == ReentrantReadWriteLock.getThreadId(Thread.currentThread()))
+            return hc;
+        hc = readHolds.get();
+        if (firstReaderHoldCounter == null)
+            firstReaderHoldCounter = hc;
+        return hc;
+    }
+
+    private int stripeIndex(HoldCounter hc) {
+        return (hc.stripe & stripeMask) * STRIPE_SPACING;
+    }
+
+    /**
+     * Tries to acquire a read hold through the stripes.
+     */
+    private boolean tryFastRead(HoldCounter hc) {
+        int i = stripeIndex(hc);
+        if (hc.fast > 0) {                  // reentrant: must not block
+            stripes.getAndIncrement(i);
+            ++hc.fast;
+            return true;
+        }
+        if (hc.slow == 0 && readBias) {
+            stripes.getAndIncrement(i);
+            if (readBias) {
+                hc.fast = 1;
+                return true;
+            }
+            stripes.getAndDecrement(i);
+        }
+        return false;
+    }
+
+    /**
+     * Records a read hold acquired on the underlying lock, and
+     * restores the bias if it is due.
+     */
+    private void slowReadAcquired(HoldCounter hc) {
+        ++hc.slow;
+        slowReads.increment();
+        if (!readBias && System.nanoTime() - inhibitUntil >= 0L &&
+            !lock.isWriteLocked())
+            readBias = true;
+    }
+
+    private void readUnlock() {
+        HoldCounter hc = holdCounter();
+        if (hc.fast > 0) {
+            --hc.fast;
+            stripes.getAndDecrement(stripeIndex(hc));
+        }
+        else if (hc.slow > 0) {
+            --hc.slow;
+            lock.readLock().unlock();
+        }
+        else
+            throw new IllegalMonitorStateException();
+    }
+
+    // Write lock internals
+
+    /**
+     * Completes the first acquisition of the write lock, already
+     * held on the underlying lock.  Returns false if revocation was
+     * abandoned, after releasing the underlying write lock.
+     */
+    private boolean writeAcquired(boolean interruptible, long deadline)
+        throws InterruptedException {
+        if (lock.getWriteHoldCount() == 1) {
+            version = version + 1L;
+            if (!revokeBias(interruptible, deadline)) {
+                version = version + 1L;
+                lock.writeLock().unlock();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called with the write lock held.  If the read bias is set,
+     * clears it and waits for fast-path readers to drain.  Returns
+     * false if the deadline is nonzero and passes first; throws
+     * InterruptedException if interruptible and interrupted first.
+     * The bias is restored in either case, since readers may still
+     * hold the lock through the stripes.
+     */
+    private boolean revokeBias(boolean interruptible, long deadline)
+        throws InterruptedException {
+        if (readBias) {
+            readBias = false;
+            long start = System.nanoTime();
+            revocations.increment();
+            final AtomicLongArray s = stripes;
+            boolean drained = false;
+            try {
+                for (int i = 0; i < s.length(); i += STRIPE_SPACING) {
+                    for (int spins = REVOKE_SPINS; s.get(i) != 0L; ) {
+                        if (interruptible && Thread.interrupted())
+                            throw new InterruptedException();
+                        if (deadline != 0L && System.nanoTime() - deadline >= 0L)
+                            return false;
+                        if (spins > 0)
+                            --spins;
+                        else
+                            LockSupport.parkNanos(this, 1000L);
+                    }
+                }
+                drained = true;
+            } finally {
+                if (!drained)
+                    readBias = true;
+            }
+            long end = System.nanoTime();
+            revocationNanos.add(end - start);
+            inhibitUntil = end + (end - start) * INHIBIT_MULTIPLIER;
+        }
+        return true;
+    }
+
+    private void writeUnlock() {
+        if (lock.getWriteHoldCount() == 1)
+            version = version + 1L;
+        lock.writeLock().unlock();
+    }
+
+    // Optimistic reading
+
+    /**
+     * Returns a stamp that can later be validated, or zero
+     * if the write lock is held.
+     *
+     * @return a stamp, or zero if write-locked
+     */
+    public long tryOptimisticRead() {
+        long v = version;
+        return ((v & 1L) == 0L) ? v : 0L;
+    }
+
+    /**
+     * Returns true if the write lock has not been acquired since
+     * issuance of the given stamp.  Always returns false if the stamp
+     * is zero.
+     *
+     * @param stamp a stamp
+     * @return {@code true} if the write lock has not been acquired
+     * since issuance of the given stamp; else false
+     */
+    public boolean validate(long stamp) {
+        U.loadFence();
+        return stamp != 0L && stamp == version;
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock {
+        private final ReaderBiasedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(ReaderBiasedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock, waiting while the write lock is held
+         * by another thread.
+         */
+        public void lock() {
+            ReaderBiasedReadWriteLock l = lock;
+            HoldCounter hc = l.holdCounter();
+            if (!l.tryFastRead(hc)) {
+                l.lock.readLock().lock();
+                l.slowReadAcquired(hc);
+            }
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ReaderBiasedReadWriteLock l = lock;
+            HoldCounter hc = l.holdCounter();
+            if (!l.tryFastRead(hc)) {
+                l.lock.readLock().lockInterruptibly();
+                l.slowReadAcquired(hc);
+            }
+        }
+
+        /**
+         * Acquires the read lock only if the write lock is not held by
+         * another thread at the time of invocation.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            ReaderBiasedReadWriteLock l = lock;
+            HoldCounter hc = l.holdCounter();
+            if (l.tryFastRead(hc))
+                return true;
+            if (!l.lock.readLock().tryLock())
+                return false;
+            l.slowReadAcquired(hc);
+            return true;
+        }
+
+        /**
+         * Acquires the read lock if the write lock is not held by
+         * another thread within the given waiting time and the
+         * current thread has not been {@linkplain Thread#interrupt
+         * interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            ReaderBiasedReadWriteLock l = lock;
+            HoldCounter hc = l.holdCounter();
+            if (l.tryFastRead(hc))
+                return true;
+            if (!l.lock.readLock().tryLock(timeout, unit))
+                return false;
+            l.slowReadAcquired(hc);
+            return true;
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.readUnlock();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link ReaderBiasedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock {
+        private final ReaderBiasedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(ReaderBiasedReadWriteLock lock) {
+            if (lock == null)
+                throw new NullPointerException();
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the write lock, waiting while any other thread
+         * holds the read or write lock.  The first acquisition by a
+         * thread revokes the read bias if set.
+         */
+        public void lock() {
+            ReaderBiasedReadWriteLock l = lock;
+            l.lock.writeLock().lock();
+            try {
+                l.writeAcquired(false, 0L);
+            } catch (InterruptedException cannotHappen) {
+                throw new Error(cannotHappen);
+            }
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            ReaderBiasedReadWriteLock l = lock;
+            l.lock.writeLock().lockInterruptibly();
+            try {
+                l.writeAcquired(true, 0L);
+            } catch (InterruptedException ie) {
+                l.version = l.version + 1L;
+                l.lock.writeLock().unlock();
+                throw ie;
+            }
+        }
+
+        /**
+         * Acquires the write lock only if it is not held by another
+         * thread, and no thread holds the read lock, at the time of
+         * invocation.  If the read bias is set, it is revoked, and
+         * this method fails if any thread holds the read lock through
+         * it.
+         *
+         * @return {@code true} if the write lock was acquired
+         */
+        public boolean tryLock() {
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.lock.writeLock().tryLock())
+                return false;
+            try {   // a deadline of now: fail if any reader holds
+                return l.writeAcquired(false, System.nanoTime() | 1L);
+            } catch (InterruptedException cannotHappen) {
+                throw new Error(cannotHappen);
+            }
+        }
+
+        /**
+         * Acquires the write lock if it is not held by another thread,
+         * and no thread holds the read lock, within the given waiting
+         * time, and the current thread has not been {@linkplain
+         * Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the write lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = (System.nanoTime() + unit.toNanos(timeout)) | 1L;
+            ReaderBiasedReadWriteLock l = lock;
+            if (!l.lock.writeLock().tryLock(timeout, unit))
+                return false;
+            try {
+                return l.writeAcquired(true, deadline);
+            } catch (InterruptedException ie) {
+                l.version = l.version + 1L;
+                l.lock.writeLock().unlock();
+                throw ie;
+            }
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.writeUnlock();
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance, with the same properties as those of
+         * {@link ReentrantReadWriteLock.WriteLock#newCondition}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return lock.new WriteCondition(lock.lock.writeLock().newCondition());
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked by"}
+         * followed by the {@linkplain Thread#getName name} of the
+         * owning thread.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            String s = lock.lock.writeLock().toString();
+            return super.toString() + s.substring(s.lastIndexOf('['));
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return lock.lock.isWriteLockedByCurrentThread();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return lock.lock.getWriteHoldCount();
+        }
+    }
+
+    /**
+     * A condition of the write lock.  Waiting releases the write lock
+     * fully, so it is bracketed by the actions of a release and of a
+     * first acquisition.
+     */
+    final class WriteCondition implements Condition {
+        private final Condition condition;
+
+        WriteCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        private void beforeWait() {
+            if (!lock.isWriteLockedByCurrentThread())
+                throw new IllegalMonitorStateException();
+            version = version + 1L;
+        }
+
+        private void afterWait() {
+            version = version + 1L;
+            try {
+                revokeBias(false, 0L);
+            } catch (InterruptedException cannotHappen) {
+                throw new Error(cannotHappen);
+            }
+        }
+
+        public void await() throws InterruptedException {
+            beforeWait();
+            try {
+                condition.await();
+            } finally {
+                afterWait();
+            }
+        }
+
+        public void awaitUninterruptibly() {
+            beforeWait();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                afterWait();
+            }
+        }
+
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            beforeWait();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                afterWait();
+            }
+        }
+
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            beforeWait();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                afterWait();
+            }
+        }
+
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            beforeWait();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                afterWait();
+            }
+        }
+
+        public void signal() {
+            condition.signal();
+        }
+
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     */
+    public final boolean isFair() {
+        return lock.isFair();
+    }
+
+    /**
+     * Returns {@code true} if readers currently acquire the read lock
+     * through the stripes, that is, if the read bias is set.
+     *
+     * @return {@code true} if the read bias is set
+     */
+    public boolean isReadBiased() {
+        return readBias;
+    }
+
+    /**
+     * Queries the number of read locks held for this lock, on either
+     * path.  This method is designed for use in monitoring system
+     * state, not for synchronization control.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        long n = lock.getReadLockCount();
+        final AtomicLongArray s = stripes;
+        for (int i = 0; i < s.length(); i += STRIPE_SPACING)
+            n += s.get(i);
+        return (int)Math.max(0L, Math.min(n, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Queries if the write lock is held by any thread. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return lock.isWriteLocked();
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return lock.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return lock.getWriteHoldCount();
+    }
+
+    /**
+     * Returns the number of times a writer has revoked the read bias.
+     *
+     * @return the number of revocations
+     */
+    public long getRevocationCount() {
+        return revocations.sum();
+    }
+
+    /**
+     * Returns the total time writers have spent waiting for readers
+     * holding the lock through the stripes to drain, in the given
+     * unit.
+     *
+     * @param unit the desired time unit
+     * @return the total revocation time
+     */
+    public long getRevocationTime(TimeUnit unit) {
+        return unit.convert(revocationNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of first read acquisitions that used the
+     * underlying lock because the read bias was revoked.
+     *
+     * @return the number of slow-path read acquisitions
+     */
+    public long getSlowReadCount() {
+        return slowReads.sum();
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks, the String
+     * {@code "Read locks ="} followed by the number of held read locks,
+     * and the number of bias revocations.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        int w = lock.isWriteLocked() ? 1 : 0;
+        return super.toString() +
+            "[Write locks = " + w + ", Read locks = " + getReadLockCount() +
+            ", Revocations = " + revocations.sum() + "]";
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
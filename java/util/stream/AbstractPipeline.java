@@ -24,8 +24,10 @@
  */
 package java.util.stream;
 
+import java.io.UncheckedIOException;
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -142,6 +144,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
 
     private Runnable sourceCloseAction;
 
+    /**
+     * The scope of the temporary files of the spilling operations of the
+     * pipeline, if any; only valid for the source stage.
+     */
+    private SpillBuffer.Scope spillScope;
+
+    /**
+     * The profiler of the pipeline, if profiling was requested; only valid
+     * for the source stage.
+     */
+    private StreamProfiler profiler;
+
     /**
      * True if pipeline is parallel, otherwise the pipeline is sequential; only
      * valid for the source stage.
@@ -211,6 +225,8 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         if (opIsStateful())
             sourceStage.sourceAnyStateful = true;
         this.depth = previousStage.depth + 1;
+        if (sourceStage.profiler != null)
+            sourceStage.profiler.register(this, depth, true);
     }
 
 
@@ -229,9 +245,22 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        StreamProfiler profiler = sourceStage.profiler;
+        if (profiler != null)
+            profiler.begin(isParallel());
+        R result;
+        try {
+            result = isParallel()
+                     ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
+                     : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        } catch (Throwable ex) {
+            closeSpillScope(ex);
+            throw ex;
+        }
+        closeSpillScope(null);
+        if (profiler != null)
+            profiler.end();
+        return result;
     }
 
     /**
@@ -246,18 +275,71 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        // If the last intermediate operation is stateful then
-        // evaluate directly to avoid an extra collection step
-        if (isParallel() && previousStage != null && opIsStateful()) {
-            // Set the depth of this, last, pipeline stage to zero to slice the
-            // pipeline such that this operation will not be included in the
-            // upstream slice and upstream operations will not be included
-            // in this slice
-            depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+        StreamProfiler profiler = sourceStage.profiler;
+        if (profiler != null)
+            profiler.begin(isParallel());
+        Node<E_OUT> result;
+        try {
+            // If the last intermediate operation is stateful then
+            // evaluate directly to avoid an extra collection step
+            if (isParallel() && previousStage != null && opIsStateful()) {
+                // Set the depth of this, last, pipeline stage to zero to slice the
+                // pipeline such that this operation will not be included in the
+                // upstream slice and upstream operations will not be included
+                // in this slice
+                depth = 0;
+                long start = System.nanoTime();
+                result = opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+                if (profiler != null)
+                    profiler.barrier(this, System.nanoTime() - start);
+            }
+            else {
+                result = evaluate(sourceSpliterator(0), true, generator);
+            }
+        } catch (Throwable ex) {
+            closeSpillScope(ex);
+            throw ex;
         }
-        else {
-            return evaluate(sourceSpliterator(0), true, generator);
+        closeSpillScope(null);
+        if (profiler != null)
+            profiler.end();
+        return result;
+    }
+
+    /**
+     * Returns the scope of the temporary files of the spilling operations of
+     * the pipeline, creating it if necessary.  Called by the constructors of
+     * such operations, and so by the thread building the pipeline.
+     *
+     * @return the spill scope of the pipeline
+     */
+    final SpillBuffer.Scope spillScope() {
+        AbstractPipeline<?, ?, ?> source = sourceStage;
+        if (source.spillScope == null)
+            source.spillScope = new SpillBuffer.Scope();
+        return source.spillScope;
+    }
+
+    /**
+     * Deletes the temporary files left by the spilling operations of the
+     * pipeline, if any, once its evaluation has completed, or failed with
+     * the given exception.  Files may be left if an upstream stage or a
+     * comparator throws, since sinks are not told of failures, or if the
+     * downstream stages short-circuit.
+     *
+     * @param failure the exception with which the evaluation failed, to
+     *        which a failure to delete is added as suppressed, or null
+     */
+    private void closeSpillScope(Throwable failure) {
+        SpillBuffer.Scope scope = sourceStage.spillScope;
+        if (scope != null) {
+            try {
+                scope.close();
+            } catch (UncheckedIOException ex) {
+                if (failure == null)
+                    throw ex;
+                failure.addSuppressed(ex);
+            }
         }
     }
 
@@ -317,13 +399,35 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         linkedOrConsumed = true;
         sourceSupplier = null;
         sourceSpliterator = null;
-        if (sourceStage.sourceCloseAction != null) {
-            Runnable closeAction = sourceStage.sourceCloseAction;
-            sourceStage.sourceCloseAction = null;
-            closeAction.run();
+        try {
+            if (sourceStage.spillScope != null)
+                sourceStage.spillScope.close();
+        } finally {
+            if (sourceStage.sourceCloseAction != null) {
+                Runnable closeAction = sourceStage.sourceCloseAction;
+                sourceStage.sourceCloseAction = null;
+                closeAction.run();
+            }
         }
     }
 
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public S profile(Consumer<? super StreamProfile> reporter) {
+        Objects.requireNonNull(reporter);
+        if (linkedOrConsumed)
+            throw new IllegalStateException(MSG_STREAM_LINKED);
+        if (sourceStage.profiler == null) {
+            StreamProfiler p = new StreamProfiler();
+            // The existing stages are not named
+            for (AbstractPipeline u = this; u.previousStage != null; u = u.previousStage)
+                p.register(u, u.depth, false);
+            sourceStage.profiler = p;
+        }
+        sourceStage.profiler.addReporter(reporter);
+        return (S) this;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public S onClose(Runnable closeHandler) {
@@ -428,7 +532,13 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
                         thisOpFlags = thisOpFlags & ~StreamOpFlag.IS_SHORT_CIRCUIT;
                     }
 
-                    spliterator = p.opEvaluateParallelLazy(u, spliterator);
+                    if (sourceStage.profiler == null)
+                        spliterator = p.opEvaluateParallelLazy(u, spliterator);
+                    else {
+                        long start = System.nanoTime();
+                        spliterator = p.opEvaluateParallelLazy(u, spliterator);
+                        sourceStage.profiler.barrier(p, System.nanoTime() - start);
+                    }
 
                     // Inject or clear SIZED on the source pipeline stage
                     // based on the stage's spliterator
@@ -461,6 +571,11 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return p.getOutputShape();
     }
 
+    @Override
+    final StreamProfiler getProfiler() {
+        return sourceStage.profiler;
+    }
+
     @Override
     final <P_IN> long exactOutputSizeIfKnown(Spliterator<P_IN> spliterator) {
         return StreamOpFlag.SIZED.isKnown(getStreamAndOpFlags()) ? spliterator.getExactSizeIfKnown() : -1;
@@ -513,8 +628,12 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
+        StreamProfiler profiler = sourceStage.profiler;
+        StreamProfiler.Sampler sampler = (profiler != null) ? new StreamProfiler.Sampler() : null;
         for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+            if (profiler != null)
+                sink = profiler.wrap(p, p.previousStage.getOutputShape(), sampler, sink);
         }
         return (Sink<P_IN>) sink;
     }
@@ -313,7 +313,14 @@ abstract class AbstractTask<P_IN, P_OUT, R,
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
-        task.setLocalResult(task.doLeaf());
+        StreamProfiler profiler = helper.getProfiler();
+        if (profiler == null)
+            task.setLocalResult(task.doLeaf());
+        else {
+            long start = System.nanoTime();
+            task.setLocalResult(task.doLeaf());
+            profiler.leaf(StreamProfiler.depth(task), sizeEstimate, System.nanoTime() - start);
+        }
         task.tryComplete();
     }
 
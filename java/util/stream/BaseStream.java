@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -149,6 +151,52 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S onClose(Runnable closeHandler);
 
+    /**
+     * Returns an equivalent stream whose evaluation is profiled.  When the
+     * terminal operation completes normally, a {@link StreamProfile}
+     * describing its evaluation is passed to the provided reporter, in the
+     * thread that invoked the terminal operation.  The profile reports the
+     * number of elements received by each intermediate operation and the
+     * time spent in it, and, if the stream is parallel, how evenly the
+     * source was split and the state of the {@code ForkJoinPool} in which
+     * the stream was evaluated.  May return itself.
+     *
+     * <p>Intermediate operations appended after this one are named in the
+     * profile after the methods creating them, so profiling is best
+     * requested right after the stream is created.  Terminal operations
+     * that return an {@link #iterator() iterator} or a
+     * {@link #spliterator() spliterator} are not profiled.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @apiNote
+     * Profiling adds overhead to the processing of each element, and is
+     * intended for diagnosing the performance of a pipeline, such as:
+     * <pre>{@code
+     *     long count = source.parallelStream()
+     *                        .profile(System.out::println)
+     *                        .filter(...)
+     *                        .map(...)
+     *                        .count();
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation does not profile the evaluation, and
+     * returns this stream.
+     *
+     * @param reporter the action to perform on the profile
+     * @return a stream whose evaluation is profiled
+     * @throws IllegalStateException if this stream has already been linked
+     *         to a subsequent stage or consumed
+     * @since 1.8
+     */
+    @SuppressWarnings("unchecked")
+    default S profile(Consumer<? super StreamProfile> reporter) {
+        Objects.requireNonNull(reporter);
+        return (S) this;
+    }
+
     /**
      * Closes this stream, causing all close handlers for this stream pipeline
      * to be called.
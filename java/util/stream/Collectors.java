@@ -45,12 +45,14 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -117,6 +119,12 @@ public final class Collectors {
                                                      Collector.Characteristics.IDENTITY_FINISH));
     static final Set<Collector.Characteristics> CH_NOID = Collections.emptySet();
 
+    /**
+     * The maximum number of elements for which a collection is presized.
+     * Some VMs reserve some header words in an array.
+     */
+    private static final int MAX_PRESIZE = Integer.MAX_VALUE - 8;
+
     private Collectors() { }
 
     /**
@@ -146,23 +154,34 @@ public final class Collectors {
      */
     static class CollectorImpl<T, A, R> implements Collector<T, A, R> {
         private final Supplier<A> supplier;
+        private final LongFunction<A> sizedSupplier;
         private final BiConsumer<A, T> accumulator;
         private final BinaryOperator<A> combiner;
         private final Function<A, R> finisher;
         private final Set<Characteristics> characteristics;
 
         CollectorImpl(Supplier<A> supplier,
+                      LongFunction<A> sizedSupplier,
                       BiConsumer<A, T> accumulator,
                       BinaryOperator<A> combiner,
                       Function<A,R> finisher,
                       Set<Characteristics> characteristics) {
             this.supplier = supplier;
+            this.sizedSupplier = sizedSupplier;
             this.accumulator = accumulator;
             this.combiner = combiner;
             this.finisher = finisher;
             this.characteristics = characteristics;
         }
 
+        CollectorImpl(Supplier<A> supplier,
+                      BiConsumer<A, T> accumulator,
+                      BinaryOperator<A> combiner,
+                      Function<A,R> finisher,
+                      Set<Characteristics> characteristics) {
+            this(supplier, null, accumulator, combiner, finisher, characteristics);
+        }
+
         CollectorImpl(Supplier<A> supplier,
                       BiConsumer<A, T> accumulator,
                       BinaryOperator<A> combiner,
@@ -180,6 +199,15 @@ public final class Collectors {
             return supplier;
         }
 
+        /**
+         * Returns a function creating a result container presized for the
+         * given number of elements, which is known exactly, or null if the
+         * container should be created by the supplier.
+         */
+        LongFunction<A> sizedSupplier() {
+            return sizedSupplier;
+        }
+
         @Override
         public BinaryOperator<A> combiner() {
             return combiner;
@@ -227,9 +255,11 @@ public final class Collectors {
      */
     public static <T>
     Collector<T, ?, List<T>> toList() {
-        return new CollectorImpl<>((Supplier<List<T>>) ArrayList::new, List::add,
+        return new CollectorImpl<>((Supplier<List<T>>) ArrayList::new,
+                                   size -> new ArrayList<>((int) Math.min(size, MAX_PRESIZE)),
+                                   List::add,
                                    (left, right) -> { left.addAll(right); return left; },
-                                   CH_ID);
+                                   castingIdentity(), CH_ID);
     }
 
     /**
@@ -410,7 +440,8 @@ public final class Collectors {
      */
     public static <T> Collector<T, ?, Long>
     counting() {
-        return reducing(0L, e -> 1L, Long::sum);
+        // Sums into a long[] container, so that no Long is boxed per element
+        return summingLong(e -> 1L);
     }
 
     /**
@@ -1091,6 +1122,248 @@ public final class Collectors {
         }
     }
 
+    /**
+     * Returns a concurrent {@code Collector} implementing a "group by"
+     * operation on input elements of type {@code T}, grouping elements
+     * according to a classification function, and returning the results in a
+     * {@code Map}.
+     *
+     * <p>This is a {@link Collector.Characteristics#CONCURRENT concurrent} and
+     * {@link Collector.Characteristics#UNORDERED unordered} Collector.
+     *
+     * <p>Unlike {@link #groupingByConcurrent(Function)}, the elements are not
+     * accumulated into a shared concurrent map.  Each thread accumulating
+     * elements does so into a partial map of its own, without
+     * synchronization, and the partial maps are merged once, when the
+     * result is produced.  There are no guarantees on the type, mutability,
+     * serializability, or thread-safety of the {@code Map} or {@code List}
+     * objects returned.
+     *
+     * @implSpec
+     * This produces a result similar to:
+     * <pre>{@code
+     *     groupingByStriped(classifier, toList());
+     * }</pre>
+     *
+     * @apiNote
+     * This collector performs best with parallel streams whose elements map
+     * to a moderate number of keys, as each thread holds a partial map with
+     * up to all the keys.  If each key is shared by only a few elements,
+     * {@link #groupingByConcurrent(Function)} may need less memory.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param classifier a classifier function mapping input elements to keys
+     * @return a concurrent, unordered {@code Collector} implementing the group-by operation
+     *
+     * @see #groupingByStriped(Function, Collector)
+     * @see #groupingByStriped(Function, Supplier, Collector)
+     * @see #groupingByConcurrent(Function)
+     * @since 1.8
+     */
+    public static <T, K>
+    Collector<T, ?, Map<K, List<T>>>
+    groupingByStriped(Function<? super T, ? extends K> classifier) {
+        return groupingByStriped(classifier, toList());
+    }
+
+    /**
+     * Returns a concurrent {@code Collector} implementing a cascaded "group by"
+     * operation on input elements of type {@code T}, grouping elements
+     * according to a classification function, and then performing a reduction
+     * operation on the values associated with a given key using the specified
+     * downstream {@code Collector}.
+     *
+     * <p>This is a {@link Collector.Characteristics#CONCURRENT concurrent} and
+     * {@link Collector.Characteristics#UNORDERED unordered} Collector.
+     *
+     * <p>The classification function maps elements to some key type {@code K}.
+     * The downstream collector operates on elements of type {@code T} and
+     * produces a result of type {@code D}. The resulting collector produces a
+     * {@code Map<K, D>}.
+     *
+     * <p>Each thread accumulating elements does so into a partial map of its
+     * own, holding a result container of the downstream collector per key,
+     * without synchronization.  The partial maps are merged once, when the
+     * result is produced, combining the containers of equal keys with the
+     * combiner of the downstream collector.  There are no guarantees on the
+     * type, mutability, serializability, or thread-safety of the {@code Map}
+     * returned.
+     *
+     * <p>For example, to count the number of people in each city:
+     * <pre>{@code
+     *     Map<City, Long> countByCity
+     *         = people.parallelStream().collect(groupingByStriped(Person::getCity,
+     *                                                             counting()));
+     * }</pre>
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param classifier a classifier function mapping input elements to keys
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a concurrent, unordered {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByStriped(Function)
+     * @see #groupingByStriped(Function, Supplier, Collector)
+     * @see #groupingByConcurrent(Function, Collector)
+     * @since 1.8
+     */
+    public static <T, K, A, D>
+    Collector<T, ?, Map<K, D>> groupingByStriped(Function<? super T, ? extends K> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        return stripedGrouping(classifier, null, downstream);
+    }
+
+    /**
+     * Returns a concurrent {@code Collector} implementing a cascaded "group by"
+     * operation on input elements of type {@code T}, grouping elements
+     * according to a classification function, and then performing a reduction
+     * operation on the values associated with a given key using the specified
+     * downstream {@code Collector}.  The {@code Map} produced by the Collector
+     * is created with the supplied factory function.
+     *
+     * <p>This is a {@link Collector.Characteristics#CONCURRENT concurrent} and
+     * {@link Collector.Characteristics#UNORDERED unordered} Collector.
+     *
+     * <p>The classification function maps elements to some key type {@code K}.
+     * The downstream collector operates on elements of type {@code T} and
+     * produces a result of type {@code D}. The resulting collector produces a
+     * {@code Map<K, D>}.
+     *
+     * <p>Each thread accumulating elements does so into a partial map of its
+     * own, holding a result container of the downstream collector per key,
+     * without synchronization.  The partial maps are merged once into the
+     * map created by the factory, when the result is produced, combining the
+     * containers of equal keys with the combiner of the downstream collector.
+     *
+     * @param <T> the type of the input elements
+     * @param <K> the type of the keys
+     * @param <A> the intermediate accumulation type of the downstream collector
+     * @param <D> the result type of the downstream reduction
+     * @param <M> the type of the resulting {@code Map}
+     * @param classifier a classifier function mapping input elements to keys
+     * @param mapFactory a function which, when called, produces a new empty
+     *                   {@code Map} of the desired type
+     * @param downstream a {@code Collector} implementing the downstream reduction
+     * @return a concurrent, unordered {@code Collector} implementing the cascaded group-by operation
+     *
+     * @see #groupingByStriped(Function)
+     * @see #groupingByStriped(Function, Collector)
+     * @see #groupingBy(Function, Supplier, Collector)
+     * @since 1.8
+     */
+    public static <T, K, D, A, M extends Map<K, D>>
+    Collector<T, ?, M> groupingByStriped(Function<? super T, ? extends K> classifier,
+                                         Supplier<M> mapFactory,
+                                         Collector<? super T, A, D> downstream) {
+        return stripedGrouping(classifier, Objects.requireNonNull(mapFactory), downstream);
+    }
+
+    /**
+     * Implements the striped grouping collectors, merging the partial maps
+     * into the largest of them if {@code mapFactory} is null.
+     */
+    private static <T, K, D, A, M extends Map<K, D>>
+    Collector<T, ?, M> stripedGrouping(Function<? super T, ? extends K> classifier,
+                                       Supplier<M> mapFactory,
+                                       Collector<? super T, A, D> downstream) {
+        Objects.requireNonNull(classifier);
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        @SuppressWarnings("unchecked")
+        Supplier<Map<K, A>> mangledFactory = (Supplier<Map<K, A>>) mapFactory;
+        BiConsumer<StripedMap<K, A>, T> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            A container = m.map().computeIfAbsent(key, k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<StripedMap<K, A>> merger = (left, right) -> {
+            left.stripes.addAll(right.stripes);
+            return left;
+        };
+        Function<StripedMap<K, A>, M> finisher;
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            finisher = m -> {
+                @SuppressWarnings("unchecked")
+                M castResult = (M) m.merge(mangledFactory, downstreamCombiner);
+                return castResult;
+            };
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            finisher = m -> {
+                Map<K, A> intermediate = m.merge(mangledFactory, downstreamCombiner);
+                intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
+                @SuppressWarnings("unchecked")
+                M castResult = (M) intermediate;
+                return castResult;
+            };
+        }
+        return new CollectorImpl<>(StripedMap::new, accumulator, merger, finisher, CH_CONCURRENT_NOID);
+    }
+
+    /**
+     * Intermediate accumulation type of the striped grouping collectors,
+     * holding a partial map for each thread that accumulated elements into
+     * it.  A partial map is only accessed by its thread until the result is
+     * produced, after the accumulation is complete.
+     */
+    private static final class StripedMap<K, A> {
+        private final ThreadLocal<Stripe<K, A>> local = new ThreadLocal<>();
+        final ConcurrentLinkedQueue<Stripe<K, A>> stripes = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Returns the partial map of the current thread.
+         */
+        HashMap<K, A> map() {
+            Stripe<K, A> s = local.get();
+            if (s == null) {
+                local.set(s = new Stripe<>());
+                stripes.add(s);
+            }
+            return s.map;
+        }
+
+        /**
+         * Merges the partial maps into a map created by the given factory,
+         * or else into the largest of them, and returns it.  The partial
+         * maps are released, as the stripes may stay reachable from the
+         * threads until their entries for this instance are expunged.
+         */
+        Map<K, A> merge(Supplier<Map<K, A>> factory, BinaryOperator<A> combiner) {
+            Map<K, A> result = (factory != null) ? factory.get() : null;
+            if (result == null) {
+                for (Stripe<K, A> s : stripes) {
+                    if (result == null || s.map.size() > result.size())
+                        result = s.map;
+                }
+                if (result == null)
+                    result = new HashMap<>();
+            }
+            for (Stripe<K, A> s : stripes) {
+                HashMap<K, A> partial = s.map;
+                s.map = null;
+                if (partial != result) {
+                    for (Map.Entry<K, A> e : partial.entrySet())
+                        result.merge(e.getKey(), e.getValue(), combiner);
+                }
+            }
+            stripes.clear();
+            return result;
+        }
+    }
+
+    /**
+     * The partial map of a thread.
+     */
+    private static final class Stripe<K, A> {
+        HashMap<K, A> map = new HashMap<>();
+    }
+
     /**
      * Returns a {@code Collector} which partitions the input elements according
      * to a {@code Predicate}, and organizes them into a
@@ -1209,7 +1482,7 @@ public final class Collectors {
     public static <T, K, U>
     Collector<T, ?, Map<K,U>> toMap(Function<? super T, ? extends K> keyMapper,
                                     Function<? super T, ? extends U> valueMapper) {
-        return toMap(keyMapper, valueMapper, throwingMerger(), HashMap::new);
+        return toMap(keyMapper, valueMapper, throwingMerger(), HashMap::new, Collectors::hashMap);
     }
 
     /**
@@ -1316,10 +1589,35 @@ public final class Collectors {
                                 Function<? super T, ? extends U> valueMapper,
                                 BinaryOperator<U> mergeFunction,
                                 Supplier<M> mapSupplier) {
+        return toMap(keyMapper, valueMapper, mergeFunction, mapSupplier, null);
+    }
+
+    /**
+     * Implements {@link #toMap(Function, Function, BinaryOperator, Supplier)},
+     * creating the map with the given sized supplier, if non-null, when the
+     * number of elements is known.
+     */
+    private static <T, K, U, M extends Map<K, U>>
+    Collector<T, ?, M> toMap(Function<? super T, ? extends K> keyMapper,
+                             Function<? super T, ? extends U> valueMapper,
+                             BinaryOperator<U> mergeFunction,
+                             Supplier<M> mapSupplier,
+                             LongFunction<M> sizedMapSupplier) {
         BiConsumer<M, T> accumulator
                 = (map, element) -> map.merge(keyMapper.apply(element),
                                               valueMapper.apply(element), mergeFunction);
-        return new CollectorImpl<>(mapSupplier, accumulator, mapMerger(mergeFunction), CH_ID);
+        return new CollectorImpl<>(mapSupplier, sizedMapSupplier, accumulator,
+                                   mapMerger(mergeFunction), castingIdentity(), CH_ID);
+    }
+
+    /**
+     * Returns a {@code HashMap} that holds the given number of mappings
+     * without being resized.  Only for collectors in which each element
+     * adds a mapping; where keys may repeat, the number of elements can
+     * vastly exceed the number of mappings.
+     */
+    private static <K, V> HashMap<K, V> hashMap(long size) {
+        return new HashMap<>((int) Math.min(size / 3 * 4 + 4, 1 << 30));
     }
 
     /**
@@ -24,11 +24,16 @@
  */
 package java.util.stream;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntFunction;
@@ -122,39 +127,147 @@ final class DistinctOps {
                 if (StreamOpFlag.DISTINCT.isKnown(flags)) {
                     return sink;
                 } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return sortedDistinctSink(sink);
+                } else {
                     return new Sink.ChainedReference<T, T>(sink) {
-                        boolean seenNull;
-                        T lastSeen;
+                        Set<T> seen;
 
                         @Override
                         public void begin(long size) {
-                            seenNull = false;
-                            lastSeen = null;
+                            seen = new HashSet<>();
                             downstream.begin(-1);
                         }
 
                         @Override
                         public void end() {
-                            seenNull = false;
-                            lastSeen = null;
+                            seen = null;
                             downstream.end();
                         }
 
                         @Override
                         public void accept(T t) {
-                            if (t == null) {
-                                if (!seenNull) {
-                                    seenNull = true;
-                                    downstream.accept(lastSeen = null);
-                                }
-                            } else if (lastSeen == null || !t.equals(lastSeen)) {
-                                downstream.accept(lastSeen = t);
+                            if (!seen.contains(t)) {
+                                seen.add(t);
+                                downstream.accept(t);
                             }
                         }
                     };
+                }
+            }
+        };
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream, that holds at
+     * most approximately the given number of elements in memory and spills
+     * the others to temporary files, and returns the new stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param bufferSize the maximum number of elements held in memory
+     * @return the new stream
+     */
+    static <T> ReferencePipeline<T, T> makeRefSpilling(AbstractPipeline<?, T, ?> upstream,
+                                                       int bufferSize) {
+        return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
+                                                      StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+            final SpillBuffer.Scope scope = spillScope();
+
+            <P_IN> SpillBuffer<Entry<T>> spill(PipelineHelper<T> helper,
+                                               Spliterator<P_IN> spliterator) {
+                SpillingDistinct<T> d;
+                boolean ordered = StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags());
+                if (ordered) {
+                    // Entries must be indexed in encounter order, so collect
+                    // the elements in parallel and index them sequentially
+                    SpillBuffer<T> elements
+                            = SpillBuffer.collect(helper, spliterator, null, bufferSize, scope);
+                    d = new SpillingDistinct<>(bufferSize, scope);
+                    try {
+                        for (Iterator<T> it = elements.iterator(); it.hasNext(); )
+                            d.add(it.next());
+                    } catch (Throwable ex) {
+                        d.close();
+                        throw ex;
+                    } finally {
+                        elements.close();
+                    }
+                }
+                else {
+                    int leafCapacity = SpillBuffer.leafCapacity(bufferSize);
+                    d = ReduceOps.<T, SpillingDistinct<T>>makeRef(
+                            () -> new SpillingDistinct<>(leafCapacity, scope),
+                            SpillingDistinct::add, SpillingDistinct::combine)
+                            .evaluateParallel(helper, spliterator);
+                }
+                return d.finish(ordered);
+            }
+
+            @Override
+            <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                              Spliterator<P_IN> spliterator,
+                                              IntFunction<T[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                // Only used to produce an array, which must fit in memory anyway
+                SpillBuffer<Entry<T>> entries = spill(helper, spliterator);
+                try {
+                    long size = entries.count();
+                    Node.Builder<T> nb = Nodes.builder(size, generator);
+                    nb.begin(size);
+                    for (Iterator<Entry<T>> it = entries.iterator(); it.hasNext(); )
+                        nb.accept(it.next().value);
+                    nb.end();
+                    return nb.build();
+                } finally {
+                    entries.close();
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                         Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // No-op
+                    return helper.wrapSpliterator(spliterator);
+                }
+                // The scope deletes the temporary files if the stream is
+                // closed before all the elements are consumed
+                SpillBuffer<Entry<T>> entries = spill(helper, spliterator);
+                long size = entries.count();
+                Iterator<Entry<T>> it = entries.iterator();
+                return Spliterators.spliterator(new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return it.next().value;
+                    }
+                }, size, Spliterator.DISTINCT);
+            }
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<T> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return sortedDistinctSink(sink);
                 } else {
+                    boolean ordered = StreamOpFlag.ORDERED.isKnown(flags);
+                    // Half of the buffer for the set of elements already
+                    // passed downstream, half for those spilled after it
+                    int seenCapacity = Math.max(bufferSize / 2, 1);
+                    int spillCapacity = Math.max(bufferSize - seenCapacity, 1);
                     return new Sink.ChainedReference<T, T>(sink) {
                         Set<T> seen;
+                        SpillingDistinct<T> distinct;
 
                         @Override
                         public void begin(long size) {
@@ -165,19 +278,189 @@ final class DistinctOps {
                         @Override
                         public void end() {
                             seen = null;
+                            SpillingDistinct<T> d = distinct;
+                            distinct = null;
+                            if (d != null) {
+                                SpillBuffer<Entry<T>> entries = d.finish(ordered);
+                                try {
+                                    Iterator<Entry<T>> it = entries.iterator();
+                                    while (it.hasNext() && !downstream.cancellationRequested())
+                                        downstream.accept(it.next().value);
+                                } finally {
+                                    entries.close();
+                                }
+                            }
                             downstream.end();
                         }
 
+                        /**
+                         * Passes an element downstream on first sight while
+                         * the elements seen fit in memory.  The first
+                         * elements to be seen are then the first distinct
+                         * elements in encounter order, so an element not
+                         * among them is spilled, and passed downstream only
+                         * once all the elements are known to be distinct.
+                         */
                         @Override
                         public void accept(T t) {
-                            if (!seen.contains(t)) {
-                                seen.add(t);
-                                downstream.accept(t);
+                            if (seen.contains(t))
+                                return;
+                            if (distinct == null) {
+                                if (seen.size() < seenCapacity) {
+                                    seen.add(t);
+                                    downstream.accept(t);
+                                    return;
+                                }
+                                distinct = new SpillingDistinct<>(spillCapacity, scope);
                             }
+                            distinct.add(t);
+                        }
+
+                        @Override
+                        public boolean cancellationRequested() {
+                            return downstream.cancellationRequested();
                         }
                     };
                 }
             }
         };
     }
+
+    /**
+     * Returns a sink that removes duplicates from sorted input, in which
+     * equal elements are adjacent.
+     */
+    private static <T> Sink<T> sortedDistinctSink(Sink<T> sink) {
+        return new Sink.ChainedReference<T, T>(sink) {
+            boolean seenNull;
+            T lastSeen;
+
+            @Override
+            public void begin(long size) {
+                seenNull = false;
+                lastSeen = null;
+                downstream.begin(-1);
+            }
+
+            @Override
+            public void end() {
+                seenNull = false;
+                lastSeen = null;
+                downstream.end();
+            }
+
+            @Override
+            public void accept(T t) {
+                if (t == null) {
+                    if (!seenNull) {
+                        seenNull = true;
+                        downstream.accept(lastSeen = null);
+                    }
+                } else if (lastSeen == null || !t.equals(lastSeen)) {
+                    downstream.accept(lastSeen = t);
+                }
+            }
+        };
+    }
+
+    /**
+     * An element, with its hash code and its index in encounter order, as
+     * spilled by {@link SpillingDistinct}.
+     */
+    static final class Entry<T> implements Serializable {
+        private static final long serialVersionUID = -2395745519425837553L;
+
+        /** Orders entries by hash code, then by index */
+        static final Comparator<Entry<?>> BY_HASH = (a, b) -> {
+            int c = Integer.compare(a.hash, b.hash);
+            return (c != 0) ? c : Long.compare(a.index, b.index);
+        };
+
+        /** Orders entries by index */
+        static final Comparator<Entry<?>> BY_INDEX
+                = (a, b) -> Long.compare(a.index, b.index);
+
+        final int hash;
+        final long index;
+        final T value;
+
+        Entry(T value, long index) {
+            this.hash = Objects.hashCode(value);
+            this.index = index;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Removes duplicates from a sequence of elements that may not fit in
+     * memory.  The elements are sorted by hash code using a
+     * {@link SpillBuffer}, so that equal elements are adjacent, or separated
+     * only by elements with the same hash code, and the first of each set of
+     * equal elements in encounter order is kept.  If the encounter order
+     * must be preserved, the elements kept are then sorted back by index.
+     */
+    private static final class SpillingDistinct<T> {
+        private final int bufferSize;
+        private final SpillBuffer.Scope scope;
+        private final SpillBuffer<Entry<T>> entries;
+        private long index;
+
+        SpillingDistinct(int bufferSize, SpillBuffer.Scope scope) {
+            this.bufferSize = bufferSize;
+            this.scope = scope;
+            this.entries = new SpillBuffer<>(Entry.BY_HASH, bufferSize, scope);
+        }
+
+        void add(T t) {
+            entries.add(new Entry<>(t, index++));
+        }
+
+        /**
+         * Adds the elements of the given instance, whose indices, and so
+         * the selection among equal elements, are unrelated to those of
+         * this instance.
+         */
+        void combine(SpillingDistinct<T> other) {
+            entries.combine(other.entries);
+        }
+
+        /**
+         * Returns a buffer holding the entries of the distinct elements,
+         * in encounter order if {@code ordered} is true.
+         */
+        SpillBuffer<Entry<T>> finish(boolean ordered) {
+            SpillBuffer<Entry<T>> distinct
+                    = new SpillBuffer<>(ordered ? Entry.BY_INDEX : null, bufferSize, scope);
+            try {
+                // Distinct entries with the hash code of the current entry
+                ArrayList<Entry<T>> group = new ArrayList<>();
+                for (Iterator<Entry<T>> it = entries.iterator(); it.hasNext(); ) {
+                    Entry<T> e = it.next();
+                    if (!group.isEmpty() && group.get(0).hash != e.hash)
+                        group.clear();
+                    boolean duplicate = false;
+                    for (Entry<T> g : group) {
+                        if (Objects.equals(g.value, e.value)) {
+                            duplicate = true;
+                            break;
+                        }
+                    }
+                    if (!duplicate) {
+                        group.add(e);
+                        distinct.add(e);
+                    }
+                }
+            } catch (Throwable ex) {
+                distinct.close();
+                throw ex;
+            } finally {
+                entries.close();
+            }
+            return distinct;
+        }
+
+        void close() {
+            entries.close();
+        }
+    }
 }
@@ -351,6 +351,22 @@ abstract class DoublePipeline<E_IN>
         }
     }
 
+    @Override
+    public final Stream<double[]> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.makeDouble(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<double[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.makeDouble(this, size, step, false);
+    }
+
     @Override
     public final DoubleStream sorted() {
         return SortedOps.makeDouble(this);
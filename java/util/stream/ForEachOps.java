@@ -256,6 +256,7 @@ final class ForEachOps {
         private final Sink<S> sink;
         private final PipelineHelper<T> helper;
         private long targetSize;
+        private int depth;  // the number of splits leading to spliterator
 
         ForEachTask(PipelineHelper<T> helper,
                     Spliterator<S> spliterator,
@@ -285,14 +286,23 @@ final class ForEachOps {
             boolean forkRight = false;
             Sink<S> taskSink = sink;
             ForEachTask<S, T> task = this;
+            int depth = this.depth;
             while (!isShortCircuit || !taskSink.cancellationRequested()) {
                 if (sizeEstimate <= sizeThreshold ||
                     (leftSplit = rightSplit.trySplit()) == null) {
-                    task.helper.copyInto(taskSink, rightSplit);
+                    StreamProfiler profiler = task.helper.getProfiler();
+                    if (profiler == null)
+                        task.helper.copyInto(taskSink, rightSplit);
+                    else {
+                        long start = System.nanoTime();
+                        task.helper.copyInto(taskSink, rightSplit);
+                        profiler.leaf(depth, sizeEstimate, System.nanoTime() - start);
+                    }
                     break;
                 }
                 ForEachTask<S, T> leftTask = new ForEachTask<>(task, leftSplit);
                 task.addToPendingCount(1);
+                depth++;
                 ForEachTask<S, T> taskToFork;
                 if (forkRight) {
                     forkRight = false;
@@ -304,6 +314,7 @@ final class ForEachOps {
                     forkRight = true;
                     taskToFork = leftTask;
                 }
+                taskToFork.depth = depth;
                 taskToFork.fork();
                 sizeEstimate = rightSplit.estimateSize();
             }
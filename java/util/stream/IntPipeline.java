@@ -385,6 +385,22 @@ abstract class IntPipeline<E_IN>
             return SliceOps.makeInt(this, n, -1);
     }
 
+    @Override
+    public final Stream<int[]> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.makeInt(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<int[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.makeInt(this, size, step, false);
+    }
+
     @Override
     public final IntStream sorted() {
         return SortedOps.makeInt(this);
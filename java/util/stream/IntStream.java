@@ -272,6 +272,77 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
      */
     IntStream skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped
+     * into consecutive batches of {@code size} elements, each in a new
+     * {@code int[]}.  The last batch holds fewer than {@code size}
+     * elements if the number of elements of this stream is not a multiple
+     * of {@code size}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * In sequential pipelines at most one window is held at a time.  In
+     * parallel pipelines this operation acts as a full barrier: all the
+     * elements of this stream are buffered before the windows are produced,
+     * after which the downstream operations are evaluated in parallel.
+     *
+     * @implSpec
+     * The default implementation returns a sequential stream that pulls the
+     * elements of this stream's {@link #spliterator() spliterator} as its
+     * windows are consumed, and that closes this stream when closed.
+     *
+     * @param size the number of elements in each batch
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<int[]> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.pullInt(this, size, size, true);
+    }
+
+    /**
+     * Returns a stream consisting of the windows of {@code size} consecutive
+     * elements of this stream that start at every {@code step}-th element,
+     * each in a new {@code int[]}.  Only complete windows are produced, so
+     * the returned stream is empty if this stream has fewer than
+     * {@code size} elements.  If {@code step} is less than {@code size},
+     * consecutive windows overlap; if it is greater, some elements are not
+     * in any window.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * In sequential pipelines at most one window is held at a time.  In
+     * parallel pipelines this operation acts as a full barrier: all the
+     * elements of this stream are buffered before the windows are produced,
+     * after which the downstream operations are evaluated in parallel.
+     *
+     * @implSpec
+     * The default implementation returns a sequential stream that pulls the
+     * elements of this stream's {@link #spliterator() spliterator} as its
+     * windows are consumed, and that closes this stream when closed.
+     *
+     * @param size the number of elements in each window
+     * @param step the distance between the first elements of consecutive
+     *        windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     * @since 1.8
+     */
+    default Stream<int[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.pullInt(this, size, step, false);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -366,6 +366,22 @@ abstract class LongPipeline<E_IN>
             return SliceOps.makeLong(this, n, -1);
     }
 
+    @Override
+    public final Stream<long[]> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.makeLong(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<long[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.makeLong(this, size, step, false);
+    }
+
     @Override
     public final LongStream sorted() {
         return SortedOps.makeLong(this);
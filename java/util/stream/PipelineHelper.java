@@ -200,4 +200,11 @@ abstract class PipelineHelper<P_OUT> {
     abstract<P_IN> Node<P_OUT> evaluate(Spliterator<P_IN> spliterator,
                                         boolean flatten,
                                         IntFunction<P_OUT[]> generator);
+
+    /**
+     * Returns the profiler of the pipeline, if profiling was requested.
+     *
+     * @return the profiler of the pipeline, or {@code null}
+     */
+    abstract StreamProfiler getProfiler();
 }
@@ -37,6 +37,7 @@ import java.util.function.BinaryOperator;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.IntBinaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.LongFunction;
 import java.util.function.ObjDoubleConsumer;
 import java.util.function.ObjIntConsumer;
 import java.util.function.ObjLongConsumer;
@@ -157,11 +158,17 @@ final class ReduceOps {
         Supplier<I> supplier = Objects.requireNonNull(collector).supplier();
         BiConsumer<I, ? super T> accumulator = collector.accumulator();
         BinaryOperator<I> combiner = collector.combiner();
+        // Presize the result container if the number of elements is known
+        LongFunction<I> sizedSupplier = (collector instanceof Collectors.CollectorImpl)
+                                        ? ((Collectors.CollectorImpl<?, I, ?>) collector).sizedSupplier()
+                                        : null;
         class ReducingSink extends Box<I>
                 implements AccumulatingSink<T, I, ReducingSink> {
             @Override
             public void begin(long size) {
-                state = supplier.get();
+                state = (sizedSupplier != null && size >= 0)
+                        ? sizedSupplier.apply(size)
+                        : supplier.get();
             }
 
             @Override
@@ -26,6 +26,7 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -394,6 +395,21 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator, int bufferSize) {
+        Objects.requireNonNull(comparator);
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(bufferSize));
+        return SortedOps.makeRefSpilling(this, comparator, bufferSize);
+    }
+
+    @Override
+    public final Stream<P_OUT> distinct(int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(bufferSize));
+        return DistinctOps.makeRefSpilling(this, bufferSize);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -411,6 +427,28 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.makeRef(this, size, size, true);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.makeRef(this, size, step, false);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> groupAdjacent(Function<? super P_OUT, ?> classifier) {
+        Objects.requireNonNull(classifier);
+        return WindowOps.makeRefGrouping(this, classifier);
+    }
+
     // Terminal operations from Stream
 
     @Override
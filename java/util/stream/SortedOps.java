@@ -27,6 +27,7 @@ package java.util.stream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.function.IntFunction;
@@ -63,6 +64,22 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * Appends a "sorted" operation to the provided stream, that holds at
+     * most approximately the given number of elements in memory and spills
+     * the others to temporary files.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param bufferSize the maximum number of elements held in memory
+     */
+    static <T> Stream<T> makeRefSpilling(AbstractPipeline<?, T, ?> upstream,
+                                         Comparator<? super T> comparator,
+                                         int bufferSize) {
+        return new OfRefSpilling<>(upstream, comparator, bufferSize);
+    }
+
     /**
      * Appends a "sorted" operation to the provided stream.
      *
@@ -161,6 +178,66 @@ final class SortedOps {
         }
     }
 
+    /**
+     * Specialized subtype for sorting reference streams using a
+     * {@link SpillBuffer}.
+     */
+    private static final class OfRefSpilling<T> extends ReferencePipeline.StatefulOp<T, T> {
+        private final Comparator<? super T> comparator;
+        private final int bufferSize;
+        private final SpillBuffer.Scope scope;
+
+        /**
+         * Sort using the provided comparator.
+         *
+         * @param comparator The comparator to be used to evaluate ordering.
+         * @param bufferSize The maximum number of elements held in memory.
+         */
+        OfRefSpilling(AbstractPipeline<?, T, ?> upstream,
+                      Comparator<? super T> comparator, int bufferSize) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.IS_ORDERED | StreamOpFlag.NOT_SORTED);
+            this.comparator = Objects.requireNonNull(comparator);
+            this.bufferSize = bufferSize;
+            this.scope = spillScope();
+        }
+
+        @Override
+        public Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            return new SpillingRefSortingSink<>(sink, comparator, bufferSize, scope);
+        }
+
+        @Override
+        public <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<T[]> generator) {
+            // Only used to produce an array, which must fit in memory anyway
+            SpillBuffer<T> buffer = SpillBuffer.collect(helper, spliterator,
+                                                        comparator, bufferSize, scope);
+            try {
+                long size = buffer.count();
+                Node.Builder<T> nb = Nodes.builder(size, generator);
+                nb.begin(size);
+                buffer.iterator().forEachRemaining(nb);
+                nb.end();
+                return nb.build();
+            } finally {
+                buffer.close();
+            }
+        }
+
+        @Override
+        <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                     Spliterator<P_IN> spliterator) {
+            // The scope deletes the temporary files if the stream is closed
+            // before all the elements are consumed
+            SpillBuffer<T> buffer = SpillBuffer.collect(helper, spliterator,
+                                                        comparator, bufferSize, scope);
+            return buffer.spliterator(Spliterator.ORDERED);
+        }
+    }
+
     /**
      * Specialized subtype for sorting int streams.
      */
@@ -405,6 +482,54 @@ final class SortedOps {
         }
     }
 
+    /**
+     * {@link Sink} for implementing sort on reference streams using a
+     * {@link SpillBuffer}.
+     */
+    private static final class SpillingRefSortingSink<T> extends AbstractRefSortingSink<T> {
+        private final int bufferSize;
+        private final SpillBuffer.Scope scope;
+        private SpillBuffer<T> buffer;
+
+        SpillingRefSortingSink(Sink<? super T> sink, Comparator<? super T> comparator,
+                               int bufferSize, SpillBuffer.Scope scope) {
+            super(sink, comparator);
+            this.bufferSize = bufferSize;
+            this.scope = scope;
+        }
+
+        @Override
+        public void begin(long size) {
+            buffer = new SpillBuffer<>(comparator, bufferSize, scope);
+        }
+
+        @Override
+        public void end() {
+            SpillBuffer<T> b = buffer;
+            buffer = null;
+            try {
+                downstream.begin(b.count());
+                Iterator<T> it = b.iterator();
+                if (!cancellationWasRequested) {
+                    while (it.hasNext())
+                        downstream.accept(it.next());
+                }
+                else {
+                    while (it.hasNext() && !downstream.cancellationRequested())
+                        downstream.accept(it.next());
+                }
+                downstream.end();
+            } finally {
+                b.close();
+            }
+        }
+
+        @Override
+        public void accept(T t) {
+            buffer.add(t);
+        }
+    }
+
     /**
      * Abstract {@link Sink} for implementing sort on int streams.
      */
@@ -0,0 +1,660 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A buffer of stream elements that holds at most a given number of elements
+ * in memory, and spills the others to temporary files, for the stateful
+ * operations that must see all of their input before producing any output
+ * but whose input may not fit in memory.
+ *
+ * <p>Elements are held in an array until it reaches its capacity, and are
+ * then written, as a <em>run</em>, to a temporary file using serialization,
+ * so that they must be {@link java.io.Serializable}.  If the buffer has a
+ * comparator, each run is sorted before it is written, and the elements are
+ * returned in sorted order by a k-way merge of the runs and of the elements
+ * remaining in memory.  Otherwise the elements are returned in the order in
+ * which they were added.  In either case, elements that are equal according
+ * to the comparator are returned in the order in which they were added, so
+ * that sorting is stable.
+ *
+ * <p>To bound the number of files open during a merge, runs are merged
+ * eagerly, {@link #MERGE_WIDTH} at a time, as they accumulate, and again
+ * before the final merge if necessary.  Temporary files are deleted once
+ * their elements have been read, and by {@link #close}.  Each buffer also
+ * records its files in the {@link Scope} of its pipeline, which deletes
+ * those that remain when the evaluation of the pipeline completes or fails,
+ * or when the stream is closed, since sinks are not told of failures.  An
+ * {@code IOException} is rethrown as an {@link UncheckedIOException}.
+ *
+ * <p>A buffer may be filled by a parallel reduction, in which case buffers
+ * filled from adjacent parts of the input are combined with
+ * {@link #combine}, so that encounter order is preserved.
+ *
+ * @param <T> the type of elements
+ * @since 1.8
+ */
+final class SpillBuffer<T> {
+
+    /** The maximum number of runs merged at once */
+    static final int MERGE_WIDTH = 64;
+
+    /**
+     * The number of elements written between resets of an object output
+     * stream, so that its table of back references, which would otherwise
+     * retain every element written, stays small.
+     */
+    private static final int RESET_INTERVAL = 1024;
+
+    /** The size of the buffers used to read and write runs */
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    /** The initial size of the array of elements held in memory */
+    private static final int MIN_ARRAY_SIZE = 16;
+
+    /** Ordering of the elements, or null to preserve insertion order */
+    private final Comparator<? super T> comparator;
+
+    /** The scope of the temporary files */
+    private final Scope scope;
+
+    /** Maximum number of elements held in memory */
+    private final int capacity;
+
+    /** Elements held in memory, in insertion order */
+    private Object[] elements;
+
+    /** Number of elements held in memory */
+    private int size;
+
+    /** Runs spilled so far, in insertion order */
+    private final ArrayList<Run> runs = new ArrayList<>();
+
+    /** Readers of runs opened by the current merge, if any */
+    private final ArrayList<RunCursor<T>> readers = new ArrayList<>();
+
+    /**
+     * Creates a buffer.
+     *
+     * @param comparator the ordering of the elements, or null if they
+     *        should be returned in insertion order
+     * @param capacity the maximum number of elements held in memory
+     * @param scope the scope of the temporary files
+     */
+    SpillBuffer(Comparator<? super T> comparator, int capacity, Scope scope) {
+        this.comparator = comparator;
+        this.capacity = Math.max(capacity, 1);
+        this.scope = scope;
+    }
+
+    /**
+     * Returns the capacity of each of the buffers filled by a parallel
+     * reduction, so that the elements held in memory by all of them
+     * together approximately fit the given overall capacity.
+     */
+    static int leafCapacity(int capacity) {
+        return Math.max(capacity / (ForkJoinPool.getCommonPoolParallelism() + 1),
+                        MIN_ARRAY_SIZE);
+    }
+
+    /**
+     * Evaluates the pipeline described by the given helper in parallel,
+     * adding its output elements to a buffer.
+     *
+     * @param helper the pipeline helper
+     * @param spliterator the source spliterator
+     * @param comparator the ordering of the elements, or null
+     * @param capacity the maximum number of elements held in memory
+     * @param scope the scope of the temporary files
+     * @return a buffer holding the output elements of the pipeline
+     */
+    static <P_IN, T> SpillBuffer<T> collect(PipelineHelper<T> helper,
+                                            Spliterator<P_IN> spliterator,
+                                            Comparator<? super T> comparator,
+                                            int capacity, Scope scope) {
+        int leafCapacity = leafCapacity(capacity);
+        return ReduceOps.<T, SpillBuffer<T>>makeRef(
+                () -> new SpillBuffer<>(comparator, leafCapacity, scope),
+                SpillBuffer::add, SpillBuffer::combine)
+                .evaluateParallel(helper, spliterator);
+    }
+
+    /**
+     * Returns the number of elements in this buffer.
+     */
+    long count() {
+        long n = size;
+        for (Run r : runs)
+            n += r.count;
+        return n;
+    }
+
+    /**
+     * Adds an element, spilling the elements held in memory if this
+     * buffer is full.
+     */
+    void add(T t) {
+        Object[] es = elements;
+        if (es == null)
+            elements = es = new Object[Math.min(capacity, MIN_ARRAY_SIZE)];
+        else if (size == es.length) {
+            if (size == capacity) {
+                spill();
+                es = elements;
+            }
+            else
+                elements = es = Arrays.copyOf(es, (int) Math.min(2L * size, capacity));
+        }
+        es[size++] = t;
+    }
+
+    /**
+     * Adds the elements of the given buffer, which must follow the
+     * elements of this buffer in encounter order.  The given buffer is
+     * left empty.
+     */
+    void combine(SpillBuffer<T> right) {
+        if (!right.runs.isEmpty()) {
+            if (size > 0)
+                spill(); // keep elements in memory ahead of the right runs
+            runs.addAll(right.runs);
+            right.runs.clear();
+        }
+        Object[] es = right.elements;
+        int n = right.size;
+        right.elements = null;
+        right.size = 0;
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked") T t = (T) es[i];
+            add(t);
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements of this buffer, which must not
+     * be modified afterwards.  This buffer is closed once the iterator is
+     * exhausted.
+     */
+    Iterator<T> iterator() {
+        Object[] es = elements;
+        int n = size;
+        if (es == null)
+            es = new Object[0];
+        else if (comparator != null) {
+            @SuppressWarnings("unchecked") T[] a = (T[]) es;
+            Arrays.sort(a, 0, n, comparator);
+        }
+        if (comparator == null)
+            return new ConcatIterator<>(this, new ArrayCursor<>(es, n));
+        while (runs.size() >= MERGE_WIDTH) {
+            for (int i = 0; i < runs.size() - 1 && runs.size() >= MERGE_WIDTH; i++)
+                merge(i, Math.min(i + MERGE_WIDTH, runs.size()));
+        }
+        ArrayList<Cursor<T>> cursors = new ArrayList<>(runs.size() + 1);
+        for (Run r : runs)
+            cursors.add(open(r));
+        runs.clear();
+        cursors.add(new ArrayCursor<>(es, n));
+        return new MergeIterator<>(this, cursors, comparator);
+    }
+
+    /**
+     * Returns a spliterator over the elements of this buffer, as by
+     * {@link #iterator}.
+     *
+     * @param characteristics the characteristics of the spliterator
+     */
+    Spliterator<T> spliterator(int characteristics) {
+        long n = count();
+        return Spliterators.spliterator(iterator(), n, characteristics);
+    }
+
+    /**
+     * Discards the elements of this buffer, deleting its temporary files.
+     */
+    void close() {
+        elements = null;
+        size = 0;
+        IOException ex = null;
+        for (RunCursor<T> c : readers) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                if (ex == null)
+                    ex = e;
+            }
+        }
+        readers.clear();
+        for (Run r : runs) {
+            try {
+                Files.deleteIfExists(r.file);
+                scope.deleted(r.file);
+            } catch (IOException e) {
+                if (ex == null)
+                    ex = e;
+            }
+        }
+        runs.clear();
+        if (ex != null)
+            throw new UncheckedIOException(ex);
+    }
+
+    /**
+     * Writes the elements held in memory to a new run.
+     */
+    private void spill() {
+        Object[] es = elements;
+        int n = size;
+        if (comparator != null) {
+            @SuppressWarnings("unchecked") T[] a = (T[]) es;
+            Arrays.sort(a, 0, n, comparator);
+        }
+        runs.add(write(new ArrayCursor<>(es, n), null, 0));
+        Arrays.fill(es, 0, n, null);
+        size = 0;
+        // Merge the trailing runs once MERGE_WIDTH of them have the same
+        // level, so that each element is rewritten a logarithmic number
+        // of times.
+        int r;
+        while (comparator != null && (r = runs.size()) >= MERGE_WIDTH &&
+               runs.get(r - MERGE_WIDTH).level == runs.get(r - 1).level)
+            merge(r - MERGE_WIDTH, r);
+    }
+
+    /**
+     * Replaces the runs in the given range by a single run holding their
+     * merged elements.
+     */
+    private void merge(int from, int to) {
+        ArrayList<Cursor<T>> cursors = new ArrayList<>(to - from);
+        int level = 0;
+        for (int i = from; i < to; i++) {
+            Run r = runs.get(i);
+            level = Math.max(level, r.level + 1);
+            cursors.add(open(r));
+        }
+        MergeIterator<T> it = new MergeIterator<>(null, cursors, comparator);
+        Run merged = write(null, it, level);
+        for (Cursor<T> c : cursors)
+            readers.remove(c);
+        runs.subList(from, to).clear();
+        runs.add(from, merged);
+    }
+
+    /**
+     * Writes the elements of the given cursor, or else of the given
+     * iterator, to a new temporary file.
+     */
+    private Run write(ArrayCursor<T> source, Iterator<T> it, int level) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("stream", ".spill");
+            scope.created(file);
+            long count = 0;
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(
+                            FileChannel.open(file, StandardOpenOption.WRITE)),
+                                             IO_BUFFER_SIZE))) {
+                if (source != null) {
+                    Object[] es = source.elements;
+                    for (int i = 0, n = source.limit; i < n; i++)
+                        count = writeElement(out, es[i], count);
+                }
+                else {
+                    while (it.hasNext())
+                        count = writeElement(out, it.next(), count);
+                }
+            }
+            return new Run(file, count, level);
+        } catch (IOException e) {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                    scope.deleted(file);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long writeElement(ObjectOutputStream out, Object e, long count)
+            throws IOException {
+        out.writeObject(e);
+        if (++count % RESET_INTERVAL == 0)
+            out.reset();
+        return count;
+    }
+
+    /**
+     * Opens the given run for reading.  Its file is deleted when closed.
+     */
+    private RunCursor<T> open(Run r) {
+        try {
+            ObjectInputStream in = new ObjectInputStream(
+                    new BufferedInputStream(Channels.newInputStream(
+                            FileChannel.open(r.file, StandardOpenOption.READ,
+                                             StandardOpenOption.DELETE_ON_CLOSE)),
+                                            IO_BUFFER_SIZE));
+            scope.opened(r.file, in);
+            RunCursor<T> c = new RunCursor<>(in, r.count, r.file, scope);
+            readers.add(c);
+            return c;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the first remaining run for reading, removing it from the
+     * runs whose files are deleted on close.
+     */
+    private RunCursor<T> openFirstRun() {
+        RunCursor<T> c = open(runs.get(0));
+        runs.remove(0);
+        return c;
+    }
+
+    /**
+     * The temporary files of the spill buffers of a pipeline, and the
+     * streams reading them, which are opened to delete their files on
+     * close.  Once the scope is closed, a file created or opened in it is
+     * deleted at once, and the operation creating or opening it fails;
+     * this can only happen to a task left running by a failed parallel
+     * evaluation.
+     */
+    static final class Scope {
+        /** The files not yet deleted, and their open streams if any */
+        private final HashMap<Path, Closeable> files = new HashMap<>();
+        private boolean closed;
+
+        /**
+         * Records the creation of a file.
+         */
+        synchronized void created(Path file) throws IOException {
+            if (closed) {
+                Files.deleteIfExists(file);
+                throw new IOException("Stream closed");
+            }
+            files.put(file, null);
+        }
+
+        /**
+         * Records the opening of a file by a stream that deletes it on
+         * close.
+         */
+        synchronized void opened(Path file, Closeable in) throws IOException {
+            if (closed) {
+                in.close();
+                throw new IOException("Stream closed");
+            }
+            files.put(file, in);
+        }
+
+        /**
+         * Records the deletion of a file.
+         */
+        synchronized void deleted(Path file) {
+            files.remove(file);
+        }
+
+        /**
+         * Closes the open streams and deletes the remaining files.
+         *
+         * @throws UncheckedIOException if a file could not be deleted
+         */
+        void close() {
+            Map.Entry<?, ?>[] es;
+            synchronized (this) {
+                closed = true;
+                if (files.isEmpty())
+                    return;
+                es = files.entrySet().toArray(new Map.Entry<?, ?>[0]);
+                files.clear();
+            }
+            IOException ex = null;
+            for (Map.Entry<?, ?> e : es) {
+                try {
+                    if (e.getValue() != null)
+                        ((Closeable) e.getValue()).close();
+                    Files.deleteIfExists((Path) e.getKey());
+                } catch (IOException x) {
+                    if (ex == null)
+                        ex = x;
+                    else
+                        ex.addSuppressed(x);
+                }
+            }
+            if (ex != null)
+                throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * A sequence of elements written to a temporary file.
+     */
+    private static final class Run {
+        final Path file;
+        final long count;
+        final int level;  // number of times its elements have been merged
+
+        Run(Path file, long count, int level) {
+            this.file = file;
+            this.count = count;
+            this.level = level;
+        }
+    }
+
+    /**
+     * A source of elements positioned at its current element, if any.
+     */
+    private static abstract class Cursor<T> {
+        T head;
+        int rank;  // position among the cursors being merged
+
+        /**
+         * Moves to the next element, returning false if there is none.
+         */
+        abstract boolean advance();
+    }
+
+    private static final class ArrayCursor<T> extends Cursor<T> {
+        final Object[] elements;
+        final int limit;
+        int index;
+
+        ArrayCursor(Object[] elements, int limit) {
+            this.elements = elements;
+            this.limit = limit;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean advance() {
+            if (index >= limit) {
+                head = null;
+                return false;
+            }
+            head = (T) elements[index];
+            elements[index++] = null;
+            return true;
+        }
+    }
+
+    private static final class RunCursor<T> extends Cursor<T> {
+        final ObjectInputStream in;
+        final Path file;
+        final Scope scope;
+        long remaining;
+
+        RunCursor(ObjectInputStream in, long count, Path file, Scope scope) {
+            this.in = in;
+            this.remaining = count;
+            this.file = file;
+            this.scope = scope;
+        }
+
+        /**
+         * Closes the stream, deleting the file.
+         */
+        void close() throws IOException {
+            in.close();
+            scope.deleted(file);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        boolean advance() {
+            try {
+                if (remaining == 0) {
+                    head = null;
+                    close();
+                    return false;
+                }
+                remaining--;
+                head = (T) in.readObject();
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new UncheckedIOException(new IOException(e));
+            }
+        }
+    }
+
+    /**
+     * An iterator returning the elements of the runs of a buffer in turn,
+     * opening each run only when the previous one is exhausted, followed
+     * by the elements held in memory.
+     */
+    private static final class ConcatIterator<T> implements Iterator<T> {
+        private final SpillBuffer<T> buffer;
+        private final ArrayCursor<T> last;  // elements held in memory
+        private Cursor<T> cursor;
+        private boolean ready;
+
+        ConcatIterator(SpillBuffer<T> buffer, ArrayCursor<T> last) {
+            this.buffer = buffer;
+            this.last = last;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready)
+                return true;
+            for (;;) {
+                Cursor<T> c = cursor;
+                if (c != null && c.advance())
+                    return ready = true;
+                if (c == last)
+                    break;
+                cursor = buffer.runs.isEmpty() ? last : buffer.openFirstRun();
+            }
+            buffer.close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            ready = false;
+            return cursor.head;
+        }
+    }
+
+    /**
+     * An iterator returning the elements of a sequence of sorted cursors in
+     * order, taking equal elements from earlier cursors first.
+     */
+    private static final class MergeIterator<T> implements Iterator<T> {
+        private final SpillBuffer<T> buffer;  // closed when done, if non-null
+        private final PriorityQueue<Cursor<T>> queue;
+        private Cursor<T> current;            // cursor to advance, if any
+
+        MergeIterator(SpillBuffer<T> buffer, ArrayList<Cursor<T>> cursors,
+                      Comparator<? super T> comparator) {
+            this.buffer = buffer;
+            this.queue = new PriorityQueue<>(Math.max(cursors.size(), 1), (a, b) -> {
+                int c = comparator.compare(a.head, b.head);
+                return (c != 0) ? c : Integer.compare(a.rank, b.rank);
+            });
+            for (int i = 0; i < cursors.size(); i++) {
+                Cursor<T> c = cursors.get(i);
+                c.rank = i;
+                if (c.advance())
+                    queue.add(c);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            Cursor<T> c = current;
+            if (c != null) {
+                current = null;
+                if (c.advance())
+                    queue.add(c);
+            }
+            if (!queue.isEmpty())
+                return true;
+            if (buffer != null)
+                buffer.close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Cursor<T> c = current = queue.poll();
+            return c.head;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -358,6 +359,54 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> distinct();
 
+    /**
+     * Returns a stream consisting of the distinct elements (according to
+     * {@link Object#equals(Object)}) of this stream, holding at most
+     * approximately {@code bufferSize} elements in memory at a time.
+     * Elements that do not fit in memory are written to temporary files,
+     * so that streams with more distinct elements than fit in the heap
+     * can be processed.
+     *
+     * <p>For ordered streams, the selection of distinct elements is stable
+     * (for duplicated elements, the element appearing first in the encounter
+     * order is preserved.)  For unordered streams, no stability guarantees
+     * are made.
+     *
+     * <p>In a sequential pipeline, each of the first distinct elements is
+     * passed on as soon as it is encountered, while they fit in memory.
+     * Once they do not, later elements that may be distinct are written to
+     * temporary files, and passed on only when this stream has been
+     * exhausted.  A short-circuiting operation such as {@link #limit} or
+     * {@link #findFirst} may then stop early only if satisfied by the
+     * elements passed on before that point, and otherwise will not
+     * terminate on an infinite stream.  In a parallel pipeline all the
+     * elements are consumed before any is passed on.
+     *
+     * <p>The elements of this stream must be {@link java.io.Serializable
+     * Serializable}.  The temporary files are deleted once the resulting
+     * stream has been consumed, or when it is {@link #close() closed}.  If
+     * an I/O error occurs when writing or reading a temporary file, an
+     * {@link java.io.UncheckedIOException} is thrown when the terminal
+     * operation is executed.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns {@link #distinct()}, which holds
+     * all the distinct elements in memory.
+     *
+     * @param bufferSize the maximum number of elements to hold in memory
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code bufferSize} is not positive
+     * @since 1.8
+     */
+    default Stream<T> distinct(int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(bufferSize));
+        return distinct();
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, sorted
      * according to natural order.  If the elements of this stream are not
@@ -391,6 +440,46 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding at most
+     * approximately {@code bufferSize} elements in memory at a time.
+     * Elements that do not fit in memory are sorted in runs that are
+     * written to temporary files and merged, so that streams with more
+     * elements than fit in the heap can be sorted.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>The elements of this stream must be {@link java.io.Serializable
+     * Serializable}.  The temporary files are deleted once the resulting
+     * stream has been consumed, or when it is {@link #close() closed}.  If
+     * an I/O error occurs when writing or reading a temporary file, an
+     * {@link java.io.UncheckedIOException} is thrown when the terminal
+     * operation is executed.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation returns {@link #sorted(Comparator)
+     * sorted(comparator)}, which holds all the elements in memory.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param bufferSize the maximum number of elements to hold in memory
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code bufferSize} is not positive
+     * @since 1.8
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator, int bufferSize) {
+        Objects.requireNonNull(comparator);
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(bufferSize));
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed
@@ -478,6 +567,110 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * Returns a stream consisting of the elements of this stream grouped
+     * into consecutive batches of {@code size} elements, each in a new
+     * {@code List}.  The last batch holds fewer than {@code size}
+     * elements if the number of elements of this stream is not a multiple
+     * of {@code size}.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * In sequential pipelines at most one window is held at a time.  In
+     * parallel pipelines this operation acts as a full barrier: all the
+     * elements of this stream are buffered before the windows are produced,
+     * after which the downstream operations are evaluated in parallel.
+     *
+     * @implSpec
+     * The default implementation returns a sequential stream that pulls the
+     * elements of this stream's {@link #spliterator() spliterator} as its
+     * windows are consumed, and that closes this stream when closed.
+     *
+     * @param size the number of elements in each batch
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> batch(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        return WindowOps.pullRef(this, size, size, true);
+    }
+
+    /**
+     * Returns a stream consisting of the windows of {@code size} consecutive
+     * elements of this stream that start at every {@code step}-th element,
+     * each in a new {@code List}.  Only complete windows are produced, so
+     * the returned stream is empty if this stream has fewer than
+     * {@code size} elements.  If {@code step} is less than {@code size},
+     * consecutive windows overlap; if it is greater, some elements are not
+     * in any window.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * In sequential pipelines at most one window is held at a time.  In
+     * parallel pipelines this operation acts as a full barrier: all the
+     * elements of this stream are buffered before the windows are produced,
+     * after which the downstream operations are evaluated in parallel.
+     *
+     * @implSpec
+     * The default implementation returns a sequential stream that pulls the
+     * elements of this stream's {@link #spliterator() spliterator} as its
+     * windows are consumed, and that closes this stream when closed.
+     *
+     * @param size the number of elements in each window
+     * @param step the distance between the first elements of consecutive
+     *        windows
+     * @return the new stream
+     * @throws IllegalArgumentException if {@code size} or {@code step} is
+     *         not positive
+     * @since 1.8
+     */
+    default Stream<List<T>> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException(Integer.toString(size));
+        if (step <= 0)
+            throw new IllegalArgumentException(Integer.toString(step));
+        return WindowOps.pullRef(this, size, step, false);
+    }
+
+    /**
+     * Returns a stream consisting of the runs of adjacent elements of this
+     * stream whose keys, as computed by the provided classifier, are equal
+     * according to {@link Objects#equals(Object, Object)}, each in a new
+     * {@code List}.  For example, grouping a stream of timestamped events
+     * sorted by time with a classifier returning the minute of each event
+     * produces the events of each minute in turn.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * In sequential pipelines at most one window is held at a time.  In
+     * parallel pipelines this operation acts as a full barrier: all the
+     * elements of this stream are buffered before the windows are produced,
+     * after which the downstream operations are evaluated in parallel.
+     *
+     * @implSpec
+     * The default implementation returns a sequential stream that pulls the
+     * elements of this stream's {@link #spliterator() spliterator} as its
+     * windows are consumed, and that closes this stream when closed.
+     *
+     * @param classifier a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   function computing the key of each element
+     * @return the new stream
+     * @since 1.8
+     */
+    default Stream<List<T>> groupAdjacent(Function<? super T, ?> classifier) {
+        Objects.requireNonNull(classifier);
+        return WindowOps.pullRefGrouping(this, classifier);
+    }
+
     /**
      * Performs an action for each element of this stream.
      *
@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.List;
+
+/**
+ * A report on the evaluation of a stream pipeline, delivered to the
+ * reporters registered with {@link BaseStream#profile} when the terminal
+ * operation completes.  The report describes:
+ * <ul>
+ *     <li>each intermediate operation of the pipeline, as a {@link Stage},
+ *     with the number of elements it received and the time spent in it;</li>
+ *     <li>for a parallel pipeline, the tree of tasks produced by splitting
+ *     the source: the depth of its leaves, and the number of elements and
+ *     time of each leaf, whose imbalance is reported as a <em>skew</em>,
+ *     the ratio of the largest value to the mean;</li>
+ *     <li>for a parallel pipeline, the state of the
+ *     {@link java.util.concurrent.ForkJoinPool ForkJoinPool} in which the
+ *     pipeline was evaluated.</li>
+ * </ul>
+ *
+ * <p>The times spent in stages are estimated by timing a sample of the
+ * elements, less the estimated overhead of the timing, and, for a parallel
+ * pipeline, are the sums of the times spent by all the threads.  They do
+ * not exceed the elapsed time, or, for a parallel pipeline, the total time
+ * of the leaf tasks.  They are only indicative of the relative cost of the
+ * stages, since the profiling itself adds overhead to each element.
+ *
+ * @see BaseStream#profile
+ * @since 1.8
+ */
+public final class StreamProfile {
+
+    /**
+     * An intermediate operation of a profiled pipeline, or a sequence of
+     * consecutive operations that were evaluated together.
+     */
+    public static final class Stage {
+        private final String name;
+        private final int index;
+        private final long elementCount;
+        private final long totalNanos;
+        private final long selfNanos;
+        private final long barrierNanos;
+
+        Stage(String name, int index, long elementCount,
+              long totalNanos, long selfNanos, long barrierNanos) {
+            this.name = name;
+            this.index = index;
+            this.elementCount = elementCount;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+            this.barrierNanos = barrierNanos;
+        }
+
+        /**
+         * Returns the name of the method that created this stage, such as
+         * {@code "map"}, if known.  Stages created before profiling was
+         * requested are named {@code "stage"}.
+         *
+         * @return the name of this stage
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the position of this stage in the pipeline, the first
+         * intermediate operation being at position 1.  For a sequence of
+         * operations evaluated together, this is the position of the last.
+         *
+         * @return the position of this stage
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the number of elements received by this stage.
+         *
+         * @return the number of elements received by this stage
+         */
+        public long getElementCount() {
+            return elementCount;
+        }
+
+        /**
+         * Returns the estimated time spent in this stage and in the
+         * downstream stages and terminal operation to which it passed
+         * elements, in nanoseconds.
+         *
+         * @return the estimated time spent in this and the downstream
+         *         stages, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Returns the estimated time spent in this stage alone, in
+         * nanoseconds.  For the last stage, this includes the time spent
+         * in the terminal operation.
+         *
+         * @return the estimated time spent in this stage, in nanoseconds
+         */
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * Returns the elapsed time of the evaluation of this stage as a
+         * barrier, which includes the evaluation of the upstream stages,
+         * in nanoseconds.  This is only non-zero for a stateful operation
+         * of a parallel pipeline, such as {@code sorted()}, whose elements
+         * are not received one by one but all at once.
+         *
+         * @return the elapsed time of the evaluation of this stage as a
+         *         barrier, in nanoseconds
+         */
+        public long getBarrierNanos() {
+            return barrierNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s: elements=%d total=%.3fms self=%.3fms%s",
+                                 index, name, elementCount,
+                                 totalNanos / 1e6, selfNanos / 1e6,
+                                 (barrierNanos == 0) ? "" :
+                                 String.format(" barrier=%.3fms", barrierNanos / 1e6));
+        }
+    }
+
+    private final boolean parallel;
+    private final long elapsedNanos;
+    private final List<Stage> stages;
+    private final int leafCount;
+    private final int minSplitDepth;
+    private final int maxSplitDepth;
+    private final long maxLeafSize;
+    private final double meanLeafSize;
+    private final long maxLeafNanos;
+    private final double meanLeafNanos;
+    private final int workerCount;
+    private final int poolParallelism;
+    private final int activeThreadCount;
+    private final long queuedTaskCount;
+    private final long stealCount;
+
+    StreamProfile(boolean parallel, long elapsedNanos, List<Stage> stages,
+                  int leafCount, int minSplitDepth, int maxSplitDepth,
+                  long maxLeafSize, double meanLeafSize,
+                  long maxLeafNanos, double meanLeafNanos, int workerCount,
+                  int poolParallelism, int activeThreadCount,
+                  long queuedTaskCount, long stealCount) {
+        this.parallel = parallel;
+        this.elapsedNanos = elapsedNanos;
+        this.stages = stages;
+        this.leafCount = leafCount;
+        this.minSplitDepth = minSplitDepth;
+        this.maxSplitDepth = maxSplitDepth;
+        this.maxLeafSize = maxLeafSize;
+        this.meanLeafSize = meanLeafSize;
+        this.maxLeafNanos = maxLeafNanos;
+        this.meanLeafNanos = meanLeafNanos;
+        this.workerCount = workerCount;
+        this.poolParallelism = poolParallelism;
+        this.activeThreadCount = activeThreadCount;
+        this.queuedTaskCount = queuedTaskCount;
+        this.stealCount = stealCount;
+    }
+
+    /**
+     * Returns {@code true} if the pipeline was evaluated in parallel.
+     *
+     * @return {@code true} if the pipeline was evaluated in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Returns the elapsed time of the terminal operation, in nanoseconds.
+     *
+     * @return the elapsed time of the terminal operation, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the stages of the pipeline, in pipeline order.
+     *
+     * @return an unmodifiable list of the stages of the pipeline
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns the number of leaf tasks that processed elements of the
+     * source, or zero if the pipeline was evaluated sequentially.
+     *
+     * @return the number of leaf tasks
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Returns the smallest number of splits of the source leading to a
+     * leaf task, or zero if there were no leaf tasks.
+     *
+     * @return the minimum depth of the split tree
+     */
+    public int getMinSplitDepth() {
+        return minSplitDepth;
+    }
+
+    /**
+     * Returns the largest number of splits of the source leading to a
+     * leaf task, or zero if there were no leaf tasks.
+     *
+     * @return the maximum depth of the split tree
+     */
+    public int getMaxSplitDepth() {
+        return maxSplitDepth;
+    }
+
+    /**
+     * Returns the largest estimated number of source elements processed by
+     * a leaf task, or zero if there were no leaf tasks.
+     *
+     * @return the maximum leaf size
+     */
+    public long getMaxLeafSize() {
+        return maxLeafSize;
+    }
+
+    /**
+     * Returns the mean estimated number of source elements processed by a
+     * leaf task, or zero if there were no leaf tasks.
+     *
+     * @return the mean leaf size
+     */
+    public double getMeanLeafSize() {
+        return meanLeafSize;
+    }
+
+    /**
+     * Returns the ratio of the maximum to the mean leaf size, which is 1 if
+     * the source was split evenly, or zero if there were no leaf tasks or
+     * their sizes were not known.
+     *
+     * @return the leaf size skew
+     */
+    public double getLeafSizeSkew() {
+        return (meanLeafSize > 0) ? maxLeafSize / meanLeafSize : 0;
+    }
+
+    /**
+     * Returns the longest time taken by a leaf task, in nanoseconds, or
+     * zero if there were no leaf tasks.
+     *
+     * @return the maximum leaf time, in nanoseconds
+     */
+    public long getMaxLeafNanos() {
+        return maxLeafNanos;
+    }
+
+    /**
+     * Returns the mean time taken by a leaf task, in nanoseconds, or zero
+     * if there were no leaf tasks.
+     *
+     * @return the mean leaf time, in nanoseconds
+     */
+    public double getMeanLeafNanos() {
+        return meanLeafNanos;
+    }
+
+    /**
+     * Returns the ratio of the maximum to the mean leaf time, which is
+     * close to 1 if the work was evenly divided, or zero if there were no
+     * leaf tasks.
+     *
+     * @return the leaf time skew
+     */
+    public double getLeafTimeSkew() {
+        return (meanLeafNanos > 0) ? maxLeafNanos / meanLeafNanos : 0;
+    }
+
+    /**
+     * Returns the number of distinct threads that ran leaf tasks.
+     *
+     * @return the number of threads that ran leaf tasks
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Returns the parallelism of the pool in which the pipeline was
+     * evaluated, or zero if it was evaluated sequentially.
+     *
+     * @return the parallelism of the pool
+     */
+    public int getPoolParallelism() {
+        return poolParallelism;
+    }
+
+    /**
+     * Returns an estimate of the number of threads of the pool that were
+     * running tasks when the evaluation started, which, if close to the
+     * parallelism, indicates that the pool was saturated by other work.
+     *
+     * @return the number of active threads of the pool at the start
+     */
+    public int getActiveThreadCount() {
+        return activeThreadCount;
+    }
+
+    /**
+     * Returns an estimate of the number of tasks queued in the pool when
+     * the evaluation started.
+     *
+     * @return the number of queued tasks of the pool at the start
+     */
+    public long getQueuedTaskCount() {
+        return queuedTaskCount;
+    }
+
+    /**
+     * Returns an estimate of the number of tasks stolen by threads of the
+     * pool during the evaluation, which includes tasks of any other work
+     * running in the pool at the same time.
+     *
+     * @return the number of steals during the evaluation
+     */
+    public long getStealCount() {
+        return stealCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("StreamProfile[%s, elapsed=%.3fms]%n",
+                                parallel ? "parallel" : "sequential",
+                                elapsedNanos / 1e6));
+        for (Stage s : stages)
+            sb.append("  ").append(s).append(String.format("%n"));
+        if (parallel) {
+            sb.append(String.format("  splits: leaves=%d depth=%d..%d size=%.1f (skew %.2f) time=%.3fms (skew %.2f)%n",
+                                    leafCount, minSplitDepth, maxSplitDepth,
+                                    meanLeafSize, getLeafSizeSkew(),
+                                    meanLeafNanos / 1e6, getLeafTimeSkew()));
+            sb.append(String.format("  pool: parallelism=%d active=%d queued=%d steals=%d workers=%d%n",
+                                    poolParallelism, activeThreadCount,
+                                    queuedTaskCount, stealCount, workerCount));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Records the profile of the evaluation of a stream pipeline for which
+ * profiling was requested with {@link BaseStream#profile}, and delivers it
+ * as a {@link StreamProfile} to the reporters when the terminal operation
+ * completes.  There is at most one profiler per pipeline, held by its
+ * source stage.
+ *
+ * <p>Each stage of the pipeline is registered when created, or when
+ * profiling is requested for the stages that already exist.  When a
+ * pipeline is evaluated, the sink of each stage is wrapped in a
+ * {@code Sink} counting the elements it receives, and timing a sample of
+ * them as well as the {@code begin} and {@code end} calls.  An element
+ * timed by a stage is also timed by the downstream stages it reaches, so
+ * that the time of the downstream stages can be subtracted from that of a
+ * stage.  The overhead of the timing, estimated from the shortest samples
+ * of each evaluation, is subtracted from the sampled times.  The wrapping
+ * sinks may be shared between threads, so they record into
+ * {@code LongAdder}s.  Leaf tasks of a parallel evaluation record their
+ * depth, size and time, whose sum, or else the elapsed time, bounds the
+ * time of a stage.
+ *
+ * @since 1.8
+ */
+final class StreamProfiler {
+
+    /**
+     * Mask of the element ordinals that are timed, so that one in 16
+     * elements is timed.
+     */
+    private static final int SAMPLE_MASK = 15;
+
+    private final ArrayList<Consumer<? super StreamProfile>> reporters = new ArrayList<>();
+
+    /** Records of the registered stages, only modified before evaluation */
+    private final IdentityHashMap<AbstractPipeline<?, ?, ?>, StageRecord> stages
+            = new IdentityHashMap<>();
+
+    // Evaluation state, accessed by the thread evaluating the terminal operation
+    private boolean parallel;
+    private long startNanos;
+    private ForkJoinPool pool;
+    private int poolParallelism;
+    private int activeThreadCount;
+    private long queuedTaskCount;
+    private long startStealCount;
+
+    // Leaf statistics, guarded by this
+    private int leafCount;
+    private int minDepth = Integer.MAX_VALUE;
+    private int maxDepth;
+    private int sizedLeafCount;  // leaves whose size is known
+    private long totalLeafSize;
+    private long maxLeafSize;
+    private long totalLeafNanos;
+    private long maxLeafNanos;
+    private final HashSet<Thread> workers = new HashSet<>();
+
+    void addReporter(Consumer<? super StreamProfile> reporter) {
+        reporters.add(reporter);
+    }
+
+    /**
+     * Registers a stage of the pipeline.
+     *
+     * @param stage the stage
+     * @param index the position of the stage in the pipeline
+     * @param named true if the stage is being created by the caller, so
+     *        that it is named after the method creating it
+     */
+    void register(AbstractPipeline<?, ?, ?> stage, int index, boolean named) {
+        String name = named ? callerName() : null;
+        stages.put(stage, new StageRecord(index, (name != null) ? name : "stage"));
+    }
+
+    /**
+     * Returns the name of the outermost method of this package that is
+     * being called, which is the stream method creating a stage.
+     */
+    private static String callerName() {
+        String name = StreamProfiler.class.getName();
+        String pkg = name.substring(0, name.lastIndexOf('.') + 1);
+        StackTraceElement[] trace = new Throwable().getStackTrace();
+        for (int i = 1; i < trace.length; i++) {
+            if (!trace[i].getClassName().startsWith(pkg))
+                return trace[i - 1].getMethodName();
+        }
+        return null;
+    }
+
+    /**
+     * Wraps the sink of a stage in a profiling sink.
+     *
+     * @param stage the stage
+     * @param shape the input shape of the sink
+     * @param sampler the sampler shared by the profiling sinks of a chain
+     * @param sink the sink
+     * @return the profiling sink
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    Sink wrap(AbstractPipeline<?, ?, ?> stage, StreamShape shape,
+              Sampler sampler, Sink sink) {
+        StageRecord r = stages.get(stage);
+        if (r == null)
+            return sink;
+        switch (shape) {
+            case REFERENCE:    return new OfRef<>(r, sampler, sink);
+            case INT_VALUE:    return new OfInt(r, sampler, sink);
+            case LONG_VALUE:   return new OfLong(r, sampler, sink);
+            case DOUBLE_VALUE: return new OfDouble(r, sampler, sink);
+            default:
+                throw new IllegalStateException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Records the time taken to evaluate a stateful stage as a barrier.
+     */
+    void barrier(AbstractPipeline<?, ?, ?> stage, long nanos) {
+        StageRecord r = stages.get(stage);
+        if (r != null)
+            r.barrierNanos += nanos;
+    }
+
+    /**
+     * Returns the depth of the given task in its tree of tasks.
+     */
+    static int depth(CountedCompleter<?> task) {
+        int depth = 0;
+        for (CountedCompleter<?> c = task.getCompleter(); c != null; c = c.getCompleter())
+            depth++;
+        return depth;
+    }
+
+    /**
+     * Records the completion of a leaf task of a parallel evaluation.
+     *
+     * @param depth the number of splits of the source leading to the task
+     * @param size the estimated number of source elements of the task
+     * @param nanos the time taken by the task to process its elements
+     */
+    void leaf(int depth, long size, long nanos) {
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            leafCount++;
+            minDepth = Math.min(minDepth, depth);
+            maxDepth = Math.max(maxDepth, depth);
+            if (size != Long.MAX_VALUE) {
+                sizedLeafCount++;
+                totalLeafSize += size;
+                maxLeafSize = Math.max(maxLeafSize, size);
+            }
+            totalLeafNanos += nanos;
+            maxLeafNanos = Math.max(maxLeafNanos, nanos);
+            workers.add(thread);
+        }
+    }
+
+    /**
+     * Records the start of the evaluation of the terminal operation.
+     */
+    void begin(boolean parallel) {
+        this.parallel = parallel;
+        if (parallel) {
+            Thread t = Thread.currentThread();
+            ForkJoinPool p = (t instanceof ForkJoinWorkerThread)
+                             ? ((ForkJoinWorkerThread) t).getPool()
+                             : ForkJoinPool.commonPool();
+            pool = p;
+            poolParallelism = p.getParallelism();
+            activeThreadCount = p.getActiveThreadCount();
+            queuedTaskCount = p.getQueuedTaskCount() + p.getQueuedSubmissionCount();
+            startStealCount = p.getStealCount();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the completion of the evaluation of the terminal operation,
+     * and delivers the profile to the reporters.
+     */
+    void end() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long stealCount = parallel ? pool.getStealCount() - startStealCount : 0L;
+        pool = null;
+        // The time of a stage cannot exceed the elapsed time, or, for a
+        // parallel evaluation, the sum of the times of the leaf tasks
+        long maxNanos;
+        synchronized (this) {
+            maxNanos = Math.max(totalLeafNanos, elapsedNanos);
+        }
+
+        StageRecord[] rs = stages.values().toArray(new StageRecord[0]);
+        Arrays.sort(rs, Comparator.comparingInt(r -> r.index));
+        // Calibrate the overhead of timing from the shortest samples, which
+        // are mostly overhead: that of a sample with no nested sample is the
+        // overhead of the timer, and that of a sample with one nested sample
+        // also includes the overhead of a profiling sink
+        long minNanos = Long.MAX_VALUE, minNestedNanos = Long.MAX_VALUE;
+        for (StageRecord r : rs) {
+            minNanos = Math.min(minNanos, r.minNanos);
+            minNestedNanos = Math.min(minNestedNanos, r.minNestedNanos);
+        }
+        long timerNanos = (minNanos == Long.MAX_VALUE) ? 0L : minNanos;
+        long sinkNanos = (minNestedNanos == Long.MAX_VALUE) ? 0L
+                         : Math.max(minNestedNanos - timerNanos, 0L);
+        ArrayList<StreamProfile.Stage> profiles = new ArrayList<>(rs.length);
+        long downstreamNanos = 0L;
+        // Walk upstream, so that the time of the downstream stage, which
+        // is included in that of a stage, is known
+        for (int i = rs.length - 1; i >= 0; i--) {
+            StageRecord r = rs[i];
+            long totalNanos = Math.min(r.totalNanos(timerNanos, sinkNanos), maxNanos);
+            profiles.add(new StreamProfile.Stage(r.name, r.index, r.count.sum(), totalNanos,
+                                                 Math.max(totalNanos - downstreamNanos, 0L),
+                                                 r.barrierNanos));
+            downstreamNanos = totalNanos;
+        }
+        Collections.reverse(profiles);
+        List<StreamProfile.Stage> stageList = Collections.unmodifiableList(profiles);
+
+        StreamProfile profile;
+        synchronized (this) {
+            profile = new StreamProfile(
+                    parallel, elapsedNanos, stageList, leafCount,
+                    (leafCount > 0) ? minDepth : 0, maxDepth,
+                    maxLeafSize,
+                    (sizedLeafCount > 0) ? (double) totalLeafSize / sizedLeafCount : 0.0,
+                    maxLeafNanos,
+                    (leafCount > 0) ? (double) totalLeafNanos / leafCount : 0.0,
+                    workers.size(), poolParallelism,
+                    activeThreadCount, queuedTaskCount, stealCount);
+            workers.clear();
+        }
+        for (Consumer<? super StreamProfile> reporter : reporters)
+            reporter.accept(profile);
+    }
+
+    /**
+     * The counters of a stage.
+     */
+    static final class StageRecord {
+        final int index;
+        final String name;
+        long barrierNanos;  // set by the thread evaluating the terminal operation
+        final LongAdder count = new LongAdder();
+        final LongAdder sampled = new LongAdder();
+        final LongAdder sampledNanos = new LongAdder();
+        final LongAdder nestedSamples = new LongAdder();
+        final LongAdder boundaryNanos = new LongAdder();
+        // The shortest times of the samples with no and with one nested
+        // sample, updated without synchronization, since a lost update only
+        // alters the estimate of the overhead
+        long minNanos = Long.MAX_VALUE;
+        long minNestedNanos = Long.MAX_VALUE;
+
+        StageRecord(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        /**
+         * Records the time of an element timed by the stage.
+         *
+         * @param nanos the time taken by the downstream stages
+         * @param nested the number of times the element was timed by the
+         *        downstream stages within that time
+         */
+        void sample(long nanos, int nested) {
+            sampledNanos.add(nanos);
+            sampled.increment();
+            if (nested == 0) {
+                if (nanos < minNanos)
+                    minNanos = nanos;
+            }
+            else {
+                nestedSamples.add(nested);
+                if (nested == 1 && nanos < minNestedNanos)
+                    minNestedNanos = nanos;
+            }
+        }
+
+        /**
+         * Returns the estimated time spent in the stage, including the
+         * downstream stages, less the estimated overhead of timing the
+         * elements.
+         *
+         * @param timerNanos the overhead included in the time of a sample
+         * @param sinkNanos the overhead added to the time of a sample by
+         *        each nested sample
+         */
+        long totalNanos(long timerNanos, long sinkNanos) {
+            long n = sampled.sum();
+            long acceptNanos = 0L;
+            if (n != 0) {
+                long nanos = sampledNanos.sum() - n * timerNanos
+                             - nestedSamples.sum() * sinkNanos;
+                acceptNanos = (long) ((double) Math.max(nanos, 0L) * count.sum() / n);
+            }
+            return acceptNanos + boundaryNanos.sum();
+        }
+    }
+
+    /**
+     * The sampling state of a chain of profiling sinks.  The sinks of a
+     * chain may be shared between threads, but the state is not
+     * synchronized, since a lost update only alters the sample.
+     */
+    static final class Sampler {
+        boolean active;  // true while an element is being timed
+        int timed;       // number of times an element was timed by a sink
+    }
+
+    /*
+     * The profiling sinks.  A sink times an element if an upstream sink is
+     * timing it, or else one in SAMPLE_MASK + 1 of the elements it receives.
+     */
+
+    private static final class OfRef<T> extends Sink.ChainedReference<T, T> {
+        private final StageRecord stage;
+        private final Sampler sampler;
+        private int tick;
+
+        OfRef(StageRecord stage, Sampler sampler, Sink<? super T> downstream) {
+            super(downstream);
+            this.stage = stage;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void begin(long size) {
+            long start = System.nanoTime();
+            downstream.begin(size);
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void end() {
+            long start = System.nanoTime();
+            downstream.end();
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void accept(T t) {
+            stage.count.increment();
+            Sampler s = sampler;
+            if (s.active) {
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+            else if ((++tick & SAMPLE_MASK) != 0)
+                downstream.accept(t);
+            else {
+                s.active = true;
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                try {
+                    downstream.accept(t);
+                } finally {
+                    s.active = false;
+                }
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+        }
+    }
+
+    private static final class OfInt extends Sink.ChainedInt<Integer> {
+        private final StageRecord stage;
+        private final Sampler sampler;
+        private int tick;
+
+        OfInt(StageRecord stage, Sampler sampler, Sink<? super Integer> downstream) {
+            super(downstream);
+            this.stage = stage;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void begin(long size) {
+            long start = System.nanoTime();
+            downstream.begin(size);
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void end() {
+            long start = System.nanoTime();
+            downstream.end();
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void accept(int t) {
+            stage.count.increment();
+            Sampler s = sampler;
+            if (s.active) {
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+            else if ((++tick & SAMPLE_MASK) != 0)
+                downstream.accept(t);
+            else {
+                s.active = true;
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                try {
+                    downstream.accept(t);
+                } finally {
+                    s.active = false;
+                }
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+        }
+    }
+
+    private static final class OfLong extends Sink.ChainedLong<Long> {
+        private final StageRecord stage;
+        private final Sampler sampler;
+        private int tick;
+
+        OfLong(StageRecord stage, Sampler sampler, Sink<? super Long> downstream) {
+            super(downstream);
+            this.stage = stage;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void begin(long size) {
+            long start = System.nanoTime();
+            downstream.begin(size);
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void end() {
+            long start = System.nanoTime();
+            downstream.end();
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void accept(long t) {
+            stage.count.increment();
+            Sampler s = sampler;
+            if (s.active) {
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+            else if ((++tick & SAMPLE_MASK) != 0)
+                downstream.accept(t);
+            else {
+                s.active = true;
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                try {
+                    downstream.accept(t);
+                } finally {
+                    s.active = false;
+                }
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+        }
+    }
+
+    private static final class OfDouble extends Sink.ChainedDouble<Double> {
+        private final StageRecord stage;
+        private final Sampler sampler;
+        private int tick;
+
+        OfDouble(StageRecord stage, Sampler sampler, Sink<? super Double> downstream) {
+            super(downstream);
+            this.stage = stage;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void begin(long size) {
+            long start = System.nanoTime();
+            downstream.begin(size);
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void end() {
+            long start = System.nanoTime();
+            downstream.end();
+            stage.boundaryNanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void accept(double t) {
+            stage.count.increment();
+            Sampler s = sampler;
+            if (s.active) {
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+            else if ((++tick & SAMPLE_MASK) != 0)
+                downstream.accept(t);
+            else {
+                s.active = true;
+                int timed = ++s.timed;
+                long start = System.nanoTime();
+                try {
+                    downstream.accept(t);
+                } finally {
+                    s.active = false;
+                }
+                stage.sample(System.nanoTime() - start, s.timed - timed);
+            }
+        }
+    }
+}
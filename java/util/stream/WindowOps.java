@@ -0,0 +1,808 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Factory for instances of stateful intermediate operations that group
+ * consecutive elements of their input stream into windows, each of which
+ * is an element of the output stream.
+ *
+ * <p>Windows are either of a fixed size, starting every {@code step}
+ * elements (a "batch" operation being one where the step equals the size,
+ * and the trailing partial window is retained), or runs of adjacent
+ * elements with equal keys.  Sequential evaluation groups the elements as
+ * they are pushed, holding at most one window.  Parallel evaluation
+ * collects the upstream elements into an array, whose windows are then
+ * produced by a spliterator that splits over window indices, so that the
+ * downstream pipeline is evaluated in parallel.
+ *
+ * <p>The default implementations of the window methods of {@link Stream},
+ * {@link IntStream}, {@link LongStream} and {@link DoubleStream}, for
+ * streams that are not pipelines of this package, instead pull the
+ * elements of the stream's spliterator through the same sinks.
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    // No instances
+    private WindowOps() { }
+
+    /** Initial capacity of a window buffer when the window size is large */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Flags of the window operations */
+    private static final int FLAGS
+            = StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT | StreamOpFlag.NOT_SIZED;
+
+    /**
+     * Appends a window operation to the provided stream, producing a
+     * {@code List} of each window.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       int size, int step, boolean partial) {
+        return new WindowOp<T, List<T>>(upstream, StreamShape.REFERENCE) {
+            @Override
+            <P_IN> WindowSpliterator<List<T>> windows(PipelineHelper<T> helper,
+                                                      Spliterator<P_IN> spliterator) {
+                List<T> list = Arrays.asList(evaluateToArray(helper, spliterator));
+                int length = list.size();
+                return new WindowSpliterator<>(i -> {
+                    int from = i * step;
+                    return new ArrayList<>(list.subList(from, windowEnd(from, size, length)));
+                }, 0, (int) windowCount(length, size, step, partial));
+            }
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                return new RefWindowSink<>(sink, size, step, partial);
+            }
+        };
+    }
+
+    /**
+     * Appends a window operation to the provided stream, producing an
+     * {@code int[]} of each window.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<int[]> makeInt(AbstractPipeline<?, Integer, ?> upstream,
+                                 int size, int step, boolean partial) {
+        return new WindowOp<Integer, int[]>(upstream, StreamShape.INT_VALUE) {
+            @Override
+            <P_IN> WindowSpliterator<int[]> windows(PipelineHelper<Integer> helper,
+                                                    Spliterator<P_IN> spliterator) {
+                int[] a = ((Node.OfInt) helper.evaluate(spliterator, true, Integer[]::new))
+                        .asPrimitiveArray();
+                return new WindowSpliterator<>(i -> {
+                    int from = i * step;
+                    return Arrays.copyOfRange(a, from, windowEnd(from, size, a.length));
+                }, 0, (int) windowCount(a.length, size, step, partial));
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+                return new IntWindowSink(sink, size, step, partial);
+            }
+        };
+    }
+
+    /**
+     * Appends a window operation to the provided stream, producing a
+     * {@code long[]} of each window.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<long[]> makeLong(AbstractPipeline<?, Long, ?> upstream,
+                                   int size, int step, boolean partial) {
+        return new WindowOp<Long, long[]>(upstream, StreamShape.LONG_VALUE) {
+            @Override
+            <P_IN> WindowSpliterator<long[]> windows(PipelineHelper<Long> helper,
+                                                     Spliterator<P_IN> spliterator) {
+                long[] a = ((Node.OfLong) helper.evaluate(spliterator, true, Long[]::new))
+                        .asPrimitiveArray();
+                return new WindowSpliterator<>(i -> {
+                    int from = i * step;
+                    return Arrays.copyOfRange(a, from, windowEnd(from, size, a.length));
+                }, 0, (int) windowCount(a.length, size, step, partial));
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<long[]> sink) {
+                return new LongWindowSink(sink, size, step, partial);
+            }
+        };
+    }
+
+    /**
+     * Appends a window operation to the provided stream, producing a
+     * {@code double[]} of each window.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<double[]> makeDouble(AbstractPipeline<?, Double, ?> upstream,
+                                       int size, int step, boolean partial) {
+        return new WindowOp<Double, double[]>(upstream, StreamShape.DOUBLE_VALUE) {
+            @Override
+            <P_IN> WindowSpliterator<double[]> windows(PipelineHelper<Double> helper,
+                                                       Spliterator<P_IN> spliterator) {
+                double[] a = ((Node.OfDouble) helper.evaluate(spliterator, true, Double[]::new))
+                        .asPrimitiveArray();
+                return new WindowSpliterator<>(i -> {
+                    int from = i * step;
+                    return Arrays.copyOfRange(a, from, windowEnd(from, size, a.length));
+                }, 0, (int) windowCount(a.length, size, step, partial));
+            }
+
+            @Override
+            Sink<Double> opWrapSink(int flags, Sink<double[]> sink) {
+                return new DoubleWindowSink(sink, size, step, partial);
+            }
+        };
+    }
+
+    /**
+     * Appends an operation to the provided stream that produces a
+     * {@code List} of each run of adjacent elements whose keys are equal.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param classifier the function computing the key of an element
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> makeRefGrouping(AbstractPipeline<?, T, ?> upstream,
+                                               Function<? super T, ?> classifier) {
+        return new WindowOp<T, List<T>>(upstream, StreamShape.REFERENCE) {
+            @Override
+            <P_IN> WindowSpliterator<List<T>> windows(PipelineHelper<T> helper,
+                                                      Spliterator<P_IN> spliterator) {
+                List<T> list = Arrays.asList(evaluateToArray(helper, spliterator));
+                int length = list.size();
+                // Indices of the first element of each group
+                int[] starts = new int[INITIAL_CAPACITY];
+                int n = 0;
+                Object key = null;
+                for (int i = 0; i < length; i++) {
+                    Object k = classifier.apply(list.get(i));
+                    if (i == 0 || !Objects.equals(key, k)) {
+                        if (n == starts.length)
+                            starts = Arrays.copyOf(starts, n * 2);
+                        starts[n++] = i;
+                    }
+                    key = k;
+                }
+                int[] s = starts;
+                int groups = n;
+                return new WindowSpliterator<>(i -> {
+                    int to = (i + 1 < groups) ? s[i + 1] : length;
+                    return new ArrayList<>(list.subList(s[i], to));
+                }, 0, groups);
+            }
+
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+                return new GroupingSink<>(sink, classifier);
+            }
+        };
+    }
+
+    /**
+     * Returns a stream of the {@code List} of each fixed size window of the
+     * elements of the provided stream, which need not be a pipeline.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> pullRef(Stream<T> upstream,
+                                       int size, int step, boolean partial) {
+        return pull(upstream, sink -> new RefWindowSink<>(sink, size, step, partial));
+    }
+
+    /**
+     * Returns a stream of the {@code int[]} of each fixed size window of
+     * the elements of the provided stream, which need not be a pipeline.
+     *
+     * @param upstream an int stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<int[]> pullInt(IntStream upstream,
+                                 int size, int step, boolean partial) {
+        return pull(upstream, sink -> new IntWindowSink(sink, size, step, partial));
+    }
+
+    /**
+     * Returns a stream of the {@code long[]} of each fixed size window of
+     * the elements of the provided stream, which need not be a pipeline.
+     *
+     * @param upstream a long stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<long[]> pullLong(LongStream upstream,
+                                   int size, int step, boolean partial) {
+        return pull(upstream, sink -> new LongWindowSink(sink, size, step, partial));
+    }
+
+    /**
+     * Returns a stream of the {@code double[]} of each fixed size window of
+     * the elements of the provided stream, which need not be a pipeline.
+     *
+     * @param upstream a double stream
+     * @param size the number of elements in a window, assumed to be > 0
+     * @param step the distance between the starts of consecutive windows,
+     *        assumed to be > 0, and to equal {@code size} if {@code partial}
+     *        is true
+     * @param partial whether a trailing window with fewer than {@code size}
+     *        elements is produced
+     * @return the new stream
+     */
+    static Stream<double[]> pullDouble(DoubleStream upstream,
+                                       int size, int step, boolean partial) {
+        return pull(upstream, sink -> new DoubleWindowSink(sink, size, step, partial));
+    }
+
+    /**
+     * Returns a stream of the {@code List} of each run of adjacent elements
+     * with equal keys of the provided stream, which need not be a pipeline.
+     *
+     * @param <T> the type of the input elements
+     * @param upstream a reference stream with element type T
+     * @param classifier the function computing the key of an element
+     * @return the new stream
+     */
+    static <T> Stream<List<T>> pullRefGrouping(Stream<T> upstream,
+                                               Function<? super T, ?> classifier) {
+        return pull(upstream, sink -> new GroupingSink<>(sink, classifier));
+    }
+
+    /**
+     * Returns a stream of the windows produced by pulling the elements of
+     * the spliterator of the provided stream through the window sink
+     * created by the given factory.
+     */
+    private static <T, W> Stream<W> pull(BaseStream<T, ?> upstream,
+                                         Function<Sink<W>, Sink<T>> sinkFactory) {
+        return StreamSupport.stream(new PullingSpliterator<>(upstream.spliterator(), sinkFactory),
+                                    upstream.isParallel())
+                            .onClose(upstream::close);
+    }
+
+    /**
+     * Returns the number of windows over the given number of elements.
+     */
+    private static long windowCount(long length, int size, int step, boolean partial) {
+        if (partial) // step == size
+            return length / size + ((length % size == 0) ? 0 : 1);
+        return (length < size) ? 0 : (length - size) / step + 1;
+    }
+
+    /**
+     * Returns the index one past the last element of the window starting
+     * at the given index.
+     */
+    private static int windowEnd(int from, int size, int length) {
+        return (int) Math.min((long) from + size, length);
+    }
+
+    /**
+     * Evaluates the pipeline described by the given helper into an array.
+     */
+    private static <T, P_IN> T[] evaluateToArray(PipelineHelper<T> helper,
+                                                 Spliterator<P_IN> spliterator) {
+        @SuppressWarnings("unchecked")
+        IntFunction<T[]> generator = size -> (T[]) new Object[size];
+        return helper.evaluate(spliterator, true, generator).asArray(generator);
+    }
+
+    /**
+     * A window operation, whose parallel evaluation is barrier-based.
+     *
+     * @param <E_IN> the type of the input elements
+     * @param <W> the type of the windows
+     */
+    private static abstract class WindowOp<E_IN, W>
+            extends ReferencePipeline.StatefulOp<E_IN, W> {
+        WindowOp(AbstractPipeline<?, E_IN, ?> upstream, StreamShape inputShape) {
+            super(upstream, inputShape, FLAGS);
+        }
+
+        /**
+         * Evaluates the upstream pipeline, returning a spliterator over
+         * all the windows.
+         */
+        abstract <P_IN> WindowSpliterator<W> windows(PipelineHelper<E_IN> helper,
+                                                     Spliterator<P_IN> spliterator);
+
+        /**
+         * Returns the given helper, which describes the upstream pipeline
+         * and so has output elements of the input type of this operation.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private PipelineHelper<E_IN> upstream(PipelineHelper<W> helper) {
+            return (PipelineHelper) helper;
+        }
+
+        @Override
+        final <P_IN> Node<W> opEvaluateParallel(PipelineHelper<W> helper,
+                                                Spliterator<P_IN> spliterator,
+                                                IntFunction<W[]> generator) {
+            WindowSpliterator<W> s = windows(upstream(helper), spliterator);
+            W[] windows = generator.apply(s.fence);
+            Arrays.parallelSetAll(windows, s.windows);
+            return Nodes.node(windows);
+        }
+
+        @Override
+        final <P_IN> Spliterator<W> opEvaluateParallelLazy(PipelineHelper<W> helper,
+                                                           Spliterator<P_IN> spliterator) {
+            return windows(upstream(helper), spliterator);
+        }
+    }
+
+    /**
+     * A spliterator over a range of windows, each of which is produced on
+     * demand from its index.
+     */
+    private static final class WindowSpliterator<W> implements Spliterator<W> {
+        final IntFunction<? extends W> windows;
+        int index;        // current index, modified on advance/split
+        final int fence;  // one past last index
+
+        WindowSpliterator(IntFunction<? extends W> windows, int origin, int fence) {
+            this.windows = windows;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public WindowSpliterator<W> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            return (lo >= mid)
+                   ? null
+                   : new WindowSpliterator<>(windows, lo, index = mid);
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            int i = index, hi = fence;
+            index = hi;
+            for (; i < hi; i++)
+                action.accept(windows.apply(i));
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            if (index < fence) {
+                action.accept(windows.apply(index++));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                   Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super W> getComparator() {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * A sequential spliterator over the windows produced by a window sink
+     * from the elements of a source spliterator, which are pulled one at a
+     * time until the sink produces a window.
+     */
+    private static final class PullingSpliterator<T, W> implements Spliterator<W> {
+        private final Spliterator<T> source;
+        private final Sink<T> sink;
+        private final ArrayDeque<W> windows = new ArrayDeque<>();
+        private boolean begun;
+        private boolean ended;
+
+        PullingSpliterator(Spliterator<T> source, Function<Sink<W>, Sink<T>> sinkFactory) {
+            this.source = source;
+            this.sink = sinkFactory.apply(windows::add);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            Objects.requireNonNull(action);
+            if (!begun) {
+                begun = true;
+                sink.begin(source.getExactSizeIfKnown());
+            }
+            while (windows.isEmpty()) {
+                if (ended)
+                    return false;
+                if (!source.tryAdvance(sink)) {
+                    ended = true;
+                    sink.end();
+                }
+            }
+            action.accept(windows.poll());
+            return true;
+        }
+
+        @Override
+        public Spliterator<W> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return (source.characteristics() & Spliterator.ORDERED) | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Sink for fixed size windows of references.
+     */
+    private static final class RefWindowSink<T> extends Sink.ChainedReference<T, List<T>> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private ArrayList<T> window;
+        private int skip;  // elements to drop before the next window starts
+
+        RefWindowSink(Sink<? super List<T>> downstream, int size, int step, boolean partial) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public void begin(long n) {
+            window = new ArrayList<>(Math.min(size, INITIAL_CAPACITY));
+            skip = 0;
+            downstream.begin(n < 0 ? -1 : windowCount(n, size, step, partial));
+        }
+
+        @Override
+        public void accept(T t) {
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+            ArrayList<T> w = window;
+            w.add(t);
+            if (w.size() == size) {
+                if (step >= size) {
+                    window = new ArrayList<>(size);
+                    skip = step - size;
+                    downstream.accept(w);
+                }
+                else {
+                    downstream.accept(new ArrayList<>(w));
+                    w.subList(0, step).clear();
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+            if (partial && !window.isEmpty() && !downstream.cancellationRequested())
+                downstream.accept(window);
+            window = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * Sink for fixed size windows of ints.
+     */
+    private static final class IntWindowSink extends Sink.ChainedInt<int[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private int[] window;
+        private int count; // elements in the current window
+        private int skip;  // elements to drop before the next window starts
+
+        IntWindowSink(Sink<? super int[]> downstream, int size, int step, boolean partial) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public void begin(long n) {
+            window = new int[Math.min(size, INITIAL_CAPACITY)];
+            count = 0;
+            skip = 0;
+            downstream.begin(n < 0 ? -1 : windowCount(n, size, step, partial));
+        }
+
+        @Override
+        public void accept(int t) {
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+            int[] w = window;
+            if (count == w.length)
+                window = w = Arrays.copyOf(w, (int) Math.min(2L * count, size));
+            w[count++] = t;
+            if (count == size) {
+                if (step >= size) {
+                    window = new int[size];
+                    count = 0;
+                    skip = step - size;
+                    downstream.accept(w);
+                }
+                else {
+                    downstream.accept(w.clone());
+                    System.arraycopy(w, step, w, 0, size - step);
+                    count = size - step;
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+            if (partial && count > 0 && !downstream.cancellationRequested())
+                downstream.accept(Arrays.copyOf(window, count));
+            window = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * Sink for fixed size windows of longs.
+     */
+    private static final class LongWindowSink extends Sink.ChainedLong<long[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private long[] window;
+        private int count; // elements in the current window
+        private int skip;  // elements to drop before the next window starts
+
+        LongWindowSink(Sink<? super long[]> downstream, int size, int step, boolean partial) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public void begin(long n) {
+            window = new long[Math.min(size, INITIAL_CAPACITY)];
+            count = 0;
+            skip = 0;
+            downstream.begin(n < 0 ? -1 : windowCount(n, size, step, partial));
+        }
+
+        @Override
+        public void accept(long t) {
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+            long[] w = window;
+            if (count == w.length)
+                window = w = Arrays.copyOf(w, (int) Math.min(2L * count, size));
+            w[count++] = t;
+            if (count == size) {
+                if (step >= size) {
+                    window = new long[size];
+                    count = 0;
+                    skip = step - size;
+                    downstream.accept(w);
+                }
+                else {
+                    downstream.accept(w.clone());
+                    System.arraycopy(w, step, w, 0, size - step);
+                    count = size - step;
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+            if (partial && count > 0 && !downstream.cancellationRequested())
+                downstream.accept(Arrays.copyOf(window, count));
+            window = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * Sink for fixed size windows of doubles.
+     */
+    private static final class DoubleWindowSink extends Sink.ChainedDouble<double[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+        private double[] window;
+        private int count; // elements in the current window
+        private int skip;  // elements to drop before the next window starts
+
+        DoubleWindowSink(Sink<? super double[]> downstream, int size, int step, boolean partial) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public void begin(long n) {
+            window = new double[Math.min(size, INITIAL_CAPACITY)];
+            count = 0;
+            skip = 0;
+            downstream.begin(n < 0 ? -1 : windowCount(n, size, step, partial));
+        }
+
+        @Override
+        public void accept(double t) {
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+            double[] w = window;
+            if (count == w.length)
+                window = w = Arrays.copyOf(w, (int) Math.min(2L * count, size));
+            w[count++] = t;
+            if (count == size) {
+                if (step >= size) {
+                    window = new double[size];
+                    count = 0;
+                    skip = step - size;
+                    downstream.accept(w);
+                }
+                else {
+                    downstream.accept(w.clone());
+                    System.arraycopy(w, step, w, 0, size - step);
+                    count = size - step;
+                }
+            }
+        }
+
+        @Override
+        public void end() {
+            if (partial && count > 0 && !downstream.cancellationRequested())
+                downstream.accept(Arrays.copyOf(window, count));
+            window = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * Sink for runs of adjacent elements with equal keys.
+     */
+    private static final class GroupingSink<T> extends Sink.ChainedReference<T, List<T>> {
+        private final Function<? super T, ?> classifier;
+        private ArrayList<T> group;
+        private Object key;
+
+        GroupingSink(Sink<? super List<T>> downstream, Function<? super T, ?> classifier) {
+            super(downstream);
+            this.classifier = classifier;
+        }
+
+        @Override
+        public void begin(long n) {
+            group = new ArrayList<>();
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T t) {
+            Object k = classifier.apply(t);
+            if (!group.isEmpty() && !Objects.equals(key, k)) {
+                downstream.accept(group);
+                group = new ArrayList<>();
+            }
+            key = k;
+            group.add(t);
+        }
+
+        @Override
+        public void end() {
+            if (!group.isEmpty() && !downstream.cancellationRequested())
+                downstream.accept(group);
+            group = null;
+            key = null;
+            downstream.end();
+        }
+    }
+}